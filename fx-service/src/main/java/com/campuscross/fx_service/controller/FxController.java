@@ -6,6 +6,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestParam;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.springframework.http.ResponseEntity;
 
@@ -39,6 +42,16 @@ public class FxController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /**
+     * This method handles: GET /api/v1/fx/rates/USD?symbols=EUR,GBP,INR
+     * Market rates without the spread, for valuing balances rather than quoting a trade.
+     */
+    @GetMapping("/rates/{base}")
+    public ResponseEntity<RatesResponse> getRates(@PathVariable String base, @RequestParam List<String> symbols) {
+        Map<String, BigDecimal> rates = fxService.getMidRates(base, symbols);
+        return ResponseEntity.ok(new RatesResponse(base, rates));
+    }
 }
 
 // --- Create this simple class (e.g., QuoteResponse.java) ---
@@ -0,0 +1,47 @@
+package com.campuscross.fx_service.controller;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * DTO returned by FxController for bulk rates: { base, rates, timestamp }
+ */
+public class RatesResponse {
+    private String base;
+    private Map<String, BigDecimal> rates;
+    private Instant timestamp;
+
+    public RatesResponse() {
+    }
+
+    public RatesResponse(String base, Map<String, BigDecimal> rates) {
+        this.base = base;
+        this.rates = rates;
+        this.timestamp = Instant.now();
+    }
+
+    public String getBase() {
+        return base;
+    }
+
+    public void setBase(String base) {
+        this.base = base;
+    }
+
+    public Map<String, BigDecimal> getRates() {
+        return rates;
+    }
+
+    public void setRates(Map<String, BigDecimal> rates) {
+        this.rates = rates;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+}
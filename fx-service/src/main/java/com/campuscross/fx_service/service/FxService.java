@@ -9,6 +9,9 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -40,6 +43,27 @@ public class FxService {
      */
 
     public Optional<BigDecimal> getCustomerQuote(String from, String to) {
+        // Apply the spread (0.99 for 1% profit)
+        return getMidRate(from, to).map(rate -> rate.multiply(SPREAD).setScale(6, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Market rates from the base currency to each of the given currencies, without the
+     * spread. Currencies without a rate are left out.
+     */
+    public Map<String, BigDecimal> getMidRates(String base, List<String> currencies) {
+        Map<String, BigDecimal> rates = new LinkedHashMap<>();
+        for (String currency : currencies) {
+            if (currency.equals(base)) {
+                rates.put(currency, BigDecimal.ONE);
+            } else {
+                getMidRate(base, currency).ifPresent(rate -> rates.put(currency, rate));
+            }
+        }
+        return rates;
+    }
+
+    private Optional<BigDecimal> getMidRate(String from, String to) {
         Optional<BigDecimal> realRate = cacheDelegate.getRateWithCache(from, to);
 
         return realRate.map(rate -> {
@@ -57,8 +81,7 @@ public class FxService {
                 log.info("Inverted JPY→{}: {} → {}", to, rate, correctedRate);
             }
 
-            // Apply the spread (0.99 for 1% profit)
-            return correctedRate.multiply(SPREAD).setScale(6, RoundingMode.HALF_UP);
+            return correctedRate;
         });
     }
 
@@ -0,0 +1,110 @@
+package com.campuscross.wallet.benchmarks;
+
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-memory stand-ins for the Spring Data repositories and other infrastructure the benchmarked
+ * classes are constructed with, so a benchmark measures the code path and not the database.
+ */
+final class Fakes {
+
+    private Fakes() {
+    }
+
+    /**
+     * A repository whose methods are answered by the given handlers, keyed by method name.
+     * Any other repository method throws, so a benchmark cannot silently measure a no-op.
+     */
+    static <R> R repository(Class<R> type, Map<String, Function<Object[], Object>> handlers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "Fake" + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "equals":
+                    return self == args[0];
+                default:
+                    Function<Object[], Object> handler = handlers.get(method.getName());
+                    if (handler == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                    }
+                    return handler.apply(args);
+            }
+        });
+        return type.cast(proxy);
+    }
+
+    static <R> R repository(Class<R> type) {
+        return repository(type, Map.of());
+    }
+
+    static Map<String, Function<Object[], Object>> handlers() {
+        return new HashMap<>();
+    }
+
+    /**
+     * Runs the callback of a {@code TransactionTemplate} without a transaction
+     */
+    static PlatformTransactionManager transactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    static User user(String studentId, String campus) {
+        User user = new User();
+        user.setStudentId(studentId);
+        user.setCampusName(campus);
+        return user;
+    }
+
+    static Wallet wallet(long id, User user, String balance) {
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        wallet.setUser(user);
+        wallet.setWalletAddress("WLT-" + id);
+        wallet.setStatus(Wallet.WalletStatus.ACTIVE);
+        wallet.setBalance(new BigDecimal(balance));
+        wallet.setCurrencyCode("USD");
+        wallet.setDailyLimit(new BigDecimal("1000.00"));
+        wallet.setMonthlyLimit(new BigDecimal("10000.00"));
+        return wallet;
+    }
+
+    /**
+     * Sets a field normally injected with {@code @Value}
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + fieldName, e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.campuscross.wallet.benchmarks;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.BlockedMerchantRepository;
+import com.campuscross.wallet.repository.FraudRuleDefinitionRepository;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.service.FraudDetectionService;
+import com.campuscross.wallet.service.TransferGraph;
+import com.campuscross.wallet.service.VelocityTracker;
+import com.campuscross.wallet.service.fraud.BuiltInFraudRules;
+import com.campuscross.wallet.service.fraud.FraudContext;
+import com.campuscross.wallet.service.fraud.FraudRuleEngine;
+import com.campuscross.wallet.service.fraud.FraudScoringService;
+import com.campuscross.wallet.service.fraud.MerchantBlocklist;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * The blocking fraud checks of each payment type, run through {@link FraudDetectionService}
+ * with the default rule set, and the after-commit ring search.
+ *
+ * {@code velocity=memory} measures the normal path, where the velocity counters are warm and
+ * every blocking rule runs inline. {@code velocity=database} measures the fallback, where the
+ * frequency rules are costed as database queries and run in parallel on the rule executor;
+ * the fake repository answers instantly, so this isolates the fan-out overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FraudDetectionBenchmark {
+
+    private static final String IP = "10.0.0.1";
+
+    @Param({"memory", "database"})
+    public String velocity;
+
+    private ExecutorService ruleExecutor;
+    private FraudRuleEngine fraudRuleEngine;
+    private FraudDetectionService fraudDetectionService;
+
+    private Wallet source;
+    private Wallet target;
+    private Wallet ringStart;
+    private Wallet ringNext;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PlatformTransactionManager transactionManager = Fakes.transactionManager();
+
+        Map<String, Function<Object[], Object>> transactions = Fakes.handlers();
+        transactions.put("findOutgoingBetween", args -> List.of());
+        transactions.put("findTransferEdgesSince", args -> List.of());
+        transactions.put("sumOutgoingSince", args -> List.of());
+        transactions.put("countBetweenSince", args -> 0L);
+        TransactionRepository transactionRepository = Fakes.repository(TransactionRepository.class, transactions);
+
+        Map<String, Function<Object[], Object>> merchants = Fakes.handlers();
+        merchants.put("findLatestUpdate", args -> Optional.empty());
+        merchants.put("streamActiveMerchantIds", args -> Stream.of("MERCHANT001", "MERCHANT002", "MERCHANT003"));
+        MerchantBlocklist merchantBlocklist = new MerchantBlocklist(
+                Fakes.repository(BlockedMerchantRepository.class, merchants), transactionManager, meterRegistry, "", 0.01);
+        merchantBlocklist.reload();
+
+        VelocityTracker velocityTracker = new VelocityTracker(transactionRepository, meterRegistry,
+                velocity.equals("memory"), 200_000, 200_000, 500_000);
+        velocityTracker.warmUp();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (velocity.equals("memory") && !velocityTracker.isAuthoritative()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Velocity counters did not warm up");
+            }
+            Thread.sleep(10);
+        }
+        TransferGraph transferGraph = new TransferGraph(transactionRepository, meterRegistry,
+                true, 72, 1_000_000, 10_000, 500_000);
+
+        BuiltInFraudRules builtIn = new BuiltInFraudRules();
+        Map<String, Function<Object[], Object>> definitions = Fakes.handlers();
+        definitions.put("findByEnabledTrueOrderByName", args -> BuiltInFraudRules.defaultDefinitions());
+        ruleExecutor = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "fraud-rule");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fraudRuleEngine = new FraudRuleEngine(
+                Fakes.repository(FraudRuleDefinitionRepository.class, definitions),
+                List.of(builtIn.amountAboveRuleFactory(),
+                        builtIn.roundAmountRuleFactory(),
+                        builtIn.sameOwnerRuleFactory(),
+                        builtIn.crossCampusRuleFactory(),
+                        builtIn.merchantInListRuleFactory(),
+                        builtIn.merchantBlocklistRuleFactory(merchantBlocklist),
+                        builtIn.transferRingRuleFactory(transferGraph),
+                        builtIn.highFrequencyRuleFactory(velocityTracker, transactionRepository),
+                        builtIn.rapidRepeatRuleFactory(velocityTracker, transactionRepository)),
+                ruleExecutor, meterRegistry, 200, 1000, true, false);
+        fraudRuleEngine.reload();
+
+        // Shadow scoring of rejected payments runs on the calling thread; enforcement, the only
+        // user of the wallet service, is never reached by the blocking checks measured here
+        FraudScoringService fraudScoringService = new FraudScoringService(fraudRuleEngine, transactionRepository,
+                null, transactionManager, Runnable::run, meterRegistry);
+        fraudDetectionService = new FraudDetectionService(fraudRuleEngine, fraudScoringService);
+
+        User alice = Fakes.user("S1", "North");
+        User bob = Fakes.user("S2", "South");
+        source = Fakes.wallet(1, alice, "5000.00");
+        target = Fakes.wallet(2, bob, "5000.00");
+
+        // A few recent transfers so the velocity lookups find counters
+        for (int i = 0; i < 3; i++) {
+            velocityTracker.recordOnCommit(transfer(source, target, "25.00"));
+        }
+
+        // 10 -> 11 -> 12 -> 10 closes a ring of three when 10 sends to 11 again
+        ringStart = Fakes.wallet(10, alice, "5000.00");
+        ringNext = Fakes.wallet(11, bob, "5000.00");
+        Wallet ringLast = Fakes.wallet(12, Fakes.user("S3", "North"), "5000.00");
+        transferGraph.recordOnCommit(transfer(ringStart, ringNext, "100.00"));
+        transferGraph.recordOnCommit(transfer(ringNext, ringLast, "100.00"));
+        transferGraph.recordOnCommit(transfer(ringLast, ringStart, "100.00"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ruleExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean p2pTransferClear() {
+        return fraudDetectionService.isSuspiciousTransaction(source, target, new BigDecimal("25.00"), IP);
+    }
+
+    @Benchmark
+    public boolean p2pTransferHighValue() {
+        return fraudDetectionService.isSuspiciousTransaction(source, target, new BigDecimal("20000.00"), IP);
+    }
+
+    @Benchmark
+    public boolean campusPaymentClear() {
+        return fraudDetectionService.isSuspiciousCampusPayment(source, new BigDecimal("12.00"), "CAFETERIA01", IP);
+    }
+
+    @Benchmark
+    public boolean campusPaymentBlockedMerchant() {
+        return fraudDetectionService.isSuspiciousCampusPayment(source, new BigDecimal("12.00"), "MERCHANT002", IP);
+    }
+
+    @Benchmark
+    public boolean remittanceClear() {
+        return fraudDetectionService.isSuspiciousRemittance(source, target, new BigDecimal("300.00"), IP);
+    }
+
+    @Benchmark
+    public List<FraudRuleEngine.RuleMatch> asyncRulesWithTransferRing() {
+        return fraudRuleEngine.evaluateAll(FraudContext.of(Transaction.TransactionType.P2P_TRANSFER,
+                ringStart, ringNext, new BigDecimal("100.00"), null, IP), FraudRuleDefinition.Mode.ASYNC);
+    }
+
+    private static Transaction transfer(Wallet from, Wallet to, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setType(Transaction.TransactionType.P2P_TRANSFER);
+        transaction.setSourceWallet(from);
+        transaction.setTargetWallet(to);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setCurrencyCode(from.getCurrencyCode());
+        return transaction;
+    }
+}
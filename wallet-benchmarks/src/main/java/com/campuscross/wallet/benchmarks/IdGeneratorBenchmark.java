@@ -0,0 +1,81 @@
+package com.campuscross.wallet.benchmarks;
+
+import com.campuscross.wallet.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction id and wallet address generation. The generator is shared, so the contended
+ * variants show the cost of the CAS loop under concurrent transfers. The uuid benchmarks are
+ * the baseline: the format ids had before the generator (16 hex digits of a random UUID) and a
+ * bare {@link UUID#randomUUID()}, which draws from the shared SecureRandom. The index side of
+ * the comparison is wallet-loadtest's IdIndexComparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator idGenerator = new IdGenerator(1);
+
+    @Benchmark
+    public long nextId() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nextIdContended() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    public String nextTransactionId() {
+        return idGenerator.nextTransactionId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String nextTransactionIdContended() {
+        return idGenerator.nextTransactionId();
+    }
+
+    @Benchmark
+    public String nextWalletAddress() {
+        return idGenerator.nextWalletAddress();
+    }
+
+    @Benchmark
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public String uuidTransactionId() {
+        return uuidTransactionIdFormat();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String uuidTransactionIdContended() {
+        return uuidTransactionIdFormat();
+    }
+
+    private static String uuidTransactionIdFormat() {
+        return "TXN-" + UUID.randomUUID().toString().replace("-", "").toUpperCase().substring(0, 16);
+    }
+}
@@ -0,0 +1,62 @@
+package com.campuscross.wallet.benchmarks;
+
+import com.campuscross.wallet.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and the checks the security filter runs on every authenticated request
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private String tamperedToken;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        Fakes.inject(jwtUtil, "jwtSecret", "mySecretKey123456789012345678901234567890123456789012345678901234567890");
+        Fakes.inject(jwtUtil, "jwtExpiration", 86400000);
+        token = jwtUtil.generateToken("student@campus.edu", "S1", "STUDENT");
+        // Flip a character of the signature
+        char last = token.charAt(token.length() - 1);
+        tamperedToken = token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A');
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("student@campus.edu", "S1", "STUDENT");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean validateTamperedToken() {
+        return jwtUtil.validateToken(tamperedToken);
+    }
+
+    @Benchmark
+    public String getUserIdFromToken() {
+        return jwtUtil.getUserIdFromToken(token);
+    }
+}
@@ -0,0 +1,62 @@
+package com.campuscross.wallet.benchmarks;
+
+import com.campuscross.wallet.entity.MapJsonConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON conversion of map-valued columns (notification data, fraud rule params), paid on every
+ * load and flush of those entities
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapJsonConverterBenchmark {
+
+    private final MapJsonConverter converter = new MapJsonConverter();
+
+    private Map<String, Object> attribute;
+    private String column;
+
+    @Setup
+    public void setUp() {
+        attribute = new LinkedHashMap<>();
+        attribute.put("transactionId", "TXN-0B1F4C2A8D400001");
+        attribute.put("amount", "125.50");
+        attribute.put("currency", "USD");
+        attribute.put("maxPerHour", 10);
+        attribute.put("merchantIds", List.of("MERCHANT001", "MERCHANT002", "MERCHANT003"));
+        column = converter.convertToDatabaseColumn(attribute);
+    }
+
+    @Benchmark
+    public String toDatabaseColumn() {
+        return converter.convertToDatabaseColumn(attribute);
+    }
+
+    @Benchmark
+    public Map<String, Object> toEntityAttribute() {
+        return converter.convertToEntityAttribute(column);
+    }
+
+    @Benchmark
+    public Map<String, Object> roundTrip() {
+        return converter.convertToEntityAttribute(converter.convertToDatabaseColumn(attribute));
+    }
+}
@@ -0,0 +1,62 @@
+package com.campuscross.wallet.benchmarks;
+
+import com.campuscross.wallet.entity.Wallet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit and balance checks on a {@link Wallet}, done for every debit
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WalletBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("12.50");
+
+    private Wallet limited;
+    private Wallet unlimited;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        limited = Fakes.wallet(1, Fakes.user("S1", "North"), "1000000000.00");
+        // Raise the limits so repeated debits keep passing the checks
+        limited.setDailyLimit(new BigDecimal("1000000000.00"));
+        limited.setMonthlyLimit(new BigDecimal("1000000000.00"));
+
+        unlimited = Fakes.wallet(2, Fakes.user("S2", "North"), "1000000000.00");
+        unlimited.setDailyLimit(null);
+        unlimited.setMonthlyLimit(null);
+    }
+
+    @Benchmark
+    public boolean canSpendWithLimits() {
+        return limited.canSpend(AMOUNT);
+    }
+
+    @Benchmark
+    public boolean canSpendWithoutLimits() {
+        return unlimited.canSpend(AMOUNT);
+    }
+
+    @Benchmark
+    public BigDecimal deductBalance() {
+        limited.deductBalance(AMOUNT);
+        return limited.getBalance();
+    }
+}
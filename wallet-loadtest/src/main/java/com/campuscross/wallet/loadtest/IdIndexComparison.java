@@ -0,0 +1,142 @@
+package com.campuscross.wallet.loadtest;
+
+import com.campuscross.wallet.util.IdGenerator;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Bulk-insert comparison of the transaction id formats: the random UUID digits used before
+ * {@link IdGenerator} against the generator's time-ordered ids. Each format fills its own copy
+ * of a transactions-like table with a unique index on transaction_id, committing every
+ * {@code --batch-size} rows as the service would, and the report shows insert throughput and
+ * the size of the unique index afterwards. Random keys split leaf pages all over the index and
+ * leave them about half full; time-ordered keys append to the rightmost leaf.
+ *
+ * Leaf density comes from pgstattuple when the server has it, and is left out otherwise.
+ *
+ * Run with {@code mvn compile exec:java -Dexec.mainClass=com.campuscross.wallet.loadtest.IdIndexComparison
+ * -Dexec.args="--rows=2000000"}; {@code --jdbc-url} uses an existing, empty database instead of
+ * an embedded one.
+ */
+public final class IdIndexComparison {
+
+    private IdIndexComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int rows = Integer.parseInt(options.getOrDefault("rows", "1000000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch-size", "100"));
+
+        IdGenerator idGenerator = new IdGenerator(1);
+        Map<String, Supplier<String>> formats = new LinkedHashMap<>();
+        formats.put("uuid", () -> "TXN-" + UUID.randomUUID().toString().replace("-", "").toUpperCase().substring(0, 16));
+        formats.put("generator", idGenerator::nextTransactionId);
+
+        EmbeddedPostgres embedded = options.containsKey("jdbc-url") ? null : EmbeddedPostgres.builder()
+                .setServerConfig("shared_buffers", "256MB")
+                .start();
+        try {
+            DataSource dataSource = embedded != null
+                    ? embedded.getPostgresDatabase()
+                    : new DriverManagerDataSource(options.get("jdbc-url"),
+                    options.getOrDefault("jdbc-username", "postgres"), options.getOrDefault("jdbc-password", ""));
+            try (Connection connection = dataSource.getConnection()) {
+                boolean pgstattuple = tryExecute(connection, "CREATE EXTENSION IF NOT EXISTS pgstattuple");
+                System.out.printf(Locale.ROOT, "%d rows per format, committed every %d%n%n", rows, batchSize);
+                System.out.printf(Locale.ROOT, "%-10s %12s %12s %14s %12s%n",
+                        "format", "rows/s", "index MB", "bytes/row", "leaf density");
+                for (Map.Entry<String, Supplier<String>> format : formats.entrySet()) {
+                    Result result = run(connection, format.getKey(), format.getValue(), rows, batchSize, pgstattuple);
+                    System.out.printf(Locale.ROOT, "%-10s %12.0f %12.1f %14.1f %12s%n", format.getKey(),
+                            rows / result.seconds(), result.indexBytes() / 1048576.0,
+                            (double) result.indexBytes() / rows,
+                            result.leafDensity() != null ? String.format(Locale.ROOT, "%.1f%%", result.leafDensity()) : "n/a");
+                }
+            }
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    private static Result run(Connection connection, String name, Supplier<String> ids, int rows, int batchSize,
+                              boolean pgstattuple) throws SQLException {
+        String table = "ids_" + name;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id BIGSERIAL PRIMARY KEY, "
+                    + "transaction_id VARCHAR(50) NOT NULL, amount DECIMAL(19,8) NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            statement.execute("CREATE UNIQUE INDEX " + table + "_transaction_id ON " + table + "(transaction_id)");
+        }
+
+        long started = System.nanoTime();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + table + " (transaction_id, amount) VALUES (?, 10.00)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setString(1, ids.get());
+                insert.addBatch();
+                if (i % batchSize == 0 || i == rows) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        try (Statement statement = connection.createStatement()) {
+            long indexBytes = single(statement, "SELECT pg_relation_size('" + table + "_transaction_id')");
+            Double leafDensity = null;
+            if (pgstattuple) {
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT avg_leaf_density FROM pgstatindex('" + table + "_transaction_id')")) {
+                    rs.next();
+                    leafDensity = rs.getDouble(1);
+                }
+            }
+            return new Result(seconds, indexBytes, leafDensity);
+        }
+    }
+
+    private static long single(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static boolean tryExecute(Connection connection, String sql) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private record Result(double seconds, long indexBytes, Double leafDensity) {
+    }
+}
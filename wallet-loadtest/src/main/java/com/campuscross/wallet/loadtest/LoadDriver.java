@@ -0,0 +1,258 @@
+package com.campuscross.wallet.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives wallet-service with a fixed number of closed-loop clients: each client sends one
+ * request, waits for the response, and immediately picks the next operation from the
+ * configured mix. Latency is recorded per operation in microseconds.
+ *
+ * Every client draws from its own {@link Random} seeded from {@code --seed}, so two runs with
+ * the same settings send the same sequence of requests per client.
+ */
+final class LoadDriver {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadDriver.class);
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String[] MERCHANTS = {"CAFETERIA01", "BOOKSTORE01", "PRINTSHOP01", "GYM01"};
+
+    private final LoadTestConfig config;
+    private final List<Seeder.SeededUser> users;
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Operation[] weightedOperations;
+
+    LoadDriver(LoadTestConfig config, List<Seeder.SeededUser> users, int port) {
+        this.config = config;
+        this.users = users;
+        this.baseUrl = "http://localhost:" + port;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<Operation> weighted = new ArrayList<>();
+        config.mix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        });
+        this.weightedOperations = weighted.toArray(Operation[]::new);
+    }
+
+    /**
+     * Runs the clients for the given time and returns what they measured
+     */
+    Result run(Duration duration, long seed) throws InterruptedException {
+        Result result = new Result(duration);
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> clients = new ArrayList<>(config.clients());
+        for (int i = 0; i < config.clients(); i++) {
+            Random random = new Random(seed + i);
+            Thread client = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    execute(weightedOperations[random.nextInt(weightedOperations.length)], random, result);
+                }
+            }, "load-client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+        }
+        long started = System.nanoTime();
+        clients.forEach(Thread::start);
+        for (Thread client : clients) {
+            client.join();
+        }
+        result.elapsedNanos = System.nanoTime() - started;
+        return result;
+    }
+
+    private void execute(Operation operation, Random random, Result result) {
+        HttpRequest request;
+        try {
+            request = request(operation, random);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        result.record(operation, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), status);
+    }
+
+    private HttpRequest request(Operation operation, Random random) throws JsonProcessingException {
+        Seeder.SeededUser user = users.get(random.nextInt(users.size()));
+        return switch (operation) {
+            case P2P -> {
+                Seeder.SeededUser recipient = users.get(random.nextInt(users.size()));
+                while (recipient == user) {
+                    recipient = users.get(random.nextInt(users.size()));
+                }
+                yield post("/api/transactions/p2p-transfer", user, random, Map.of(
+                        "sourceWalletId", user.walletId(),
+                        "recipientIdentifier", recipient.userId(),
+                        "amount", amount(random),
+                        "description", "Load test transfer"));
+            }
+            case CAMPUS_PAYMENT -> post("/api/transactions/campus-payment", user, random, Map.of(
+                    "walletId", user.walletId(),
+                    "amount", amount(random),
+                    "merchantId", MERCHANTS[random.nextInt(MERCHANTS.length)],
+                    "campusLocation", "Main Building",
+                    "description", "Load test payment"));
+            case DEPOSIT -> post("/api/banking/deposit", user, random, Map.of(
+                    "userId", user.userId(),
+                    "amount", amount(random),
+                    "currency", "USD"));
+            case HISTORY -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/transactions/user/" + user.userId()
+                            + "/history?size=20"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+        };
+    }
+
+    private HttpRequest post(String path, Seeder.SeededUser user, Random random, Map<String, Object> body)
+            throws JsonProcessingException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + user.token())
+                .header("Idempotency-Key", new UUID(random.nextLong(), random.nextLong()).toString())
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+    }
+
+    /**
+     * Between 1.00 and 5.00
+     */
+    private static BigDecimal amount(Random random) {
+        return BigDecimal.valueOf(100 + random.nextInt(401), 2);
+    }
+
+    /**
+     * Latency histograms and status counts per operation
+     */
+    static final class Result {
+
+        private final Duration duration;
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+        private final Map<Operation, Map<Integer, LongAdder>> statuses = new EnumMap<>(Operation.class);
+        private volatile long elapsedNanos;
+
+        private Result(Duration duration) {
+            this.duration = duration;
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+                errors.put(operation, new LongAdder());
+                statuses.put(operation, new ConcurrentHashMap<>());
+            }
+        }
+
+        private void record(Operation operation, long micros, int status) {
+            latencies.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            if (status < 200 || status >= 300) {
+                errors.get(operation).increment();
+                statuses.get(operation).computeIfAbsent(status, s -> new LongAdder()).increment();
+            }
+        }
+
+        void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.printf("%n%-40s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            long total = 0;
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = latencies.get(operation);
+                long count = histogram.getTotalCount();
+                if (count == 0) {
+                    continue;
+                }
+                total += count;
+                out.printf("%-40s %9d %9.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        operation.endpoint(), count, count / seconds, errors.get(operation).sum(),
+                        millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                        millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                        millis(histogram.getMaxValue()));
+            }
+            out.printf("%-40s %9d %9.1f%n", "total", total, total / seconds);
+
+            for (Operation operation : Operation.values()) {
+                Map<Integer, LongAdder> failed = statuses.get(operation);
+                if (!failed.isEmpty()) {
+                    Map<String, Long> byStatus = new LinkedHashMap<>();
+                    failed.forEach((status, count) -> byStatus.put(status < 0 ? "io-error" : status.toString(), count.sum()));
+                    out.printf("%s failures by status: %s%n", operation.endpoint(), byStatus);
+                }
+            }
+            out.printf("Measured %d s (planned %d s)%n", Math.round(seconds), duration.toSeconds());
+        }
+
+        /**
+         * Writes one HdrHistogram percentile distribution per operation, in milliseconds, for
+         * plotting or comparing runs
+         */
+        void writeHistograms(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = latencies.get(operation);
+                if (histogram.getTotalCount() == 0) {
+                    continue;
+                }
+                Path file = directory.resolve(operation.name().toLowerCase() + ".hgrm");
+                try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                    histogram.outputPercentileDistribution(out, 1000.0);
+                }
+                log.info("Wrote {}", file);
+            }
+        }
+
+        long requests() {
+            return latencies.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        }
+
+        long errors() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.campuscross.wallet.loadtest;
+
+import com.campuscross.wallet.WalletServiceApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * End-to-end load test of wallet-service.
+ *
+ * Starts a local PostgreSQL (see {@link LocalPostgres}), starts wallet-service in this JVM on a
+ * random port against it, seeds {@code --users} users with one funded wallet each, and then
+ * runs {@code --clients} concurrent HTTP clients through a mix of P2P transfers, campus
+ * payments, deposits and history reads. A warm-up phase runs first and is discarded. The
+ * report has throughput and latency percentiles per endpoint. With {@code --replica=embedded}
+ * the read-only transactions run on a second, replicating PostgreSQL.
+ *
+ * Run with {@code mvn compile exec:java -Dexec.args="--users=2000 --clients=64"}; see
+ * {@link LoadTestConfig} for the options. {@code mvn verify -Psmoke} runs a short one that
+ * fails the build if requests fail.
+ */
+public final class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+
+        try (LocalPostgres postgres = LocalPostgres.start(config);
+             ConfigurableApplicationContext context = startService(postgres, config)) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+            Seeder seeder = new Seeder(context);
+            if (config.relaxedFraudRules()) {
+                seeder.relaxFraudRules();
+            }
+            List<Seeder.SeededUser> users = seeder.seed(config);
+
+            LoadDriver driver = new LoadDriver(config, users, port);
+            log.info("Warming up for {} s with {} clients", config.warmup().toSeconds(), config.clients());
+            driver.run(config.warmup(), config.seed() * 31);
+
+            log.info("Measuring for {} s with {} clients, mix {}", config.duration().toSeconds(),
+                    config.clients(), config.mix());
+            LoadDriver.Result result = driver.run(config.duration(), config.seed());
+            result.print(System.out);
+            if (config.histogramDir() != null) {
+                result.writeHistograms(config.histogramDir());
+            }
+            checkErrorRate(result, config);
+        }
+    }
+
+    /**
+     * Fails the run when nothing was measured or too many requests failed
+     */
+    private static void checkErrorRate(LoadDriver.Result result, LoadTestConfig config) {
+        if (result.requests() == 0) {
+            throw new IllegalStateException("No requests completed in the measured phase");
+        }
+        double errorRate = (double) result.errors() / result.requests();
+        if (errorRate > config.maxErrorRate()) {
+            throw new IllegalStateException(String.format(
+                    "%d of %d requests failed (%.2f%%), more than --max-error-rate=%s",
+                    result.errors(), result.requests(), errorRate * 100, config.maxErrorRate()));
+        }
+    }
+
+    private static ConfigurableApplicationContext startService(LocalPostgres postgres, LoadTestConfig config) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", postgres.jdbcUrl());
+        properties.put("spring.datasource.username", postgres.username());
+        properties.put("spring.datasource.password", postgres.password());
+        if (postgres.replicaJdbcUrl() != null) {
+            properties.put("wallet.datasource.replica.url", postgres.replicaJdbcUrl());
+        }
+        properties.put("server.port", "0");
+        // Request-level logging would dominate the measurements
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.jpa.properties.hibernate.format_sql", "false");
+        properties.put("logging.level.org.springframework.security", "WARN");
+        properties.put("logging.level.org.springframework.web", "WARN");
+        properties.put("logging.level.com.campuscross.wallet", "WARN");
+        properties.put("logging.level.com.campuscross.wallet.config", "WARN");
+        properties.put("logging.level.com.campuscross.wallet.loadtest", "INFO");
+        properties.putAll(config.serviceProperties());
+
+        // Passed as command-line arguments so they take precedence over application.properties
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(WalletServiceApplication.class).run(args);
+    }
+}
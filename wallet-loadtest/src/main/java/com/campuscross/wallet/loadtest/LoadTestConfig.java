@@ -0,0 +1,127 @@
+package com.campuscross.wallet.loadtest;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load test settings, read from {@code --name=value} arguments. Arguments starting with
+ * {@code --spring.}, {@code --wallet.}, {@code --server.} or {@code --logging.} are passed on
+ * to wallet-service unchanged, so the same run can be repeated with a different pool size or
+ * with group commit enabled. With {@code --max-error-rate} below 1 the run fails when a larger
+ * share of the measured requests did not succeed, which is how the {@code smoke} profile
+ * checks the build.
+ */
+record LoadTestConfig(
+        int users,
+        BigDecimal initialBalance,
+        int clients,
+        Duration warmup,
+        Duration duration,
+        Map<Operation, Integer> mix,
+        long seed,
+        boolean relaxedFraudRules,
+        String jdbcUrl,
+        String jdbcUsername,
+        String jdbcPassword,
+        boolean embeddedReplica,
+        Path histogramDir,
+        double maxErrorRate,
+        Map<String, String> serviceProperties) {
+
+    private static final String DEFAULT_MIX = "p2p=50,campus=20,deposit=10,history=20";
+
+    private static final Set<String> OPTIONS = Set.of("users", "initial-balance", "clients", "warmup-seconds",
+            "duration-seconds", "mix", "seed", "fraud-rules", "jdbc-url", "jdbc-username", "jdbc-password",
+            "replica", "histogram-dir", "max-error-rate");
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> serviceProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (name.startsWith("spring.") || name.startsWith("wallet.")
+                    || name.startsWith("server.") || name.startsWith("logging.")) {
+                serviceProperties.put(name, value);
+            } else if (OPTIONS.contains(name)) {
+                options.put(name, value);
+            } else {
+                throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+
+        LoadTestConfig config = new LoadTestConfig(
+                Integer.parseInt(options.getOrDefault("users", "1000")),
+                new BigDecimal(options.getOrDefault("initial-balance", "100000.00")),
+                Integer.parseInt(options.getOrDefault("clients", "32")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-seconds", "15"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-seconds", "60"))),
+                parseMix(options.getOrDefault("mix", DEFAULT_MIX)),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                !"default".equals(options.getOrDefault("fraud-rules", "relaxed")),
+                options.get("jdbc-url"),
+                options.getOrDefault("jdbc-username", "postgres"),
+                options.getOrDefault("jdbc-password", ""),
+                parseReplica(options.getOrDefault("replica", "none")),
+                options.containsKey("histogram-dir") ? Path.of(options.get("histogram-dir")) : null,
+                Double.parseDouble(options.getOrDefault("max-error-rate", "1")),
+                serviceProperties);
+
+        if (config.users() < 2) {
+            throw new IllegalArgumentException("--users must be at least 2");
+        }
+        if (config.clients() < 1) {
+            throw new IllegalArgumentException("--clients must be at least 1");
+        }
+        if (config.maxErrorRate() < 0 || config.maxErrorRate() > 1) {
+            throw new IllegalArgumentException("--max-error-rate must be between 0 and 1");
+        }
+        if (config.embeddedReplica() && config.jdbcUrl() != null) {
+            throw new IllegalArgumentException("--replica=embedded needs the embedded primary; with --jdbc-url, "
+                    + "pass --wallet.datasource.replica.url instead");
+        }
+        return config;
+    }
+
+    /**
+     * {@code none} runs every query on one database; {@code embedded} adds a second embedded
+     * PostgreSQL that replicates the first and serves the read-only transactions
+     */
+    private static boolean parseReplica(String value) {
+        return switch (value) {
+            case "none" -> false;
+            case "embedded" -> true;
+            default -> throw new IllegalArgumentException("--replica must be none or embedded, got " + value);
+        };
+    }
+
+    /**
+     * Parses weights such as {@code p2p=50,history=50}; operations not listed get no traffic
+     */
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Bad --mix entry: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in --mix: " + part);
+            }
+            mix.put(Operation.fromName(pair[0].trim()), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("--mix has no traffic");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,149 @@
+package com.campuscross.wallet.loadtest;
+
+import com.campuscross.wallet.entity.User;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * The database the load test runs against: a throwaway embedded PostgreSQL started from the
+ * binaries bundled with zonky, or an already running local server given with
+ * {@code --jdbc-url}. The latter must point at an empty database.
+ *
+ * With {@code --replica=embedded} a second embedded PostgreSQL follows the first through
+ * logical replication and wallet-service sends its read-only transactions there. Logical
+ * replication does not copy the schema, so both databases get it up front, from the same
+ * entities wallet-service maps; its own schema update then finds nothing to do.
+ */
+final class LocalPostgres implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalPostgres.class);
+
+    private static final String PUBLICATION = "loadtest";
+
+    private final EmbeddedPostgres embedded;
+    private final EmbeddedPostgres replica;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+
+    private LocalPostgres(EmbeddedPostgres embedded, EmbeddedPostgres replica,
+                          String jdbcUrl, String username, String password) {
+        this.embedded = embedded;
+        this.replica = replica;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    static LocalPostgres start(LoadTestConfig config) throws IOException {
+        if (config.jdbcUrl() != null) {
+            log.info("Using PostgreSQL at {}", config.jdbcUrl());
+            return new LocalPostgres(null, null, config.jdbcUrl(), config.jdbcUsername(), config.jdbcPassword());
+        }
+        EmbeddedPostgres.Builder builder = embedded();
+        if (config.embeddedReplica()) {
+            builder.setServerConfig("wal_level", "logical");
+        }
+        EmbeddedPostgres postgres = builder.start();
+        String url = postgres.getJdbcUrl("postgres", "postgres");
+        log.info("Started embedded PostgreSQL at {}", url);
+        if (!config.embeddedReplica()) {
+            return new LocalPostgres(postgres, null, url, "postgres", "");
+        }
+
+        EmbeddedPostgres replica = null;
+        try {
+            replica = embedded().start();
+            createSchema(postgres.getPostgresDatabase());
+            createSchema(replica.getPostgresDatabase());
+            execute(postgres.getPostgresDatabase(), "CREATE PUBLICATION " + PUBLICATION + " FOR ALL TABLES");
+            execute(replica.getPostgresDatabase(), "CREATE SUBSCRIPTION " + PUBLICATION
+                    + " CONNECTION 'host=localhost port=" + postgres.getPort() + " dbname=postgres user=postgres'"
+                    + " PUBLICATION " + PUBLICATION);
+            log.info("Started embedded PostgreSQL replica at {}", replica.getJdbcUrl("postgres", "postgres"));
+            return new LocalPostgres(postgres, replica, url, "postgres", "");
+        } catch (IOException | RuntimeException e) {
+            if (replica != null) {
+                replica.close();
+            }
+            postgres.close();
+            throw e;
+        }
+    }
+
+    private static EmbeddedPostgres.Builder embedded() {
+        return EmbeddedPostgres.builder()
+                // Closer to a server than the defaults, which are tuned for unit tests
+                .setServerConfig("max_connections", "200")
+                .setServerConfig("shared_buffers", "256MB")
+                .setServerConfig("synchronous_commit", "on");
+    }
+
+    /**
+     * Creates wallet-service's tables the way its schema update would, with the naming
+     * strategies Spring Boot configures
+     */
+    private static void createSchema(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan(User.class.getPackageName());
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                AvailableSettings.HBM2DDL_AUTO, "update",
+                AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName()));
+        factory.afterPropertiesSet();
+        factory.destroy();
+    }
+
+    private static void execute(DataSource dataSource, String sql) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed: " + sql, e);
+        }
+    }
+
+    String jdbcUrl() {
+        return jdbcUrl;
+    }
+
+    String username() {
+        return username;
+    }
+
+    String password() {
+        return password;
+    }
+
+    /**
+     * The replica's JDBC URL, or null when there is none
+     */
+    String replicaJdbcUrl() {
+        return replica != null ? replica.getJdbcUrl("postgres", "postgres") : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (replica != null) {
+            replica.close();
+        }
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.campuscross.wallet.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * The requests a simulated client sends, each reported as its own endpoint
+ */
+enum Operation {
+    P2P("p2p", "POST /api/transactions/p2p-transfer"),
+    CAMPUS_PAYMENT("campus", "POST /api/transactions/campus-payment"),
+    DEPOSIT("deposit", "POST /api/banking/deposit"),
+    HISTORY("history", "GET /api/transactions/user/{userId}/history");
+
+    private final String optionName;
+    private final String endpoint;
+
+    Operation(String optionName, String endpoint) {
+        this.optionName = optionName;
+        this.endpoint = endpoint;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    static Operation fromName(String name) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.optionName.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + name
+                        + ", expected one of p2p, campus, deposit, history"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.campuscross.wallet.loadtest;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.FraudRuleDefinitionRepository;
+import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.repository.WalletRepository;
+import com.campuscross.wallet.service.LedgerService;
+import com.campuscross.wallet.service.fraud.FraudRuleEngine;
+import com.campuscross.wallet.util.IdGenerator;
+import com.campuscross.wallet.util.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the users and wallets of a run directly through the service's repositories, in
+ * batches, so seeding thousands of users takes seconds instead of one bcrypt per registration.
+ * Each user gets one default USD wallet with {@code --initial-balance}, recorded in the ledger
+ * as an opening balance like any pre-existing wallet.
+ */
+final class Seeder {
+
+    private static final Logger log = LoggerFactory.getLogger(Seeder.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final String[] CAMPUSES = {"North Campus", "South Campus", "City Campus"};
+
+    private static final long FIRST_STUDENT_ID = 100_000;
+
+    private final ApplicationContext context;
+    private final TransactionTemplate transactionTemplate;
+
+    Seeder(ApplicationContext context) {
+        this.context = context;
+        this.transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    List<SeededUser> seed(LoadTestConfig config) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        WalletRepository walletRepository = context.getBean(WalletRepository.class);
+        IdGenerator idGenerator = context.getBean(IdGenerator.class);
+        JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+        if (userRepository.count() > 0) {
+            throw new IllegalStateException("The database already has users; the load test needs an empty one");
+        }
+
+        long started = System.currentTimeMillis();
+        String passwordHash = context.getBean(PasswordEncoder.class).encode("loadtest");
+        List<SeededUser> seeded = new ArrayList<>(config.users());
+        for (int from = 0; from < config.users(); from += BATCH_SIZE) {
+            int to = Math.min(config.users(), from + BATCH_SIZE);
+            int first = from;
+            seeded.addAll(transactionTemplate.execute(status -> {
+                List<User> users = new ArrayList<>(to - first);
+                for (int i = first; i < to; i++) {
+                    users.add(user(i, passwordHash));
+                }
+                users = userRepository.saveAll(users);
+
+                List<Wallet> wallets = new ArrayList<>(users.size());
+                for (User user : users) {
+                    wallets.add(wallet(user, config.initialBalance(), idGenerator));
+                }
+                wallets = walletRepository.saveAll(wallets);
+
+                List<SeededUser> batch = new ArrayList<>(wallets.size());
+                for (Wallet wallet : wallets) {
+                    User user = wallet.getUser();
+                    batch.add(new SeededUser(user.getId(), wallet.getId(),
+                            jwtUtil.generateToken(user.getEmail(), user.getId(), user.getRole().name())));
+                }
+                return batch;
+            }));
+        }
+        int opening = context.getBean(LedgerService.class).seedOpeningBalances();
+        log.info("Seeded {} users and wallets ({} opening balances) in {} ms", seeded.size(), opening,
+                System.currentTimeMillis() - started);
+        return seeded;
+    }
+
+    /**
+     * Raises the thresholds of the velocity rules, which would otherwise reject most of the
+     * traffic of a few thousand simulated users. The rules still run at their usual cost.
+     */
+    void relaxFraudRules() {
+        FraudRuleDefinitionRepository definitions = context.getBean(FraudRuleDefinitionRepository.class);
+        FraudRuleEngine fraudRuleEngine = context.getBean(FraudRuleEngine.class);
+        Map<String, Map<String, Object>> relaxed = Map.of(
+                "p2p-high-frequency", Map.of("maxPerHour", 1_000_000, "maxPerDay", 1_000_000),
+                "p2p-rapid-repeat", Map.of("maxPerPair", 1_000_000, "windowMinutes", 5));
+        relaxed.forEach((name, params) -> definitions.findByName(name).ifPresent(definition -> {
+            Map<String, Object> merged = new HashMap<>(definition.getParams() != null ? definition.getParams() : Map.of());
+            merged.putAll(params);
+            definition.setParams(merged);
+            FraudRuleDefinition saved = fraudRuleEngine.saveDefinition(definition);
+            log.info("Relaxed fraud rule {}: {}", saved.getName(), saved.getParams());
+        }));
+    }
+
+    private static User user(int index, String passwordHash) {
+        String studentId = Long.toString(FIRST_STUDENT_ID + index);
+        return User.builder()
+                .studentId(studentId)
+                .email("loadtest" + studentId + "@campuscross.test")
+                .passwordHash(passwordHash)
+                .firstName("Load")
+                .lastName("User " + studentId)
+                .phoneNumber("+1555" + studentId)
+                .campusName(CAMPUSES[index % CAMPUSES.length])
+                .country("US")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .kycStatus(User.KycStatus.VERIFIED)
+                .emailVerified(true)
+                .phoneVerified(false)
+                .failedLoginAttempts(0)
+                .build();
+    }
+
+    private static Wallet wallet(User user, BigDecimal balance, IdGenerator idGenerator) {
+        return Wallet.builder()
+                .user(user)
+                .walletAddress(idGenerator.nextWalletAddress())
+                .walletName("Default Wallet")
+                .type(Wallet.WalletType.PERSONAL)
+                .status(Wallet.WalletStatus.ACTIVE)
+                .balance(balance)
+                .currencyCode("USD")
+                .isDefault(true)
+                // Limits as high as the balance so a long run is not cut short by them
+                .dailyLimit(balance)
+                .monthlyLimit(balance)
+                .dailySpent(BigDecimal.ZERO)
+                .monthlySpent(BigDecimal.ZERO)
+                .build();
+    }
+
+    /**
+     * A seeded user with the bearer token its money-moving requests are sent with
+     */
+    record SeededUser(String userId, Long walletId, String token) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.campuscross.wallet.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Thread pools for work that runs off the request thread
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Runs the expensive fraud rules of one payment in parallel. When saturated, the rule runs
+     * on the calling thread instead of being rejected.
+     */
+    @Bean(name = "fraudRuleExecutor")
+    public ThreadPoolTaskExecutor fraudRuleExecutor(
+            @Value("${wallet.fraud.rule-threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("fraud-rule-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Scores committed payments against the ASYNC and SHADOW fraud rules. Bounded and
+     * rejecting: when scoring falls behind, payments are dropped from scoring rather than
+     * slowing down the commits that feed it.
+     */
+    @Bean(name = "fraudScoringExecutor")
+    public ThreadPoolTaskExecutor fraudScoringExecutor(
+            @Value("${wallet.fraud.scoring-threads:2}") int threads,
+            @Value("${wallet.fraud.scoring-queue-capacity:5000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("fraud-scoring-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs streamed responses (transaction exports). Each one holds a pooled database
+     * connection until it finishes, so only a few run at once; beyond the queue they are
+     * rejected rather than starving the request threads of connections.
+     */
+    @Bean(name = "exportExecutor")
+    public ThreadPoolTaskExecutor exportExecutor(
+            @Value("${wallet.transactions.export.threads:2}") int threads,
+            @Value("${wallet.transactions.export.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("export-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Async MVC requests run on {@link #exportExecutor}; the timeout is long enough for a
+     * large export, which the default of 30 seconds is not
+     */
+    @Bean
+    public WebMvcConfigurer asyncSupportConfigurer(
+            @Qualifier("exportExecutor") ThreadPoolTaskExecutor exportExecutor,
+            @Value("${wallet.transactions.export.timeout-ms:600000}") long timeoutMs) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(exportExecutor);
+                configurer.setDefaultTimeout(timeoutMs);
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.campuscross.wallet.config;
+
+import com.campuscross.wallet.service.cache.CacheInvalidationBus;
+import com.campuscross.wallet.service.cache.LocalCacheInvalidationBus;
+import com.campuscross.wallet.service.cache.RedisCacheInvalidationBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.net.URI;
+
+/**
+ * The cache invalidation bus: {@code wallet.cache-bus.type=local} (the default) for a single
+ * instance, {@code redis} when several instances share the database. The Redis one connects
+ * to {@code wallet.cache-bus.redis.url}, by default the Redis of docker-compose.yml; Spring
+ * Boot's own Redis auto-configuration is excluded so an instance without it stays healthy.
+ */
+@Configuration
+public class CacheBusConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "wallet.cache-bus.type", havingValue = "local", matchIfMissing = true)
+    public CacheInvalidationBus localCacheInvalidationBus(MeterRegistry meterRegistry) {
+        return new LocalCacheInvalidationBus(meterRegistry);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "wallet.cache-bus.type", havingValue = "redis")
+    static class RedisBusConfig {
+
+        @Bean
+        public LettuceConnectionFactory cacheBusConnectionFactory(
+                @Value("${wallet.cache-bus.redis.url:redis://localhost:6379}") String url) {
+            URI uri = URI.create(url);
+            RedisStandaloneConfiguration server = new RedisStandaloneConfiguration(
+                    uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 6379);
+            if (uri.getUserInfo() != null) {
+                String[] credentials = uri.getUserInfo().split(":", 2);
+                if (credentials.length == 2) {
+                    server.setUsername(credentials[0]);
+                    server.setPassword(credentials[1]);
+                } else {
+                    server.setPassword(credentials[0]);
+                }
+            }
+            LettuceClientConfiguration.LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder();
+            if ("rediss".equals(uri.getScheme())) {
+                client.useSsl();
+            }
+            return new LettuceConnectionFactory(server, client.build());
+        }
+
+        @Bean
+        public RedisCacheInvalidationBus redisCacheInvalidationBus(
+                LettuceConnectionFactory cacheBusConnectionFactory,
+                MeterRegistry meterRegistry,
+                @Value("${wallet.cache-bus.redis.channel:wallet.cache.invalidations}") String channel,
+                @Value("${wallet.cache-bus.redis.timeout-ms:5000}") long timeoutMs) {
+            return new RedisCacheInvalidationBus(new StringRedisTemplate(cacheBusConnectionFactory), meterRegistry,
+                    channel, timeoutMs);
+        }
+
+        /**
+         * Delivers on a single thread, so messages are handled in the order they arrive
+         */
+        @Bean
+        public RedisMessageListenerContainer cacheBusListenerContainer(
+                LettuceConnectionFactory cacheBusConnectionFactory,
+                RedisCacheInvalidationBus redisCacheInvalidationBus,
+                @Value("${wallet.cache-bus.redis.channel:wallet.cache.invalidations}") String channel) {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(1);
+            executor.setMaxPoolSize(1);
+            executor.setThreadNamePrefix("cache-bus-");
+            executor.setDaemon(true);
+            executor.initialize();
+
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(cacheBusConnectionFactory);
+            container.setTaskExecutor(executor);
+            container.addMessageListener(redisCacheInvalidationBus, new ChannelTopic(channel));
+            return container;
+        }
+    }
+}
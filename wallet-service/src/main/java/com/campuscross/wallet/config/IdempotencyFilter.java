@@ -0,0 +1,272 @@
+package com.campuscross.wallet.config;
+
+import com.campuscross.wallet.service.IdempotencyService;
+import com.campuscross.wallet.service.IdempotencyService.Claim;
+import com.campuscross.wallet.service.IdempotencyService.StoredResponse;
+import com.campuscross.wallet.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes money-moving POST endpoints safe to retry. When a request carries an
+ * {@code Idempotency-Key} header, the first response for that key is stored and replayed for
+ * every later request with the same key, without executing the request again. Reusing a key
+ * with a different request body is rejected.
+ *
+ * Keys are scoped to the user of the bearer token and the path, so two users picking the same
+ * key do not collide. A keyed request without a valid token is refused: an unverifiable scope
+ * would let anyone replay or block another user's payment by guessing its key.
+ */
+@Component
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final IdempotencyService idempotencyService;
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
+    private final Set<String> paths;
+    private final long waitTimeoutMs;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService,
+                             JwtUtil jwtUtil,
+                             ObjectMapper objectMapper,
+                             @Value("${wallet.idempotency.paths:/api/transactions/p2p-transfer,/api/transactions/campus-payment,/api/transactions/remittance,/api/banking/deposit}") Set<String> paths,
+                             @Value("${wallet.idempotency.wait-timeout-ms:15000}") long waitTimeoutMs) {
+        this.idempotencyService = idempotencyService;
+        this.jwtUtil = jwtUtil;
+        this.objectMapper = objectMapper;
+        this.paths = Set.copyOf(paths);
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientKey = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (clientKey.isEmpty() || clientKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        String userId = authenticatedUserId(request);
+        if (userId == null) {
+            writeError(response, HttpStatus.UNAUTHORIZED,
+                    "A request with an " + IDEMPOTENCY_KEY_HEADER + " requires a valid bearer token");
+            return;
+        }
+
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String key = userId + ":" + request.getRequestURI() + ":" + clientKey;
+        String requestHash = sha256(cachedRequest.body);
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+
+        while (true) {
+            StoredResponse stored = idempotencyService.findCompleted(key);
+            if (stored != null) {
+                replay(stored, requestHash, response);
+                return;
+            }
+
+            Claim claim = idempotencyService.begin(key, requestHash);
+            if (claim.owned()) {
+                execute(key, requestHash, cachedRequest, response, chain);
+                return;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                writeError(response, HttpStatus.CONFLICT,
+                        "A request with this " + IDEMPOTENCY_KEY_HEADER + " is still being processed");
+                return;
+            }
+            try {
+                if (claim.inFlight() == null) {
+                    // Held by another instance, or left by one that died; poll for its response
+                    Thread.sleep(Math.min(POLL_INTERVAL_MS, remaining));
+                    continue;
+                }
+                StoredResponse concurrent = claim.inFlight().get(remaining, TimeUnit.MILLISECONDS);
+                if (concurrent != null) {
+                    replay(concurrent, requestHash, response);
+                    return;
+                }
+                // The owning request failed without a response; try to claim the key ourselves
+            } catch (TimeoutException e) {
+                // Checked again at the top of the loop
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException("Interrupted while waiting for in-flight request", e);
+            } catch (ExecutionException e) {
+                throw new ServletException(e.getCause());
+            }
+        }
+    }
+
+    private String authenticatedUserId(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return null;
+        }
+        String token = authorization.substring(7);
+        if (!jwtUtil.validateToken(token)) {
+            return null;
+        }
+        String userId = jwtUtil.getUserIdFromToken(token);
+        return userId != null && !userId.isBlank() ? userId : null;
+    }
+
+    private void execute(String key, String requestHash, CachedBodyRequest request,
+                         HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        // The owner may have completed between our lookup and our claim
+        StoredResponse stored = idempotencyService.findCompleted(key);
+        if (stored != null) {
+            idempotencyService.abandon(key);
+            replay(stored, requestHash, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, wrapper);
+            idempotencyService.complete(key, requestHash, wrapper.getStatus(), wrapper.getContentType(),
+                    wrapper.getContentAsByteArray());
+            completed = true;
+        } finally {
+            if (!completed) {
+                idempotencyService.abandon(key);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void replay(StoredResponse stored, String requestHash, HttpServletResponse response) throws IOException {
+        if (!stored.requestHash().equals(requestHash)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    IDEMPOTENCY_KEY_HEADER + " was already used with a different request");
+            return;
+        }
+        log.debug("Replaying stored response for idempotent request");
+        response.setStatus(stored.statusCode());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the request body once so it can be hashed and still be read by the controller.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // The whole body is already in memory, so it is all available at once
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.campuscross.wallet.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate settings that must hold whatever application.properties says
+ */
+@Configuration
+public class JpaConfig {
+
+    /**
+     * A range-partitioned table is reported as a "PARTITIONED TABLE" by the PostgreSQL
+     * driver. Without this, schema update does not recognize the partitioned
+     * {@code transactions} table and tries to create it again.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer partitionedTableCustomizer() {
+        return properties -> properties.put("hibernate.hbm2ddl.extra_physical_table_types", "PARTITIONED TABLE");
+    }
+}
@@ -0,0 +1,18 @@
+package com.campuscross.wallet.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler that only reads even though it is not a GET, such as a batch lookup that
+ * takes its keys in the request body. {@link ReadYourWritesInterceptor} does not pin it to the
+ * primary, so its read-only transactions may use the replica like a GET's.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadOnlyEndpoint {
+}
@@ -0,0 +1,89 @@
+package com.campuscross.wallet.config;
+
+import com.campuscross.wallet.service.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to a read replica, so dashboards and history reads no longer
+ * compete with payments for the primary's few connections. Active when
+ * {@code wallet.datasource.replica.url} is set; otherwise the single auto-configured pool is
+ * used for everything.
+ *
+ * The primary pool keeps its {@code spring.datasource.*} settings. The replica pool has its
+ * own under {@code wallet.datasource.replica.hikari.*}, and takes the primary's credentials
+ * unless {@code wallet.datasource.replica.username} and {@code password} are set.
+ *
+ * The application's DataSource hands out a lazy connection that picks its pool on the first
+ * statement: one marked read-only, as {@code @Transactional(readOnly = true)} does, comes from
+ * the replica unless {@link ReadYourWrites} wants the primary for the current user. Anything
+ * else, including work outside a transaction, goes to the primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "wallet.datasource.replica", name = "url")
+public class ReadReplicaConfig {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Settings made here are defaults; the bound {@code hikari} properties override them
+     */
+    @Bean
+    @ConfigurationProperties("wallet.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties primary,
+            @Value("${wallet.datasource.replica.url}") String url,
+            @Value("${wallet.datasource.replica.username:}") String username,
+            @Value("${wallet.datasource.replica.password:}") String password) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setJdbcUrl(url);
+        replica.setUsername(username.isEmpty() ? primary.determineUsername() : username);
+        // A replica user of its own comes with its own password
+        replica.setPassword(username.isEmpty() ? primary.determinePassword() : password);
+        replica.setDriverClassName(primary.determineDriverClassName());
+        replica.setPoolName("WalletServiceReplicaPool");
+        replica.setMaximumPoolSize(5);
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 @Lazy ReadYourWrites readYourWrites) {
+        AbstractRoutingDataSource readOnly = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return readYourWrites.requiresPrimary() ? PRIMARY : REPLICA;
+            }
+        };
+        readOnly.setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        readOnly.setDefaultTargetDataSource(replica);
+        readOnly.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(readOnly);
+        return dataSource;
+    }
+}
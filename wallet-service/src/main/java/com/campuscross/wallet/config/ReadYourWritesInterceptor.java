@@ -0,0 +1,70 @@
+package com.campuscross.wallet.config;
+
+import com.campuscross.wallet.service.ReadYourWrites;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tells {@link ReadYourWrites} which user a request reads for: the {@code userId} path
+ * variable, or the {@code X-User-Id} header on endpoints without one. Requests that are not
+ * plain reads run entirely on the primary, including reads made after their own writes; a
+ * POST counts as a read when its handler is marked {@link ReadOnlyEndpoint}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReadYourWrites readYourWrites;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        readYourWrites.bind(userId(request), !isRead(request, handler));
+        return true;
+    }
+
+    private static boolean isRead(HttpServletRequest request, Object handler) {
+        return READ_METHODS.contains(request.getMethod())
+                || (handler instanceof HandlerMethod method && method.hasMethodAnnotation(ReadOnlyEndpoint.class));
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        readYourWrites.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        readYourWrites.unbind();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String userId(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables != null && variables.get("userId") != null) {
+            return variables.get("userId");
+        }
+        return request.getHeader(USER_ID_HEADER);
+    }
+}
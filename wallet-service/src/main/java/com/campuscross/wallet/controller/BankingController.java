@@ -2,6 +2,7 @@ package com.campuscross.wallet.controller;
 
 import com.campuscross.wallet.entity.Transaction;
 import com.campuscross.wallet.service.BankingService;
+import com.campuscross.wallet.service.TransferRetryExecutor;
 import com.campuscross.wallet.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ public class BankingController {
 
     private final BankingService bankingService;
     private final JwtUtil jwtUtil;
+    private final TransferRetryExecutor transferRetryExecutor;
 
     @PostMapping("/deposit")
     public ResponseEntity<?> deposit(@RequestBody DepositRequest request, HttpServletRequest httpRequest) {
@@ -44,10 +46,11 @@ public class BankingController {
             String effectiveUserId = tokenUserId != null ? tokenUserId : request.userId();
             log.info("Effective userId for deposit: {}", effectiveUserId);
 
-            Transaction transaction = bankingService.depositFromBank(
-                    effectiveUserId,
-                    request.amount(),
-                    request.currency());
+            Transaction transaction = transferRetryExecutor.execute("deposit",
+                    () -> bankingService.depositFromBank(
+                            effectiveUserId,
+                            request.amount(),
+                            request.currency()));
 
             return ResponseEntity.ok(new DepositResponseWithUser(
                     true,
@@ -66,12 +69,13 @@ public class BankingController {
     @PostMapping("/withdraw")
     public ResponseEntity<?> withdraw(@RequestBody WithdrawalRequest request) {
         try {
-            Transaction transaction = bankingService.withdrawToBank(
-                    request.userId(),
-                    request.amount(),
-                    request.currency(),
-                    request.bankAccountNumber(),
-                    request.bankName());
+            Transaction transaction = transferRetryExecutor.execute("withdrawal",
+                    () -> bankingService.withdrawToBank(
+                            request.userId(),
+                            request.amount(),
+                            request.currency(),
+                            request.bankAccountNumber(),
+                            request.bankName()));
 
             return ResponseEntity.ok(new WithdrawalResponse(
                     true,
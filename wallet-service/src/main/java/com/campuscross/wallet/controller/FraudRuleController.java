@@ -0,0 +1,85 @@
+package com.campuscross.wallet.controller;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.service.fraud.FraudRuleEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Inspection and hot reload of the fraud rule sets
+ */
+@RestController
+@RequestMapping("/api/fraud/rules")
+@RequiredArgsConstructor
+@Slf4j
+public class FraudRuleController {
+
+    private final FraudRuleEngine fraudRuleEngine;
+
+    @GetMapping
+    public ResponseEntity<?> getRules() {
+        return ResponseEntity.ok(fraudRuleEngine.describe());
+    }
+
+    @PutMapping("/{name}")
+    public ResponseEntity<?> saveRule(@PathVariable String name, @RequestBody FraudRuleRequest request) {
+        try {
+            FraudRuleDefinition saved = fraudRuleEngine.saveDefinition(FraudRuleDefinition.builder()
+                    .name(name)
+                    .ruleType(request.ruleType())
+                    .appliesTo(request.appliesTo())
+                    .params(request.params())
+                    .enabled(request.enabled() == null || request.enabled())
+                    .mode(request.mode() != null ? request.mode() : FraudRuleDefinition.Mode.BLOCKING)
+                    .action(request.action() != null ? request.action() : FraudRuleDefinition.Action.FLAG)
+                    .build());
+            log.info("Fraud rule {} saved", name);
+            return ResponseEntity.ok(new FraudRuleResponse(saved.getName(), saved.getRuleType(),
+                    saved.getAppliesTo(), saved.getParams(), saved.isEnabled(), saved.getMode(), saved.getAction()));
+        } catch (Exception e) {
+            log.error("Failed to save fraud rule {}", name, e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        try {
+            int rules = fraudRuleEngine.reload();
+            return ResponseEntity.ok(new SuccessResponse("Reloaded " + rules + " fraud rules"));
+        } catch (Exception e) {
+            log.error("Failed to reload fraud rules", e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // DTOs
+    public record FraudRuleRequest(
+            String ruleType,
+            String appliesTo,
+            Map<String, Object> params,
+            Boolean enabled,
+            FraudRuleDefinition.Mode mode,
+            FraudRuleDefinition.Action action) {
+    }
+
+    public record FraudRuleResponse(
+            String name,
+            String ruleType,
+            String appliesTo,
+            Map<String, Object> params,
+            boolean enabled,
+            FraudRuleDefinition.Mode mode,
+            FraudRuleDefinition.Action action) {
+    }
+
+    public record SuccessResponse(String message) {
+    }
+
+    public record ErrorResponse(String error) {
+    }
+}
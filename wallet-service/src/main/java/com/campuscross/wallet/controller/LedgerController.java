@@ -0,0 +1,102 @@
+package com.campuscross.wallet.controller;
+
+import com.campuscross.wallet.entity.LedgerEntry;
+import com.campuscross.wallet.service.LedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read access to the double-entry journal and balance reconciliation against it
+ */
+@RestController
+@RequestMapping("/api/ledger")
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+
+    @GetMapping("/wallets/{walletId}/entries")
+    public ResponseEntity<?> getWalletEntries(
+            @PathVariable Long walletId,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            List<LedgerEntryResponse> entries = ledgerService.getWalletEntries(walletId, Math.min(limit, 500))
+                    .stream()
+                    .map(this::mapToLedgerEntryResponse)
+                    .toList();
+
+            return ResponseEntity.ok(entries);
+        } catch (Exception e) {
+            log.error("Failed to get ledger entries for wallet {}", walletId, e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/wallets/{walletId}/reconcile")
+    public ResponseEntity<?> reconcile(@PathVariable Long walletId) {
+        try {
+            return ResponseEntity.ok(ledgerService.reconcile(walletId));
+        } catch (Exception e) {
+            log.error("Failed to reconcile wallet {}", walletId, e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/wallets/{walletId}/rebuild")
+    public ResponseEntity<?> rebuildBalance(@PathVariable Long walletId) {
+        try {
+            return ResponseEntity.ok(ledgerService.rebuildBalance(walletId));
+        } catch (Exception e) {
+            log.error("Failed to rebuild balance for wallet {}", walletId, e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/opening-balances")
+    public ResponseEntity<?> seedOpeningBalances() {
+        try {
+            int seeded = ledgerService.seedOpeningBalances();
+            return ResponseEntity.ok(new SuccessResponse("Seeded opening balances for " + seeded + " wallets"));
+        } catch (Exception e) {
+            log.error("Failed to seed opening balances", e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    private LedgerEntryResponse mapToLedgerEntryResponse(LedgerEntry e) {
+        return new LedgerEntryResponse(
+                e.getId(),
+                e.getTransactionId(),
+                e.getAccount().toString(),
+                e.getWalletId(),
+                e.getDirection().toString(),
+                e.getAmount(),
+                e.getCurrencyCode(),
+                e.getCreatedAt());
+    }
+
+    // DTOs
+    public record LedgerEntryResponse(
+            Long id,
+            String transactionId,
+            String account,
+            Long walletId,
+            String direction,
+            BigDecimal amount,
+            String currencyCode,
+            LocalDateTime createdAt) {
+    }
+
+    public record SuccessResponse(String message) {
+    }
+
+    public record ErrorResponse(String error) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.campuscross.wallet.controller;
+
+import com.campuscross.wallet.entity.BlockedMerchant;
+import com.campuscross.wallet.service.fraud.MerchantBlocklist;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Maintenance of the blocked merchant list used by campus payments
+ */
+@RestController
+@RequestMapping("/api/fraud/merchant-blocklist")
+@RequiredArgsConstructor
+@Slf4j
+public class MerchantBlocklistController {
+
+    private final MerchantBlocklist merchantBlocklist;
+
+    @GetMapping
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(merchantBlocklist.stats());
+    }
+
+    @GetMapping("/{merchantId}")
+    public ResponseEntity<?> checkMerchant(@PathVariable String merchantId) {
+        return ResponseEntity.ok(new MerchantStatusResponse(merchantId, merchantBlocklist.isBlocked(merchantId)));
+    }
+
+    @PutMapping("/{merchantId}")
+    public ResponseEntity<?> blockMerchant(@PathVariable String merchantId,
+                                           @RequestBody(required = false) BlockMerchantRequest request) {
+        try {
+            BlockedMerchant merchant = merchantBlocklist.block(merchantId, request != null ? request.reason() : null);
+            log.info("Merchant {} blocked", merchantId);
+            return ResponseEntity.ok(new MerchantStatusResponse(merchant.getMerchantId(), true));
+        } catch (Exception e) {
+            log.error("Failed to block merchant {}", merchantId, e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{merchantId}")
+    public ResponseEntity<?> unblockMerchant(@PathVariable String merchantId) {
+        try {
+            merchantBlocklist.unblock(merchantId);
+            log.info("Merchant {} unblocked", merchantId);
+            return ResponseEntity.ok(new MerchantStatusResponse(merchantId, false));
+        } catch (Exception e) {
+            log.error("Failed to unblock merchant {}", merchantId, e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        try {
+            int merchants = merchantBlocklist.reload();
+            return ResponseEntity.ok(new SuccessResponse("Reloaded " + merchants + " blocked merchants"));
+        } catch (Exception e) {
+            log.error("Failed to reload merchant blocklist", e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // DTOs
+    public record BlockMerchantRequest(String reason) {
+    }
+
+    public record MerchantStatusResponse(String merchantId, boolean blocked) {
+    }
+
+    public record SuccessResponse(String message) {
+    }
+
+    public record ErrorResponse(String error) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.campuscross.wallet.controller;
+
+import com.campuscross.wallet.service.RollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Spend, receipt and fee totals over date ranges, read from the daily rollups. Dates are
+ * ISO days ({@code 2025-01-31}), both ends inclusive; without them the whole history is summed.
+ */
+@RestController
+@RequestMapping("/api/rollups")
+@RequiredArgsConstructor
+@Slf4j
+public class RollupController {
+
+    private final RollupService rollupService;
+
+    @GetMapping("/users/{userId}")
+    public ResponseEntity<?> getUserTotals(
+            @PathVariable String userId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            return ResponseEntity.ok(rollupService.getUserTotals(userId, fromDay(from), toDay(to)));
+        } catch (Exception e) {
+            log.error("Failed to get totals for user {}: {}", userId, e.getMessage());
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/fees")
+    public ResponseEntity<?> getFeeTotals(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            return ResponseEntity.ok(rollupService.getFeeTotals(fromDay(from), toDay(to)));
+        } catch (Exception e) {
+            log.error("Failed to get fee totals: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Rebuilds the rollups of the given days from the transactions table
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<?> backfill(
+            @RequestParam String from,
+            @RequestParam(required = false) String to) {
+        try {
+            return ResponseEntity.ok(rollupService.backfill(LocalDate.parse(from), toDay(to)));
+        } catch (Exception e) {
+            log.error("Rollup backfill failed", e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    private static LocalDate fromDay(String from) {
+        return from != null ? LocalDate.parse(from) : LocalDate.EPOCH;
+    }
+
+    private static LocalDate toDay(String to) {
+        return to != null ? LocalDate.parse(to) : LocalDate.now();
+    }
+
+    public record ErrorResponse(String error) {
+    }
+}
@@ -1,9 +1,13 @@
 package com.campuscross.wallet.controller;
 
+import com.campuscross.wallet.dto.TransactionCursor;
 import com.campuscross.wallet.entity.Transaction;
 import com.campuscross.wallet.entity.User;
 import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.service.GroupCommitTransferPipeline;
+import com.campuscross.wallet.service.TransactionExportService;
 import com.campuscross.wallet.service.TransactionService;
+import com.campuscross.wallet.service.TransferRetryExecutor;
 import com.campuscross.wallet.service.WalletService;
 import com.campuscross.wallet.repository.UserRepository;
 import com.campuscross.wallet.repository.WalletRepository;
@@ -15,10 +19,14 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +41,12 @@ public class TransactionController {
     private final UserRepository userRepository;
     private final WalletRepository walletRepository;
     private final WalletService walletService;
+    private final TransferRetryExecutor transferRetryExecutor;
+    private final GroupCommitTransferPipeline groupCommitTransferPipeline;
+    private final TransactionExportService transactionExportService;
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final int MAX_LOOKBACK_DAYS = 366;
 
     // ---------------------------------------------------------
     // P2P TRANSFER
@@ -69,12 +83,20 @@ public class TransactionController {
                     .orElseGet(() -> walletService.createWallet(recipient,
                             String.format("%s wallet", currency), Wallet.WalletType.PERSONAL, currency, false));
 
-            Transaction transaction = transactionService.createP2PTransfer(
-                    request.sourceWalletId(),
-                    targetWallet.getWalletAddress(),
-                    request.amount(),
-                    request.description(),
-                    ipAddress);
+            Transaction transaction = groupCommitTransferPipeline.isEnabled()
+                    ? groupCommitTransferPipeline.transfer(
+                            request.sourceWalletId(),
+                            targetWallet.getWalletAddress(),
+                            request.amount(),
+                            request.description(),
+                            ipAddress)
+                    : transferRetryExecutor.execute("p2p-transfer",
+                            () -> transactionService.createP2PTransfer(
+                                    request.sourceWalletId(),
+                                    targetWallet.getWalletAddress(),
+                                    request.amount(),
+                                    request.description(),
+                                    ipAddress));
 
             return ResponseEntity.ok(new TransactionResponse(
                     transaction.getTransactionId(),
@@ -89,6 +111,10 @@ public class TransactionController {
                     transaction.getSenderStudentId(),
                     transaction.getRecipientStudentId()));
 
+        } catch (GroupCommitTransferPipeline.TransferPendingException e) {
+            // Accepted rather than failed, so an idempotent retry replays this instead of moving the money again
+            log.warn("P2P transfer still pending: {}", e.getMessage());
+            return ResponseEntity.accepted().body(new SuccessResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("P2P transfer failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
@@ -118,13 +144,14 @@ public class TransactionController {
         try {
             String ipAddress = getClientIpAddress(httpRequest);
 
-            Transaction transaction = transactionService.createCampusPayment(
-                    request.walletId(),
-                    request.amount(),
-                    request.merchantId(),
-                    request.campusLocation(),
-                    request.description(),
-                    ipAddress);
+            Transaction transaction = transferRetryExecutor.execute("campus-payment",
+                    () -> transactionService.createCampusPayment(
+                            request.walletId(),
+                            request.amount(),
+                            request.merchantId(),
+                            request.campusLocation(),
+                            request.description(),
+                            ipAddress));
 
             return ResponseEntity.ok(new TransactionResponse(
                     transaction.getTransactionId(),
@@ -155,14 +182,15 @@ public class TransactionController {
         try {
             String ipAddress = getClientIpAddress(httpRequest);
 
-            Transaction transaction = transactionService.createRemittance(
-                    request.sourceWalletId(),
-                    request.targetWalletAddress(),
-                    request.amount(),
-                    request.targetCurrency(),
-                    request.exchangeRate(),
-                    request.description(),
-                    ipAddress);
+            Transaction transaction = transferRetryExecutor.execute("remittance",
+                    () -> transactionService.createRemittance(
+                            request.sourceWalletId(),
+                            request.targetWalletAddress(),
+                            request.amount(),
+                            request.targetCurrency(),
+                            request.exchangeRate(),
+                            request.description(),
+                            ipAddress));
 
             return ResponseEntity.ok(new TransactionResponse(
                     transaction.getTransactionId(),
@@ -191,7 +219,8 @@ public class TransactionController {
             @PathVariable String transactionId,
             @RequestBody RefundRequest request) {
         try {
-            transactionService.refundTransaction(transactionId, request.reason());
+            transferRetryExecutor.execute("refund",
+                    () -> transactionService.refundTransaction(transactionId, request.reason()));
             return ResponseEntity.ok(new SuccessResponse("Transaction refunded successfully"));
         } catch (Exception e) {
             log.error("Refund failed: {}", e.getMessage());
@@ -218,7 +247,7 @@ public class TransactionController {
     // ---------------------------------------------------------
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getUserTransactions(
-            @PathVariable Long userId,
+            @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         try {
@@ -243,12 +272,45 @@ public class TransactionController {
         }
     }
 
+    // ---------------------------------------------------------
+    // GET USER TRANSACTIONS (KEYSET)
+    // ---------------------------------------------------------
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<?> getUserTransactionHistory(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+                throw new RuntimeException("size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+            }
+            TransactionService.TransactionSlice slice = transactionService.getUserTransactionsAfter(
+                    userId, TransactionCursor.decode(cursor), size);
+
+            List<TransactionResponse> responses = slice.transactions()
+                    .stream()
+                    .map(this::mapToTransactionResponse)
+                    .toList();
+
+            return ResponseEntity.ok(new TransactionSliceResponse(
+                    responses,
+                    slice.next() != null ? slice.next().encode() : null,
+                    slice.next() != null,
+                    includeTotal ? transactionService.countUserTransactions(userId) : null));
+
+        } catch (Exception e) {
+            log.error("Failed to get user transaction history: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     // ---------------------------------------------------------
     // GET BY DATE RANGE
     // ---------------------------------------------------------
     @GetMapping("/user/{userId}/date-range")
     public ResponseEntity<?> getUserTransactionsByDateRange(
-            @PathVariable Long userId,
+            @PathVariable String userId,
             @RequestParam String startDate,
             @RequestParam String endDate) {
         try {
@@ -269,6 +331,44 @@ public class TransactionController {
         }
     }
 
+    // ---------------------------------------------------------
+    // EXPORT (STREAMED)
+    // ---------------------------------------------------------
+    @GetMapping("/user/{userId}/export")
+    public ResponseEntity<?> exportUserTransactions(
+            @PathVariable String userId,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            LocalDateTime start = LocalDateTime.parse(startDate);
+            LocalDateTime end = LocalDateTime.parse(endDate);
+            if (end.isBefore(start)) {
+                throw new RuntimeException("endDate must not be before startDate");
+            }
+            TransactionExportService.Format exportFormat = TransactionExportService.Format.fromName(format);
+
+            // Rows are read and written on the async request thread; errors past this point
+            // can only end the response early
+            StreamingResponseBody body = out ->
+                    transactionExportService.export(userId, start, end, exportFormat, gzip, out);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions-" + userId
+                            + "." + exportFormat.extension() + (gzip ? ".gz" : "") + "\"");
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.body(body);
+
+        } catch (Exception e) {
+            log.error("Failed to export transactions: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     // ---------------------------------------------------------
     // GET SINGLE TRANSACTION
     // ---------------------------------------------------------
@@ -287,9 +387,9 @@ public class TransactionController {
     // FLAGGED / FAILED
     // ---------------------------------------------------------
     @GetMapping("/flagged")
-    public ResponseEntity<?> getFlaggedTransactions() {
+    public ResponseEntity<?> getFlaggedTransactions(@RequestParam(defaultValue = "30") int days) {
         try {
-            List<TransactionResponse> responses = transactionService.getFlaggedTransactions()
+            List<TransactionResponse> responses = transactionService.getFlaggedTransactions(since(days))
                     .stream()
                     .map(this::mapToTransactionResponse)
                     .toList();
@@ -303,9 +403,9 @@ public class TransactionController {
     }
 
     @GetMapping("/failed")
-    public ResponseEntity<?> getFailedTransactions() {
+    public ResponseEntity<?> getFailedTransactions(@RequestParam(defaultValue = "30") int days) {
         try {
-            List<TransactionResponse> responses = transactionService.getFailedTransactions()
+            List<TransactionResponse> responses = transactionService.getFailedTransactions(since(days))
                     .stream()
                     .map(this::mapToTransactionResponse)
                     .toList();
@@ -321,6 +421,16 @@ public class TransactionController {
     // ---------------------------------------------------------
     // PRIVATE HELPERS
     // ---------------------------------------------------------
+    /**
+     * Start of a look-back window of whole days; bounded so the query only reads recent partitions
+     */
+    private LocalDateTime since(int days) {
+        if (days < 1 || days > MAX_LOOKBACK_DAYS) {
+            throw new RuntimeException("days must be between 1 and " + MAX_LOOKBACK_DAYS);
+        }
+        return LocalDate.now().minusDays(days - 1L).atStartOfDay();
+    }
+
     private TransactionResponse mapToTransactionResponse(Transaction t) {
         return new TransactionResponse(
                 t.getTransactionId(),
@@ -396,6 +506,17 @@ public class TransactionController {
             int totalPages) {
     }
 
+    /**
+     * @param nextCursor pass as {@code cursor} to get the next page; null on the last page
+     * @param totalElements only when requested with {@code includeTotal=true}
+     */
+    public record TransactionSliceResponse(
+            List<TransactionResponse> transactions,
+            String nextCursor,
+            boolean hasMore,
+            Long totalElements) {
+    }
+
     public record SuccessResponse(String message) {
     }
 
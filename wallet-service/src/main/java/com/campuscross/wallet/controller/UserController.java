@@ -1,5 +1,6 @@
 package com.campuscross.wallet.controller;
 
+import com.campuscross.wallet.config.ReadOnlyEndpoint;
 import com.campuscross.wallet.entity.User;
 import com.campuscross.wallet.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -9,7 +10,13 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import java.util.Optional;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -18,6 +25,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserController {
 
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final UserRepository userRepository;
 
     @GetMapping("/by-college/{campusName}")
@@ -93,21 +102,77 @@ public class UserController {
                         new ErrorResponse("User not found with identifier: " + identifier));
             }
 
-            User foundUser = user.get();
-            return ResponseEntity.ok(new UserResponse(
-                    foundUser.getId(),
-                    foundUser.getFullName(),
-                    foundUser.getEmail(),
-                    foundUser.getStudentId(),
-                    foundUser.getRole().toString(),
-                    foundUser.getKycStatus() != null ? foundUser.getKycStatus().toString() : "NOT_STARTED",
-                    foundUser.getCampusName()));
+            return ResponseEntity.ok(toResponse(user.get()));
         } catch (Exception e) {
             log.error("Failed to lookup user: {}", identifier, e);
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         }
     }
 
+    /**
+     * Same matching as /lookup/{identifier} (student ID, then phone number, then email) for
+     * up to MAX_BATCH_SIZE identifiers, with one query per kind of identifier
+     */
+    @PostMapping("/batch-lookup")
+    @ReadOnlyEndpoint
+    public ResponseEntity<?> batchLookupUsers(@RequestBody BatchLookupRequest request) {
+        try {
+            if (request.identifiers() == null || request.identifiers().isEmpty()) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("identifiers is required"));
+            }
+            Set<String> identifiers = new LinkedHashSet<>();
+            request.identifiers().stream().filter(Objects::nonNull).forEach(identifiers::add);
+            if (identifiers.size() > MAX_BATCH_SIZE) {
+                return ResponseEntity.badRequest().body(
+                        new ErrorResponse("At most " + MAX_BATCH_SIZE + " identifiers per request"));
+            }
+
+            Map<String, User> matches = new LinkedHashMap<>();
+            match(identifiers, matches, userRepository::findByStudentIdIn, User::getStudentId);
+            match(identifiers, matches, userRepository::findByPhoneNumberIn, User::getPhoneNumber);
+            match(identifiers, matches, userRepository::findByEmailIn, User::getEmail);
+
+            Map<String, UserResponse> users = new LinkedHashMap<>();
+            List<String> notFound = identifiers.stream()
+                    .filter(identifier -> !matches.containsKey(identifier))
+                    .collect(Collectors.toList());
+            identifiers.stream()
+                    .filter(matches::containsKey)
+                    .forEach(identifier -> users.put(identifier, toResponse(matches.get(identifier))));
+            return ResponseEntity.ok(new BatchLookupResponse(users, notFound));
+        } catch (Exception e) {
+            log.error("Failed to batch lookup {} users", request.identifiers().size(), e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Looks up the identifiers not matched yet by one kind of key
+     */
+    private void match(Set<String> identifiers, Map<String, User> matches,
+            Function<List<String>, List<User>> query, Function<User, String> key) {
+        List<String> unmatched = identifiers.stream()
+                .filter(identifier -> !matches.containsKey(identifier))
+                .collect(Collectors.toList());
+        if (unmatched.isEmpty()) {
+            return;
+        }
+        for (User user : query.apply(unmatched)) {
+            matches.putIfAbsent(key.apply(user), user);
+        }
+    }
+
+    private UserResponse toResponse(User user) {
+        return new UserResponse(
+                user.getId(),
+                user.getFullName(),
+                user.getEmail(),
+                user.getStudentId(),
+                user.getRole().toString(),
+                user.getKycStatus() != null ? user.getKycStatus().toString() : "NOT_STARTED",
+                user.getCampusName());
+    }
+
     public record UserResponse(
             String userId,
             String fullName,
@@ -118,6 +183,12 @@ public class UserController {
             String campusName) {
     }
 
+    public record BatchLookupRequest(List<String> identifiers) {
+    }
+
+    public record BatchLookupResponse(Map<String, UserResponse> users, List<String> notFound) {
+    }
+
     public record ErrorResponse(String error) {
     }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.campuscross.wallet.controller;
 
+import com.campuscross.wallet.config.ReadOnlyEndpoint;
 import com.campuscross.wallet.entity.Wallet;
 import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.service.WalletPortfolioCache.WalletSnapshot;
 import com.campuscross.wallet.service.WalletService;
+import com.campuscross.wallet.service.fx.CurrencyValuationService.Valuation;
 import com.campuscross.wallet.repository.UserRepository;
 import com.campuscross.wallet.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
@@ -11,7 +14,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -21,6 +31,8 @@ import jakarta.servlet.http.HttpServletRequest;
 @Slf4j
 public class WalletController {
     
+    private static final int MAX_BATCH_SIZE = 100;
+    
     private final WalletService walletService;
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
@@ -162,21 +174,8 @@ public class WalletController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getUserWallets(@PathVariable String userId) {
         try {
-            List<Wallet> wallets = walletService.getUserWallets(userId);
-            
-            List<WalletResponse> walletResponses = wallets.stream()
-                    .map(wallet -> new WalletResponse(
-                            wallet.getId(),
-                            wallet.getWalletAddress(),
-                            wallet.getWalletName(),
-                            wallet.getType().toString(),
-                            wallet.getStatus().toString(),
-                            wallet.getBalance(),
-                            wallet.getCurrencyCode(),
-                            wallet.getIsDefault(),
-                            wallet.getDailyLimit(),
-                            wallet.getMonthlyLimit()
-                    ))
+            List<WalletResponse> walletResponses = walletService.getPortfolio(userId).wallets().stream()
+                    .map(this::toResponse)
                     .toList();
             
             return ResponseEntity.ok(walletResponses);
@@ -189,20 +188,10 @@ public class WalletController {
     @GetMapping("/user/{userId}/default")
     public ResponseEntity<?> getDefaultWallet(@PathVariable String userId) {
         try {
-            Wallet wallet = walletService.getDefaultWallet(userId);
+            WalletSnapshot wallet = walletService.getPortfolio(userId).defaultWallet()
+                    .orElseThrow(() -> new RuntimeException("Default wallet not found"));
             
-            return ResponseEntity.ok(new WalletResponse(
-                    wallet.getId(),
-                    wallet.getWalletAddress(),
-                    wallet.getWalletName(),
-                    wallet.getType().toString(),
-                    wallet.getStatus().toString(),
-                    wallet.getBalance(),
-                    wallet.getCurrencyCode(),
-                    wallet.getIsDefault(),
-                    wallet.getDailyLimit(),
-                    wallet.getMonthlyLimit()
-            ));
+            return ResponseEntity.ok(toResponse(wallet));
         } catch (Exception e) {
             log.error("Failed to get default wallet", e);
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
@@ -214,32 +203,60 @@ public class WalletController {
         try {
             Wallet wallet = walletService.getWalletByAddress(walletAddress);
             
-            return ResponseEntity.ok(new WalletResponse(
-                    wallet.getId(),
-                    wallet.getWalletAddress(),
-                    wallet.getWalletName(),
-                    wallet.getType().toString(),
-                    wallet.getStatus().toString(),
-                    wallet.getBalance(),
-                    wallet.getCurrencyCode(),
-                    wallet.getIsDefault(),
-                    wallet.getDailyLimit(),
-                    wallet.getMonthlyLimit()
-            ));
+            return ResponseEntity.ok(toResponse(wallet));
         } catch (Exception e) {
             log.error("Failed to get wallet by address", e);
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         }
     }
     
+    /**
+     * Resolves up to MAX_BATCH_SIZE wallet addresses with a single query, e.g. the
+     * counterparties of a page of transaction history
+     */
+    @PostMapping("/batch")
+    @ReadOnlyEndpoint
+    public ResponseEntity<?> getWalletsByAddress(@RequestBody BatchWalletRequest request) {
+        try {
+            if (request.walletAddresses() == null || request.walletAddresses().isEmpty()) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("walletAddresses is required"));
+            }
+            Set<String> addresses = new LinkedHashSet<>();
+            request.walletAddresses().stream().filter(Objects::nonNull).forEach(addresses::add);
+            if (addresses.size() > MAX_BATCH_SIZE) {
+                return ResponseEntity.badRequest().body(
+                        new ErrorResponse("At most " + MAX_BATCH_SIZE + " wallet addresses per request"));
+            }
+            
+            Map<String, Wallet> wallets = walletService.getWalletsByAddress(addresses);
+            Map<String, WalletResponse> found = new LinkedHashMap<>();
+            List<String> notFound = new ArrayList<>();
+            for (String address : addresses) {
+                Wallet wallet = wallets.get(address);
+                if (wallet == null) {
+                    notFound.add(address);
+                } else {
+                    found.put(address, toResponse(wallet));
+                }
+            }
+            return ResponseEntity.ok(new BatchWalletResponse(found, notFound));
+        } catch (Exception e) {
+            log.error("Failed to get wallets by address", e);
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/user/{userId}/total-balance")
-    public ResponseEntity<?> getTotalBalance(@PathVariable String userId) {
+    public ResponseEntity<?> getTotalBalance(@PathVariable String userId,
+                                             @RequestParam(required = false) String currency) {
         try {
-            BigDecimal totalBalance = walletService.getTotalBalance(userId);
+            Valuation valuation = walletService.getTotalBalance(userId, currency);
             
             return ResponseEntity.ok(new TotalBalanceResponse(
-                    totalBalance,
-                    "USD" // Assuming USD for now
+                    valuation.total(),
+                    valuation.currencyCode(),
+                    valuation.ratesAsOf(),
+                    valuation.unvaluedCurrencies()
             ));
         } catch (Exception e) {
             log.error("Failed to get total balance", e);
@@ -303,6 +320,10 @@ public class WalletController {
             BigDecimal limit
     ) {}
     
+    public record BatchWalletRequest(
+            List<String> walletAddresses
+    ) {}
+    
     public record WalletResponse(
             Long id,
             String walletAddress,
@@ -316,6 +337,11 @@ public class WalletController {
             BigDecimal monthlyLimit
     ) {}
     
+    public record BatchWalletResponse(
+            Map<String, WalletResponse> wallets,
+            List<String> notFound
+    ) {}
+    
     public record WalletBalanceResponse(
             BigDecimal balance,
             String message
@@ -328,7 +354,9 @@ public class WalletController {
     
     public record TotalBalanceResponse(
             BigDecimal totalBalance,
-            String currencyCode
+            String currencyCode,
+            Instant ratesAsOf,
+            List<String> unvaluedCurrencies
     ) {}
     
     public record SuccessResponse(
@@ -339,6 +367,36 @@ public class WalletController {
             String error
     ) {}
     
+    private WalletResponse toResponse(Wallet wallet) {
+        return new WalletResponse(
+                wallet.getId(),
+                wallet.getWalletAddress(),
+                wallet.getWalletName(),
+                wallet.getType().toString(),
+                wallet.getStatus().toString(),
+                wallet.getBalance(),
+                wallet.getCurrencyCode(),
+                wallet.getIsDefault(),
+                wallet.getDailyLimit(),
+                wallet.getMonthlyLimit()
+        );
+    }
+    
+    private WalletResponse toResponse(WalletSnapshot wallet) {
+        return new WalletResponse(
+                wallet.id(),
+                wallet.walletAddress(),
+                wallet.walletName(),
+                wallet.type().toString(),
+                wallet.status().toString(),
+                wallet.balance(),
+                wallet.currencyCode(),
+                wallet.isDefault(),
+                wallet.dailyLimit(),
+                wallet.monthlyLimit()
+        );
+    }
+    
     private String extractTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
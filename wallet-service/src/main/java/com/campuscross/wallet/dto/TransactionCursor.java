@@ -0,0 +1,50 @@
+package com.campuscross.wallet.dto;
+
+import com.campuscross.wallet.entity.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a newest-first transaction history: the (created at, id) of the last
+ * transaction returned. Handed to clients as an opaque, URL-safe token.
+ */
+public record TransactionCursor(LocalDateTime createdAt, Long id) {
+
+    /**
+     * Sorts after every real transaction, so a page "before" it is the first page
+     */
+    public static final TransactionCursor START = new TransactionCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    private static final String VERSION = "v1";
+
+    public static TransactionCursor of(Transaction transaction) {
+        return new TransactionCursor(transaction.getCreatedAt(), transaction.getId());
+    }
+
+    public String encode() {
+        String raw = VERSION + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return {@link #START} for a null or blank token
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode()}
+     */
+    public static TransactionCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new TransactionCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
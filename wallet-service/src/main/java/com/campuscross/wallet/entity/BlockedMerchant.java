@@ -0,0 +1,48 @@
+package com.campuscross.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A merchant that campus payments may not be made to. Unblocking deactivates the row rather
+ * than deleting it, so the change reaches every instance through the delta refresh.
+ */
+@Entity
+@Table(name = "blocked_merchants", indexes = {
+        @Index(name = "idx_blocked_merchants_updated_at", columnList = "updated_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlockedMerchant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "merchant_id", nullable = false, unique = true)
+    private String merchantId;
+
+    @Column(name = "reason")
+    private String reason;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private boolean active = true;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
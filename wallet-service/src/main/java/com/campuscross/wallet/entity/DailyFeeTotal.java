@@ -0,0 +1,51 @@
+package com.campuscross.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Fees collected on one day in one currency. Every fee-bearing payment of the day adds to
+ * these rows, so each day and currency is split over a few shards (picked from the
+ * transaction id) to keep concurrent payments from queueing on a single row lock; readers
+ * sum the shards.
+ */
+@Entity
+@Table(name = "daily_fee_totals")
+@IdClass(DailyFeeTotal.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyFeeTotal {
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Id
+    @Column(name = "currency_code")
+    private String currencyCode;
+
+    @Id
+    @Column(name = "shard")
+    private Integer shard;
+
+    @Column(precision = 19, scale = 8, nullable = false)
+    private BigDecimal fees;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private String currencyCode;
+        private Integer shard;
+    }
+}
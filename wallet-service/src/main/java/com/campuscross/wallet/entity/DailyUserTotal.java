@@ -0,0 +1,58 @@
+package com.campuscross.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * What one user spent, received and paid in fees on one day in one currency, over completed
+ * transactions. Kept up to date by {@link com.campuscross.wallet.service.RollupService} in the
+ * same database transaction as each completed transaction.
+ */
+@Entity
+@Table(name = "daily_user_totals", indexes = {
+        @Index(name = "idx_daily_user_totals_day", columnList = "day")
+})
+@IdClass(DailyUserTotal.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyUserTotal {
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Id
+    @Column(name = "currency_code")
+    private String currencyCode;
+
+    @Column(precision = 19, scale = 8, nullable = false)
+    private BigDecimal spent;
+
+    @Column(precision = 19, scale = 8, nullable = false)
+    private BigDecimal received;
+
+    @Column(precision = 19, scale = 8, nullable = false)
+    private BigDecimal fees;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private LocalDate day;
+        private String currencyCode;
+    }
+}
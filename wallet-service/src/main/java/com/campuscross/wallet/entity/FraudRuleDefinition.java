@@ -0,0 +1,122 @@
+package com.campuscross.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A configured fraud rule: which rule type to build, for which payment types, with which
+ * parameters. Edited at runtime and picked up by the rule engine without a restart.
+ */
+@Entity
+@Table(name = "fraud_rules")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FraudRuleDefinition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String name;
+
+    @Column(name = "rule_type", nullable = false)
+    private String ruleType;
+
+    /**
+     * Comma-separated {@link Transaction.TransactionType} names
+     */
+    @Column(name = "applies_to", nullable = false)
+    private String appliesTo;
+
+    @Column(name = "params", columnDefinition = "TEXT")
+    @Convert(converter = MapJsonConverter.class)
+    private Map<String, Object> params;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private boolean enabled = true;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'BLOCKING'")
+    @Column(name = "mode", nullable = false, length = 16)
+    private Mode mode = Mode.BLOCKING;
+
+    /**
+     * What an ASYNC rule does when it matches; ignored for the other modes
+     */
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'FLAG'")
+    @Column(name = "action", nullable = false, length = 16)
+    private Action action = Action.FLAG;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum Mode {
+        /** Evaluated before the payment executes; a match rejects it */
+        BLOCKING,
+        /** Evaluated after the payment commits; a match flags the transaction or freezes the wallet */
+        ASYNC,
+        /** Evaluated after the payment like ASYNC, but only counted, never enforced */
+        SHADOW
+    }
+
+    public enum Action {
+        FLAG, FREEZE
+    }
+
+    public Set<Transaction.TransactionType> appliesToTypes() {
+        Set<Transaction.TransactionType> types = EnumSet.noneOf(Transaction.TransactionType.class);
+        Arrays.stream(appliesTo.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .forEach(s -> types.add(Transaction.TransactionType.valueOf(s)));
+        return types;
+    }
+
+    public BigDecimal decimalParam(String key, BigDecimal defaultValue) {
+        Object value = params != null ? params.get(key) : null;
+        return value == null ? defaultValue : new BigDecimal(value.toString());
+    }
+
+    public int intParam(String key, int defaultValue) {
+        Object value = params != null ? params.get(key) : null;
+        return value == null ? defaultValue : Integer.parseInt(value.toString());
+    }
+
+    public List<String> listParam(String key) {
+        Object value = params != null ? params.get(key) : null;
+        if (value == null) {
+            return List.of();
+        }
+        if (value instanceof Collection<?> values) {
+            return values.stream().map(Object::toString).toList();
+        }
+        return Arrays.stream(value.toString().split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,42 @@
+package com.campuscross.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One of the node ids of {@link com.campuscross.wallet.util.IdGenerator}, leased by a running
+ * instance so no two instances issue ids with the same node bits.
+ *
+ * issuedUntil is the generator timestamp (milliseconds since its epoch) up to which the holder
+ * may have issued ids. The holder raises it before issuing past it, so whoever takes the node
+ * id next starts after it, even when the previous holder ran ahead of the clock or crashed.
+ */
+@Entity
+@Table(name = "id_generator_nodes")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdGeneratorNode {
+
+    @Id
+    @Column(name = "node_id")
+    private Integer nodeId;
+
+    /**
+     * Instance holding the lease, null when free
+     */
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "issued_until", nullable = false)
+    private long issuedUntil;
+}
@@ -0,0 +1,66 @@
+package com.campuscross.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+/**
+ * The stored outcome of a money-moving request sent with an {@code Idempotency-Key} header.
+ * Replays of the same key return this response instead of executing the request again.
+ *
+ * The row is inserted IN_PROGRESS before the request executes, so the primary key claims
+ * the key across instances and restarts, and becomes COMPLETED with the response.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    /**
+     * Client key scoped by user and request path, e.g. {@code 2021001:/api/banking/deposit:3f1c...}
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 512)
+    private String key;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'COMPLETED'")
+    @Column(name = "state", nullable = false, length = 16)
+    private State state = State.COMPLETED;
+
+    /**
+     * 0 while in progress
+     */
+    @Column(name = "status_code", nullable = false)
+    private int statusCode;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public enum State {
+        IN_PROGRESS, COMPLETED
+    }
+}
@@ -0,0 +1,70 @@
+package com.campuscross.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One side of a double-entry journal posting. Every money movement writes exactly one DEBIT
+ * (value leaving an account) and one CREDIT (value entering an account) of the same amount
+ * and currency. Rows are insert-only; wallet balances can always be rebuilt from them.
+ */
+@Entity
+@Table(name = "ledger_entries", indexes = {
+        @Index(name = "idx_ledger_entries_wallet", columnList = "wallet_id, id"),
+        @Index(name = "idx_ledger_entries_transaction", columnList = "transaction_id")
+})
+@Immutable
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false, updatable = false)
+    private String transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "account", nullable = false, updatable = false)
+    private Account account;
+
+    @Column(name = "wallet_id", updatable = false)
+    private Long walletId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "direction", nullable = false, updatable = false)
+    private Direction direction;
+
+    @Column(precision = 19, scale = 8, nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    @Column(name = "currency_code", nullable = false, updatable = false)
+    private String currencyCode;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * WALLET entries carry a wallet id; the other accounts are system-wide counterparties.
+     */
+    public enum Account {
+        WALLET, BANK_CLEARING, MERCHANT_SETTLEMENT, FX_CLEARING, ADJUSTMENT, OPENING_BALANCE
+    }
+
+    public enum Direction {
+        DEBIT, CREDIT
+    }
+}
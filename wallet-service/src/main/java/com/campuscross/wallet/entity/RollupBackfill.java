@@ -0,0 +1,47 @@
+package com.campuscross.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A finished rollup backfill. The row written by the backfill on first start is the marker
+ * that keeps later starts from repeating it; the rollup tables themselves cannot tell, since
+ * live payments start adding to them before the backfill gets to run.
+ */
+@Entity
+@Table(name = "rollup_backfills")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupBackfill {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    @Column(name = "from_day", nullable = false)
+    private LocalDate fromDay;
+
+    @Column(name = "to_day", nullable = false)
+    private LocalDate toDay;
+
+    @CreationTimestamp
+    @Column(name = "completed_at", updatable = false)
+    private LocalDateTime completedAt;
+
+    public enum Kind {
+        INITIAL, MANUAL
+    }
+}
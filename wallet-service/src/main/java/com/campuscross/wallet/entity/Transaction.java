@@ -12,7 +12,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_source_created", columnList = "source_wallet_id, created_at"),
+        @Index(name = "idx_transactions_source_target_created", columnList = "source_wallet_id, target_wallet_id, created_at"),
+        @Index(name = "idx_transactions_target_created", columnList = "target_wallet_id, created_at"),
+        @Index(name = "idx_transactions_source_user_created", columnList = "source_user_id, created_at"),
+        @Index(name = "idx_transactions_target_user_created", columnList = "target_user_id, created_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -23,7 +29,10 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(unique = true, nullable = false)
+    // Kept unique by the UNIQUE constraint V3 creates, and by the transaction_ids table once the
+    // table is partitioned (V13). Not declared here: ddl-auto=update would keep trying to add a
+    // constraint that a partitioned table cannot hold.
+    @Column(nullable = false, updatable = false)
     private String transactionId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -100,6 +109,19 @@ public class Transaction {
     @Column(name = "recipient_student_id")
     private String recipientStudentId;
 
+    /**
+     * Owner of the source wallet, copied at write time so user-scoped queries avoid the
+     * joins through wallets
+     */
+    @Column(name = "source_user_id")
+    private String sourceUserId;
+
+    /**
+     * Owner of the target wallet, see {@link #sourceUserId}
+     */
+    @Column(name = "target_user_id")
+    private String targetUserId;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -110,6 +132,12 @@ public class Transaction {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
+    /**
+     * {@link #countsAsCompleted()} as a condition on the transactions table
+     */
+    public static final String COUNTS_AS_COMPLETED_SQL =
+            "(status = 'COMPLETED' OR (status = 'FLAGGED' AND completed_at IS NOT NULL))";
+
     public enum TransactionType {
         P2P_TRANSFER, CAMPUS_PAYMENT, REMITTANCE_OUTBOUND, REMITTANCE_INBOUND,
         CURRENCY_EXCHANGE, FEE_CHARGE, REFUND, DEPOSIT, WITHDRAWAL
@@ -123,6 +151,16 @@ public class Transaction {
         return status == TransactionStatus.COMPLETED;
     }
 
+    /**
+     * Whether the transaction counts as completed in totals: completed, or marked FLAGGED after
+     * it completed (flagging used to overwrite the status; those payments still moved money).
+     * The rollups apply this on the live path and, as {@link #COUNTS_AS_COMPLETED_SQL}, on rebuild.
+     */
+    public boolean countsAsCompleted() {
+        return status == TransactionStatus.COMPLETED
+                || (status == TransactionStatus.FLAGGED && completedAt != null);
+    }
+
     public boolean isFailed() {
         return status == TransactionStatus.FAILED || status == TransactionStatus.CANCELLED;
     }
@@ -142,8 +180,11 @@ public class Transaction {
         this.completedAt = LocalDateTime.now();
     }
 
+    /**
+     * Flags a transaction for review. The status is left alone: a payment flagged after it
+     * completed has still moved the money, and stays refundable and counted as completed.
+     */
     public void markFlagged(String reason) {
-        this.status = TransactionStatus.FLAGGED;
         this.flagged = true;
         this.flagReason = reason;
     }
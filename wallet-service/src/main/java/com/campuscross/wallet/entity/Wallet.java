@@ -81,6 +81,15 @@ public class Wallet {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    /**
+     * Checked only by Hibernate when a loaded Wallet entity is saved, e.g. on freeze. Balance
+     * changes use the conditional UPDATEs of WalletRepository, which bump the version without
+     * checking it, so a stale entity cannot overwrite a balance that changed after it was read.
+     */
+    @Version
+    @Column(name = "version", columnDefinition = "bigint not null default 0")
+    private Long version;
+    
     public enum WalletType {
         PERSONAL, CAMPUS, MERCHANT, SAVINGS
     }
@@ -0,0 +1,32 @@
+package com.campuscross.wallet.repository;
+
+import com.campuscross.wallet.entity.BlockedMerchant;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface BlockedMerchantRepository extends JpaRepository<BlockedMerchant, Long> {
+
+    Optional<BlockedMerchant> findByMerchantId(String merchantId);
+
+    /**
+     * Ids of all active entries, streamed so a full reload never holds the entities in memory.
+     * Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT b.merchantId FROM BlockedMerchant b WHERE b.active = true")
+    Stream<String> streamActiveMerchantIds();
+
+    List<BlockedMerchant> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+
+    @Query("SELECT MAX(b.updatedAt) FROM BlockedMerchant b")
+    Optional<LocalDateTime> findLatestUpdate();
+}
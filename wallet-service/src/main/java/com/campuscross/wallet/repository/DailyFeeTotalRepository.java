@@ -0,0 +1,53 @@
+package com.campuscross.wallet.repository;
+
+import com.campuscross.wallet.entity.DailyFeeTotal;
+import com.campuscross.wallet.entity.Transaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyFeeTotalRepository extends JpaRepository<DailyFeeTotal, DailyFeeTotal.Key> {
+
+    /**
+     * Adds to one shard of the day's fees, under the day's shared rollup lock like
+     * {@link DailyUserTotalRepository#add}
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_fee_totals (day, currency_code, shard, fees) " +
+            "SELECT :day, :currencyCode, :shard, :fees " +
+            "FROM (SELECT pg_advisory_xact_lock_shared(:lockSpace, :lockKey)) l " +
+            "ON CONFLICT (day, currency_code, shard) DO UPDATE SET fees = daily_fee_totals.fees + EXCLUDED.fees",
+            nativeQuery = true)
+    int add(@Param("day") LocalDate day, @Param("currencyCode") String currencyCode, @Param("shard") int shard,
+            @Param("fees") BigDecimal fees, @Param("lockSpace") int lockSpace, @Param("lockKey") int lockKey);
+
+    /**
+     * (currency code, fees) collected between two days, inclusive
+     */
+    @Query("SELECT d.currencyCode, SUM(d.fees) FROM DailyFeeTotal d " +
+            "WHERE d.day BETWEEN :from AND :to GROUP BY d.currencyCode ORDER BY d.currencyCode")
+    List<Object[]> sumBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM DailyFeeTotal d WHERE d.day = :day")
+    int deleteByDay(@Param("day") LocalDate day);
+
+    /**
+     * Recomputes the day's fees into shard 0, like {@link DailyUserTotalRepository#rebuildDay}
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_fee_totals (day, currency_code, shard, fees) " +
+            "SELECT :day, currency_code, 0, SUM(fee_amount) FROM transactions " +
+            "WHERE " + Transaction.COUNTS_AS_COMPLETED_SQL + " AND fee_amount <> 0 AND created_at >= :start AND created_at < :end " +
+            "GROUP BY currency_code",
+            nativeQuery = true)
+    int rebuildDay(@Param("day") LocalDate day, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,72 @@
+package com.campuscross.wallet.repository;
+
+import com.campuscross.wallet.entity.DailyUserTotal;
+import com.campuscross.wallet.entity.Transaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyUserTotalRepository extends JpaRepository<DailyUserTotal, DailyUserTotal.Key> {
+
+    /**
+     * Adds to a user's totals for the day. Takes the day's rollup lock in shared mode first,
+     * so a backfill of the same day (which takes it exclusively) never misses or double-counts
+     * the change.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_user_totals (user_id, day, currency_code, spent, received, fees) " +
+            "SELECT :userId, :day, :currencyCode, :spent, :received, :fees " +
+            "FROM (SELECT pg_advisory_xact_lock_shared(:lockSpace, :lockKey)) l " +
+            "ON CONFLICT (user_id, day, currency_code) DO UPDATE SET " +
+            "spent = daily_user_totals.spent + EXCLUDED.spent, " +
+            "received = daily_user_totals.received + EXCLUDED.received, " +
+            "fees = daily_user_totals.fees + EXCLUDED.fees",
+            nativeQuery = true)
+    int add(@Param("userId") String userId, @Param("day") LocalDate day, @Param("currencyCode") String currencyCode,
+            @Param("spent") BigDecimal spent, @Param("received") BigDecimal received, @Param("fees") BigDecimal fees,
+            @Param("lockSpace") int lockSpace, @Param("lockKey") int lockKey);
+
+    /**
+     * (currency code, spent, received, fees) of a user between two days, inclusive
+     */
+    @Query("SELECT d.currencyCode, SUM(d.spent), SUM(d.received), SUM(d.fees) FROM DailyUserTotal d " +
+            "WHERE d.userId = :userId AND d.day BETWEEN :from AND :to GROUP BY d.currencyCode ORDER BY d.currencyCode")
+    List<Object[]> sumByUserId(@Param("userId") String userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM DailyUserTotal d WHERE d.day = :day")
+    int deleteByDay(@Param("day") LocalDate day);
+
+    /**
+     * Recomputes every user's totals for one day from the transactions table, counting the
+     * same transactions as {@link com.campuscross.wallet.service.RollupService#recordCompleted}.
+     * Run after {@link #deleteByDay} while holding the day's rollup lock exclusively.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_user_totals (user_id, day, currency_code, spent, received, fees) " +
+            "SELECT user_id, :day, currency_code, SUM(spent), SUM(received), SUM(fees) FROM (" +
+            "SELECT source_user_id AS user_id, currency_code, amount AS spent, 0 AS received, " +
+            "COALESCE(fee_amount, 0) AS fees FROM transactions " +
+            "WHERE " + Transaction.COUNTS_AS_COMPLETED_SQL + " AND source_user_id IS NOT NULL AND created_at >= :start AND created_at < :end " +
+            "UNION ALL " +
+            "SELECT target_user_id, currency_code, 0, amount, 0 FROM transactions " +
+            "WHERE " + Transaction.COUNTS_AS_COMPLETED_SQL + " AND target_user_id IS NOT NULL AND created_at >= :start AND created_at < :end" +
+            ") t GROUP BY user_id, currency_code",
+            nativeQuery = true)
+    int rebuildDay(@Param("day") LocalDate day, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Takes the day's rollup lock exclusively until the end of the transaction, waiting for
+     * the transactions that are adding to the day to finish
+     */
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:lockSpace, :lockKey)) l", nativeQuery = true)
+    Integer lockDay(@Param("lockSpace") int lockSpace, @Param("lockKey") int lockKey);
+}
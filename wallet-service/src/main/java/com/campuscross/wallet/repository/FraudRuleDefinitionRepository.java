@@ -0,0 +1,16 @@
+package com.campuscross.wallet.repository;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FraudRuleDefinitionRepository extends JpaRepository<FraudRuleDefinition, Long> {
+
+    Optional<FraudRuleDefinition> findByName(String name);
+
+    List<FraudRuleDefinition> findByEnabledTrueOrderByName();
+}
@@ -0,0 +1,60 @@
+package com.campuscross.wallet.repository;
+
+import com.campuscross.wallet.entity.IdGeneratorNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface IdGeneratorNodeRepository extends JpaRepository<IdGeneratorNode, Integer> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO id_generator_nodes (node_id, issued_until) " +
+            "SELECT g, 0 FROM generate_series(0, :maxNodeId) g ON CONFLICT (node_id) DO NOTHING", nativeQuery = true)
+    int createNodes(@Param("maxNodeId") int maxNodeId);
+
+    /**
+     * Leases a free node id, the one given or else the lowest, for leaseSeconds. Free means
+     * never leased, released, or with an expired lease.
+     *
+     * @return one row {node_id, issued_until} when a node id was leased, none otherwise
+     */
+    @Transactional
+    @Query(value = "UPDATE id_generator_nodes SET owner = :owner, " +
+            "lease_expires_at = CURRENT_TIMESTAMP + :leaseSeconds * INTERVAL '1 second' " +
+            "WHERE node_id = (SELECT node_id FROM id_generator_nodes " +
+            "WHERE (lease_expires_at IS NULL OR lease_expires_at < CURRENT_TIMESTAMP) " +
+            "AND (:nodeId < 0 OR node_id = :nodeId) " +
+            "ORDER BY node_id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING node_id, issued_until", nativeQuery = true)
+    List<Object[]> lease(@Param("nodeId") int nodeId, @Param("owner") String owner,
+                         @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Extends the lease and raises issued_until to at least the given value
+     *
+     * @return 1 while the caller still holds the lease, 0 once another instance has taken it
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE id_generator_nodes SET issued_until = GREATEST(issued_until, :issuedUntil), " +
+            "lease_expires_at = CURRENT_TIMESTAMP + :leaseSeconds * INTERVAL '1 second' " +
+            "WHERE node_id = :nodeId AND owner = :owner", nativeQuery = true)
+    int renew(@Param("nodeId") int nodeId, @Param("owner") String owner,
+              @Param("issuedUntil") long issuedUntil, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Frees the node id, lowering issued_until to what was actually issued
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE id_generator_nodes SET owner = NULL, lease_expires_at = NULL, issued_until = :issuedUntil " +
+            "WHERE node_id = :nodeId AND owner = :owner", nativeQuery = true)
+    int release(@Param("nodeId") int nodeId, @Param("owner") String owner, @Param("issuedUntil") long issuedUntil);
+}
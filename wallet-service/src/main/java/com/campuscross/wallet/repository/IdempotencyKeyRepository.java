@@ -0,0 +1,56 @@
+package com.campuscross.wallet.repository;
+
+import com.campuscross.wallet.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Claims a key by inserting it IN_PROGRESS, or by taking over an expired row. Commits
+     * before the request executes, so only one instance can own a key.
+     *
+     * @return 1 when the caller now owns the key, 0 when another request holds or completed it
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys " +
+            "(idempotency_key, request_hash, state, status_code, created_at, expires_at) " +
+            "VALUES (:key, :requestHash, 'IN_PROGRESS', 0, :now, :expiresAt) " +
+            "ON CONFLICT (idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+            "state = 'IN_PROGRESS', status_code = 0, content_type = NULL, response_body = NULL, " +
+            "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at < EXCLUDED.created_at", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE idempotency_keys SET state = 'COMPLETED', status_code = :statusCode, " +
+            "content_type = :contentType, response_body = :responseBody, expires_at = :expiresAt " +
+            "WHERE idempotency_key = :key AND state = 'IN_PROGRESS'", nativeQuery = true)
+    int complete(@Param("key") String key, @Param("statusCode") int statusCode,
+                 @Param("contentType") String contentType, @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Releases a claim whose request failed, so the key can be retried
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE idempotency_key = :key AND state = 'IN_PROGRESS'",
+            nativeQuery = true)
+    int release(@Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
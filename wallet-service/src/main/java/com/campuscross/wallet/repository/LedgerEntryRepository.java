@@ -0,0 +1,29 @@
+package com.campuscross.wallet.repository;
+
+import com.campuscross.wallet.entity.LedgerEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    List<LedgerEntry> findByTransactionId(String transactionId);
+
+    List<LedgerEntry> findByWalletIdOrderByIdDesc(Long walletId, Pageable pageable);
+
+    boolean existsByWalletId(Long walletId);
+
+    boolean existsByTransactionId(String transactionId);
+
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.direction = com.campuscross.wallet.entity.LedgerEntry.Direction.CREDIT " +
+            "THEN e.amount ELSE -e.amount END), 0) " +
+            "FROM LedgerEntry e WHERE e.account = com.campuscross.wallet.entity.LedgerEntry.Account.WALLET " +
+            "AND e.walletId = :walletId")
+    BigDecimal getWalletBalance(@Param("walletId") Long walletId);
+}
@@ -0,0 +1,11 @@
+package com.campuscross.wallet.repository;
+
+import com.campuscross.wallet.entity.RollupBackfill;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RollupBackfillRepository extends JpaRepository<RollupBackfill, Long> {
+
+    boolean existsByKind(RollupBackfill.Kind kind);
+}
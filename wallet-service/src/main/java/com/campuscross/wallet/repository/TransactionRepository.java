@@ -1,23 +1,44 @@
 package com.campuscross.wallet.repository;
 
 import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.util.IdGenerator;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     
     Optional<Transaction> findByTransactionId(String transactionId);
     
+    Optional<Transaction> findByTransactionIdAndCreatedAtBetween(String transactionId, LocalDateTime from, LocalDateTime to);
+    
+    /**
+     * Looks a transaction up by id within a day either side of the time embedded in the id,
+     * so on the partitioned table only one or two monthly partitions are searched. Ids issued
+     * before the Snowflake generator have the same shape ("TXN-" and 16 hex digits) but a
+     * random "timestamp", so a miss falls back to searching every partition, as do ids
+     * without a timestamp.
+     */
+    default Optional<Transaction> findByTransactionIdNearCreation(String transactionId) {
+        return IdGenerator.timestampOf(transactionId)
+                .map(issued -> LocalDateTime.ofInstant(issued, ZoneId.systemDefault()))
+                .flatMap(issued -> findByTransactionIdAndCreatedAtBetween(transactionId, issued.minusDays(1), issued.plusDays(1)))
+                .or(() -> findByTransactionId(transactionId));
+    }
+    
     List<Transaction> findBySourceWalletId(Long sourceWalletId);
     
     List<Transaction> findByTargetWalletId(Long targetWalletId);
@@ -34,14 +55,65 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     
     List<Transaction> findByCampusLocation(String campusLocation);
     
-    @Query("SELECT t FROM Transaction t WHERE t.sourceWallet.user.id = :userId OR t.targetWallet.user.id = :userId")
-    List<Transaction> findByUserId(@Param("userId") Long userId);
-    
-    @Query("SELECT t FROM Transaction t WHERE t.sourceWallet.user.id = :userId OR t.targetWallet.user.id = :userId ORDER BY t.createdAt DESC")
-    Page<Transaction> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId, Pageable pageable);
-    
-    @Query("SELECT t FROM Transaction t WHERE (t.sourceWallet.user.id = :userId OR t.targetWallet.user.id = :userId) AND t.createdAt BETWEEN :startDate AND :endDate")
-    List<Transaction> findByUserIdAndDateRange(@Param("userId") Long userId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    /*
+     * User-scoped queries read the denormalized source_user_id / target_user_id columns as a
+     * UNION ALL of two index range scans, one per side. The incoming side skips rows the user
+     * also sent (transfers between their own wallets), so each transaction appears once.
+     */
+    
+    String USER_OUTGOING = "SELECT * FROM transactions WHERE source_user_id = :userId";
+    
+    String USER_INCOMING = "SELECT * FROM transactions WHERE target_user_id = :userId " +
+            "AND source_user_id IS DISTINCT FROM :userId";
+    
+    String USER_COUNT = "SELECT (SELECT COUNT(*) FROM transactions WHERE source_user_id = :userId) + " +
+            "(SELECT COUNT(*) FROM transactions WHERE target_user_id = :userId " +
+            "AND source_user_id IS DISTINCT FROM :userId)";
+    
+    @Query(value = USER_OUTGOING + " UNION ALL " + USER_INCOMING, nativeQuery = true)
+    List<Transaction> findByUserId(@Param("userId") String userId);
+    
+    @Query(value = "SELECT * FROM (" + USER_OUTGOING + " UNION ALL " + USER_INCOMING + ") t ORDER BY t.created_at DESC",
+            countQuery = USER_COUNT,
+            nativeQuery = true)
+    Page<Transaction> findByUserIdOrderByCreatedAtDesc(@Param("userId") String userId, Pageable pageable);
+    
+    /**
+     * Up to {@code limit} of a user's transactions that sort after (createdAt, id), newest
+     * first. Each side is cut at {@code limit} inside its own index range scan, so every page
+     * costs the same no matter how deep it is.
+     */
+    @Query(value = "(" + USER_OUTGOING + " AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit) " +
+            "UNION ALL (" + USER_INCOMING + " AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Transaction> findByUserIdBefore(@Param("userId") String userId, @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id, @Param("limit") int limit);
+    
+    @Query(value = USER_COUNT, nativeQuery = true)
+    long countByUserId(@Param("userId") String userId);
+    
+    @Query(value = "SELECT * FROM (" +
+            USER_OUTGOING + " AND created_at BETWEEN :startDate AND :endDate UNION ALL " +
+            USER_INCOMING + " AND created_at BETWEEN :startDate AND :endDate) t ORDER BY t.created_at DESC",
+            nativeQuery = true)
+    List<Transaction> findByUserIdAndDateRange(@Param("userId") String userId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Same rows as {@link #findByUserIdAndDateRange}, oldest first, read through a database
+     * cursor in batches of the fetch size. Must be consumed and closed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT * FROM (" +
+            USER_OUTGOING + " AND created_at BETWEEN :startDate AND :endDate UNION ALL " +
+            USER_INCOMING + " AND created_at BETWEEN :startDate AND :endDate) t ORDER BY t.created_at, t.id",
+            nativeQuery = true)
+    Stream<Transaction> streamByUserIdAndDateRange(@Param("userId") String userId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
     @Query("SELECT t FROM Transaction t WHERE t.createdAt BETWEEN :startDate AND :endDate")
     List<Transaction> findByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
@@ -52,18 +124,60 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT COUNT(t) FROM Transaction t WHERE t.type = :type")
     long countByType(@Param("type") Transaction.TransactionType type);
     
-    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.status = 'COMPLETED' AND t.sourceWallet.user.id = :userId")
-    BigDecimal getTotalSpentByUserId(@Param("userId") Long userId);
+    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.status = 'COMPLETED' AND t.sourceUserId = :userId")
+    BigDecimal getTotalSpentByUserId(@Param("userId") String userId);
     
-    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.status = 'COMPLETED' AND t.targetWallet.user.id = :userId")
-    BigDecimal getTotalReceivedByUserId(@Param("userId") Long userId);
+    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.status = 'COMPLETED' AND t.targetUserId = :userId")
+    BigDecimal getTotalReceivedByUserId(@Param("userId") String userId);
     
-    @Query("SELECT t FROM Transaction t WHERE t.flagged = true")
-    List<Transaction> findFlaggedTransactions();
+    @Query("SELECT t FROM Transaction t WHERE t.flagged = true AND t.createdAt >= :since ORDER BY t.createdAt DESC")
+    List<Transaction> findFlaggedTransactions(@Param("since") LocalDateTime since);
     
-    @Query("SELECT t FROM Transaction t WHERE t.failureReason IS NOT NULL AND t.status = 'FAILED'")
-    List<Transaction> findFailedTransactions();
+    @Query("SELECT t FROM Transaction t WHERE t.failureReason IS NOT NULL AND t.status = 'FAILED' " +
+            "AND t.createdAt >= :since ORDER BY t.createdAt DESC")
+    List<Transaction> findFailedTransactions(@Param("since") LocalDateTime since);
     
     @Query("SELECT SUM(t.feeAmount) FROM Transaction t WHERE t.status = 'COMPLETED' AND t.createdAt BETWEEN :startDate AND :endDate")
     BigDecimal getTotalFeesCollected(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    @Query("SELECT MIN(t.createdAt) FROM Transaction t")
+    Optional<LocalDateTime> findEarliestCreatedAt();
+
+    /**
+     * (source wallet id, target wallet id, amount, currency, created at) of outgoing transactions
+     * created in [since, until), newest first
+     */
+    @Query("SELECT s.id, tw.id, t.amount, t.currencyCode, t.createdAt FROM Transaction t JOIN t.sourceWallet s " +
+            "LEFT JOIN t.targetWallet tw WHERE t.createdAt >= :since AND t.createdAt < :until " +
+            "ORDER BY t.createdAt DESC")
+    List<Object[]> findOutgoingBetween(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until,
+                                       Pageable pageable);
+
+    /**
+     * (source wallet id, target wallet id, created at) of completed transactions of one type, newest first
+     */
+    @Query("SELECT t.sourceWallet.id, t.targetWallet.id, t.createdAt FROM Transaction t " +
+            "WHERE t.type = :type AND t.status = com.campuscross.wallet.entity.Transaction.TransactionStatus.COMPLETED " +
+            "AND t.targetWallet IS NOT NULL AND t.createdAt >= :since ORDER BY t.createdAt DESC")
+    List<Object[]> findTransferEdgesSince(@Param("type") Transaction.TransactionType type,
+                                          @Param("since") LocalDateTime since, Pageable pageable);
+
+    /**
+     * One row per currency of (currency, count, amount) of a wallet's outgoing transactions since
+     * {@code since}, followed by (count, amount) of those since {@code recent}: both velocity
+     * windows from a single range scan of idx_transactions_source_created
+     */
+    @Query("SELECT t.currencyCode, COUNT(t), COALESCE(SUM(t.amount), 0), " +
+            "COALESCE(SUM(CASE WHEN t.createdAt >= :recent THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.createdAt >= :recent THEN t.amount ELSE 0 END), 0) " +
+            "FROM Transaction t WHERE t.sourceWallet.id = :walletId AND t.createdAt >= :since " +
+            "GROUP BY t.currencyCode")
+    List<Object[]> sumOutgoingSince(@Param("walletId") Long walletId, @Param("since") LocalDateTime since,
+                                    @Param("recent") LocalDateTime recent);
+
+    @Query("SELECT COUNT(t) FROM Transaction t WHERE t.sourceWallet.id = :sourceWalletId " +
+            "AND t.targetWallet.id = :targetWalletId AND t.createdAt >= :since")
+    long countBetweenSince(@Param("sourceWalletId") Long sourceWalletId,
+                           @Param("targetWalletId") Long targetWalletId,
+                           @Param("since") LocalDateTime since);
 }
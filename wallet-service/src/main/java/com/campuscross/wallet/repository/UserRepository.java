@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +20,12 @@ public interface UserRepository extends JpaRepository<User, String> {
     
     Optional<User> findByStudentId(String studentId);
     
+    List<User> findByStudentIdIn(Collection<String> studentIds);
+    
+    List<User> findByPhoneNumberIn(Collection<String> phoneNumbers);
+    
+    List<User> findByEmailIn(Collection<String> emails);
+    
     boolean existsByEmail(String email);
     
     boolean existsByPhoneNumber(String phoneNumber);
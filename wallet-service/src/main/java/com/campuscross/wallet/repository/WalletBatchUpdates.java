@@ -0,0 +1,29 @@
+package com.campuscross.wallet.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Batched variants of {@link WalletRepository#debitIfAllowed} and
+ * {@link WalletRepository#creditIfActive}: each call sends all of its UPDATEs to the database
+ * as one JDBC batch instead of one round trip per statement. The statements run in list order
+ * in the caller's transaction and bypass the persistence context, so Wallet entities loaded
+ * earlier in the transaction keep their old balances.
+ */
+public interface WalletBatchUpdates {
+
+    /**
+     * @return per operation, 1 when the debit was applied and 0 when it was refused
+     */
+    int[] debitAllIfAllowed(List<BalanceChange> debits, LocalDateTime now, LocalDateTime dayStart,
+                            LocalDateTime monthStart);
+
+    /**
+     * @return per operation, 1 when the credit was applied and 0 when the wallet is not active
+     */
+    int[] creditAllIfActive(List<BalanceChange> credits, LocalDateTime now);
+
+    record BalanceChange(Long walletId, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.campuscross.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Native SQL of {@link WalletBatchUpdates}. The WHERE clauses and counter resets must stay
+ * in step with the JPQL of {@link WalletRepository#debitIfAllowed} and
+ * {@link WalletRepository#creditIfActive}.
+ */
+@RequiredArgsConstructor
+class WalletBatchUpdatesImpl implements WalletBatchUpdates {
+
+    private static final String DEBIT = "UPDATE wallets SET " +
+            "balance = balance - :amount, " +
+            "daily_spent = CASE WHEN last_daily_reset IS NULL OR last_daily_reset < :dayStart " +
+            "THEN :amount ELSE daily_spent + :amount END, " +
+            "last_daily_reset = CASE WHEN last_daily_reset IS NULL OR last_daily_reset < :dayStart " +
+            "THEN :now ELSE last_daily_reset END, " +
+            "monthly_spent = CASE WHEN last_monthly_reset IS NULL OR last_monthly_reset < :monthStart " +
+            "THEN :amount ELSE monthly_spent + :amount END, " +
+            "last_monthly_reset = CASE WHEN last_monthly_reset IS NULL OR last_monthly_reset < :monthStart " +
+            "THEN :monthStart ELSE last_monthly_reset END, " +
+            "updated_at = :now, " +
+            "version = version + 1 " +
+            "WHERE id = :walletId " +
+            "AND status = 'ACTIVE' " +
+            "AND balance >= :amount " +
+            "AND (daily_limit IS NULL OR (CASE WHEN last_daily_reset IS NULL OR last_daily_reset < :dayStart " +
+            "THEN :amount ELSE daily_spent + :amount END) <= daily_limit) " +
+            "AND (monthly_limit IS NULL OR (CASE WHEN last_monthly_reset IS NULL OR last_monthly_reset < :monthStart " +
+            "THEN :amount ELSE monthly_spent + :amount END) <= monthly_limit)";
+
+    private static final String CREDIT = "UPDATE wallets SET balance = balance + :amount, updated_at = :now, " +
+            "version = version + 1 " +
+            "WHERE id = :walletId AND status = 'ACTIVE'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int[] debitAllIfAllowed(List<BalanceChange> debits, LocalDateTime now, LocalDateTime dayStart,
+                                   LocalDateTime monthStart) {
+        SqlParameterSource[] parameters = debits.stream()
+                .map(debit -> new MapSqlParameterSource()
+                        .addValue("walletId", debit.walletId())
+                        .addValue("amount", debit.amount())
+                        .addValue("now", now)
+                        .addValue("dayStart", dayStart)
+                        .addValue("monthStart", monthStart))
+                .toArray(SqlParameterSource[]::new);
+        return jdbcTemplate.batchUpdate(DEBIT, parameters);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int[] creditAllIfActive(List<BalanceChange> credits, LocalDateTime now) {
+        SqlParameterSource[] parameters = credits.stream()
+                .map(credit -> new MapSqlParameterSource()
+                        .addValue("walletId", credit.walletId())
+                        .addValue("amount", credit.amount())
+                        .addValue("now", now))
+                .toArray(SqlParameterSource[]::new);
+        return jdbcTemplate.batchUpdate(CREDIT, parameters);
+    }
+}
@@ -1,20 +1,28 @@
 package com.campuscross.wallet.repository;
 
 import com.campuscross.wallet.entity.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface WalletRepository extends JpaRepository<Wallet, Long> {
+public interface WalletRepository extends JpaRepository<Wallet, Long>, WalletBatchUpdates {
     
     Optional<Wallet> findByWalletAddress(String walletAddress);
     
+    List<Wallet> findByWalletAddressIn(Collection<String> walletAddresses);
+    
     List<Wallet> findByUserId(String userId);
     
     List<Wallet> findByUserIdAndStatus(String userId, Wallet.WalletStatus status);
@@ -30,6 +38,24 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     @Query("SELECT w FROM Wallet w WHERE w.user.id = :userId AND w.currencyCode = :currencyCode")
     Optional<Wallet> findByUserIdAndCurrencyCode(@Param("userId") String userId, @Param("currencyCode") String currencyCode);
     
+    /**
+     * The id alone, without loading the wallet into the persistence context
+     */
+    @Query("SELECT w.id FROM Wallet w WHERE w.walletAddress = :walletAddress")
+    Optional<Long> findIdByWalletAddress(@Param("walletAddress") String walletAddress);
+    
+    @Query("SELECT COUNT(w) > 0 FROM Wallet w WHERE w.id IN :ids AND w.type IN :types")
+    boolean existsByIdInAndTypeIn(@Param("ids") Collection<Long> ids,
+                                  @Param("types") Collection<Wallet.WalletType> types);
+    
+    /**
+     * Loads and row-locks the given wallets (SELECT ... FOR UPDATE) in ascending id order,
+     * so concurrent callers always queue on the rows in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id IN :ids ORDER BY w.id")
+    List<Wallet> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
     @Query("SELECT w FROM Wallet w WHERE w.balance > :minBalance")
     List<Wallet> findWalletsWithBalanceGreaterThan(@Param("minBalance") BigDecimal minBalance);
     
@@ -47,4 +73,69 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     
     @Query("SELECT COUNT(w) FROM Wallet w WHERE w.type = :type")
     long countByType(@Param("type") Wallet.WalletType type);
+    
+    /**
+     * Debits an active wallet in a single statement. The balance, daily limit and monthly limit
+     * are checked in the WHERE clause, and the spent counters are reset inline when their period
+     * has rolled over, mirroring {@link Wallet#canSpend} and {@link Wallet#deductBalance}.
+     * The version is bumped so stale entity writes elsewhere fail their optimistic check.
+     *
+     * @return the number of rows updated: 1 when the debit was applied, 0 otherwise
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Wallet w SET " +
+            "w.balance = w.balance - :amount, " +
+            "w.dailySpent = CASE WHEN w.lastDailyReset IS NULL OR w.lastDailyReset < :dayStart " +
+            "THEN :amount ELSE w.dailySpent + :amount END, " +
+            "w.lastDailyReset = CASE WHEN w.lastDailyReset IS NULL OR w.lastDailyReset < :dayStart " +
+            "THEN :now ELSE w.lastDailyReset END, " +
+            "w.monthlySpent = CASE WHEN w.lastMonthlyReset IS NULL OR w.lastMonthlyReset < :monthStart " +
+            "THEN :amount ELSE w.monthlySpent + :amount END, " +
+            "w.lastMonthlyReset = CASE WHEN w.lastMonthlyReset IS NULL OR w.lastMonthlyReset < :monthStart " +
+            "THEN :monthStart ELSE w.lastMonthlyReset END, " +
+            "w.updatedAt = :now, " +
+            "w.version = w.version + 1 " +
+            "WHERE w.id = :walletId " +
+            "AND w.status = com.campuscross.wallet.entity.Wallet.WalletStatus.ACTIVE " +
+            "AND w.balance >= :amount " +
+            "AND (w.dailyLimit IS NULL OR (CASE WHEN w.lastDailyReset IS NULL OR w.lastDailyReset < :dayStart " +
+            "THEN :amount ELSE w.dailySpent + :amount END) <= w.dailyLimit) " +
+            "AND (w.monthlyLimit IS NULL OR (CASE WHEN w.lastMonthlyReset IS NULL OR w.lastMonthlyReset < :monthStart " +
+            "THEN :amount ELSE w.monthlySpent + :amount END) <= w.monthlyLimit)")
+    int debitIfAllowed(@Param("walletId") Long walletId, @Param("amount") BigDecimal amount,
+                       @Param("now") LocalDateTime now, @Param("dayStart") LocalDateTime dayStart,
+                       @Param("monthStart") LocalDateTime monthStart);
+    
+    /**
+     * Credits an active wallet in a single statement.
+     *
+     * @return the number of rows updated: 1 when the credit was applied, 0 otherwise
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount, w.updatedAt = :now, " +
+            "w.version = w.version + 1 " +
+            "WHERE w.id = :walletId AND w.status = com.campuscross.wallet.entity.Wallet.WalletStatus.ACTIVE")
+    int creditIfActive(@Param("walletId") Long walletId, @Param("amount") BigDecimal amount,
+                       @Param("now") LocalDateTime now);
+    
+    /**
+     * Replaces the materialized balance, e.g. when rebuilding it from the ledger.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Wallet w SET w.balance = :balance, w.updatedAt = :now, w.version = w.version + 1 " +
+            "WHERE w.id = :walletId")
+    int overwriteBalance(@Param("walletId") Long walletId, @Param("balance") BigDecimal balance,
+                         @Param("now") LocalDateTime now);
+    
+    /**
+     * Wallets without the opening-balance posting that {@code LedgerService} books under
+     * the reference {@code OPEN-<wallet address>}
+     */
+    @Query("SELECT w.id FROM Wallet w WHERE NOT EXISTS " +
+            "(SELECT e.id FROM LedgerEntry e WHERE e.transactionId = CONCAT('OPEN-', w.walletAddress)) " +
+            "ORDER BY w.id")
+    List<Long> findWalletIdsWithoutOpeningBalance();
 }
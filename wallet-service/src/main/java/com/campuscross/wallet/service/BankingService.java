@@ -5,6 +5,8 @@ import com.campuscross.wallet.entity.User;
 import com.campuscross.wallet.entity.Wallet;
 import com.campuscross.wallet.repository.TransactionRepository;
 import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.service.fx.CurrencyValuationService;
+import com.campuscross.wallet.util.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -13,9 +15,12 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Simulated Banking Service
@@ -30,16 +35,13 @@ public class BankingService {
     private final WalletService walletService;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
-
-    // Simulated exchange rates
-    private static final Map<String, BigDecimal> EXCHANGE_RATES = new HashMap<>() {
-        {
-            put("USD", new BigDecimal("1.00"));
-            put("EUR", new BigDecimal("0.92"));
-            put("GBP", new BigDecimal("0.79"));
-            put("INR", new BigDecimal("83.12"));
-        }
-    };
+    private final LedgerService ledgerService;
+    private final IdGenerator idGenerator;
+    private final VelocityTracker velocityTracker;
+    private final RollupService rollupService;
+    private final ReadYourWrites readYourWrites;
+    private final WalletPortfolioCache walletPortfolioCache;
+    private final CurrencyValuationService currencyValuationService;
 
     @Transactional
     public Transaction depositFromBank(String userId, BigDecimal amount, String currencyCode) {
@@ -71,11 +73,14 @@ public class BankingService {
             log.info("Created new {} wallet {} for user {}", currencyCode, wallet.getWalletAddress(), userId);
         }
 
-        walletService.addFunds(wallet.getId(), amount);
+        String transactionId = idGenerator.nextTransactionId();
+        walletService.credit(wallet.getId(), amount);
+        ledgerService.recordDeposit(transactionId, wallet.getId(), amount, currencyCode);
 
         Transaction transaction = Transaction.builder()
-                .transactionId(generateTransactionId())
+                .transactionId(transactionId)
                 .targetWallet(wallet)
+                .targetUserId(user.getStudentId())
                 .amount(amount)
                 .currencyCode(currencyCode)
                 .type(Transaction.TransactionType.DEPOSIT)
@@ -85,6 +90,9 @@ public class BankingService {
                 .build();
 
         transaction = transactionRepository.save(transaction);
+        rollupService.recordCompleted(transaction);
+        readYourWrites.recordOnCommit(transaction);
+        walletPortfolioCache.evictOnCommit(transaction);
 
         log.info("✅ Deposit successful: {} {} added to wallet {}", amount, currencyCode, wallet.getWalletAddress());
         return transaction;
@@ -102,21 +110,33 @@ public class BankingService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         Wallet wallet = walletService.getDefaultWallet(userId);
-
-        BigDecimal balanceInCurrency = walletService.getBalanceByCurrency(wallet.getId(), currencyCode);
+        String transactionId = idGenerator.nextTransactionId();
+
+        // Each currency is held by the user's wallets in that currency, default wallet first;
+        // every debit is taken from such a wallet and posted in its own currency
+        Map<String, List<Wallet>> walletsByCurrency = walletService.getUserWallets(userId).stream()
+                .filter(w -> w.getStatus() == Wallet.WalletStatus.ACTIVE && w.getCurrencyCode() != null)
+                .sorted(Comparator.comparing((Wallet w) -> !Boolean.TRUE.equals(w.getIsDefault()))
+                        .thenComparing(Wallet::getId))
+                .collect(Collectors.groupingBy(w -> w.getCurrencyCode().toUpperCase(),
+                        LinkedHashMap::new, Collectors.toList()));
+        List<Wallet> targetWallets = walletsByCurrency.getOrDefault(currencyCode.toUpperCase(), List.of());
+
+        BigDecimal balanceInCurrency = totalBalance(targetWallets);
         if (balanceInCurrency.compareTo(amount) >= 0) {
-            deductDirectly(wallet.getId(), amount, currencyCode);
+            deductFrom(transactionId, targetWallets, amount);
         } else {
             BigDecimal stillNeeded = amount.subtract(balanceInCurrency);
-            convertAndDeduct(wallet, stillNeeded, currencyCode);
+            convertAndDeduct(transactionId, walletsByCurrency, stillNeeded, currencyCode);
             if (balanceInCurrency.compareTo(BigDecimal.ZERO) > 0) {
-                deductDirectly(wallet.getId(), balanceInCurrency, currencyCode);
+                deductFrom(transactionId, targetWallets, balanceInCurrency);
             }
         }
 
         Transaction transaction = Transaction.builder()
-                .transactionId(generateTransactionId())
+                .transactionId(transactionId)
                 .sourceWallet(wallet)
+                .sourceUserId(user.getStudentId())
                 .amount(amount)
                 .currencyCode(currencyCode)
                 .type(Transaction.TransactionType.WITHDRAWAL)
@@ -127,20 +147,27 @@ public class BankingService {
                 .build();
 
         transaction = transactionRepository.save(transaction);
+        rollupService.recordCompleted(transaction);
+        readYourWrites.recordOnCommit(transaction);
+        walletPortfolioCache.evictOnCommit(transaction);
+        velocityTracker.recordOnCommit(transaction);
 
         log.info("✅ Withdrawal successful: {} {} deducted from wallet {}", amount, currencyCode,
                 wallet.getWalletAddress());
         return transaction;
     }
 
-    private void convertAndDeduct(Wallet wallet, BigDecimal amountNeeded, String targetCurrency) {
+    private void convertAndDeduct(String transactionId, Map<String, List<Wallet>> walletsByCurrency,
+            BigDecimal amountNeeded, String targetCurrency) {
         log.info("Converting to {} to fulfill withdrawal of {}", targetCurrency, amountNeeded);
 
-        Map<String, BigDecimal> availableBalances = new HashMap<>();
-        addIfAvailable(availableBalances, wallet, "USD", targetCurrency);
-        addIfAvailable(availableBalances, wallet, "EUR", targetCurrency);
-        addIfAvailable(availableBalances, wallet, "GBP", targetCurrency);
-        addIfAvailable(availableBalances, wallet, "INR", targetCurrency);
+        Map<String, BigDecimal> availableBalances = new LinkedHashMap<>();
+        walletsByCurrency.forEach((currency, wallets) -> {
+            BigDecimal balance = totalBalance(wallets);
+            if (!currency.equalsIgnoreCase(targetCurrency) && balance.compareTo(BigDecimal.ZERO) > 0) {
+                availableBalances.put(currency, balance);
+            }
+        });
 
         if (availableBalances.isEmpty()) {
             throw new RuntimeException("Insufficient balance across all currencies");
@@ -154,13 +181,13 @@ public class BankingService {
             String fromCurrency = entry.getKey();
             BigDecimal availableAmount = entry.getValue();
 
-            BigDecimal exchangeRate = getExchangeRate(fromCurrency, targetCurrency);
+            BigDecimal exchangeRate = currencyValuationService.exchangeRate(fromCurrency, targetCurrency);
             BigDecimal amountToConvert = stillNeeded.divide(exchangeRate, 2, RoundingMode.HALF_UP);
             if (amountToConvert.compareTo(availableAmount) > 0) {
                 amountToConvert = availableAmount;
             }
 
-            deductDirectly(wallet.getId(), amountToConvert, fromCurrency);
+            deductFrom(transactionId, walletsByCurrency.get(fromCurrency), amountToConvert);
             BigDecimal convertedAmount = amountToConvert.multiply(exchangeRate).setScale(2, RoundingMode.HALF_UP);
             stillNeeded = stillNeeded.subtract(convertedAmount);
 
@@ -174,24 +201,34 @@ public class BankingService {
         }
     }
 
-    private void addIfAvailable(Map<String, BigDecimal> map, Wallet wallet, String currency, String excludeCurrency) {
-        if (!currency.equals(excludeCurrency)) {
-            BigDecimal balance = walletService.getBalanceByCurrency(wallet.getId(), currency);
-            if (balance.compareTo(BigDecimal.ZERO) > 0) {
-                map.put(currency, balance);
+    /**
+     * Takes the amount from the given wallets, all in the same currency, in order
+     */
+    private void deductFrom(String transactionId, List<Wallet> wallets, BigDecimal amount) {
+        BigDecimal remaining = amount;
+        for (Wallet wallet : wallets) {
+            if (remaining.signum() <= 0) {
+                break;
             }
+            BigDecimal take = remaining.min(wallet.getBalance());
+            if (take.signum() > 0) {
+                deductDirectly(transactionId, wallet, take);
+                remaining = remaining.subtract(take);
+            }
+        }
+        if (remaining.signum() > 0) {
+            throw new RuntimeException("Insufficient balance");
         }
     }
 
-    private void deductDirectly(Long walletId, BigDecimal amount, String currencyCode) {
-        walletService.deductFunds(walletId, amount);
-        log.info("Deducted {} {} from wallet", amount, currencyCode);
+    private static BigDecimal totalBalance(List<Wallet> wallets) {
+        return wallets.stream().map(Wallet::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
-    private BigDecimal getExchangeRate(String fromCurrency, String toCurrency) {
-        BigDecimal fromRate = EXCHANGE_RATES.getOrDefault(fromCurrency, BigDecimal.ONE);
-        BigDecimal toRate = EXCHANGE_RATES.getOrDefault(toCurrency, BigDecimal.ONE);
-        return toRate.divide(fromRate, 6, RoundingMode.HALF_UP);
+    private void deductDirectly(String transactionId, Wallet wallet, BigDecimal amount) {
+        walletService.debit(wallet.getId(), amount);
+        ledgerService.recordWithdrawal(transactionId, wallet.getId(), amount, wallet.getCurrencyCode());
+        log.info("Deducted {} {} from wallet {}", amount, wallet.getCurrencyCode(), wallet.getWalletAddress());
     }
 
     public Map<String, Object> getDepositInstructions(String userId) {
@@ -214,8 +251,4 @@ public class BankingService {
         instructions.put("walletAddress", wallet.getWalletAddress());
         return instructions;
     }
-
-    private String generateTransactionId() {
-        return "TXN-" + UUID.randomUUID().toString().replace("-", "").toUpperCase().substring(0, 16);
-    }
 }
@@ -0,0 +1,457 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.repository.WalletBatchUpdates.BalanceChange;
+import com.campuscross.wallet.repository.WalletRepository;
+import com.campuscross.wallet.service.fraud.FraudContext;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Optional group-commit mode for P2P transfers.
+ *
+ * Callers enqueue a transfer and wait on its future. A few committer threads drain the queue,
+ * lingering a couple of milliseconds to collect a batch, and apply the whole batch in one
+ * database transaction: the transfers are validated and fraud-checked, their wallets are
+ * row-locked with a single statement, the debits and credits are applied with the same
+ * conditional updates as the regular path, sent as JDBC batches, and each caller then gets
+ * its own outcome. A transfer that fails validation or runs out of balance fails on its own
+ * without affecting the rest of the batch.
+ *
+ * If the batch transaction itself fails (for example on a lock timeout), its transfers are
+ * replayed one by one through {@link TransactionService#createP2PTransfer}. When the queue is
+ * full, callers fall back to that path directly.
+ */
+@Service
+@Slf4j
+public class GroupCommitTransferPipeline {
+
+    private final TransactionService transactionService;
+    private final TransferRetryExecutor transferRetryExecutor;
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final FraudDetectionService fraudDetectionService;
+    private final LedgerService ledgerService;
+    private final VelocityTracker velocityTracker;
+    private final TransferGraph transferGraph;
+    private final RollupService rollupService;
+    private final ReadYourWrites readYourWrites;
+    private final WalletPortfolioCache walletPortfolioCache;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary batchSizes;
+
+    private final boolean enabled;
+    private final int committerCount;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final long timeoutMs;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final List<Thread> committers = new ArrayList<>();
+    private volatile boolean running;
+
+    public GroupCommitTransferPipeline(TransactionService transactionService,
+                                       TransferRetryExecutor transferRetryExecutor,
+                                       WalletRepository walletRepository,
+                                       TransactionRepository transactionRepository,
+                                       FraudDetectionService fraudDetectionService,
+                                       LedgerService ledgerService,
+                                       VelocityTracker velocityTracker,
+                                       TransferGraph transferGraph,
+                                       RollupService rollupService,
+                                       ReadYourWrites readYourWrites,
+                                       WalletPortfolioCache walletPortfolioCache,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${wallet.transfer.group-commit.enabled:false}") boolean enabled,
+                                       @Value("${wallet.transfer.group-commit.committers:2}") int committerCount,
+                                       @Value("${wallet.transfer.group-commit.queue-capacity:1000}") int queueCapacity,
+                                       @Value("${wallet.transfer.group-commit.max-batch-size:50}") int maxBatchSize,
+                                       @Value("${wallet.transfer.group-commit.linger-ms:2}") long lingerMs,
+                                       @Value("${wallet.transfer.group-commit.timeout-ms:10000}") long timeoutMs) {
+        this.transactionService = transactionService;
+        this.transferRetryExecutor = transferRetryExecutor;
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.fraudDetectionService = fraudDetectionService;
+        this.ledgerService = ledgerService;
+        this.velocityTracker = velocityTracker;
+        this.transferGraph = transferGraph;
+        this.rollupService = rollupService;
+        this.readYourWrites = readYourWrites;
+        this.walletPortfolioCache = walletPortfolioCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSizes = DistributionSummary.builder("wallet.transfer.group-commit.batch-size")
+                .description("Number of transfers applied per group commit")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.committerCount = committerCount;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.timeoutMs = timeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < committerCount; i++) {
+            Thread committer = new Thread(this::runCommitter, "transfer-committer-" + i);
+            committer.setDaemon(true);
+            committer.start();
+            committers.add(committer);
+        }
+        log.info("Group-commit transfers enabled with {} committers, batches of up to {}",
+                committerCount, maxBatchSize);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        committers.forEach(Thread::interrupt);
+        for (Thread committer : committers) {
+            try {
+                committer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        List<PendingTransfer> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(p -> p.result().completeExceptionally(
+                new RuntimeException("Service is shutting down, please retry")));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Submits a P2P transfer to the next group commit and waits for its outcome.
+     */
+    public Transaction transfer(Long sourceWalletId, String targetWalletAddress,
+            BigDecimal amount, String description, String ipAddress) {
+        PendingTransfer pending = new PendingTransfer(sourceWalletId, targetWalletAddress, amount,
+                description, ipAddress, new CompletableFuture<>());
+
+        if (!running || !queue.offer(pending)) {
+            return transferIndividually(pending);
+        }
+
+        try {
+            return pending.result().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Transfer failed", e.getCause());
+        } catch (TimeoutException e) {
+            // The transfer may still commit; the caller has to check the history before retrying
+            throw new TransferPendingException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for transfer");
+        }
+    }
+
+    private void runCommitter() {
+        while (running) {
+            try {
+                List<PendingTransfer> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Transfer committer failed", e);
+            }
+        }
+    }
+
+    private List<PendingTransfer> nextBatch() throws InterruptedException {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+        PendingTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingTransfer next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void commit(List<PendingTransfer> batch) {
+        batchSizes.record(batch.size());
+
+        Outcome[] outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> applyBatch(batch));
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} transfers failed, replaying them individually: {}",
+                    batch.size(), e.getMessage());
+            for (PendingTransfer pending : batch) {
+                try {
+                    pending.result().complete(transferIndividually(pending));
+                } catch (RuntimeException individual) {
+                    pending.result().completeExceptionally(individual);
+                }
+            }
+            return;
+        }
+
+        // Only complete the futures once the batch has committed
+        for (int i = 0; i < batch.size(); i++) {
+            Outcome outcome = outcomes[i];
+            if (outcome.failure() != null) {
+                batch.get(i).result().completeExceptionally(new RuntimeException(outcome.failure()));
+            } else {
+                batch.get(i).result().complete(outcome.transaction());
+            }
+        }
+    }
+
+    private Outcome[] applyBatch(List<PendingTransfer> batch) {
+        Map<Long, Wallet> sources = walletRepository
+                .findAllById(batch.stream().map(PendingTransfer::sourceWalletId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+        Map<String, Wallet> targets = walletRepository
+                .findByWalletAddressIn(batch.stream().map(PendingTransfer::targetWalletAddress).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Wallet::getWalletAddress, Function.identity()));
+
+        // Validate and run the fraud checks before any row is locked: the checks may query the
+        // database and must not hold the batch's wallets meanwhile. Each check counts the
+        // transfers accepted earlier in the batch from the same wallet, which the velocity
+        // counters and the transactions table only see once the batch commits.
+        Outcome[] outcomes = new Outcome[batch.size()];
+        Transaction[] prepared = new Transaction[batch.size()];
+        Map<Long, SourceTally> tallies = new HashMap<>();
+        TreeSet<Long> walletIds = new TreeSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingTransfer pending = batch.get(i);
+            Wallet source = sources.get(pending.sourceWalletId());
+            Wallet target = targets.get(pending.targetWalletAddress());
+            String failure = validate(pending, source, target);
+            if (failure == null) {
+                SourceTally tally = tallies.computeIfAbsent(source.getId(), id -> new SourceTally());
+                if (fraudDetectionService.isSuspiciousTransaction(source, target, pending.amount(),
+                        pending.ipAddress(), tally.unrecorded(target.getId()))) {
+                    failure = "Transaction flagged as suspicious";
+                } else {
+                    tally.add(target.getId(), pending.amount());
+                }
+            }
+            if (failure != null) {
+                outcomes[i] = new Outcome(null, failure);
+            } else {
+                prepared[i] = transactionService.newP2PTransfer(source, target, pending.amount(),
+                        pending.description(), pending.ipAddress());
+                walletIds.add(source.getId());
+                walletIds.add(target.getId());
+            }
+        }
+
+        // Lock the wallets of the accepted transfers in ascending id order, so concurrent
+        // committers and regular transfers cannot deadlock each other
+        if (!walletIds.isEmpty()) {
+            walletRepository.findAllByIdForUpdate(walletIds);
+        }
+
+        applyBalanceChanges(prepared, outcomes);
+
+        List<Transaction> completed = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Transaction transaction = prepared[i];
+            if (transaction == null || outcomes[i] != null) {
+                continue;
+            }
+            ledgerService.recordTransfer(transaction.getTransactionId(), transaction.getSourceWallet().getId(),
+                    transaction.getTargetWallet().getId(), transaction.getAmount(), transaction.getCurrencyCode());
+            transaction.markCompleted();
+            completed.add(transaction);
+            outcomes[i] = new Outcome(transaction, null);
+        }
+
+        transactionRepository.saveAll(completed);
+        rollupService.recordCompleted(completed);
+        completed.forEach(readYourWrites::recordOnCommit);
+        completed.forEach(walletPortfolioCache::evictOnCommit);
+        completed.forEach(velocityTracker::recordOnCommit);
+        completed.forEach(transferGraph::recordOnCommit);
+        completed.forEach(fraudDetectionService::scoreAfterCommit);
+        log.debug("Group commit applied {} of {} transfers", completed.size(), batch.size());
+        return outcomes;
+    }
+
+    /**
+     * Debits and credits the prepared transfers with one JDBC batch of conditional UPDATEs per
+     * side, instead of a round trip per statement. All debits go first, so a debit that only
+     * the batch's own credits would cover is refused at first; such transfers are retried,
+     * again as one batch, once those credits have landed. Refused debits get their outcome set.
+     */
+    private void applyBalanceChanges(Transaction[] prepared, Outcome[] outcomes) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime dayStart = now.toLocalDate().atStartOfDay();
+        LocalDateTime monthStart = dayStart.withDayOfMonth(1);
+
+        List<Integer> pending = new ArrayList<>(prepared.length);
+        for (int i = 0; i < prepared.length; i++) {
+            if (prepared[i] != null) {
+                pending.add(i);
+            }
+        }
+        while (!pending.isEmpty()) {
+            int[] debited = walletRepository.debitAllIfAllowed(pending.stream()
+                    .map(i -> new BalanceChange(prepared[i].getSourceWallet().getId(), prepared[i].getAmount()))
+                    .toList(), now, dayStart, monthStart);
+            List<Integer> applied = new ArrayList<>(pending.size());
+            List<Integer> refused = new ArrayList<>();
+            for (int j = 0; j < pending.size(); j++) {
+                (debited[j] > 0 ? applied : refused).add(pending.get(j));
+            }
+            if (applied.isEmpty()) {
+                refused.forEach(i -> outcomes[i] = new Outcome(null, "Insufficient balance or limit exceeded"));
+                return;
+            }
+
+            int[] credited = walletRepository.creditAllIfActive(applied.stream()
+                    .map(i -> new BalanceChange(prepared[i].getTargetWallet().getId(), prepared[i].getAmount()))
+                    .toList(), now);
+            Set<Long> creditedWallets = new HashSet<>();
+            for (int j = 0; j < applied.size(); j++) {
+                Long targetId = prepared[applied.get(j)].getTargetWallet().getId();
+                // The target was active when validated; if it has been frozen since, abort the
+                // batch and replay it individually
+                if (credited[j] == 0) {
+                    throw new IllegalStateException("Credit to wallet " + targetId + " failed inside group commit");
+                }
+                creditedWallets.add(targetId);
+            }
+
+            pending = new ArrayList<>();
+            for (Integer i : refused) {
+                if (creditedWallets.contains(prepared[i].getSourceWallet().getId())) {
+                    pending.add(i);
+                } else {
+                    outcomes[i] = new Outcome(null, "Insufficient balance or limit exceeded");
+                }
+            }
+        }
+    }
+
+    private String validate(PendingTransfer pending, Wallet source, Wallet target) {
+        if (target == null) {
+            return "Target wallet not found";
+        }
+        if (source == null) {
+            return "Source wallet not found";
+        }
+        if (source.getId().equals(target.getId())) {
+            return "Cannot transfer to same wallet";
+        }
+        if (pending.amount() == null || pending.amount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Amount must be positive";
+        }
+        if (target.getStatus() != Wallet.WalletStatus.ACTIVE) {
+            return "Wallet is not active";
+        }
+        return null;
+    }
+
+    private Transaction transferIndividually(PendingTransfer pending) {
+        return transferRetryExecutor.execute("p2p-transfer",
+                () -> transactionService.createP2PTransfer(pending.sourceWalletId(),
+                        pending.targetWalletAddress(), pending.amount(), pending.description(),
+                        pending.ipAddress()));
+    }
+
+    /**
+     * The transfer did not finish within the timeout and may still commit. Not a failure:
+     * the request must not be retried as if nothing happened.
+     */
+    public static class TransferPendingException extends RuntimeException {
+
+        TransferPendingException() {
+            super("Transfer is still being processed, check transaction history before retrying");
+        }
+    }
+
+    private record PendingTransfer(
+            Long sourceWalletId,
+            String targetWalletAddress,
+            BigDecimal amount,
+            String description,
+            String ipAddress,
+            CompletableFuture<Transaction> result) {
+    }
+
+    private record Outcome(Transaction transaction, String failure) {
+    }
+
+    /**
+     * Transfers accepted so far in a batch from one source wallet. A transfer that later fails
+     * its debit stays counted, which only makes the checks of the rest of the batch stricter.
+     */
+    private static class SourceTally {
+        private long count;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private final Map<Long, Long> countByTarget = new HashMap<>();
+
+        FraudContext.Unrecorded unrecorded(Long targetWalletId) {
+            return new FraudContext.Unrecorded(count, countByTarget.getOrDefault(targetWalletId, 0L), amount);
+        }
+
+        void add(Long targetWalletId, BigDecimal transferAmount) {
+            count++;
+            amount = amount.add(transferAmount);
+            countByTarget.merge(targetWalletId, 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.IdempotencyKey;
+import com.campuscross.wallet.repository.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the responses of requests sent with an {@code Idempotency-Key} header.
+ *
+ * A request claims its key by inserting an IN_PROGRESS row into {@code idempotency_keys}
+ * before it executes; the primary key lets only one request on any instance own a key, also
+ * after a restart. The owner stores its response in that row when it finishes. Only
+ * successful (2xx) responses are kept; on a failure the row is deleted and the key can be
+ * retried. A row left IN_PROGRESS by an instance that died mid-request blocks its key until
+ * it expires, since there is no telling whether the money moved.
+ *
+ * Completed responses are also kept in a bounded in-memory LRU. Duplicates on the instance
+ * that owns a key wait on an in-flight future instead of polling the table.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Duration ttl;
+    private final Map<String, StoredResponse> recent;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              @Value("${wallet.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${wallet.idempotency.ttl-hours:24}") long ttlHours) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.recent = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Looks up a completed response, first in memory and then in the database.
+     *
+     * @return the stored response, or null when the key has not completed yet
+     */
+    public StoredResponse findCompleted(String key) {
+        StoredResponse cached;
+        synchronized (recent) {
+            cached = recent.get(key);
+        }
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            synchronized (recent) {
+                recent.remove(key);
+            }
+        }
+
+        StoredResponse stored = idempotencyKeyRepository.findById(key)
+                .filter(k -> k.getState() == IdempotencyKey.State.COMPLETED)
+                .filter(k -> k.getExpiresAt().isAfter(LocalDateTime.now()))
+                .map(StoredResponse::from)
+                .orElse(null);
+        if (stored != null) {
+            remember(key, stored);
+        }
+        return stored;
+    }
+
+    /**
+     * Claims a key for execution.
+     *
+     * @return {@link Claim#owned()} when the caller now owns the key and must execute the
+     *         request and then call {@link #complete} or {@link #abandon}. Otherwise another
+     *         request holds it: on this instance the claim carries its in-flight future, on
+     *         another instance none, and the caller has to poll {@link #findCompleted}.
+     */
+    public Claim begin(String key, String requestHash) {
+        CompletableFuture<StoredResponse> local = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(key, local);
+        if (existing != null) {
+            return new Claim(false, existing);
+        }
+        boolean claimed = false;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            claimed = idempotencyKeyRepository.claim(key, requestHash, now, now.plus(ttl)) == 1;
+        } finally {
+            if (!claimed) {
+                // Held elsewhere; local duplicates that saw our future look again
+                inFlight.remove(key, local);
+                local.complete(null);
+            }
+        }
+        return new Claim(claimed, null);
+    }
+
+    /**
+     * Records the outcome of an owned key and releases the requests waiting on it.
+     */
+    public void complete(String key, String requestHash, int statusCode, String contentType, byte[] body) {
+        LocalDateTime now = LocalDateTime.now();
+        StoredResponse response = new StoredResponse(requestHash, statusCode, contentType, body, now.plus(ttl));
+        boolean success = statusCode >= 200 && statusCode < 300;
+        try {
+            if (success) {
+                idempotencyKeyRepository.complete(key, statusCode, contentType,
+                        new String(body, StandardCharsets.UTF_8), response.expiresAt());
+                remember(key, response);
+            } else {
+                idempotencyKeyRepository.release(key);
+            }
+        } catch (RuntimeException e) {
+            // The row stays IN_PROGRESS, which still blocks retries elsewhere until it expires
+            log.error("Failed to record the outcome of idempotency key {}", key, e);
+            if (success) {
+                remember(key, response);
+            }
+        } finally {
+            CompletableFuture<StoredResponse> claim = inFlight.remove(key);
+            if (claim != null) {
+                claim.complete(response);
+            }
+        }
+    }
+
+    /**
+     * Releases an owned key without a response, e.g. when the request threw. Waiting
+     * duplicates then execute on their own.
+     */
+    public void abandon(String key) {
+        try {
+            idempotencyKeyRepository.release(key);
+        } catch (RuntimeException e) {
+            log.error("Failed to release idempotency key {}", key, e);
+        }
+        CompletableFuture<StoredResponse> claim = inFlight.remove(key);
+        if (claim != null) {
+            claim.complete(null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private void remember(String key, StoredResponse response) {
+        synchronized (recent) {
+            recent.put(key, response);
+        }
+    }
+
+    /**
+     * @param inFlight the owning request's future when it runs on this instance
+     */
+    public record Claim(boolean owned, CompletableFuture<StoredResponse> inFlight) {
+    }
+
+    public record StoredResponse(
+            String requestHash,
+            int statusCode,
+            String contentType,
+            byte[] body,
+            LocalDateTime expiresAt) {
+
+        static StoredResponse from(IdempotencyKey k) {
+            byte[] body = k.getResponseBody() == null
+                    ? new byte[0]
+                    : k.getResponseBody().getBytes(StandardCharsets.UTF_8);
+            return new StoredResponse(k.getRequestHash(), k.getStatusCode(), k.getContentType(), body,
+                    k.getExpiresAt());
+        }
+
+        boolean isExpired() {
+            return expiresAt.isBefore(LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.LedgerEntry;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.LedgerEntryRepository;
+import com.campuscross.wallet.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only double-entry journal. Posting methods must run inside the same database
+ * transaction as the balance change they describe, so the journal and the materialized
+ * {@code wallets.balance} column commit or roll back together.
+ *
+ * Every wallet's journal starts with an opening-balance posting: zero for wallets created
+ * since, whatever they held beforehand for wallets that predate the journal (see
+ * {@link #seedOpeningBalances()}). Only a journal with one is complete enough to rebuild the
+ * balance from.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final WalletRepository walletRepository;
+    private final WalletPortfolioCache walletPortfolioCache;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final int SEED_BATCH_SIZE = 500;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfer(String transactionId, Long fromWalletId, Long toWalletId,
+                               BigDecimal amount, String currencyCode) {
+        post(transactionId, LedgerEntry.Account.WALLET, fromWalletId,
+                LedgerEntry.Account.WALLET, toWalletId, amount, currencyCode);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCampusPayment(String transactionId, Long walletId, BigDecimal amount, String currencyCode) {
+        post(transactionId, LedgerEntry.Account.WALLET, walletId,
+                LedgerEntry.Account.MERCHANT_SETTLEMENT, null, amount, currencyCode);
+    }
+
+    /**
+     * A cross-currency movement is booked through the FX clearing account, so that each
+     * currency balances on its own.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRemittance(String transactionId, Long fromWalletId, BigDecimal sourceAmount,
+                                 String sourceCurrency, Long toWalletId, BigDecimal targetAmount,
+                                 String targetCurrency) {
+        List<LedgerEntry> entries = new ArrayList<>(4);
+        entries.add(entry(transactionId, LedgerEntry.Account.WALLET, fromWalletId,
+                LedgerEntry.Direction.DEBIT, sourceAmount, sourceCurrency));
+        entries.add(entry(transactionId, LedgerEntry.Account.FX_CLEARING, null,
+                LedgerEntry.Direction.CREDIT, sourceAmount, sourceCurrency));
+        entries.add(entry(transactionId, LedgerEntry.Account.FX_CLEARING, null,
+                LedgerEntry.Direction.DEBIT, targetAmount, targetCurrency));
+        entries.add(entry(transactionId, LedgerEntry.Account.WALLET, toWalletId,
+                LedgerEntry.Direction.CREDIT, targetAmount, targetCurrency));
+        ledgerEntryRepository.saveAll(entries);
+    }
+
+    /**
+     * Starts the journal of a new wallet
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOpeningBalance(Wallet wallet) {
+        postOpeningBalance(wallet, wallet.getBalance());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeposit(String transactionId, Long walletId, BigDecimal amount, String currencyCode) {
+        post(transactionId, LedgerEntry.Account.BANK_CLEARING, null,
+                LedgerEntry.Account.WALLET, walletId, amount, currencyCode);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordWithdrawal(String transactionId, Long walletId, BigDecimal amount, String currencyCode) {
+        post(transactionId, LedgerEntry.Account.WALLET, walletId,
+                LedgerEntry.Account.BANK_CLEARING, null, amount, currencyCode);
+    }
+
+    /**
+     * Books a manual balance change made through the wallet add/deduct endpoints.
+     * A positive amount credits the wallet, a negative amount debits it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAdjustment(String referenceId, Long walletId, BigDecimal amount, String currencyCode) {
+        if (amount.signum() >= 0) {
+            post(referenceId, LedgerEntry.Account.ADJUSTMENT, null,
+                    LedgerEntry.Account.WALLET, walletId, amount, currencyCode);
+        } else {
+            post(referenceId, LedgerEntry.Account.WALLET, walletId,
+                    LedgerEntry.Account.ADJUSTMENT, null, amount.negate(), currencyCode);
+        }
+    }
+
+    public List<LedgerEntry> getWalletEntries(Long walletId, int limit) {
+        return ledgerEntryRepository.findByWalletIdOrderByIdDesc(walletId, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Compares the materialized wallet balance with the balance derived from the journal.
+     */
+    @Transactional(readOnly = true)
+    public Reconciliation reconcile(Long walletId) {
+        Wallet wallet = walletRepository.findById(walletId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found"));
+        BigDecimal ledgerBalance = ledgerEntryRepository.getWalletBalance(walletId);
+        return new Reconciliation(walletId, wallet.getBalance(), ledgerBalance,
+                wallet.getBalance().subtract(ledgerBalance));
+    }
+
+    /**
+     * Rebuilds the materialized balance of a wallet from its journal entries. Refused for a
+     * wallet without an opening-balance posting, whose journal is missing whatever it held
+     * before the journal was introduced.
+     */
+    @Transactional
+    public Reconciliation rebuildBalance(Long walletId) {
+        Wallet locked = walletRepository.findAllByIdForUpdate(List.of(walletId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Wallet not found"));
+        if (!ledgerEntryRepository.existsByTransactionId(openingReference(locked))) {
+            throw new RuntimeException("Wallet " + walletId
+                    + " has no opening balance in the ledger; seed opening balances before rebuilding");
+        }
+        Reconciliation before = reconcile(walletId);
+        if (before.difference().signum() != 0) {
+            walletRepository.overwriteBalance(walletId, before.ledgerBalance(), LocalDateTime.now());
+            walletRepository.findById(walletId)
+                    .ifPresent(wallet -> walletPortfolioCache.evictOnCommit(wallet.getUser().getStudentId()));
+            log.warn("Rebuilt balance of wallet {} from ledger: {} -> {}",
+                    walletId, before.walletBalance(), before.ledgerBalance());
+        }
+        return before;
+    }
+
+    /**
+     * Seeds an opening-balance posting for every wallet that has none yet, so that the
+     * journal alone reproduces today's balances. The opening balance is whatever the journal
+     * does not already account for: a wallet that transacted after the journal was introduced
+     * but before seeding keeps those entries, and the opening balance covers only what it held
+     * before. Each batch of wallets is locked while its balances and journals are read, so no
+     * transfer lands in between. Safe to run again; seeded wallets are skipped.
+     */
+    public int seedOpeningBalances() {
+        List<Long> walletIds = walletRepository.findWalletIdsWithoutOpeningBalance();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int seeded = 0;
+        for (int from = 0; from < walletIds.size(); from += SEED_BATCH_SIZE) {
+            List<Long> batch = walletIds.subList(from, Math.min(from + SEED_BATCH_SIZE, walletIds.size()));
+            Integer count = transaction.execute(status -> {
+                int posted = 0;
+                for (Wallet wallet : walletRepository.findAllByIdForUpdate(batch)) {
+                    if (ledgerEntryRepository.existsByTransactionId(openingReference(wallet))) {
+                        continue;
+                    }
+                    BigDecimal journaled = ledgerEntryRepository.getWalletBalance(wallet.getId());
+                    postOpeningBalance(wallet, wallet.getBalance().subtract(journaled));
+                    posted++;
+                }
+                return posted;
+            });
+            seeded += count == null ? 0 : count;
+        }
+        log.info("Seeded opening ledger balances for {} wallets", seeded);
+        return seeded;
+    }
+
+    private void postOpeningBalance(Wallet wallet, BigDecimal opening) {
+        if (opening.signum() >= 0) {
+            post(openingReference(wallet), LedgerEntry.Account.OPENING_BALANCE, null,
+                    LedgerEntry.Account.WALLET, wallet.getId(), opening, wallet.getCurrencyCode());
+        } else {
+            post(openingReference(wallet), LedgerEntry.Account.WALLET, wallet.getId(),
+                    LedgerEntry.Account.OPENING_BALANCE, null, opening.negate(), wallet.getCurrencyCode());
+        }
+    }
+
+    private static String openingReference(Wallet wallet) {
+        return "OPEN-" + wallet.getWalletAddress();
+    }
+
+    private void post(String transactionId, LedgerEntry.Account debitAccount, Long debitWalletId,
+                      LedgerEntry.Account creditAccount, Long creditWalletId,
+                      BigDecimal amount, String currencyCode) {
+        ledgerEntryRepository.saveAll(List.of(
+                entry(transactionId, debitAccount, debitWalletId, LedgerEntry.Direction.DEBIT, amount, currencyCode),
+                entry(transactionId, creditAccount, creditWalletId, LedgerEntry.Direction.CREDIT, amount, currencyCode)));
+    }
+
+    private LedgerEntry entry(String transactionId, LedgerEntry.Account account, Long walletId,
+                              LedgerEntry.Direction direction, BigDecimal amount, String currencyCode) {
+        return LedgerEntry.builder()
+                .transactionId(transactionId)
+                .account(account)
+                .walletId(walletId)
+                .direction(direction)
+                .amount(amount)
+                .currencyCode(currencyCode)
+                .build();
+    }
+
+    public record Reconciliation(
+            Long walletId,
+            BigDecimal walletBalance,
+            BigDecimal ledgerBalance,
+            BigDecimal difference) {
+    }
+}
@@ -23,6 +23,7 @@ public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final NotificationPreferenceRepository notificationPreferenceRepository;
+    private final ReadYourWrites readYourWrites;
 
     @Transactional(readOnly = true)
     public List<NotificationDto> getUserNotifications(String userId) {
@@ -39,6 +40,7 @@ public class NotificationService {
         
         notification.setRead(true);
         notificationRepository.save(notification);
+        readYourWrites.recordOnCommit(notification.getUserId());
         log.info("Marked notification as read: {}", notificationId);
     }
 
@@ -47,6 +49,7 @@ public class NotificationService {
         List<Notification> unreadNotifications = notificationRepository.findByUserIdAndReadFalse(userId);
         unreadNotifications.forEach(notification -> notification.setRead(true));
         notificationRepository.saveAll(unreadNotifications);
+        readYourWrites.recordOnCommit(userId);
         log.info("Marked {} notifications as read for user: {}", unreadNotifications.size(), userId);
     }
 
@@ -85,6 +88,7 @@ public class NotificationService {
         preference.setPushNotifications(preferenceDto.isPushNotifications());
         
         notificationPreferenceRepository.save(preference);
+        readYourWrites.recordOnCommit(preferenceDto.getUserId());
         log.info("Updated notification preferences for user: {}", preferenceDto.getUserId());
     }
 
@@ -96,6 +100,7 @@ public class NotificationService {
         notification.setRead(false);
         
         notificationRepository.save(notification);
+        readYourWrites.recordOnCommit(notificationDto.getUserId());
         log.info("Created notification for user: {}", notificationDto.getUserId());
     }
 
@@ -0,0 +1,140 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether a read-only transaction may run on the read replica. A user who changed
+ * something within the last {@code wallet.datasource.read-your-writes-ms} has their reads
+ * sent to the primary instead, so a balance or history read right after a payment never
+ * misses it because the replica lags behind.
+ *
+ * Writes are remembered per user once they commit. The user a read is for is bound to the
+ * thread for the duration of a request (see {@code ReadYourWritesInterceptor}) or a piece of
+ * work. Requests that change data are pinned to the primary as a whole. The guard is kept in
+ * memory, per instance.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Binding> CURRENT = new ThreadLocal<>();
+
+    private final long windowMillis;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final Counter primaryReads;
+
+    public ReadYourWrites(MeterRegistry meterRegistry,
+                          @Value("${wallet.datasource.read-your-writes-ms:5000}") long windowMillis) {
+        this.windowMillis = windowMillis;
+        this.primaryReads = Counter.builder("wallet.datasource.read-your-writes.primary-reads")
+                .description("Read-only transactions sent to the primary because the user wrote recently")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Remembers a write by the given users once the surrounding database transaction
+     * commits. Outside a transaction it is remembered immediately.
+     */
+    public void recordOnCommit(String... userIds) {
+        if (windowMillis <= 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(userIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(userIds);
+            }
+        });
+    }
+
+    public void recordOnCommit(Transaction transaction) {
+        recordOnCommit(transaction.getSourceUserId(), transaction.getTargetUserId());
+    }
+
+    /**
+     * Binds the user the current thread reads for; {@code pinned} sends every read to the
+     * primary. Must be followed by {@link #unbind()}.
+     */
+    public void bind(String userId, boolean pinned) {
+        CURRENT.set(new Binding(userId, pinned));
+    }
+
+    public void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the work with reads bound to the given user, for work that does not run on the
+     * request thread
+     */
+    public <T> T forUser(String userId, Supplier<T> work) {
+        Binding previous = CURRENT.get();
+        CURRENT.set(new Binding(userId, previous != null && previous.pinned()));
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Whether a read-only transaction starting on this thread has to use the primary
+     */
+    public boolean requiresPrimary() {
+        Binding binding = CURRENT.get();
+        if (binding == null) {
+            return false;
+        }
+        if (binding.pinned()) {
+            return true;
+        }
+        if (binding.userId() == null) {
+            return false;
+        }
+        Long writtenAt = lastWrites.get(binding.userId());
+        if (writtenAt == null || System.currentTimeMillis() - writtenAt >= windowMillis) {
+            return false;
+        }
+        primaryReads.increment();
+        return true;
+    }
+
+    /**
+     * Forgets users whose window has passed, so the map only holds recent writers
+     */
+    @Scheduled(fixedDelayString = "${wallet.datasource.read-your-writes-sweep-ms:60000}")
+    public void sweep() {
+        long expired = System.currentTimeMillis() - windowMillis;
+        lastWrites.values().removeIf(writtenAt -> writtenAt < expired);
+    }
+
+    private void record(String... userIds) {
+        long now = System.currentTimeMillis();
+        for (String userId : userIds) {
+            if (userId != null) {
+                lastWrites.put(userId, now);
+            }
+        }
+    }
+
+    private record Binding(String userId, boolean pinned) {
+    }
+}
@@ -0,0 +1,286 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.RollupBackfill;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.repository.DailyFeeTotalRepository;
+import com.campuscross.wallet.repository.DailyUserTotalRepository;
+import com.campuscross.wallet.repository.RollupBackfillRepository;
+import com.campuscross.wallet.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Daily rollups of completed transactions: per user ({@code daily_user_totals}: spent,
+ * received and fees paid) and overall ({@code daily_fee_totals}: fees collected), each per
+ * currency. Totals over a date range read one row per day instead of every transaction.
+ *
+ * Rollups are added to in the same database transaction that completes a transaction, by
+ * upsert, so they commit or roll back with it. A backfill rebuilds whole days from the
+ * transactions table, several days in parallel. Each day has an advisory lock that writers
+ * take shared and the backfill takes exclusively, so a day being rebuilt while payments
+ * arrive ends up with every transaction counted exactly once.
+ *
+ * Amounts are bucketed by the transaction's own currency and day of {@code created_at}, as
+ * the totals queries on the transactions table do. Both paths count the transactions
+ * {@link Transaction#countsAsCompleted()} accepts.
+ */
+@Service
+@Slf4j
+public class RollupService {
+
+    /**
+     * First key of the per-day advisory locks; the second is the epoch day
+     */
+    private static final int LOCK_SPACE = 0x524F4C4C;
+
+    /**
+     * Rows each day's fees per currency are spread over
+     */
+    private static final int FEE_SHARDS = 8;
+
+    private static final Comparator<UserDay> USER_DAY_ORDER = Comparator
+            .comparing(UserDay::userId)
+            .thenComparing(UserDay::day)
+            .thenComparing(UserDay::currencyCode);
+
+    private static final Comparator<FeeDay> FEE_DAY_ORDER = Comparator
+            .comparing(FeeDay::day)
+            .thenComparing(FeeDay::currencyCode)
+            .thenComparingInt(FeeDay::shard);
+
+    private final DailyUserTotalRepository dailyUserTotalRepository;
+    private final DailyFeeTotalRepository dailyFeeTotalRepository;
+    private final TransactionRepository transactionRepository;
+    private final RollupBackfillRepository rollupBackfillRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean backfillOnStartup;
+    private final int backfillThreads;
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    public RollupService(DailyUserTotalRepository dailyUserTotalRepository,
+                         DailyFeeTotalRepository dailyFeeTotalRepository,
+                         TransactionRepository transactionRepository,
+                         RollupBackfillRepository rollupBackfillRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${wallet.rollups.backfill-on-startup:true}") boolean backfillOnStartup,
+                         @Value("${wallet.rollups.backfill-threads:2}") int backfillThreads) {
+        this.dailyUserTotalRepository = dailyUserTotalRepository;
+        this.dailyFeeTotalRepository = dailyFeeTotalRepository;
+        this.transactionRepository = transactionRepository;
+        this.rollupBackfillRepository = rollupBackfillRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillOnStartup = backfillOnStartup;
+        this.backfillThreads = Math.max(1, backfillThreads);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCompleted(Transaction transaction) {
+        recordCompleted(List.of(transaction));
+    }
+
+    /**
+     * Adds completed, saved transactions to the rollups. Must run in the transaction that
+     * saves them. Rows are upserted in a fixed order so that two writers touching the same
+     * users cannot deadlock on each other.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCompleted(Collection<Transaction> transactions) {
+        Map<UserDay, BigDecimal[]> users = new TreeMap<>(USER_DAY_ORDER);
+        Map<FeeDay, BigDecimal> fees = new TreeMap<>(FEE_DAY_ORDER);
+        for (Transaction transaction : transactions) {
+            if (!transaction.countsAsCompleted()) {
+                continue;
+            }
+            LocalDate day = transaction.getCreatedAt() != null
+                    ? transaction.getCreatedAt().toLocalDate() : LocalDate.now();
+            String currencyCode = transaction.getCurrencyCode();
+            BigDecimal fee = transaction.getFeeAmount() != null ? transaction.getFeeAmount() : BigDecimal.ZERO;
+
+            if (transaction.getSourceUserId() != null) {
+                BigDecimal[] totals = users.computeIfAbsent(
+                        new UserDay(transaction.getSourceUserId(), day, currencyCode), key -> zeros());
+                totals[0] = totals[0].add(transaction.getAmount());
+                totals[2] = totals[2].add(fee);
+            }
+            if (transaction.getTargetUserId() != null) {
+                BigDecimal[] totals = users.computeIfAbsent(
+                        new UserDay(transaction.getTargetUserId(), day, currencyCode), key -> zeros());
+                totals[1] = totals[1].add(transaction.getAmount());
+            }
+            if (fee.signum() != 0) {
+                int shard = Math.floorMod(transaction.getTransactionId().hashCode(), FEE_SHARDS);
+                fees.merge(new FeeDay(day, currencyCode, shard), fee, BigDecimal::add);
+            }
+        }
+
+        users.forEach((key, totals) -> dailyUserTotalRepository.add(key.userId(), key.day(), key.currencyCode(),
+                totals[0], totals[1], totals[2], LOCK_SPACE, lockKey(key.day())));
+        fees.forEach((key, amount) -> dailyFeeTotalRepository.add(key.day(), key.currencyCode(), key.shard(),
+                amount, LOCK_SPACE, lockKey(key.day())));
+    }
+
+    /**
+     * A user's totals per currency between two days, inclusive
+     */
+    @Transactional(readOnly = true)
+    public List<UserTotals> getUserTotals(String userId, LocalDate from, LocalDate to) {
+        return dailyUserTotalRepository.sumByUserId(userId, from, to).stream()
+                .map(row -> new UserTotals((String) row[0], (BigDecimal) row[1], (BigDecimal) row[2], (BigDecimal) row[3]))
+                .toList();
+    }
+
+    /**
+     * Fees collected per currency between two days, inclusive
+     */
+    @Transactional(readOnly = true)
+    public List<FeeTotals> getFeeTotals(LocalDate from, LocalDate to) {
+        return dailyFeeTotalRepository.sumBetween(from, to).stream()
+                .map(row -> new FeeTotals((String) row[0], (BigDecimal) row[1]))
+                .toList();
+    }
+
+    /**
+     * Rebuilds the rollups of every day between the two dates, inclusive, from the
+     * transactions table. Each day is rebuilt in its own transaction, several at a time.
+     */
+    public BackfillResult backfill(LocalDate from, LocalDate to) {
+        return backfill(from, to, RollupBackfill.Kind.MANUAL);
+    }
+
+    private BackfillResult backfill(LocalDate from, LocalDate to, RollupBackfill.Kind kind) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("to must not be before from");
+        }
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new RuntimeException("A rollup backfill is already running");
+        }
+        long started = System.currentTimeMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(backfillThreads, runnable -> {
+            Thread thread = new Thread(runnable, "rollup-backfill-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<int[]>> days = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                LocalDate current = day;
+                days.add(executor.submit(() -> rebuildDay(current)));
+            }
+            int userRows = 0;
+            int feeRows = 0;
+            for (Future<int[]> day : days) {
+                int[] rows = day.get();
+                userRows += rows[0];
+                feeRows += rows[1];
+            }
+            BackfillResult result = new BackfillResult(from, to, days.size(), userRows, feeRows,
+                    System.currentTimeMillis() - started);
+            rollupBackfillRepository.save(RollupBackfill.builder()
+                    .kind(kind)
+                    .fromDay(from)
+                    .toDay(to)
+                    .build());
+            log.info("Rollup backfill done: {}", result);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Rollup backfill interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Rollup backfill failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+            backfillRunning.set(false);
+        }
+    }
+
+    /**
+     * Builds the rollups from the existing history once, on the first start after they were
+     * introduced. Whether that has happened is read from the INITIAL row in
+     * {@code rollup_backfills}, which is only written once every day has been rebuilt: by then
+     * payments have been adding to the rollup tables, so their being non-empty says nothing.
+     * Days rebuilt while payments arrive still come out exact (see the class comment).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnFirstStart() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread backfiller = new Thread(() -> {
+            try {
+                if (rollupBackfillRepository.existsByKind(RollupBackfill.Kind.INITIAL)) {
+                    return;
+                }
+                LocalDate today = LocalDate.now();
+                LocalDate from = transactionRepository.findEarliestCreatedAt()
+                        .map(LocalDateTime::toLocalDate)
+                        .orElse(today);
+                log.info("Rollups have never been backfilled, backfilling from {}", from);
+                backfill(from, today, RollupBackfill.Kind.INITIAL);
+            } catch (RuntimeException e) {
+                log.error("Rollup backfill on startup failed", e);
+            }
+        }, "rollup-backfill");
+        backfiller.setDaemon(true);
+        backfiller.start();
+    }
+
+    private int[] rebuildDay(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        return transactionTemplate.execute(status -> {
+            dailyUserTotalRepository.lockDay(LOCK_SPACE, lockKey(day));
+            dailyUserTotalRepository.deleteByDay(day);
+            dailyFeeTotalRepository.deleteByDay(day);
+            return new int[]{
+                    dailyUserTotalRepository.rebuildDay(day, start, end),
+                    dailyFeeTotalRepository.rebuildDay(day, start, end)};
+        });
+    }
+
+    private static int lockKey(LocalDate day) {
+        return (int) day.toEpochDay();
+    }
+
+    private static BigDecimal[] zeros() {
+        return new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+    }
+
+    private record UserDay(String userId, LocalDate day, String currencyCode) {
+    }
+
+    private record FeeDay(LocalDate day, String currencyCode, int shard) {
+    }
+
+    public record UserTotals(String currencyCode, BigDecimal spent, BigDecimal received, BigDecimal fees) {
+    }
+
+    public record FeeTotals(String currencyCode, BigDecimal fees) {
+    }
+
+    public record BackfillResult(LocalDate from, LocalDate to, int days, int userRows, int feeRows, long millis) {
+    }
+}
@@ -0,0 +1,239 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a user's transaction history straight from a database cursor to an output stream,
+ * one row at a time, so an export of any length runs in constant memory.
+ *
+ * Rows are detached as soon as they are written and the output is flushed every
+ * {@value #FLUSH_EVERY_ROWS} rows. A client that disconnects makes the next flush fail, which
+ * ends the export and closes the cursor instead of reading the rest of the range.
+ */
+@Service
+@Slf4j
+public class TransactionExportService {
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private static final String CSV_HEADER = "transactionId,type,status,amount,feeAmount,currencyCode,description,"
+            + "createdAt,completedAt,senderStudentId,recipientStudentId";
+
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadYourWrites readYourWrites;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger activeExports = new AtomicInteger();
+
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    EntityManager entityManager,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager,
+                                    ReadYourWrites readYourWrites,
+                                    MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readYourWrites = readYourWrites;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("wallet.transactions.export.active", activeExports, AtomicInteger::get)
+                .description("Transaction exports currently streaming")
+                .register(meterRegistry);
+    }
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new RuntimeException("Unsupported export format: " + name);
+        }
+    }
+
+    /**
+     * One exported row; the same fields as the transaction history endpoints
+     */
+    public record ExportRow(
+            String transactionId,
+            String type,
+            String status,
+            BigDecimal amount,
+            BigDecimal feeAmount,
+            String currencyCode,
+            String description,
+            LocalDateTime createdAt,
+            LocalDateTime completedAt,
+            String senderStudentId,
+            String recipientStudentId) {
+
+        static ExportRow of(Transaction t) {
+            return new ExportRow(
+                    t.getTransactionId(),
+                    t.getType().toString(),
+                    t.getStatus().toString(),
+                    t.getAmount(),
+                    t.getFeeAmount(),
+                    t.getCurrencyCode(),
+                    t.getDescription(),
+                    t.getCreatedAt(),
+                    t.getCompletedAt(),
+                    t.getSenderStudentId(),
+                    t.getRecipientStudentId());
+        }
+    }
+
+    /**
+     * Streams the user's transactions between the two dates, oldest first. Does not close
+     * {@code out}.
+     *
+     * @return the number of rows written, or -1 when the client went away before the end
+     */
+    public long export(String userId, LocalDateTime startDate, LocalDateTime endDate,
+                       Format format, boolean gzip, OutputStream out) {
+        Counter rows = meterRegistry.counter("wallet.transactions.export.rows", "format", format.extension());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        activeExports.incrementAndGet();
+        String outcome = "failed";
+        try {
+            // Neither wrapper is closed: the response stream belongs to the servlet container
+            GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, 8192, true) : null;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    compressed != null ? compressed : out, StandardCharsets.UTF_8));
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            // Runs on an export thread, away from the request that knows the user
+            long written = readYourWrites.forUser(userId, () -> readOnlyTransaction.execute(status -> {
+                long count = 0;
+                try (Stream<Transaction> transactions = transactionRepository
+                        .streamByUserIdAndDateRange(userId, startDate, endDate)) {
+                    for (Transaction transaction : (Iterable<Transaction>) transactions::iterator) {
+                        writeRow(writer, format, ExportRow.of(transaction));
+                        entityManager.detach(transaction);
+                        rows.increment();
+                        if (++count % FLUSH_EVERY_ROWS == 0) {
+                            writer.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            }));
+            writer.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            out.flush();
+            outcome = "completed";
+            log.info("Exported {} transactions of user {} as {}", written, userId, format);
+            return written;
+        } catch (IOException | UncheckedIOException e) {
+            outcome = "cancelled";
+            log.info("Transaction export of user {} cancelled by the client: {}", userId, e.getMessage());
+            return -1;
+        } finally {
+            activeExports.decrementAndGet();
+            sample.stop(meterRegistry.timer("wallet.transactions.export.duration",
+                    "format", format.extension(), "outcome", outcome));
+        }
+    }
+
+    private void writeRow(Writer writer, Format format, ExportRow row) throws IOException {
+        if (format == Format.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(row));
+        } else {
+            writer.write(csv(row.transactionId()));
+            writer.write(',');
+            writer.write(csv(row.type()));
+            writer.write(',');
+            writer.write(csv(row.status()));
+            writer.write(',');
+            writer.write(csv(row.amount()));
+            writer.write(',');
+            writer.write(csv(row.feeAmount()));
+            writer.write(',');
+            writer.write(csv(row.currencyCode()));
+            writer.write(',');
+            writer.write(csv(row.description()));
+            writer.write(',');
+            writer.write(csv(row.createdAt()));
+            writer.write(',');
+            writer.write(csv(row.completedAt()));
+            writer.write(',');
+            writer.write(csv(row.senderStudentId()));
+            writer.write(',');
+            writer.write(csv(row.recipientStudentId()));
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * RFC 4180 quoting. Text starting with a formula character is prefixed with a quote so
+     * spreadsheets do not evaluate it.
+     */
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
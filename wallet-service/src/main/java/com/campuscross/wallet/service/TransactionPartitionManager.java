@@ -0,0 +1,230 @@
+package com.campuscross.wallet.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the monthly partitions of {@code transactions} once the table has been converted to
+ * a range-partitioned one (migration V13). A daily job creates the partitions for the coming
+ * months, so inserts never hit a month without one, and moves partitions older than the
+ * retention period to an archive schema and detaches them. Retiring a month is then a metadata
+ * change instead of a DELETE of every row in it; archived tables can be dumped and dropped
+ * independently.
+ *
+ * Rows of a month that has no partition yet land in the DEFAULT partition; when that month's
+ * partition is created they are moved out of it first, since PostgreSQL refuses to add a
+ * partition whose range already has rows in the default one.
+ *
+ * Partitions are detached CONCURRENTLY, without blocking inserts, which needs PostgreSQL 14
+ * and is not allowed while the table has a DEFAULT partition; a plain DETACH is used then.
+ * On an unpartitioned table the job does nothing.
+ */
+@Component
+@Slf4j
+public class TransactionPartitionManager {
+
+    private static final String TABLE = "transactions";
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{4})_(\\d{2})");
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final String archiveSchema;
+
+    private volatile YearMonth coveredUntil;
+
+    public TransactionPartitionManager(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${wallet.partitions.enabled:true}") boolean enabled,
+                                       @Value("${wallet.partitions.months-ahead:3}") int monthsAhead,
+                                       @Value("${wallet.partitions.retention-months:0}") int retentionMonths,
+                                       @Value("${wallet.partitions.archive-schema:archive}") String archiveSchema) {
+        if (!IDENTIFIER.matcher(archiveSchema).matches()) {
+            throw new IllegalArgumentException("wallet.partitions.archive-schema must be a plain lower-case identifier");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionMonths = retentionMonths;
+        this.archiveSchema = archiveSchema;
+
+        Gauge.builder("wallet.transactions.partitions.months-ahead", this, TransactionPartitionManager::monthsCovered)
+                .description("Months after the current one that already have a transactions partition")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    /**
+     * Creates missing future partitions, then retires expired ones. Safe to run on several
+     * instances at once: creation is idempotent, and a partition another instance is already
+     * detaching is picked up again on the next run.
+     */
+    @Scheduled(cron = "${wallet.partitions.cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!isPartitioned()) {
+                log.debug("{} is not partitioned, nothing to maintain", TABLE);
+                return;
+            }
+            String defaultPartition = defaultPartition();
+            createFuturePartitions(defaultPartition);
+            if (retentionMonths > 0) {
+                retireExpiredPartitions(defaultPartition != null);
+            }
+        } catch (RuntimeException e) {
+            log.error("Transaction partition maintenance failed", e);
+        }
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, TABLE);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    /** Schema-qualified name of the DEFAULT partition, or null when the table has none. */
+    private String defaultPartition() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT partdefid::regclass::text FROM pg_partitioned_table "
+                        + "WHERE partrelid = to_regclass(?) AND partdefid <> 0",
+                String.class, TABLE);
+        return names.isEmpty() ? null : names.get(0);
+    }
+
+    private void createFuturePartitions(String defaultPartition) {
+        YearMonth current = YearMonth.now();
+        YearMonth last = current.plusMonths(monthsAhead);
+        for (YearMonth month = current; !month.isAfter(last); month = month.plusMonths(1)) {
+            LocalDate from = month.atDay(1);
+            LocalDate to = month.plusMonths(1).atDay(1);
+            String name = partitionName(month);
+            if (defaultPartition != null && !exists(name) && hasRows(defaultPartition, from, to)) {
+                moveOutOfDefault(defaultPartition, name, from, to);
+            } else {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE
+                        + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            }
+        }
+        coveredUntil = last;
+        log.debug("Transaction partitions exist up to {}", last);
+    }
+
+    /**
+     * Creates the month's partition as a standalone table, moves the month's rows from the
+     * default partition into it and attaches it, all in one transaction. The table is locked
+     * against writes first (reads go on): an insert that had already been routed to the default
+     * partition would otherwise fail its partition check once the month is attached. Inserts
+     * meanwhile wait and are then routed to the new partition. The move itself is one
+     * statement, so no row is deleted without being copied.
+     */
+    private void moveOutOfDefault(String defaultPartition, String name, LocalDate from, LocalDate to) {
+        Integer moved = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN SHARE ROW EXCLUSIVE MODE");
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int rows = jdbcTemplate.update("WITH moved AS (DELETE FROM " + defaultPartition
+                    + " WHERE created_at >= '" + from + "' AND created_at < '" + to + "' RETURNING *) "
+                    + "INSERT INTO " + name + " SELECT * FROM moved");
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name
+                    + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            return rows;
+        });
+        log.info("Created transaction partition {} with {} rows moved out of {}", name, moved, defaultPartition);
+    }
+
+    private boolean exists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    private boolean hasRows(String table, LocalDate from, LocalDate to) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + table + " WHERE created_at >= ? AND created_at < ?)",
+                Boolean.class, from.atStartOfDay(), to.atStartOfDay()));
+    }
+
+    /**
+     * Moves the partitions of months that ended more than retention-months ago to the archive
+     * schema and detaches them there. A partition that only got half-way is finished on the
+     * next run, since it is still attached.
+     */
+    private void retireExpiredPartitions(boolean hasDefaultPartition) {
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        List<Partition> partitions = jdbcTemplate.query(
+                "SELECT c.relname, n.nspname, i.inhdetachpending FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_namespace n ON n.oid = c.relnamespace "
+                        + "WHERE i.inhparent = to_regclass(?)",
+                (rs, rowNum) -> new Partition(rs.getString(1), rs.getString(2), rs.getBoolean(3)),
+                TABLE);
+
+        for (Partition partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition.name());
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(oldestKept)) {
+                continue;
+            }
+            String archived = archiveSchema + "." + partition.name();
+            try {
+                if (!archiveSchema.equals(partition.schema())) {
+                    jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+                    jdbcTemplate.execute("ALTER TABLE " + partition.schema() + "." + partition.name()
+                            + " SET SCHEMA " + archiveSchema);
+                }
+                // An interrupted concurrent detach has to be finalized rather than restarted
+                String mode = partition.detachPending() ? " FINALIZE" : hasDefaultPartition ? "" : " CONCURRENTLY";
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + archived + mode);
+                log.info("Archived transaction partition {}", archived);
+            } catch (RuntimeException e) {
+                log.warn("Could not archive transaction partition {}: {}", partition.name(), e.getMessage());
+            }
+        }
+    }
+
+    private int monthsCovered() {
+        YearMonth until = coveredUntil;
+        if (until == null) {
+            return 0;
+        }
+        return (int) Math.max(0, YearMonth.now().until(until, ChronoUnit.MONTHS));
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(SUFFIX);
+    }
+
+    private record Partition(String name, String schema, boolean detachPending) {
+    }
+}
@@ -1,9 +1,11 @@
 package com.campuscross.wallet.service;
 
+import com.campuscross.wallet.dto.TransactionCursor;
 import com.campuscross.wallet.entity.Transaction;
 import com.campuscross.wallet.entity.Wallet;
 import com.campuscross.wallet.repository.TransactionRepository;
 import com.campuscross.wallet.repository.WalletRepository;
+import com.campuscross.wallet.util.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -12,9 +14,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -25,17 +27,31 @@ public class TransactionService {
     private final WalletRepository walletRepository;
     private final WalletService walletService;
     private final FraudDetectionService fraudDetectionService;
+    private final WalletLockManager walletLockManager;
+    private final LedgerService ledgerService;
+    private final IdGenerator idGenerator;
+    private final VelocityTracker velocityTracker;
+    private final TransferGraph transferGraph;
+    private final RollupService rollupService;
+    private final ReadYourWrites readYourWrites;
+    private final WalletPortfolioCache walletPortfolioCache;
 
     @Transactional
     public Transaction createP2PTransfer(Long sourceWalletId, String targetWalletAddress,
             BigDecimal amount, String description, String ipAddress) {
 
-        Wallet sourceWallet = walletRepository.findById(sourceWalletId)
-                .orElseThrow(() -> new RuntimeException("Source wallet not found"));
+        Long targetWalletId = walletRepository.findIdByWalletAddress(targetWalletAddress)
+                .orElseThrow(() -> new RuntimeException("Target wallet not found"));
+
+        // Lock before loading, so the checks below read the wallets under the lock
+        walletLockManager.lockIfContended(sourceWalletId, targetWalletId);
 
-        Wallet targetWallet = walletRepository.findByWalletAddress(targetWalletAddress)
+        Wallet targetWallet = walletRepository.findById(targetWalletId)
                 .orElseThrow(() -> new RuntimeException("Target wallet not found"));
 
+        Wallet sourceWallet = walletRepository.findById(sourceWalletId)
+                .orElseThrow(() -> new RuntimeException("Source wallet not found"));
+
         if (sourceWallet.getId().equals(targetWallet.getId())) {
             throw new RuntimeException("Cannot transfer to same wallet");
         }
@@ -46,8 +62,36 @@ public class TransactionService {
         }
 
         // Create transaction
-        Transaction transaction = Transaction.builder()
-                .transactionId(generateTransactionId())
+        Transaction transaction = newP2PTransfer(sourceWallet, targetWallet, amount, description, ipAddress);
+
+        // Move the funds first: each leg is a single conditional UPDATE, and a failed leg
+        // rolls the whole operation back, so the transaction row is written only once.
+        walletService.transfer(sourceWalletId, amount, targetWallet.getId(), amount);
+        ledgerService.recordTransfer(transaction.getTransactionId(), sourceWalletId, targetWallet.getId(),
+                amount, transaction.getCurrencyCode());
+
+        transaction.markCompleted();
+        transaction = transactionRepository.save(transaction);
+        rollupService.recordCompleted(transaction);
+        readYourWrites.recordOnCommit(transaction);
+        walletPortfolioCache.evictOnCommit(transaction);
+        velocityTracker.recordOnCommit(transaction);
+        transferGraph.recordOnCommit(transaction);
+        fraudDetectionService.scoreAfterCommit(transaction);
+
+        log.info("P2P transfer completed: {} from {} to {}",
+                amount, sourceWallet.getWalletAddress(), targetWallet.getWalletAddress());
+
+        return transaction;
+    }
+
+    /**
+     * Builds an unsaved P2P transfer record. Shared with {@link GroupCommitTransferPipeline}.
+     */
+    Transaction newP2PTransfer(Wallet sourceWallet, Wallet targetWallet, BigDecimal amount,
+            String description, String ipAddress) {
+        return Transaction.builder()
+                .transactionId(idGenerator.nextTransactionId())
                 .sourceWallet(sourceWallet)
                 .targetWallet(targetWallet)
                 .amount(amount)
@@ -58,34 +102,17 @@ public class TransactionService {
                 .ipAddress(ipAddress)
                 .senderStudentId(sourceWallet.getUser().getStudentId())
                 .recipientStudentId(targetWallet.getUser().getStudentId())
+                .sourceUserId(sourceWallet.getUser().getStudentId())
+                .targetUserId(targetWallet.getUser().getStudentId())
                 .build();
-
-        transaction = transactionRepository.save(transaction);
-
-        try {
-            // Process the transfer
-            walletService.deductFunds(sourceWalletId, amount);
-            walletService.addFunds(targetWallet.getId(), amount);
-
-            transaction.markCompleted();
-            transactionRepository.save(transaction);
-
-            log.info("P2P transfer completed: {} from {} to {}",
-                    amount, sourceWallet.getWalletAddress(), targetWallet.getWalletAddress());
-
-        } catch (Exception e) {
-            transaction.markFailed(e.getMessage());
-            transactionRepository.save(transaction);
-            throw e;
-        }
-
-        return transaction;
     }
 
     @Transactional
     public Transaction createCampusPayment(Long walletId, BigDecimal amount, String merchantId,
             String campusLocation, String description, String ipAddress) {
 
+        walletLockManager.lockIfContended(walletId);
+
         Wallet wallet = walletRepository.findById(walletId)
                 .orElseThrow(() -> new RuntimeException("Wallet not found"));
 
@@ -96,8 +123,9 @@ public class TransactionService {
 
         // Create transaction
         Transaction transaction = Transaction.builder()
-                .transactionId(generateTransactionId())
+                .transactionId(idGenerator.nextTransactionId())
                 .sourceWallet(wallet)
+                .sourceUserId(wallet.getUser().getStudentId())
                 .amount(amount)
                 .currencyCode(wallet.getCurrencyCode())
                 .type(Transaction.TransactionType.CAMPUS_PAYMENT)
@@ -109,22 +137,21 @@ public class TransactionService {
                 .feeAmount(amount.multiply(new BigDecimal("0.02"))) // 2% fee
                 .build();
 
-        transaction = transactionRepository.save(transaction);
+        // Process the transfer
+        walletService.debit(walletId, amount);
+        ledgerService.recordCampusPayment(transaction.getTransactionId(), walletId, amount,
+                transaction.getCurrencyCode());
 
-        try {
-            walletService.deductFunds(walletId, amount);
-
-            transaction.markCompleted();
-            transactionRepository.save(transaction);
-
-            log.info("Campus payment completed: {} at {} for merchant {}",
-                    amount, campusLocation, merchantId);
+        transaction.markCompleted();
+        transaction = transactionRepository.save(transaction);
+        rollupService.recordCompleted(transaction);
+        readYourWrites.recordOnCommit(transaction);
+        walletPortfolioCache.evictOnCommit(transaction);
+        velocityTracker.recordOnCommit(transaction);
+        fraudDetectionService.scoreAfterCommit(transaction);
 
-        } catch (Exception e) {
-            transaction.markFailed(e.getMessage());
-            transactionRepository.save(transaction);
-            throw e;
-        }
+        log.info("Campus payment completed: {} at {} for merchant {}",
+                amount, campusLocation, merchantId);
 
         return transaction;
     }
@@ -134,12 +161,18 @@ public class TransactionService {
             BigDecimal amount, String targetCurrency, BigDecimal exchangeRate,
             String description, String ipAddress) {
 
-        Wallet sourceWallet = walletRepository.findById(sourceWalletId)
-                .orElseThrow(() -> new RuntimeException("Source wallet not found"));
+        Long targetWalletId = walletRepository.findIdByWalletAddress(targetWalletAddress)
+                .orElseThrow(() -> new RuntimeException("Target wallet not found"));
 
-        Wallet targetWallet = walletRepository.findByWalletAddress(targetWalletAddress)
+        // Lock before loading, so the checks below read the wallets under the lock
+        walletLockManager.lockIfContended(sourceWalletId, targetWalletId);
+
+        Wallet targetWallet = walletRepository.findById(targetWalletId)
                 .orElseThrow(() -> new RuntimeException("Target wallet not found"));
 
+        Wallet sourceWallet = walletRepository.findById(sourceWalletId)
+                .orElseThrow(() -> new RuntimeException("Source wallet not found"));
+
         // Calculate target amount
         BigDecimal targetAmount = amount.multiply(exchangeRate);
 
@@ -150,9 +183,11 @@ public class TransactionService {
 
         // Create transaction
         Transaction transaction = Transaction.builder()
-                .transactionId(generateTransactionId())
+                .transactionId(idGenerator.nextTransactionId())
                 .sourceWallet(sourceWallet)
                 .targetWallet(targetWallet)
+                .sourceUserId(sourceWallet.getUser().getStudentId())
+                .targetUserId(targetWallet.getUser().getStudentId())
                 .amount(targetAmount)
                 .currencyCode(targetCurrency)
                 .originalAmount(amount)
@@ -165,31 +200,29 @@ public class TransactionService {
                 .feeAmount(amount.multiply(new BigDecimal("0.015"))) // 1.5% fee
                 .build();
 
-        transaction = transactionRepository.save(transaction);
-
-        try {
-            walletService.deductFunds(sourceWalletId, amount);
-            walletService.addFunds(targetWallet.getId(), targetAmount);
-
-            transaction.markCompleted();
-            transactionRepository.save(transaction);
+        // Process the transfer
+        walletService.transfer(sourceWalletId, amount, targetWallet.getId(), targetAmount);
+        ledgerService.recordRemittance(transaction.getTransactionId(), sourceWalletId, amount,
+                sourceWallet.getCurrencyCode(), targetWallet.getId(), targetAmount, targetCurrency);
 
-            log.info("Remittance completed: {} {} -> {} {} (rate: {})",
-                    amount, sourceWallet.getCurrencyCode(),
-                    targetAmount, targetCurrency, exchangeRate);
+        transaction.markCompleted();
+        transaction = transactionRepository.save(transaction);
+        rollupService.recordCompleted(transaction);
+        readYourWrites.recordOnCommit(transaction);
+        walletPortfolioCache.evictOnCommit(transaction);
+        velocityTracker.recordOnCommit(transaction);
+        fraudDetectionService.scoreAfterCommit(transaction);
 
-        } catch (Exception e) {
-            transaction.markFailed(e.getMessage());
-            transactionRepository.save(transaction);
-            throw e;
-        }
+        log.info("Remittance completed: {} {} -> {} {} (rate: {})",
+                amount, sourceWallet.getCurrencyCode(),
+                targetAmount, targetCurrency, exchangeRate);
 
         return transaction;
     }
 
     @Transactional
     public void refundTransaction(String transactionId, String reason) {
-        Transaction originalTransaction = transactionRepository.findByTransactionId(transactionId)
+        Transaction originalTransaction = transactionRepository.findByTransactionIdNearCreation(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
 
         if (!originalTransaction.isCompleted()) {
@@ -200,40 +233,61 @@ public class TransactionService {
             throw new RuntimeException("Cannot refund transaction without source and target wallets");
         }
 
+        // Locked by id, before the wallets themselves are read
+        walletLockManager.lockIfContended(originalTransaction.getSourceWallet().getId(),
+                originalTransaction.getTargetWallet().getId());
+
+        // A remittance moved originalAmount in the sender's currency and amount in the
+        // recipient's; each side gets back its own leg, in its own wallet's currency
+        Wallet payer = originalTransaction.getTargetWallet();
+        Wallet payee = originalTransaction.getSourceWallet();
+        boolean crossCurrency = originalTransaction.getOriginalAmount() != null;
+        BigDecimal debitAmount = originalTransaction.getAmount();
+        String debitCurrency = originalTransaction.getCurrencyCode();
+        BigDecimal creditAmount = crossCurrency ? originalTransaction.getOriginalAmount() : debitAmount;
+        String creditCurrency = crossCurrency ? originalTransaction.getOriginalCurrency() : debitCurrency;
+
         // Create refund transaction
         Transaction refundTransaction = Transaction.builder()
-                .transactionId(generateTransactionId())
-                .sourceWallet(originalTransaction.getTargetWallet())
-                .targetWallet(originalTransaction.getSourceWallet())
-                .amount(originalTransaction.getAmount())
-                .currencyCode(originalTransaction.getCurrencyCode())
+                .transactionId(idGenerator.nextTransactionId())
+                .sourceWallet(payer)
+                .targetWallet(payee)
+                .sourceUserId(payer.getUser().getStudentId())
+                .targetUserId(payee.getUser().getStudentId())
+                .amount(creditAmount)
+                .currencyCode(creditCurrency)
+                .originalAmount(crossCurrency ? debitAmount : null)
+                .originalCurrency(crossCurrency ? debitCurrency : null)
+                .exchangeRate(crossCurrency ? creditAmount.divide(debitAmount, 8, RoundingMode.HALF_UP) : null)
                 .type(Transaction.TransactionType.REFUND)
                 .status(Transaction.TransactionStatus.PROCESSING)
                 .description("Refund for transaction: " + transactionId + ". Reason: " + reason)
                 .referenceId(transactionId)
                 .build();
 
-        refundTransaction = transactionRepository.save(refundTransaction);
-
-        try {
-            walletService.deductFunds(originalTransaction.getTargetWallet().getId(), originalTransaction.getAmount());
-            walletService.addFunds(originalTransaction.getSourceWallet().getId(), originalTransaction.getAmount());
-
-            refundTransaction.markCompleted();
-            transactionRepository.save(refundTransaction);
+        // Process the transfer
+        walletService.transfer(payer.getId(), debitAmount, payee.getId(), creditAmount);
+        if (crossCurrency) {
+            ledgerService.recordRemittance(refundTransaction.getTransactionId(), payer.getId(), debitAmount,
+                    debitCurrency, payee.getId(), creditAmount, creditCurrency);
+        } else {
+            ledgerService.recordTransfer(refundTransaction.getTransactionId(), payer.getId(), payee.getId(),
+                    debitAmount, debitCurrency);
+        }
 
-            log.info("Refund processed for transaction: {}", transactionId);
+        refundTransaction.markCompleted();
+        transactionRepository.save(refundTransaction);
+        rollupService.recordCompleted(refundTransaction);
+        readYourWrites.recordOnCommit(refundTransaction);
+        walletPortfolioCache.evictOnCommit(refundTransaction);
+        velocityTracker.recordOnCommit(refundTransaction);
 
-        } catch (Exception e) {
-            refundTransaction.markFailed(e.getMessage());
-            transactionRepository.save(refundTransaction);
-            throw e;
-        }
+        log.info("Refund processed for transaction: {}", transactionId);
     }
 
     @Transactional
     public void cancelTransaction(String transactionId) {
-        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
+        Transaction transaction = transactionRepository.findByTransactionIdNearCreation(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
 
         if (!transaction.canBeCancelled()) {
@@ -242,33 +296,62 @@ public class TransactionService {
 
         transaction.setStatus(Transaction.TransactionStatus.CANCELLED);
         transactionRepository.save(transaction);
+        readYourWrites.recordOnCommit(transaction);
 
         log.info("Transaction cancelled: {}", transactionId);
     }
 
-    public Page<Transaction> getUserTransactions(Long userId, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public Page<Transaction> getUserTransactions(String userId, Pageable pageable) {
         return transactionRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
     }
 
-    public List<Transaction> getUserTransactionsByDateRange(Long userId, LocalDateTime startDate,
+    /**
+     * One page of a user's history, newest first, starting after the cursor. A single query
+     * reads at most size + 1 rows from each of the user's two index ranges (sent and
+     * received), so a page deep in the history costs the same as the first one. There is no
+     * total count; see {@link #countUserTransactions}.
+     */
+    @Transactional(readOnly = true)
+    public TransactionSlice getUserTransactionsAfter(String userId, TransactionCursor after, int size) {
+        List<Transaction> rows = transactionRepository.findByUserIdBefore(userId, after.createdAt(), after.id(), size + 1);
+        if (rows.size() <= size) {
+            return new TransactionSlice(rows, null);
+        }
+        List<Transaction> page = rows.subList(0, size);
+        return new TransactionSlice(page, TransactionCursor.of(page.get(size - 1)));
+    }
+
+    @Transactional(readOnly = true)
+    public long countUserTransactions(String userId) {
+        return transactionRepository.countByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Transaction> getUserTransactionsByDateRange(String userId, LocalDateTime startDate,
             LocalDateTime endDate) {
         return transactionRepository.findByUserIdAndDateRange(userId, startDate, endDate);
     }
 
+    @Transactional(readOnly = true)
     public Transaction getTransaction(String transactionId) {
-        return transactionRepository.findByTransactionId(transactionId)
+        return transactionRepository.findByTransactionIdNearCreation(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
     }
 
-    public List<Transaction> getFlaggedTransactions() {
-        return transactionRepository.findFlaggedTransactions();
+    @Transactional(readOnly = true)
+    public List<Transaction> getFlaggedTransactions(LocalDateTime since) {
+        return transactionRepository.findFlaggedTransactions(since);
     }
 
-    public List<Transaction> getFailedTransactions() {
-        return transactionRepository.findFailedTransactions();
+    @Transactional(readOnly = true)
+    public List<Transaction> getFailedTransactions(LocalDateTime since) {
+        return transactionRepository.findFailedTransactions(since);
     }
 
-    private String generateTransactionId() {
-        return "TXN-" + UUID.randomUUID().toString().replace("-", "").toUpperCase().substring(0, 16);
+    /**
+     * @param next where the following page starts, or null on the last page
+     */
+    public record TransactionSlice(List<Transaction> transactions, TransactionCursor next) {
     }
 }
@@ -0,0 +1,351 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.util.LongObjectMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory adjacency index of recent committed P2P transfers, used to find funds cycling
+ * back to their source through a ring of wallets.
+ *
+ * Each wallet id maps to its outgoing edges (target wallet id and time of the latest transfer)
+ * in primitive arrays, keyed by a {@link LongObjectMap}. Edges are added after the transfer
+ * commits, ignored once older than the window and removed by a periodic sweep. A cycle search
+ * is a depth-first search bounded both by depth and by the number of edges it may expand, so
+ * its cost stays in the microseconds even around hub wallets. Searches share a read lock;
+ * updates and the sweep take the write lock.
+ *
+ * Like {@link VelocityTracker}, the index only sees transfers committed on this instance, plus
+ * whatever the warm-up loaded at startup.
+ */
+@Component
+@Slf4j
+public class TransferGraph {
+
+    /**
+     * Edges kept per wallet; beyond that the oldest edge is replaced
+     */
+    static final int MAX_OUT_DEGREE = 64;
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxEdges;
+    private final int maxExpansions;
+    private final int warmupMaxRows;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongObjectMap<Edges> outgoing = new LongObjectMap<>(1024);
+    private int edgeCount;
+    private boolean full;
+
+    public TransferGraph(TransactionRepository transactionRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${wallet.transfer-graph.enabled:true}") boolean enabled,
+                         @Value("${wallet.transfer-graph.window-hours:72}") long windowHours,
+                         @Value("${wallet.transfer-graph.max-edges:1000000}") int maxEdges,
+                         @Value("${wallet.transfer-graph.max-expansions:10000}") int maxExpansions,
+                         @Value("${wallet.transfer-graph.warmup-max-rows:500000}") int warmupMaxRows) {
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.windowMillis = TimeUnit.HOURS.toMillis(windowHours);
+        this.maxEdges = maxEdges;
+        this.maxExpansions = maxExpansions;
+        this.warmupMaxRows = warmupMaxRows;
+        Gauge.builder("wallet.transfer-graph.edges", this, TransferGraph::edges)
+                .description("P2P transfer edges in the ring detection index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds the edge of a P2P transfer once the surrounding database transaction commits.
+     * Outside a transaction it is added immediately.
+     */
+    public void recordOnCommit(Transaction transaction) {
+        if (!enabled || transaction.getType() != Transaction.TransactionType.P2P_TRANSFER
+                || transaction.getSourceWallet() == null || transaction.getTargetWallet() == null) {
+            return;
+        }
+        long sourceId = transaction.getSourceWallet().getId();
+        long targetId = transaction.getTargetWallet().getId();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addEdge(sourceId, targetId, System.currentTimeMillis());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addEdge(sourceId, targetId, System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * Looks for a path of recent transfers from {@code targetWalletId} back to
+     * {@code sourceWalletId}, so that a transfer source -> target closes a cycle of between
+     * {@code minLength} and {@code maxLength} wallets.
+     *
+     * @return the wallets of the cycle starting and ending at the source, or null if none was found
+     */
+    public long[] findCycle(long sourceWalletId, long targetWalletId, int minLength, int maxLength) {
+        if (!enabled || sourceWalletId == targetWalletId || maxLength < 2) {
+            return null;
+        }
+        long[] path = new long[maxLength + 1];
+        path[0] = sourceWalletId;
+        path[1] = targetWalletId;
+        Search search = new Search(sourceWalletId, Math.max(2, minLength), maxLength,
+                System.currentTimeMillis() - windowMillis, path);
+
+        lock.readLock().lock();
+        try {
+            int length = search.from(targetWalletId, 2);
+            return length < 0 ? null : Arrays.copyOf(path, length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void addEdge(long sourceId, long targetId, long atMillis) {
+        lock.writeLock().lock();
+        try {
+            Edges edges = outgoing.get(sourceId);
+            if (edges != null && edges.refresh(targetId, atMillis)) {
+                return;
+            }
+            if (edgeCount >= maxEdges) {
+                markFull();
+                return;
+            }
+            if (edges == null) {
+                edges = new Edges();
+                outgoing.put(sourceId, edges);
+            }
+            if (edges.add(targetId, atMillis)) {
+                edgeCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the P2P transfers of the window, newest first, with a bounded query.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        Thread warmer = new Thread(this::loadRecentTransfers, "transfer-graph-warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    private void loadRecentTransfers() {
+        long started = System.currentTimeMillis();
+        LocalDateTime since = LocalDateTime.now().minusSeconds(windowMillis / 1000);
+        try {
+            List<Object[]> rows = transactionRepository.findTransferEdgesSince(
+                    Transaction.TransactionType.P2P_TRANSFER, since, PageRequest.of(0, warmupMaxRows));
+            for (Object[] row : rows) {
+                LocalDateTime createdAt = (LocalDateTime) row[2];
+                addEdge((Long) row[0], (Long) row[1], createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+            log.info("Transfer graph warmed from {} transfers in {} ms{}", rows.size(),
+                    System.currentTimeMillis() - started, rows.size() >= warmupMaxRows ? " (row limit reached)" : "");
+        } catch (RuntimeException e) {
+            log.error("Transfer graph warm-up failed; rings are detected from new transfers only", e);
+        }
+    }
+
+    /**
+     * Removes edges that have left the window.
+     */
+    @Scheduled(fixedDelayString = "${wallet.transfer-graph.sweep-interval-ms:300000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        lock.writeLock().lock();
+        try {
+            for (long walletId : outgoing.keys()) {
+                Edges edges = outgoing.get(walletId);
+                edgeCount -= edges.removeOlderThan(cutoff);
+                if (edges.size == 0) {
+                    outgoing.remove(walletId);
+                }
+            }
+            if (full && edgeCount < maxEdges) {
+                full = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int edges() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void markFull() {
+        if (!full) {
+            full = true;
+            log.warn("Transfer graph is full ({} edges); new wallets are not indexed until old edges expire", edgeCount);
+        }
+    }
+
+    /**
+     * Depth-first search state for one cycle query; runs under the read lock.
+     */
+    private final class Search {
+
+        private final long destination;
+        private final int minLength;
+        private final int maxLength;
+        private final long cutoff;
+        private final long[] path;
+        private int expansions;
+
+        Search(long destination, int minLength, int maxLength, long cutoff, long[] path) {
+            this.destination = destination;
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            this.cutoff = cutoff;
+            this.path = path;
+        }
+
+        /**
+         * @param depth number of wallets on the path so far, the last being {@code walletId}
+         * @return the length of the closed path (including the returning source), or -1
+         */
+        int from(long walletId, int depth) {
+            Edges edges = outgoing.get(walletId);
+            if (edges == null) {
+                return -1;
+            }
+            for (int i = 0; i < edges.size; i++) {
+                if (++expansions > maxExpansions) {
+                    return -1;
+                }
+                if (edges.lastMillis[i] < cutoff) {
+                    continue;
+                }
+                long next = edges.targets[i];
+                if (next == destination) {
+                    if (depth >= minLength) {
+                        path[depth] = next;
+                        return depth + 1;
+                    }
+                    continue;
+                }
+                if (depth < maxLength && !onPath(next, depth)) {
+                    path[depth] = next;
+                    int length = from(next, depth + 1);
+                    if (length > 0) {
+                        return length;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private boolean onPath(long walletId, int depth) {
+            for (int i = 0; i < depth; i++) {
+                if (path[i] == walletId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Outgoing edges of one wallet; one entry per target holding the latest transfer time.
+     */
+    private static final class Edges {
+
+        long[] targets = new long[4];
+        long[] lastMillis = new long[4];
+        int size;
+
+        /**
+         * Updates the time of an existing edge
+         *
+         * @return false if there is no edge to the target
+         */
+        boolean refresh(long target, long atMillis) {
+            for (int i = 0; i < size; i++) {
+                if (targets[i] == target) {
+                    lastMillis[i] = Math.max(lastMillis[i], atMillis);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Adds an edge to a new target
+         *
+         * @return false if it replaced the oldest edge instead of growing the list
+         */
+        boolean add(long target, long atMillis) {
+            if (size == MAX_OUT_DEGREE) {
+                int oldest = 0;
+                for (int i = 1; i < size; i++) {
+                    if (lastMillis[i] < lastMillis[oldest]) {
+                        oldest = i;
+                    }
+                }
+                targets[oldest] = target;
+                lastMillis[oldest] = atMillis;
+                return false;
+            }
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+                lastMillis = Arrays.copyOf(lastMillis, size * 2);
+            }
+            targets[size] = target;
+            lastMillis[size] = atMillis;
+            size++;
+            return true;
+        }
+
+        int removeOlderThan(long cutoff) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (lastMillis[i] >= cutoff) {
+                    targets[kept] = targets[i];
+                    lastMillis[kept] = lastMillis[i];
+                    kept++;
+                }
+            }
+            int removed = size - kept;
+            size = kept;
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.campuscross.wallet.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a whole money-moving operation when it loses an optimistic version check or a
+ * database deadlock, instead of surfacing the conflict to the caller.
+ *
+ * Transfers themselves do not use the wallet {@code @Version} for concurrency control: their
+ * debits and credits are single conditional UPDATEs that check the balance and limits, not the
+ * version, so two transfers on the same wallet never conflict optimistically. Only operations
+ * that save a loaded Wallet entity can lose a version check, because a transfer bumped the
+ * version after the entity was read. For transfers, the retries cover deadlocks and lock
+ * timeouts.
+ *
+ * Each retry sleeps for a random delay between zero and an exponentially growing cap
+ * ("full jitter"), so competing requests spread out rather than colliding again.
+ * The wrapped operation must open its own transaction; retrying inside an outer
+ * transaction is pointless because that transaction is already marked for rollback.
+ */
+@Component
+@Slf4j
+public class TransferRetryExecutor {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    public TransferRetryExecutor(MeterRegistry meterRegistry,
+                                 @Value("${wallet.transfer.retry.max-attempts:4}") int maxAttempts,
+                                 @Value("${wallet.transfer.retry.initial-backoff-ms:10}") long initialBackoffMs,
+                                 @Value("${wallet.transfer.retry.max-backoff-ms:200}") long maxBackoffMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (RuntimeException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("wallet.transfer.retry.exhausted", "operation", operation).increment();
+                    log.warn("{} gave up after {} attempts due to concurrent updates", operation, attempt);
+                    throw new RuntimeException("Wallet is busy due to concurrent updates, please retry", e);
+                }
+                meterRegistry.counter("wallet.transfer.retries", "operation", operation).increment();
+                log.debug("{} hit a concurrent update (attempt {}), retrying: {}", operation, attempt, e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void execute(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private boolean isRetryable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConcurrencyFailureException
+                    || t instanceof OptimisticLockException
+                    || t instanceof PessimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void backoff(int attempt) {
+        long cap = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        long sleepMs = ThreadLocalRandom.current().nextLong(cap + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying transfer");
+        }
+    }
+}
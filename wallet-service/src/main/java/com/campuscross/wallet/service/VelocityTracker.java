@@ -0,0 +1,345 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory sliding-window velocity counters for outgoing transactions.
+ *
+ * Every wallet has a ring of 60 one-minute buckets and a ring of 24 one-hour buckets, each
+ * holding a count and, per currency, an amount in minor units; every (source, target) pair has
+ * a ring of five one-minute buckets. Amounts are kept in the currency each transaction was
+ * recorded in: a remittance is in its target currency, so it is never added to the source
+ * wallet's own. Counters are updated after the transaction commits, so rolled back
+ * transfers never count, and reads touch only the rings of the wallet being checked.
+ * Windows are bucket-aligned: "last hour" covers the current minute and the 59 before it.
+ *
+ * Entries whose windows are all empty are evicted by a periodic sweep, which loses nothing.
+ * If the number of tracked wallets or pairs exceeds its bound the tracker reports itself as
+ * not authoritative until the sweep brings it back under, and callers fall back to the
+ * database. The same applies while the counters are being warmed from the database at
+ * startup, or when the warm-up query hit its row limit (until a full day has been observed).
+ * The warm-up only loads transactions created before this tracker was constructed; anything
+ * later is recorded live after it commits, so no transaction is counted twice.
+ *
+ * Counters are local to this instance; with several instances behind a load balancer they
+ * only see the transfers committed here, so disable them with {@code wallet.velocity.enabled}.
+ */
+@Component
+@Slf4j
+public class VelocityTracker {
+
+    static final int MINUTE_BUCKETS = 60;
+    static final int HOUR_BUCKETS = 24;
+    static final int PAIR_BUCKETS = 5;
+    public static final int PAIR_WINDOW_MINUTES = PAIR_BUCKETS;
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final int maxWallets;
+    private final int maxPairs;
+    private final int warmupMaxRows;
+
+    private final ConcurrentHashMap<Long, WalletCounters> wallets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<PairKey, Ring> pairs = new ConcurrentHashMap<>();
+
+    /**
+     * Taken before any transaction can be recorded live; the warm-up loads only older ones
+     */
+    private final LocalDateTime liveSince = LocalDateTime.now();
+
+    private volatile boolean warmedUp;
+    private volatile long completeAfterMillis = Long.MAX_VALUE;
+    private volatile boolean overflowed;
+
+    public VelocityTracker(TransactionRepository transactionRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${wallet.velocity.enabled:true}") boolean enabled,
+                           @Value("${wallet.velocity.max-wallets:200000}") int maxWallets,
+                           @Value("${wallet.velocity.max-pairs:200000}") int maxPairs,
+                           @Value("${wallet.velocity.warmup-max-rows:500000}") int warmupMaxRows) {
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.maxWallets = maxWallets;
+        this.maxPairs = maxPairs;
+        this.warmupMaxRows = warmupMaxRows;
+        Gauge.builder("wallet.velocity.tracked", wallets, ConcurrentHashMap::size)
+                .description("Wallets with velocity counters in memory")
+                .tag("kind", "wallet")
+                .register(meterRegistry);
+        Gauge.builder("wallet.velocity.tracked", pairs, ConcurrentHashMap::size)
+                .description("Wallet pairs with velocity counters in memory")
+                .tag("kind", "pair")
+                .register(meterRegistry);
+    }
+
+    /**
+     * True when the counters reflect every outgoing transaction of the windows they cover.
+     */
+    public boolean isAuthoritative() {
+        return enabled && warmedUp && !overflowed && System.currentTimeMillis() >= completeAfterMillis;
+    }
+
+    /**
+     * Records an outgoing transaction once the surrounding database transaction commits.
+     * Outside a transaction it is recorded immediately.
+     */
+    public void recordOnCommit(Transaction transaction) {
+        if (!enabled || transaction.getSourceWallet() == null) {
+            return;
+        }
+        Long sourceId = transaction.getSourceWallet().getId();
+        Long targetId = transaction.getTargetWallet() != null ? transaction.getTargetWallet().getId() : null;
+        BigDecimal amount = transaction.getAmount();
+        String currency = transaction.getCurrencyCode();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(sourceId, targetId, amount, currency, System.currentTimeMillis());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(sourceId, targetId, amount, currency, System.currentTimeMillis());
+            }
+        });
+    }
+
+    public WindowStats lastHour(Long walletId) {
+        WalletCounters counters = wallets.get(walletId);
+        return counters == null ? WindowStats.EMPTY : counters.minutes.sum(minuteOf(System.currentTimeMillis()));
+    }
+
+    public WindowStats lastDay(Long walletId) {
+        WalletCounters counters = wallets.get(walletId);
+        return counters == null ? WindowStats.EMPTY : counters.hours.sum(hourOf(System.currentTimeMillis()));
+    }
+
+    /**
+     * Transactions from one wallet to another within the last five minutes.
+     */
+    public long recentPairCount(Long sourceWalletId, Long targetWalletId) {
+        Ring ring = pairs.get(new PairKey(sourceWalletId, targetWalletId));
+        return ring == null ? 0 : ring.sum(minuteOf(System.currentTimeMillis())).count();
+    }
+
+    void record(Long sourceId, Long targetId, BigDecimal amount, String currency, long atMillis) {
+        long minorUnits = amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        long minute = minuteOf(atMillis);
+
+        if (!wallets.containsKey(sourceId) && wallets.size() >= maxWallets) {
+            markOverflowed();
+            return;
+        }
+        // compute() keeps the update atomic with respect to the idle sweep
+        wallets.compute(sourceId, (id, counters) -> {
+            WalletCounters c = counters != null ? counters : new WalletCounters();
+            c.minutes.add(minute, currency, minorUnits);
+            c.hours.add(hourOf(atMillis), currency, minorUnits);
+            return c;
+        });
+
+        if (targetId != null) {
+            PairKey key = new PairKey(sourceId, targetId);
+            if (!pairs.containsKey(key) && pairs.size() >= maxPairs) {
+                markOverflowed();
+                return;
+            }
+            pairs.compute(key, (k, ring) -> {
+                Ring r = ring != null ? ring : new Ring(PAIR_BUCKETS);
+                r.add(minute, currency, minorUnits);
+                return r;
+            });
+        }
+    }
+
+    /**
+     * Loads the last day of outgoing transactions created before this tracker, newest first,
+     * with a bounded query.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        Thread warmer = new Thread(this::loadRecentTransactions, "velocity-warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    private void loadRecentTransactions() {
+        long started = System.currentTimeMillis();
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+        try {
+            List<Object[]> rows = transactionRepository.findOutgoingBetween(since, liveSince,
+                    PageRequest.of(0, warmupMaxRows));
+            for (Object[] row : rows) {
+                LocalDateTime createdAt = (LocalDateTime) row[4];
+                record((Long) row[0], (Long) row[1], (BigDecimal) row[2], (String) row[3],
+                        createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+            if (rows.size() >= warmupMaxRows) {
+                // Older rows were cut off; the counters become complete once a full day has been observed
+                completeAfterMillis = started + TimeUnit.DAYS.toMillis(1);
+                log.warn("Velocity warm-up hit its limit of {} rows; falling back to the database until {}",
+                        warmupMaxRows, LocalDateTime.now().plusDays(1));
+            } else {
+                completeAfterMillis = started;
+            }
+            warmedUp = true;
+            log.info("Velocity counters warmed from {} transactions in {} ms",
+                    rows.size(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            completeAfterMillis = started + TimeUnit.DAYS.toMillis(1);
+            warmedUp = true;
+            log.error("Velocity warm-up failed; falling back to the database until a full day has been observed", e);
+        }
+    }
+
+    /**
+     * Drops counters whose windows have emptied.
+     */
+    @Scheduled(fixedDelayString = "${wallet.velocity.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        long minute = minuteOf(now);
+        long hour = hourOf(now);
+        for (Long walletId : wallets.keySet()) {
+            wallets.computeIfPresent(walletId,
+                    (id, c) -> c.hours.isIdle(hour) && c.minutes.isIdle(minute) ? null : c);
+        }
+        for (PairKey key : pairs.keySet()) {
+            pairs.computeIfPresent(key, (k, r) -> r.isIdle(minute) ? null : r);
+        }
+        if (overflowed && wallets.size() < maxWallets && pairs.size() < maxPairs) {
+            // Transactions dropped while full may still be inside the windows, so observe a
+            // full day again before trusting the counters
+            completeAfterMillis = now + TimeUnit.DAYS.toMillis(1);
+            overflowed = false;
+        }
+    }
+
+    private void markOverflowed() {
+        if (!overflowed) {
+            overflowed = true;
+            log.warn("Velocity counters are full ({} wallets, {} pairs); falling back to the database",
+                    wallets.size(), pairs.size());
+        }
+    }
+
+    private static long minuteOf(long millis) {
+        return millis / 60_000L;
+    }
+
+    private static long hourOf(long millis) {
+        return millis / 3_600_000L;
+    }
+
+    private static final class WalletCounters {
+        final Ring minutes = new Ring(MINUTE_BUCKETS);
+        final Ring hours = new Ring(HOUR_BUCKETS);
+    }
+
+    /**
+     * Fixed ring of time buckets; each slot remembers which period it currently holds, so
+     * stale slots are recycled lazily on write and ignored on read. Amount slots are allocated
+     * per currency on first use; a wallet nearly always pays in one.
+     */
+    static final class Ring {
+
+        private final long[] periods;
+        private final long[] counts;
+        private final Map<String, long[]> amounts = new HashMap<>(2);
+
+        Ring(int size) {
+            periods = new long[size];
+            counts = new long[size];
+            Arrays.fill(periods, -1);
+        }
+
+        synchronized void add(long period, String currency, long amount) {
+            int slot = (int) (period % periods.length);
+            if (periods[slot] != period) {
+                if (periods[slot] > period) {
+                    // Older than the window this slot now holds
+                    return;
+                }
+                periods[slot] = period;
+                counts[slot] = 0;
+                for (long[] currencyAmounts : amounts.values()) {
+                    currencyAmounts[slot] = 0;
+                }
+            }
+            counts[slot]++;
+            amounts.computeIfAbsent(currency, c -> new long[periods.length])[slot] += amount;
+        }
+
+        synchronized WindowStats sum(long currentPeriod) {
+            long count = 0;
+            long[] totals = new long[amounts.size()];
+            for (int i = 0; i < periods.length; i++) {
+                if (periods[i] > currentPeriod - periods.length && periods[i] <= currentPeriod) {
+                    count += counts[i];
+                    int currency = 0;
+                    for (long[] currencyAmounts : amounts.values()) {
+                        totals[currency++] += currencyAmounts[i];
+                    }
+                }
+            }
+            Map<String, BigDecimal> byCurrency = new HashMap<>(amounts.size());
+            int currency = 0;
+            for (String code : amounts.keySet()) {
+                if (totals[currency] != 0) {
+                    byCurrency.put(code, BigDecimal.valueOf(totals[currency], 2));
+                }
+                currency++;
+            }
+            return new WindowStats(count, byCurrency);
+        }
+
+        synchronized boolean isIdle(long currentPeriod) {
+            for (long period : periods) {
+                if (period > currentPeriod - periods.length) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record PairKey(long sourceWalletId, long targetWalletId) {
+    }
+
+    /**
+     * @param amounts totals by currency code
+     */
+    public record WindowStats(long count, Map<String, BigDecimal> amounts) {
+        static final WindowStats EMPTY = new WindowStats(0, Map.of());
+
+        public BigDecimal amount(String currency) {
+            return amounts.getOrDefault(currency, BigDecimal.ZERO);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-process locks for wallets that are about to be debited or credited together.
+ *
+ * Wallet ids are hashed onto a fixed array of {@link ReentrantLock}s. Stripes are always
+ * acquired in ascending stripe order and the matching rows are then locked with
+ * SELECT ... FOR UPDATE in ascending id order, so two opposite transfers between the same
+ * wallets can never deadlock each other, neither in the JVM nor in the database.
+ * Locks are held until the surrounding transaction completes. Callers lock before they load
+ * the wallets they check: the locking query does not re-read rows already loaded into the
+ * persistence context, so a wallet loaded first would be checked in its unlocked state.
+ *
+ * Most wallets are uncontended and rely on the conditional balance updates plus
+ * {@link TransferRetryExecutor}; {@link #lockIfContended} only takes the locks when one of the
+ * wallets is of a type configured as hot (merchant and campus wallets by default).
+ */
+@Component
+@Slf4j
+public class WalletLockManager {
+
+    private final WalletRepository walletRepository;
+    private final ReentrantLock[] stripes;
+    private final Timer[] waitTimers;
+    private final long timeoutMs;
+    private final Set<Wallet.WalletType> hotWalletTypes;
+
+    public WalletLockManager(WalletRepository walletRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${wallet.locking.stripes:64}") int stripeCount,
+                             @Value("${wallet.locking.timeout-ms:5000}") long timeoutMs,
+                             @Value("${wallet.locking.hot-wallet-types:MERCHANT,CAMPUS}") Set<Wallet.WalletType> hotWalletTypes) {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("wallet.locking.stripes must be a power of two");
+        }
+        this.walletRepository = walletRepository;
+        this.timeoutMs = timeoutMs;
+        this.hotWalletTypes = hotWalletTypes.isEmpty()
+                ? EnumSet.noneOf(Wallet.WalletType.class)
+                : EnumSet.copyOf(hotWalletTypes);
+        this.stripes = new ReentrantLock[stripeCount];
+        this.waitTimers = new Timer[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+            waitTimers[i] = Timer.builder("wallet.lock.wait")
+                    .description("Time spent waiting for a wallet lock stripe")
+                    .tag("stripe", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Locks the given wallets only when at least one of them is a hot wallet type. Reads the
+     * types with a scalar query, so callers can take the locks before loading the wallets and
+     * then read them under the lock.
+     *
+     * @return true when the locks were taken
+     */
+    public boolean lockIfContended(Long... walletIds) {
+        List<Long> ids = Arrays.stream(walletIds).filter(Objects::nonNull).distinct().toList();
+        if (hotWalletTypes.isEmpty() || ids.isEmpty()
+                || !walletRepository.existsByIdInAndTypeIn(ids, hotWalletTypes)) {
+            return false;
+        }
+        lockWallets(ids.toArray(Long[]::new));
+        return true;
+    }
+
+    /**
+     * Locks the given wallets for the rest of the current transaction and returns the locked
+     * rows in ascending id order. Must be called from within a transactional method.
+     */
+    public List<Wallet> lockWallets(Long... walletIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Wallet locks can only be taken inside a transaction");
+        }
+
+        List<Long> ids = Arrays.stream(walletIds)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .toList();
+
+        int[] stripeIndexes = ids.stream()
+                .mapToInt(this::stripeFor)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquired = 0;
+        try {
+            for (int stripe : stripeIndexes) {
+                acquire(stripe);
+                acquired++;
+            }
+        } finally {
+            if (acquired < stripeIndexes.length) {
+                release(stripeIndexes, acquired);
+            }
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(stripeIndexes, stripeIndexes.length);
+            }
+        });
+
+        return walletRepository.findAllByIdForUpdate(ids);
+    }
+
+    int stripeFor(Long walletId) {
+        long h = walletId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & (stripes.length - 1);
+    }
+
+    private void acquire(int stripe) {
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = stripes[stripe].tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for wallet lock");
+        } finally {
+            waitTimers[stripe].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!locked) {
+            log.warn("Timed out after {} ms waiting for wallet lock stripe {}", timeoutMs, stripe);
+            throw new RuntimeException("Wallet is busy, please retry");
+        }
+    }
+
+    private void release(int[] stripeIndexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].unlock();
+        }
+    }
+}
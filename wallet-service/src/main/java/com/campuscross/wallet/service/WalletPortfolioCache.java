@@ -0,0 +1,263 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.WalletRepository;
+import com.campuscross.wallet.service.cache.CacheInvalidationBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process cache of each user's wallets and per-currency balances, so a dashboard that asks
+ * for the wallet list, the default wallet and the totals reads the database once instead of
+ * once per call. Entries are immutable snapshots, evicted least recently used beyond
+ * {@code wallet.portfolio-cache.max-users}.
+ *
+ * Every code path that changes a wallet evicts its owner's entry once the change commits.
+ * A snapshot loaded while such a change was committing is not stored: evictions bump a
+ * generation per stripe of users, and a load only stores its result when its stripe did not
+ * move in the meantime. Nor is one loaded inside a writing transaction. Snapshots are read
+ * from the primary, since a load follows right after a write more often than not.
+ *
+ * Evictions are also published on the {@link CacheInvalidationBus}, so other instances drop
+ * their copy. Each entry carries the bus version it was loaded at, and messages up to that
+ * version are already reflected in it. While the bus is out of sync nothing is stored.
+ */
+@Component
+public class WalletPortfolioCache {
+
+    private static final String ENTITY = "portfolio";
+    private static final int STRIPES = 1024;
+
+    private final WalletRepository walletRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final TransactionTemplate primaryRead;
+    private final boolean enabled;
+    private final int maxUsers;
+    private final Map<String, Cached> portfolios;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public WalletPortfolioCache(WalletRepository walletRepository,
+                                CacheInvalidationBus cacheInvalidationBus,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${wallet.portfolio-cache.enabled:true}") boolean enabled,
+                                @Value("${wallet.portfolio-cache.max-users:10000}") int maxUsers) {
+        this.walletRepository = walletRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.primaryRead = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxUsers = Math.max(1, maxUsers);
+        this.portfolios = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                if (size() > WalletPortfolioCache.this.maxUsers) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = meterRegistry.counter("wallet.portfolio.cache", "result", "hit");
+        this.misses = meterRegistry.counter("wallet.portfolio.cache", "result", "miss");
+        this.evictions = Counter.builder("wallet.portfolio.cache.evictions")
+                .description("Portfolios dropped to stay within the maximum size")
+                .register(meterRegistry);
+        Gauge.builder("wallet.portfolio.cache.size", this, WalletPortfolioCache::size)
+                .description("Users with a cached portfolio")
+                .register(meterRegistry);
+
+        cacheInvalidationBus.subscribe(ENTITY, new CacheInvalidationBus.Listener() {
+            @Override
+            public void invalidate(String userId, long version) {
+                evictOlderThan(userId, version);
+            }
+
+            @Override
+            public void flush() {
+                clear();
+            }
+        });
+    }
+
+    /**
+     * The user's portfolio, from the cache or loaded and cached on a miss
+     */
+    public Portfolio get(String userId) {
+        if (enabled) {
+            Cached cached;
+            synchronized (portfolios) {
+                cached = portfolios.get(userId);
+            }
+            if (cached != null) {
+                hits.increment();
+                return cached.portfolio();
+            }
+        }
+        misses.increment();
+
+        int stripe = stripe(userId);
+        long generation = generations.get(stripe);
+        long version = cacheInvalidationBus.version();
+        // Inside a writing transaction the result may include changes that are not committed yet
+        boolean cacheable = cacheInvalidationBus.isInSync()
+                && (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        Portfolio loaded = primaryRead.execute(status -> Portfolio.of(userId, walletRepository.findByUserId(userId)));
+        if (enabled && cacheable) {
+            synchronized (portfolios) {
+                if (generations.get(stripe) == generation) {
+                    portfolios.put(userId, new Cached(loaded, version));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Evicts the users' portfolios here and on the other instances once the surrounding
+     * database transaction commits. Outside a transaction they are evicted immediately.
+     */
+    public void evictOnCommit(String... userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictEverywhere(userIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictEverywhere(userIds);
+            }
+        });
+    }
+
+    public void evictOnCommit(Transaction transaction) {
+        evictOnCommit(transaction.getSourceUserId(), transaction.getTargetUserId());
+    }
+
+    public void evict(String... userIds) {
+        synchronized (portfolios) {
+            for (String userId : userIds) {
+                if (userId != null) {
+                    generations.incrementAndGet(stripe(userId));
+                    portfolios.remove(userId);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (portfolios) {
+            for (int i = 0; i < STRIPES; i++) {
+                generations.incrementAndGet(i);
+            }
+            portfolios.clear();
+        }
+    }
+
+    private void evictEverywhere(String... userIds) {
+        evict(userIds);
+        cacheInvalidationBus.publish(ENTITY, userIds);
+    }
+
+    /**
+     * Evicts the user's portfolio unless it was loaded after the change with this version
+     * had been announced. A load still running may predate the change and is not stored.
+     */
+    private void evictOlderThan(String userId, long version) {
+        synchronized (portfolios) {
+            generations.incrementAndGet(stripe(userId));
+            Cached cached = portfolios.get(userId);
+            if (cached != null && cached.version() < version) {
+                portfolios.remove(userId);
+            }
+        }
+    }
+
+    private int size() {
+        synchronized (portfolios) {
+            return portfolios.size();
+        }
+    }
+
+    private static int stripe(String userId) {
+        return Math.floorMod(userId.hashCode(), STRIPES);
+    }
+
+    private record Cached(Portfolio portfolio, long version) {
+    }
+
+    /**
+     * A user's wallets and balances at one point in time
+     *
+     * @param balances total balance per currency over all wallets
+     * @param totalBalance sum of the balances of the active wallets, whatever their currency
+     */
+    public record Portfolio(String userId, List<WalletSnapshot> wallets, Map<String, BigDecimal> balances,
+                            BigDecimal totalBalance) {
+
+        static Portfolio of(String userId, List<Wallet> wallets) {
+            Map<String, BigDecimal> balances = new HashMap<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (Wallet wallet : wallets) {
+                String code = wallet.getCurrencyCode() == null ? "UNKNOWN" : wallet.getCurrencyCode();
+                balances.merge(code, wallet.getBalance(), BigDecimal::add);
+                if (wallet.getStatus() == Wallet.WalletStatus.ACTIVE) {
+                    total = total.add(wallet.getBalance());
+                }
+            }
+            return new Portfolio(userId, wallets.stream().map(WalletSnapshot::of).toList(), Map.copyOf(balances),
+                    total);
+        }
+
+        public Optional<WalletSnapshot> defaultWallet() {
+            return wallets.stream().filter(WalletSnapshot::isDefault).findFirst();
+        }
+    }
+
+    public record WalletSnapshot(
+            Long id,
+            String walletAddress,
+            String walletName,
+            Wallet.WalletType type,
+            Wallet.WalletStatus status,
+            BigDecimal balance,
+            String currencyCode,
+            boolean isDefault,
+            BigDecimal dailyLimit,
+            BigDecimal monthlyLimit) {
+
+        static WalletSnapshot of(Wallet wallet) {
+            return new WalletSnapshot(
+                    wallet.getId(),
+                    wallet.getWalletAddress(),
+                    wallet.getWalletName(),
+                    wallet.getType(),
+                    wallet.getStatus(),
+                    wallet.getBalance(),
+                    wallet.getCurrencyCode(),
+                    Boolean.TRUE.equals(wallet.getIsDefault()),
+                    wallet.getDailyLimit(),
+                    wallet.getMonthlyLimit());
+        }
+    }
+}
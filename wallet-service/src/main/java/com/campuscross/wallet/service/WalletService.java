@@ -3,16 +3,19 @@ package com.campuscross.wallet.service;
 import com.campuscross.wallet.entity.Wallet;
 import com.campuscross.wallet.entity.User;
 import com.campuscross.wallet.repository.WalletRepository;
+import com.campuscross.wallet.service.fx.CurrencyValuationService;
+import com.campuscross.wallet.util.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +23,11 @@ import java.util.UUID;
 public class WalletService {
     
     private final WalletRepository walletRepository;
+    private final LedgerService ledgerService;
+    private final IdGenerator idGenerator;
+    private final ReadYourWrites readYourWrites;
+    private final WalletPortfolioCache walletPortfolioCache;
+    private final CurrencyValuationService currencyValuationService;
     
     @Transactional
     public Wallet createDefaultWallet(User user) {
@@ -41,7 +49,7 @@ public class WalletService {
         
         Wallet wallet = Wallet.builder()
                 .user(user)
-                .walletAddress(generateWalletAddress())
+                .walletAddress(idGenerator.nextWalletAddress())
                 .walletName(walletName)
                 .type(type)
                 .status(Wallet.WalletStatus.ACTIVE)
@@ -53,6 +61,8 @@ public class WalletService {
                 .build();
         
         wallet = walletRepository.save(wallet);
+        ledgerService.recordOpeningBalance(wallet);
+        written(wallet);
         
         log.info("Created wallet {} for user: {}", wallet.getWalletAddress(), user.getEmail());
         return wallet;
@@ -60,42 +70,93 @@ public class WalletService {
     
     @Transactional
     public Wallet addFunds(Long walletId, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new RuntimeException("Amount must be positive");
-        }
-        
-        Wallet wallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> new RuntimeException("Wallet not found"));
-        
-        if (wallet.getStatus() != Wallet.WalletStatus.ACTIVE) {
-            throw new RuntimeException("Wallet is not active");
-        }
-        
-        wallet.addBalance(amount);
-        wallet = walletRepository.save(wallet);
+        credit(walletId, amount);
         
+        Wallet wallet = getWalletById(walletId);
+        ledgerService.recordAdjustment(idGenerator.nextAdjustmentId(), walletId, amount, wallet.getCurrencyCode());
+        written(wallet);
         log.info("Added {} to wallet {}", amount, wallet.getWalletAddress());
         return wallet;
     }
     
     @Transactional
     public Wallet deductFunds(Long walletId, BigDecimal amount) {
+        debit(walletId, amount);
+        
+        Wallet wallet = getWalletById(walletId);
+        ledgerService.recordAdjustment(idGenerator.nextAdjustmentId(), walletId, amount.negate(), wallet.getCurrencyCode());
+        written(wallet);
+        log.info("Deducted {} from wallet {}", amount, wallet.getWalletAddress());
+        return wallet;
+    }
+    
+    /**
+     * Credits the wallet with a single conditional UPDATE, without loading it first.
+     */
+    @Transactional
+    public void credit(Long walletId, BigDecimal amount) {
+        if (!tryCredit(walletId, amount)) {
+            getWalletById(walletId);
+            throw new RuntimeException("Wallet is not active");
+        }
+    }
+    
+    /**
+     * Debits the wallet with a single conditional UPDATE. Balance and spending limits are
+     * enforced by the statement itself, so concurrent debits can never overdraw the wallet.
+     */
+    @Transactional
+    public void debit(Long walletId, BigDecimal amount) {
+        if (!tryDebit(walletId, amount)) {
+            getWalletById(walletId);
+            throw new RuntimeException("Insufficient balance or limit exceeded");
+        }
+    }
+    
+    /**
+     * Debits one wallet and credits another, issuing the two UPDATEs in ascending wallet id
+     * order. Transfers that run without {@link WalletLockManager} locks take the row locks
+     * through these UPDATEs alone, so two opposite transfers between the same wallets must
+     * reach them in the same order or they deadlock.
+     */
+    @Transactional
+    public void transfer(Long sourceWalletId, BigDecimal debitAmount, Long targetWalletId, BigDecimal creditAmount) {
+        if (sourceWalletId < targetWalletId) {
+            debit(sourceWalletId, debitAmount);
+            credit(targetWalletId, creditAmount);
+        } else {
+            credit(targetWalletId, creditAmount);
+            debit(sourceWalletId, debitAmount);
+        }
+    }
+    
+    /**
+     * Same as {@link #credit} but reports a refused credit through the return value, so callers
+     * applying several operations in one transaction are not forced into a rollback.
+     */
+    @Transactional
+    public boolean tryCredit(Long walletId, BigDecimal amount) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new RuntimeException("Amount must be positive");
         }
         
-        Wallet wallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> new RuntimeException("Wallet not found"));
-        
-        if (!wallet.canSpend(amount)) {
-            throw new RuntimeException("Insufficient balance or limit exceeded");
+        return walletRepository.creditIfActive(walletId, amount, LocalDateTime.now()) > 0;
+    }
+    
+    /**
+     * Same as {@link #debit} but reports a refused debit through the return value.
+     */
+    @Transactional
+    public boolean tryDebit(Long walletId, BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new RuntimeException("Amount must be positive");
         }
         
-        wallet.deductBalance(amount);
-        wallet = walletRepository.save(wallet);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime dayStart = now.toLocalDate().atStartOfDay();
+        LocalDateTime monthStart = dayStart.withDayOfMonth(1);
         
-        log.info("Deducted {} from wallet {}", amount, wallet.getWalletAddress());
-        return wallet;
+        return walletRepository.debitIfAllowed(walletId, amount, now, dayStart, monthStart) > 0;
     }
     
     @Transactional
@@ -105,6 +166,7 @@ public class WalletService {
         
         wallet.setStatus(Wallet.WalletStatus.FROZEN);
         walletRepository.save(wallet);
+        written(wallet);
         
         log.warn("Wallet {} frozen. Reason: {}", wallet.getWalletAddress(), reason);
     }
@@ -116,6 +178,7 @@ public class WalletService {
         
         wallet.setStatus(Wallet.WalletStatus.ACTIVE);
         walletRepository.save(wallet);
+        written(wallet);
         
         log.info("Wallet {} unfrozen", wallet.getWalletAddress());
     }
@@ -131,6 +194,7 @@ public class WalletService {
         
         wallet.setStatus(Wallet.WalletStatus.CLOSED);
         walletRepository.save(wallet);
+        written(wallet);
         
         log.info("Wallet {} closed", wallet.getWalletAddress());
     }
@@ -142,6 +206,7 @@ public class WalletService {
         
         wallet.setDailyLimit(limit);
         walletRepository.save(wallet);
+        written(wallet);
         
         log.info("Daily limit set to {} for wallet {}", limit, wallet.getWalletAddress());
         return wallet;
@@ -154,24 +219,44 @@ public class WalletService {
         
         wallet.setMonthlyLimit(limit);
         walletRepository.save(wallet);
+        written(wallet);
         
         log.info("Monthly limit set to {} for wallet {}", limit, wallet.getWalletAddress());
         return wallet;
     }
     
+    @Transactional(readOnly = true)
     public List<Wallet> getUserWallets(String userId) {
         return walletRepository.findByUserId(userId);
     }
     
+    @Transactional(readOnly = true)
     public Wallet getDefaultWallet(String userId) {
         return walletRepository.findByUserIdAndIsDefaultTrue(userId)
                 .orElseThrow(() -> new RuntimeException("Default wallet not found"));
     }
     
+    @Transactional(readOnly = true)
     public Wallet getWalletByAddress(String walletAddress) {
         return walletRepository.findByWalletAddress(walletAddress)
                 .orElseThrow(() -> new RuntimeException("Wallet not found"));
     }
+
+    /**
+     * Resolves several wallet addresses with one query. Unknown addresses are absent from
+     * the result.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Wallet> getWalletsByAddress(Collection<String> walletAddresses) {
+        if (walletAddresses.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Wallet> wallets = new HashMap<>();
+        for (Wallet wallet : walletRepository.findByWalletAddressIn(walletAddresses)) {
+            wallets.put(wallet.getWalletAddress(), wallet);
+        }
+        return wallets;
+    }
     
 
     public Wallet getWalletById(Long walletId) {
@@ -181,15 +266,33 @@ public class WalletService {
     
 
 
+    /**
+     * A snapshot of the user's wallets and balances, cached until one of them changes
+     */
+    public WalletPortfolioCache.Portfolio getPortfolio(String userId) {
+        return walletPortfolioCache.get(userId);
+    }
+
     public BigDecimal getTotalBalance(String userId) {
-        return walletRepository.getTotalBalanceByUserId(userId);
+        return getPortfolio(userId).totalBalance();
+    }
+
+    /**
+     * The user's active balances converted to one currency, by default the base currency,
+     * with the in-memory exchange rates
+     */
+    public CurrencyValuationService.Valuation getTotalBalance(String userId, String currencyCode) {
+        String currency = currencyCode == null || currencyCode.isBlank()
+                ? currencyValuationService.baseCurrency()
+                : currencyCode.trim().toUpperCase();
+        return currencyValuationService.value(getPortfolio(userId), currency);
     }
 
     /**
      * Return the balance for the given wallet/user in the requested currency.
      * If the provided wallet is already the requested currency, its balance is returned.
-     * Otherwise we look up another wallet for the same user having the requested currency
-     * and return its balance (or BigDecimal.ZERO when none found).
+     * Otherwise we return what the user's other wallets hold in the requested currency
+     * (or BigDecimal.ZERO when none found).
      */
     public BigDecimal getBalanceByCurrency(Long walletId, String currencyCode) {
         Wallet wallet = getWalletById(walletId);
@@ -197,22 +300,15 @@ public class WalletService {
             return wallet.getBalance();
         }
 
-        return walletRepository.findByUserIdAndCurrencyCode(wallet.getUser().getId(), currencyCode)
-                .map(Wallet::getBalance)
-                .orElse(BigDecimal.ZERO);
+        return getPortfolio(wallet.getUser().getStudentId()).balances()
+                .getOrDefault(currencyCode, BigDecimal.ZERO);
     }
 
     /**
      * Return a map of currency code -> total balance across all wallets for the user.
      */
     public Map<String, BigDecimal> getBalancesByUserId(String userId) {
-        List<Wallet> wallets = walletRepository.findByUserId(userId);
-        Map<String, BigDecimal> balances = new HashMap<>();
-        for (Wallet w : wallets) {
-            String code = w.getCurrencyCode() == null ? "UNKNOWN" : w.getCurrencyCode();
-            balances.merge(code, w.getBalance(), BigDecimal::add);
-        }
-        return balances;
+        return new HashMap<>(getPortfolio(userId).balances());
     }
     
 
@@ -230,11 +326,17 @@ public class WalletService {
         }
         
         walletRepository.delete(wallet);
+        written(wallet);
     }
-    
 
-
-    private String generateWalletAddress() {
-        return "WLT-" + UUID.randomUUID().toString().replace("-", "").toUpperCase().substring(0, 16);
+    /**
+     * Reads of the wallet's owner go to the primary for a while after this commits, and
+     * their cached portfolio is dropped
+     */
+    private void written(Wallet wallet) {
+        String userId = wallet.getUser().getStudentId();
+        readYourWrites.recordOnCommit(userId);
+        walletPortfolioCache.evictOnCommit(userId);
     }
+    
 }
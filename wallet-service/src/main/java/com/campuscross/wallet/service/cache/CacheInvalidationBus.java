@@ -0,0 +1,150 @@
+package com.campuscross.wallet.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the in-process caches of several wallet-service instances coherent. After a change
+ * commits, the instance that made it publishes a compact message (entity type, id, version)
+ * and every other instance evicts its own copy.
+ *
+ * Versions come from one sequence shared by all instances, so they also order messages
+ * from different instances. A cache remembers the version the bus had reached when it
+ * loaded an entry, and ignores older messages for it. A gap in the sequence means messages
+ * were lost, for example while disconnected, and every cache is flushed; until messages
+ * arrive again without gaps the bus reports itself out of sync and caches should not store
+ * anything.
+ */
+@Slf4j
+public abstract class CacheInvalidationBus {
+
+    /**
+     * Receives the messages published by other instances for one entity type
+     */
+    public interface Listener {
+
+        void invalidate(String id, long version);
+
+        /**
+         * Drops everything: messages may have been lost
+         */
+        void flush();
+    }
+
+    private final String origin = UUID.randomUUID().toString();
+    private final Map<String, Listener> listeners = new ConcurrentHashMap<>();
+    private final Counter published;
+    private final Counter received;
+    private final Counter flushes;
+
+    private long lastVersion;
+    private volatile boolean inSync;
+
+    protected CacheInvalidationBus(MeterRegistry meterRegistry, boolean inSync) {
+        this.inSync = inSync;
+        this.published = meterRegistry.counter("wallet.cache-bus.messages", "direction", "published");
+        this.received = meterRegistry.counter("wallet.cache-bus.messages", "direction", "received");
+        this.flushes = Counter.builder("wallet.cache-bus.flushes")
+                .description("Full cache flushes after messages were lost")
+                .register(meterRegistry);
+        Gauge.builder("wallet.cache-bus.in-sync", this, bus -> bus.isInSync() ? 1 : 0)
+                .description("Whether invalidations are arriving without gaps")
+                .register(meterRegistry);
+    }
+
+    public void subscribe(String entity, Listener listener) {
+        listeners.put(entity, listener);
+    }
+
+    /**
+     * Announces that the given entities changed. Call once the change has committed.
+     */
+    public void publish(String entity, String... ids) {
+        for (String id : ids) {
+            if (id == null) {
+                continue;
+            }
+            try {
+                send(new InvalidationMessage(0, origin, entity, id));
+                published.increment();
+            } catch (RuntimeException e) {
+                // The other instances will not hear of this change; neither side can tell
+                log.warn("Could not publish invalidation of {} {}: {}", entity, id, e.getMessage());
+                lost();
+            }
+        }
+    }
+
+    /**
+     * The highest version received so far. An entry loaded after reading it already reflects
+     * every change up to that version.
+     */
+    public synchronized long version() {
+        return lastVersion;
+    }
+
+    public boolean isInSync() {
+        return inSync;
+    }
+
+    /**
+     * Sends the message to every instance, including this one; the transport assigns the
+     * version
+     */
+    protected abstract void send(InvalidationMessage message);
+
+    /**
+     * Handles one message from the transport, in the order the transport assigned versions
+     */
+    protected void receive(InvalidationMessage message) {
+        received.increment();
+        synchronized (this) {
+            if (message.version() <= lastVersion) {
+                return;
+            }
+            boolean gap = lastVersion != 0 && message.version() != lastVersion + 1;
+            if (gap || !inSync) {
+                log.info("Cache invalidations resynchronized at version {} ({})", message.version(),
+                        gap ? "missed " + (message.version() - lastVersion - 1) + " messages" : "reconnected");
+                flushAll();
+                inSync = true;
+            }
+            lastVersion = message.version();
+        }
+        if (origin.equals(message.origin())) {
+            // Evicted locally when the change committed
+            return;
+        }
+        Listener listener = listeners.get(message.entity());
+        if (listener != null) {
+            listener.invalidate(message.id(), message.version());
+        }
+    }
+
+    /**
+     * Called when messages may have been or may be lost: flushes every cache now and again
+     * when messages arrive, since there is no telling what was missed in between
+     */
+    protected void lost() {
+        synchronized (this) {
+            if (!inSync) {
+                return;
+            }
+            inSync = false;
+            lastVersion = 0;
+        }
+        log.warn("Cache invalidations out of sync, flushing local caches");
+        flushAll();
+    }
+
+    private void flushAll() {
+        flushes.increment();
+        listeners.values().forEach(Listener::flush);
+    }
+}
@@ -0,0 +1,24 @@
+package com.campuscross.wallet.service.cache;
+
+/**
+ * One invalidation on the bus, encoded as {@code version|origin|entity|id}
+ *
+ * @param origin the instance that published it
+ */
+public record InvalidationMessage(long version, String origin, String entity, String id) {
+
+    /**
+     * The message without its version, which the transport prepends
+     */
+    public String encodeUnversioned() {
+        return origin + '|' + entity + '|' + id;
+    }
+
+    public static InvalidationMessage decode(String encoded) {
+        String[] parts = encoded.split("\\|", 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed invalidation message: " + encoded);
+        }
+        return new InvalidationMessage(Long.parseLong(parts[0]), parts[1], parts[2], parts[3]);
+    }
+}
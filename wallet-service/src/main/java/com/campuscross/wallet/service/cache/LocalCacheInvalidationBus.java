@@ -0,0 +1,23 @@
+package com.campuscross.wallet.service.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for a single instance: messages go straight back to this instance, which already
+ * evicted its own copy. Used when no shared bus is configured.
+ */
+public class LocalCacheInvalidationBus extends CacheInvalidationBus {
+
+    private final AtomicLong versions = new AtomicLong();
+
+    public LocalCacheInvalidationBus(MeterRegistry meterRegistry) {
+        super(meterRegistry, true);
+    }
+
+    @Override
+    protected synchronized void send(InvalidationMessage message) {
+        receive(new InvalidationMessage(versions.incrementAndGet(), message.origin(), message.entity(), message.id()));
+    }
+}
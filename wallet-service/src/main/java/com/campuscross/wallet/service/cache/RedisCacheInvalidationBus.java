@@ -0,0 +1,75 @@
+package com.campuscross.wallet.service.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Invalidation bus over Redis pub/sub. A script takes the next version from a counter and
+ * publishes the message in one step, so versions reach every subscriber in order and without
+ * gaps unless messages were lost.
+ *
+ * Pub/sub does not replay what a disconnected subscriber missed. Every instance publishes a
+ * heartbeat, and one that hears nothing for {@code wallet.cache-bus.redis.timeout-ms}
+ * considers itself disconnected and flushes its caches, again once messages resume.
+ */
+@Slf4j
+public class RedisCacheInvalidationBus extends CacheInvalidationBus implements MessageListener {
+
+    private static final String HEARTBEAT = "heartbeat";
+
+    private static final RedisScript<Long> PUBLISH = RedisScript.of(
+            "local version = redis.call('INCR', KEYS[1]) "
+                    + "redis.call('PUBLISH', ARGV[1], version .. '|' .. ARGV[2]) "
+                    + "return version",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final String versionKey;
+    private final long timeoutMs;
+
+    private volatile long lastReceivedAt = System.currentTimeMillis();
+
+    public RedisCacheInvalidationBus(StringRedisTemplate redisTemplate,
+                                     MeterRegistry meterRegistry,
+                                     String channel,
+                                     long timeoutMs) {
+        super(meterRegistry, false);
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        this.versionKey = channel + ":version";
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    protected void send(InvalidationMessage message) {
+        redisTemplate.execute(PUBLISH, List.of(versionKey), channel, message.encodeUnversioned());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        lastReceivedAt = System.currentTimeMillis();
+        try {
+            receive(InvalidationMessage.decode(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring cache invalidation: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.cache-bus.redis.heartbeat-ms:1000}")
+    public void heartbeat() {
+        publish(HEARTBEAT, "-");
+        if (isInSync() && System.currentTimeMillis() - lastReceivedAt > timeoutMs) {
+            log.warn("No cache invalidations received for {} ms", System.currentTimeMillis() - lastReceivedAt);
+            lost();
+        }
+    }
+}
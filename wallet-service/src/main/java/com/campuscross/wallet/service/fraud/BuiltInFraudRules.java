@@ -0,0 +1,290 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.service.TransferGraph;
+import com.campuscross.wallet.service.VelocityTracker;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The rule types shipped with the service, and the default rule set seeded into
+ * {@code fraud_rules} when the table is empty. The defaults reproduce the thresholds that used
+ * to be hard-coded in {@link com.campuscross.wallet.service.FraudDetectionService}.
+ */
+@Configuration
+public class BuiltInFraudRules {
+
+    // Rough per-evaluation costs in microseconds
+    private static final int COST_FIELD_CHECK = 1;
+    private static final int COST_IN_MEMORY_LOOKUP = 10;
+    private static final int COST_GRAPH_SEARCH = 50;
+    private static final int COST_DATABASE_QUERY = 2_000;
+
+    /**
+     * amount > threshold
+     */
+    @Bean
+    public FraudRuleFactory amountAboveRuleFactory() {
+        return factory("AMOUNT_ABOVE", definition -> {
+            BigDecimal threshold = definition.decimalParam("threshold", new BigDecimal("10000"));
+            return new SimpleFraudRule(definition.getName(), EnumSet.of(FraudInput.AMOUNT), COST_FIELD_CHECK,
+                    c -> c.amount().compareTo(threshold) > 0,
+                    c -> "Amount " + c.amount() + " above " + threshold);
+        });
+    }
+
+    /**
+     * amount > minAmount and a whole multiple of {@code multiple} (potential money laundering)
+     */
+    @Bean
+    public FraudRuleFactory roundAmountRuleFactory() {
+        return factory("ROUND_AMOUNT", definition -> {
+            BigDecimal multiple = definition.decimalParam("multiple", new BigDecimal("100"));
+            BigDecimal minAmount = definition.decimalParam("minAmount", new BigDecimal("5000"));
+            return new SimpleFraudRule(definition.getName(), EnumSet.of(FraudInput.AMOUNT), COST_FIELD_CHECK,
+                    c -> c.amount().scale() <= 2
+                            && c.amount().remainder(multiple).signum() == 0
+                            && c.amount().compareTo(minAmount) > 0,
+                    c -> "Round amount " + c.amount());
+        });
+    }
+
+    /**
+     * Both wallets belong to the same user and hold the same currency
+     */
+    @Bean
+    public FraudRuleFactory sameOwnerRuleFactory() {
+        return factory("SAME_OWNER", definition ->
+                new SimpleFraudRule(definition.getName(), EnumSet.of(FraudInput.OWNERS), COST_FIELD_CHECK,
+                        c -> c.targetUserId() != null
+                                && c.sourceUserId().equals(c.targetUserId())
+                                && c.sourceCurrency().equals(c.targetCurrency()),
+                        c -> "Transfer between wallets of the same user"));
+    }
+
+    /**
+     * Sender and recipient are registered at different campuses
+     */
+    @Bean
+    public FraudRuleFactory crossCampusRuleFactory() {
+        return factory("CROSS_CAMPUS", definition ->
+                new SimpleFraudRule(definition.getName(), EnumSet.of(FraudInput.OWNERS), COST_FIELD_CHECK,
+                        c -> c.sourceCampus() != null
+                                && c.targetCampus() != null
+                                && !c.sourceCampus().equals(c.targetCampus()),
+                        c -> "Cross-campus transfer from " + c.sourceCampus() + " to " + c.targetCampus()));
+    }
+
+    /**
+     * Merchant id is in the configured list
+     */
+    @Bean
+    public FraudRuleFactory merchantInListRuleFactory() {
+        return factory("MERCHANT_IN_LIST", definition -> {
+            Set<String> merchantIds = Set.copyOf(definition.listParam("merchantIds"));
+            return new SimpleFraudRule(definition.getName(), EnumSet.of(FraudInput.MERCHANT), COST_IN_MEMORY_LOOKUP,
+                    c -> c.merchantId() != null && merchantIds.contains(c.merchantId()),
+                    c -> "Merchant " + c.merchantId() + " is blocked");
+        });
+    }
+
+    /**
+     * Merchant is in the {@link MerchantBlocklist}
+     */
+    @Bean
+    public FraudRuleFactory merchantBlocklistRuleFactory(MerchantBlocklist merchantBlocklist) {
+        return factory("MERCHANT_BLOCKLIST", definition ->
+                new SimpleFraudRule(definition.getName(), EnumSet.of(FraudInput.MERCHANT), COST_IN_MEMORY_LOOKUP,
+                        c -> merchantBlocklist.isBlocked(c.merchantId()),
+                        c -> "Merchant " + c.merchantId() + " is blocked"));
+    }
+
+    /**
+     * The transfer closes a cycle of minLength to maxLength wallets through recent P2P transfers
+     * (funds returning to their source through a ring). Searches the in-memory {@link TransferGraph}
+     * once per evaluation; the cycle found is the reason.
+     */
+    @Bean
+    public FraudRuleFactory transferRingRuleFactory(TransferGraph transferGraph) {
+        return factory("TRANSFER_RING", definition -> {
+            int minLength = definition.intParam("minLength", 3);
+            int maxLength = definition.intParam("maxLength", 5);
+            return new SearchFraudRule(definition.getName(), EnumSet.of(FraudInput.WALLETS, FraudInput.TRANSACTION_HISTORY),
+                    COST_GRAPH_SEARCH,
+                    c -> {
+                        if (c.targetWalletId() == null) {
+                            return null;
+                        }
+                        long[] cycle = transferGraph.findCycle(c.sourceWalletId(), c.targetWalletId(), minLength, maxLength);
+                        return cycle == null ? null
+                                : "Transfer ring through wallets " + Arrays.stream(cycle)
+                                        .mapToObj(Long::toString).collect(Collectors.joining(" -> "));
+                    });
+        });
+    }
+
+    /**
+     * More than maxPerHour / maxPerDay outgoing transactions from the source wallet. Reads the
+     * in-memory velocity counters, or one index range scan when they are not authoritative;
+     * the cost estimate follows, so the rule moves between the inline and parallel stages.
+     */
+    @Bean
+    public FraudRuleFactory highFrequencyRuleFactory(VelocityTracker velocityTracker,
+                                                     TransactionRepository transactionRepository) {
+        return factory("HIGH_FREQUENCY", definition -> {
+            int maxPerHour = definition.intParam("maxPerHour", 10);
+            int maxPerDay = definition.intParam("maxPerDay", 50);
+            return new SimpleFraudRule(definition.getName(),
+                    EnumSet.of(FraudInput.VELOCITY, FraudInput.TRANSACTION_HISTORY),
+                    velocityTracker.isAuthoritative() ? COST_IN_MEMORY_LOOKUP : COST_DATABASE_QUERY,
+                    () -> !velocityTracker.isAuthoritative(),
+                    c -> {
+                        long unrecorded = c.unrecorded().count();
+                        OutgoingWindows windows = OutgoingWindows.read(velocityTracker, transactionRepository,
+                                c.sourceWalletId());
+                        return windows.hour().count() + unrecorded > maxPerHour
+                                || windows.day().count() + unrecorded > maxPerDay;
+                    },
+                    c -> "High transaction frequency from wallet " + c.sourceWalletAddress());
+        });
+    }
+
+    /**
+     * More than maxPerPair transfers to the same target within windowMinutes. The in-memory
+     * pair counters cover five minutes; other windows always query the database.
+     */
+    @Bean
+    public FraudRuleFactory rapidRepeatRuleFactory(VelocityTracker velocityTracker,
+                                                   TransactionRepository transactionRepository) {
+        return factory("RAPID_REPEAT", definition -> {
+            int maxPerPair = definition.intParam("maxPerPair", 3);
+            int windowMinutes = definition.intParam("windowMinutes", 5);
+            boolean inMemory = windowMinutes == VelocityTracker.PAIR_WINDOW_MINUTES;
+            return new SimpleFraudRule(definition.getName(),
+                    EnumSet.of(FraudInput.VELOCITY, FraudInput.TRANSACTION_HISTORY),
+                    inMemory && velocityTracker.isAuthoritative() ? COST_IN_MEMORY_LOOKUP : COST_DATABASE_QUERY,
+                    () -> !(inMemory && velocityTracker.isAuthoritative()),
+                    c -> {
+                        if (c.targetWalletId() == null) {
+                            return false;
+                        }
+                        if (inMemory && velocityTracker.isAuthoritative()) {
+                            return velocityTracker.recentPairCount(c.sourceWalletId(), c.targetWalletId())
+                                    + c.unrecorded().pairCount() > maxPerPair;
+                        }
+                        return transactionRepository.countBetweenSince(c.sourceWalletId(), c.targetWalletId(),
+                                LocalDateTime.now().minusMinutes(windowMinutes)) + c.unrecorded().pairCount() > maxPerPair;
+                    },
+                    c -> "Rapid repeated transfers to the same wallet");
+        });
+    }
+
+    /**
+     * Rule set seeded when {@code fraud_rules} is empty, also used when it cannot be read.
+     * Every check that used to be hard-coded still blocks the payment.
+     */
+    public static List<FraudRuleDefinition> defaultDefinitions() {
+        return defaultDefinitions(false);
+    }
+
+    /**
+     * @param asyncPatternChecks whether the same-owner, round-amount and cross-campus checks
+     *                           flag payments after commit instead of blocking them
+     */
+    public static List<FraudRuleDefinition> defaultDefinitions(boolean asyncPatternChecks) {
+        FraudRuleDefinition.Mode patternMode = asyncPatternChecks
+                ? FraudRuleDefinition.Mode.ASYNC
+                : FraudRuleDefinition.Mode.BLOCKING;
+        return List.of(
+                definition("p2p-high-value", "AMOUNT_ABOVE", "P2P_TRANSFER", Map.of("threshold", "10000")),
+                definition("p2p-high-frequency", "HIGH_FREQUENCY", "P2P_TRANSFER",
+                        Map.of("maxPerHour", 10, "maxPerDay", 50)),
+                definition("p2p-same-owner", "SAME_OWNER", "P2P_TRANSFER", Map.of(), patternMode),
+                definition("p2p-rapid-repeat", "RAPID_REPEAT", "P2P_TRANSFER",
+                        Map.of("maxPerPair", 3, "windowMinutes", 5)),
+                definition("p2p-round-amount", "ROUND_AMOUNT", "P2P_TRANSFER",
+                        Map.of("multiple", "100", "minAmount", "5000"), patternMode),
+                definition("p2p-transfer-ring", "TRANSFER_RING", "P2P_TRANSFER",
+                        Map.of("minLength", 3, "maxLength", 5), FraudRuleDefinition.Mode.ASYNC),
+                definition("campus-high-value", "AMOUNT_ABOVE", "CAMPUS_PAYMENT", Map.of("threshold", "1000")),
+                definition("campus-blocked-merchant", "MERCHANT_BLOCKLIST", "CAMPUS_PAYMENT", Map.of()),
+                definition("remittance-high-value", "AMOUNT_ABOVE", "REMITTANCE_OUTBOUND", Map.of("threshold", "5000")),
+                definition("remittance-cross-campus", "CROSS_CAMPUS", "REMITTANCE_OUTBOUND", Map.of(),
+                        patternMode));
+    }
+
+    private static FraudRuleDefinition definition(String name, String type, String appliesTo,
+                                                  Map<String, Object> params) {
+        return definition(name, type, appliesTo, params, FraudRuleDefinition.Mode.BLOCKING);
+    }
+
+    private static FraudRuleDefinition definition(String name, String type, String appliesTo,
+                                                  Map<String, Object> params, FraudRuleDefinition.Mode mode) {
+        return FraudRuleDefinition.builder()
+                .name(name)
+                .ruleType(type)
+                .appliesTo(appliesTo)
+                .params(params)
+                .enabled(true)
+                .mode(mode)
+                .action(FraudRuleDefinition.Action.FLAG)
+                .build();
+    }
+
+    /**
+     * A wallet's outgoing totals over the last hour and the last day
+     */
+    private record OutgoingWindows(VelocityTracker.WindowStats hour, VelocityTracker.WindowStats day) {
+
+        /**
+         * From the velocity counters when they are authoritative, otherwise with one query
+         */
+        static OutgoingWindows read(VelocityTracker velocityTracker, TransactionRepository transactionRepository,
+                                    Long walletId) {
+            if (velocityTracker.isAuthoritative()) {
+                return new OutgoingWindows(velocityTracker.lastHour(walletId), velocityTracker.lastDay(walletId));
+            }
+            LocalDateTime now = LocalDateTime.now();
+            long hourCount = 0;
+            long dayCount = 0;
+            Map<String, BigDecimal> hourAmounts = new HashMap<>();
+            Map<String, BigDecimal> dayAmounts = new HashMap<>();
+            for (Object[] row : transactionRepository.sumOutgoingSince(walletId, now.minusDays(1), now.minusHours(1))) {
+                String currency = (String) row[0];
+                dayCount += ((Number) row[1]).longValue();
+                dayAmounts.put(currency, (BigDecimal) row[2]);
+                hourCount += ((Number) row[3]).longValue();
+                hourAmounts.put(currency, (BigDecimal) row[4]);
+            }
+            return new OutgoingWindows(new VelocityTracker.WindowStats(hourCount, hourAmounts),
+                    new VelocityTracker.WindowStats(dayCount, dayAmounts));
+        }
+    }
+
+    private static FraudRuleFactory factory(String type,
+                                            Function<FraudRuleDefinition, FraudRule> builder) {
+        return new FraudRuleFactory() {
+            @Override
+            public String type() {
+                return type;
+            }
+
+            @Override
+            public FraudRule create(FraudRuleDefinition definition) {
+                return builder.apply(definition);
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+
+import java.math.BigDecimal;
+
+/**
+ * Everything a fraud rule may look at, copied out of the entities on the calling thread so
+ * rules can run on other threads without touching the persistence context.
+ */
+public record FraudContext(
+        Transaction.TransactionType type,
+        Long sourceWalletId,
+        String sourceWalletAddress,
+        String sourceUserId,
+        String sourceCampus,
+        String sourceCurrency,
+        Long targetWalletId,
+        String targetUserId,
+        String targetCampus,
+        String targetCurrency,
+        BigDecimal amount,
+        String merchantId,
+        String ipAddress,
+        Unrecorded unrecorded) {
+
+    public static FraudContext of(Transaction.TransactionType type, Wallet source, Wallet target,
+                                  BigDecimal amount, String merchantId, String ipAddress) {
+        User sourceUser = source.getUser();
+        User targetUser = target != null ? target.getUser() : null;
+        return new FraudContext(
+                type,
+                source.getId(),
+                source.getWalletAddress(),
+                sourceUser.getId(),
+                sourceUser.getCampusName(),
+                source.getCurrencyCode(),
+                target != null ? target.getId() : null,
+                targetUser != null ? targetUser.getId() : null,
+                targetUser != null ? targetUser.getCampusName() : null,
+                target != null ? target.getCurrencyCode() : null,
+                amount,
+                merchantId,
+                ipAddress,
+                Unrecorded.NONE);
+    }
+
+    /**
+     * The same context, counting payments from the source wallet that have been accepted but
+     * are not in the velocity counters or the transactions table yet
+     */
+    public FraudContext withUnrecorded(Unrecorded unrecorded) {
+        return new FraudContext(type, sourceWalletId, sourceWalletAddress, sourceUserId, sourceCampus,
+                sourceCurrency, targetWalletId, targetUserId, targetCampus, targetCurrency, amount,
+                merchantId, ipAddress, unrecorded);
+    }
+
+    /**
+     * Earlier payments of a group commit from the same source wallet: how many, how many of
+     * them to the same target, and their total amount. Velocity rules add them to what they read.
+     */
+    public record Unrecorded(long count, long pairCount, BigDecimal amount) {
+
+        public static final Unrecorded NONE = new Unrecorded(0, 0, BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,13 @@
+package com.campuscross.wallet.service.fraud;
+
+/**
+ * Categories of data a fraud rule reads.
+ */
+public enum FraudInput {
+    AMOUNT,
+    WALLETS,
+    OWNERS,
+    MERCHANT,
+    VELOCITY,
+    TRANSACTION_HISTORY
+}
@@ -0,0 +1,50 @@
+package com.campuscross.wallet.service.fraud;
+
+import java.util.Set;
+
+/**
+ * A single fraud check. Rules are built by a {@link FraudRuleFactory} from a
+ * {@link com.campuscross.wallet.entity.FraudRuleDefinition} and must be thread-safe.
+ */
+public interface FraudRule {
+
+    /**
+     * Name of the definition this rule was built from; used in logs, metrics and flag reasons.
+     */
+    String name();
+
+    /**
+     * The data this rule reads.
+     */
+    Set<FraudInput> inputs();
+
+    /**
+     * Estimated cost of one evaluation in microseconds. Rules under the engine's threshold run
+     * inline in ascending cost order; more expensive rules run in parallel under the budget.
+     */
+    int estimatedCost();
+
+    boolean matches(FraudContext context);
+
+    /**
+     * Whether an evaluation right now would query the database. Such rules run on the calling
+     * thread, which already holds a connection, instead of taking another one from the small
+     * pool on an executor thread.
+     */
+    default boolean queriesDatabase() {
+        return false;
+    }
+
+    /**
+     * Human-readable reason, only called after {@link #matches} returned true.
+     */
+    String reason(FraudContext context);
+
+    /**
+     * The reason when the rule matches, null otherwise. The engine evaluates rules through
+     * this; rules whose reason repeats the work of the match override it to do that work once.
+     */
+    default String check(FraudContext context) {
+        return matches(context) ? reason(context) : null;
+    }
+}
@@ -0,0 +1,392 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.repository.FraudRuleDefinitionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates the configured fraud rules of a payment type under a fixed time budget.
+ *
+ * Rule definitions are read from {@code fraud_rules} and compiled into one immutable rule set
+ * per payment type, published through a volatile reference; reloads build a new set and swap
+ * it in, so evaluation never sees a half-built set. Within a set, rules whose estimated cost is
+ * below the parallel threshold run first on the calling thread, cheapest first, and stop at the
+ * first match. The remaining, expensive rules run in parallel on {@code fraudRuleExecutor};
+ * the first match wins and the rest are abandoned. If they do not finish within the budget the
+ * payment is let through (or blocked, see {@code wallet.fraud.fail-open-on-timeout}).
+ * Expensive rules that would query the database, such as the velocity checks while their
+ * counters are cold, are the exception: they run on the calling thread and its connection,
+ * alongside the parallel ones, and always run to completion. On executor threads they would
+ * compete for the few pooled connections the caller is already holding one of, and under load
+ * time out and let the payment through unchecked.
+ *
+ * ASYNC and SHADOW rules are compiled separately and evaluated after the payment commits,
+ * see {@link FraudScoringService}.
+ *
+ * Every rule records its latency, hits and errors, tagged with the rule name.
+ */
+@Service
+@Slf4j
+public class FraudRuleEngine {
+
+    private final FraudRuleDefinitionRepository definitionRepository;
+    private final Map<String, FraudRuleFactory> factories;
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final long budgetNanos;
+    private final int parallelCostThreshold;
+    private final boolean failOpenOnTimeout;
+    private final boolean asyncPatternChecks;
+    private final Counter budgetExceeded;
+    private final Map<String, RuleMeters> meters = new ConcurrentHashMap<>();
+
+    private volatile CompiledRules rules = new CompiledRules(Map.of(), Map.of(), Map.of());
+
+    public FraudRuleEngine(FraudRuleDefinitionRepository definitionRepository,
+                           List<FraudRuleFactory> factories,
+                           @Qualifier("fraudRuleExecutor") Executor executor,
+                           MeterRegistry meterRegistry,
+                           @Value("${wallet.fraud.budget-ms:200}") long budgetMs,
+                           @Value("${wallet.fraud.parallel-cost-threshold:1000}") int parallelCostThreshold,
+                           @Value("${wallet.fraud.fail-open-on-timeout:true}") boolean failOpenOnTimeout,
+                           @Value("${wallet.fraud.async-pattern-checks:false}") boolean asyncPatternChecks) {
+        this.definitionRepository = definitionRepository;
+        this.factories = factories.stream().collect(Collectors.toMap(FraudRuleFactory::type, Function.identity()));
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        this.parallelCostThreshold = parallelCostThreshold;
+        this.failOpenOnTimeout = failOpenOnTimeout;
+        this.asyncPatternChecks = asyncPatternChecks;
+        this.budgetExceeded = Counter.builder("wallet.fraud.budget.exceeded")
+                .description("Fraud evaluations whose parallel rules did not finish within the budget")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            if (definitionRepository.count() == 0) {
+                definitionRepository.saveAll(BuiltInFraudRules.defaultDefinitions(asyncPatternChecks));
+                log.info("Seeded default fraud rules");
+            }
+            reload();
+        } catch (RuntimeException e) {
+            log.error("Could not load fraud rules, using built-in defaults", e);
+            rules = compile(BuiltInFraudRules.defaultDefinitions(asyncPatternChecks));
+        }
+    }
+
+    /**
+     * Recompiles the rule sets from the enabled definitions. Also re-reads cost estimates that
+     * depend on runtime state, such as whether the velocity counters are warm.
+     *
+     * @return the number of compiled rules
+     */
+    public synchronized int reload() {
+        CompiledRules compiled = compile(definitionRepository.findByEnabledTrueOrderByName());
+        rules = compiled;
+        return compiled.size();
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.fraud.rules.refresh-interval-ms:30000}",
+            initialDelayString = "${wallet.fraud.rules.refresh-interval-ms:30000}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Fraud rule refresh failed, keeping the current rules: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Validates and stores a rule definition, then reloads the rule sets.
+     */
+    public FraudRuleDefinition saveDefinition(FraudRuleDefinition definition) {
+        // Fail before saving if the definition cannot be built
+        build(definition);
+        FraudRuleDefinition saved = definitionRepository.findByName(definition.getName())
+                .map(existing -> {
+                    existing.setRuleType(definition.getRuleType());
+                    existing.setAppliesTo(definition.getAppliesTo());
+                    existing.setParams(definition.getParams());
+                    existing.setEnabled(definition.isEnabled());
+                    existing.setMode(definition.getMode());
+                    existing.setAction(definition.getAction());
+                    return definitionRepository.save(existing);
+                })
+                .orElseGet(() -> definitionRepository.save(definition));
+        reload();
+        return saved;
+    }
+
+    /**
+     * Evaluates the BLOCKING rules for a payment that is about to execute.
+     */
+    public FraudVerdict evaluate(FraudContext context) {
+        RuleSet ruleSet = rules.blocking().get(context.type());
+        if (ruleSet == null) {
+            return FraudVerdict.CLEAR;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+
+        for (CompiledRule rule : ruleSet.inline()) {
+            String reason = rule.evaluate(context);
+            if (reason != null) {
+                return FraudVerdict.flagged(rule.name(), reason);
+            }
+        }
+        if (ruleSet.parallel().isEmpty()) {
+            return FraudVerdict.CLEAR;
+        }
+
+        CompletableFuture<FraudVerdict> verdict = new CompletableFuture<>();
+        List<CompletableFuture<Void>> running = new ArrayList<>(ruleSet.parallel().size());
+        List<CompiledRule> onCaller = new ArrayList<>();
+        for (CompiledRule rule : ruleSet.parallel()) {
+            if (rule.rule().queriesDatabase()) {
+                onCaller.add(rule);
+                continue;
+            }
+            running.add(CompletableFuture.runAsync(() -> {
+                String reason = verdict.isDone() ? null : rule.evaluate(context);
+                if (reason != null) {
+                    verdict.complete(FraudVerdict.flagged(rule.name(), reason));
+                }
+            }, executor));
+        }
+        for (CompiledRule rule : onCaller) {
+            if (verdict.isDone()) {
+                break;
+            }
+            String reason = rule.evaluate(context);
+            if (reason != null) {
+                verdict.complete(FraudVerdict.flagged(rule.name(), reason));
+            }
+        }
+        CompletableFuture.allOf(running.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> verdict.complete(FraudVerdict.CLEAR));
+
+        try {
+            return verdict.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            budgetExceeded.increment();
+            verdict.complete(FraudVerdict.CLEAR);
+            log.warn("Fraud rules for {} exceeded the {} ms budget", context.type(),
+                    TimeUnit.NANOSECONDS.toMillis(budgetNanos));
+            return failOpenOnTimeout
+                    ? FraudVerdict.CLEAR
+                    : FraudVerdict.flagged("budget", "Fraud checks did not complete in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during fraud checks");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Fraud checks failed", e.getCause());
+        }
+    }
+
+    /**
+     * Evaluates every ASYNC or SHADOW rule of the payment type on the calling thread and
+     * returns all matches, not just the first.
+     */
+    public List<RuleMatch> evaluateAll(FraudContext context, FraudRuleDefinition.Mode mode) {
+        Map<Transaction.TransactionType, List<CompiledRule>> byType = switch (mode) {
+            case ASYNC -> rules.async();
+            case SHADOW -> rules.shadow();
+            case BLOCKING -> throw new IllegalArgumentException("Use evaluate() for blocking rules");
+        };
+        List<RuleMatch> matches = new ArrayList<>();
+        for (CompiledRule rule : byType.getOrDefault(context.type(), List.of())) {
+            String reason = rule.evaluate(context);
+            if (reason != null) {
+                matches.add(new RuleMatch(rule.name(), reason, rule.action()));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Names of the SHADOW rules that apply to a payment type
+     */
+    public List<String> shadowRuleNames(Transaction.TransactionType type) {
+        return rules.shadow().getOrDefault(type, List.of()).stream().map(CompiledRule::name).toList();
+    }
+
+    /**
+     * Current rules with their stage and statistics
+     */
+    public List<RuleSummary> describe() {
+        List<RuleSummary> summaries = new ArrayList<>();
+        CompiledRules current = rules;
+        current.blocking().forEach((type, ruleSet) -> {
+            ruleSet.inline().forEach(rule -> summaries.add(summary(type, "INLINE", rule)));
+            ruleSet.parallel().forEach(rule -> summaries.add(summary(type, "PARALLEL", rule)));
+        });
+        current.async().forEach((type, list) -> list.forEach(rule -> summaries.add(summary(type, "ASYNC", rule))));
+        current.shadow().forEach((type, list) -> list.forEach(rule -> summaries.add(summary(type, "SHADOW", rule))));
+        return summaries;
+    }
+
+    private RuleSummary summary(Transaction.TransactionType type, String stage, CompiledRule rule) {
+        long evaluations = rule.meters().latency().count();
+        double hits = rule.meters().hits().count();
+        return new RuleSummary(rule.name(), type.toString(), stage, rule.rule().estimatedCost(),
+                rule.rule().inputs().stream().map(Enum::toString).sorted().toList(),
+                evaluations, (long) hits, evaluations == 0 ? 0.0 : hits / evaluations,
+                rule.meters().latency().mean(TimeUnit.MICROSECONDS),
+                (long) rule.meters().errors().count());
+    }
+
+    private CompiledRules compile(List<FraudRuleDefinition> definitions) {
+        Map<Transaction.TransactionType, List<CompiledRule>> byType = new EnumMap<>(Transaction.TransactionType.class);
+        Map<Transaction.TransactionType, List<CompiledRule>> async = new EnumMap<>(Transaction.TransactionType.class);
+        Map<Transaction.TransactionType, List<CompiledRule>> shadow = new EnumMap<>(Transaction.TransactionType.class);
+        for (FraudRuleDefinition definition : definitions) {
+            FraudRule rule;
+            try {
+                rule = build(definition);
+            } catch (RuntimeException e) {
+                log.error("Skipping fraud rule {}: {}", definition.getName(), e.getMessage());
+                continue;
+            }
+            CompiledRule compiled = new CompiledRule(rule, definition.getAction(), metersFor(rule.name()));
+            Map<Transaction.TransactionType, List<CompiledRule>> target = switch (definition.getMode()) {
+                case BLOCKING -> byType;
+                case ASYNC -> async;
+                case SHADOW -> shadow;
+            };
+            for (Transaction.TransactionType type : definition.appliesToTypes()) {
+                target.computeIfAbsent(type, t -> new ArrayList<>()).add(compiled);
+            }
+        }
+
+        Map<Transaction.TransactionType, RuleSet> compiled = new EnumMap<>(Transaction.TransactionType.class);
+        byType.forEach((type, rules) -> {
+            List<CompiledRule> sorted = rules.stream()
+                    .sorted(Comparator.comparingInt((CompiledRule r) -> r.rule().estimatedCost())
+                            .thenComparing(CompiledRule::name))
+                    .toList();
+            compiled.put(type, new RuleSet(
+                    sorted.stream().filter(r -> r.rule().estimatedCost() < parallelCostThreshold).toList(),
+                    sorted.stream().filter(r -> r.rule().estimatedCost() >= parallelCostThreshold).toList()));
+        });
+        return new CompiledRules(Collections.unmodifiableMap(compiled),
+                Collections.unmodifiableMap(async), Collections.unmodifiableMap(shadow));
+    }
+
+    private FraudRule build(FraudRuleDefinition definition) {
+        FraudRuleFactory factory = factories.get(definition.getRuleType());
+        if (factory == null) {
+            throw new RuntimeException("Unknown fraud rule type: " + definition.getRuleType());
+        }
+        if (definition.appliesToTypes().isEmpty()) {
+            throw new RuntimeException("Fraud rule " + definition.getName() + " applies to no payment type");
+        }
+        return factory.create(definition);
+    }
+
+    private RuleMeters metersFor(String ruleName) {
+        return meters.computeIfAbsent(ruleName, name -> new RuleMeters(
+                Timer.builder("wallet.fraud.rule.latency")
+                        .description("Time spent evaluating a fraud rule")
+                        .tag("rule", name)
+                        .register(meterRegistry),
+                Counter.builder("wallet.fraud.rule.hits")
+                        .description("Evaluations in which a fraud rule matched")
+                        .tag("rule", name)
+                        .register(meterRegistry),
+                Counter.builder("wallet.fraud.rule.errors")
+                        .description("Fraud rule evaluations that threw; they count as no match")
+                        .tag("rule", name)
+                        .register(meterRegistry)));
+    }
+
+    private record RuleMeters(Timer latency, Counter hits, Counter errors) {
+    }
+
+    private record CompiledRule(FraudRule rule, FraudRuleDefinition.Action action, RuleMeters meters) {
+
+        String name() {
+            return rule.name();
+        }
+
+        /**
+         * @return the reason when the rule matched, null when it did not or failed
+         */
+        String evaluate(FraudContext context) {
+            long start = System.nanoTime();
+            try {
+                String reason = rule.check(context);
+                if (reason != null) {
+                    meters.hits().increment();
+                }
+                return reason;
+            } catch (RuntimeException e) {
+                meters.errors().increment();
+                log.warn("Fraud rule {} failed: {}", rule.name(), e.getMessage());
+                return null;
+            } finally {
+                meters.latency().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private record RuleSet(List<CompiledRule> inline, List<CompiledRule> parallel) {
+
+        int size() {
+            return inline.size() + parallel.size();
+        }
+    }
+
+    private record CompiledRules(
+            Map<Transaction.TransactionType, RuleSet> blocking,
+            Map<Transaction.TransactionType, List<CompiledRule>> async,
+            Map<Transaction.TransactionType, List<CompiledRule>> shadow) {
+
+        int size() {
+            return blocking.values().stream().mapToInt(RuleSet::size).sum()
+                    + async.values().stream().mapToInt(List::size).sum()
+                    + shadow.values().stream().mapToInt(List::size).sum();
+        }
+    }
+
+    public record RuleMatch(String rule, String reason, FraudRuleDefinition.Action action) {
+    }
+
+    public record RuleSummary(
+            String name,
+            String appliesTo,
+            String stage,
+            int estimatedCost,
+            List<String> inputs,
+            long evaluations,
+            long hits,
+            double hitRate,
+            double meanLatencyMicros,
+            long errors) {
+    }
+}
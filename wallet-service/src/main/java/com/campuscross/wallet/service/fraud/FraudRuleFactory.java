@@ -0,0 +1,17 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+
+/**
+ * Builds rules of one type from their stored definitions. Every factory bean in the context
+ * is picked up by the {@link FraudRuleEngine}, so new rule types only need a new bean.
+ */
+public interface FraudRuleFactory {
+
+    /**
+     * Matches {@link FraudRuleDefinition#getRuleType()}.
+     */
+    String type();
+
+    FraudRule create(FraudRuleDefinition definition);
+}
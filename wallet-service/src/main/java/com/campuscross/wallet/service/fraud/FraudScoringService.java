@@ -0,0 +1,155 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.service.WalletService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Scores payments against the ASYNC and SHADOW fraud rules once they have committed, off the
+ * request thread.
+ *
+ * A matching ASYNC rule flags the transaction and, if its action is FREEZE, freezes the
+ * source wallet; the payment itself is not reversed. SHADOW rules are only evaluated and
+ * compared with what was actually enforced, so a candidate rule can be observed on live
+ * traffic before it is promoted: {@code wallet.fraud.shadow.divergence} counts, per rule,
+ * the payments it would have flagged that went through and the rejected payments it would
+ * have let through.
+ *
+ * Scoring runs on {@code fraudScoringExecutor}; when its queue is full the payment is not
+ * scored and {@code wallet.fraud.async.dropped} is incremented.
+ */
+@Service
+@Slf4j
+public class FraudScoringService {
+
+    private final FraudRuleEngine fraudRuleEngine;
+    private final TransactionRepository transactionRepository;
+    private final WalletService walletService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor scoringExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Counter dropped;
+
+    public FraudScoringService(FraudRuleEngine fraudRuleEngine,
+                               TransactionRepository transactionRepository,
+                               WalletService walletService,
+                               PlatformTransactionManager transactionManager,
+                               @Qualifier("fraudScoringExecutor") Executor scoringExecutor,
+                               MeterRegistry meterRegistry) {
+        this.fraudRuleEngine = fraudRuleEngine;
+        this.transactionRepository = transactionRepository;
+        this.walletService = walletService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scoringExecutor = scoringExecutor;
+        this.meterRegistry = meterRegistry;
+        this.dropped = meterRegistry.counter("wallet.fraud.async.dropped");
+    }
+
+    /**
+     * Schedules scoring of a payment for after the surrounding transaction commits. The rule
+     * context is captured now, while the wallets and users are still attached.
+     */
+    public void scoreAfterCommit(Transaction transaction) {
+        FraudContext context = FraudContext.of(transaction.getType(), transaction.getSourceWallet(),
+                transaction.getTargetWallet(),
+                transaction.getOriginalAmount() != null ? transaction.getOriginalAmount() : transaction.getAmount(),
+                transaction.getMerchantId(), transaction.getIpAddress());
+        String transactionId = transaction.getTransactionId();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(() -> score(transactionId, context));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(() -> score(transactionId, context));
+            }
+        });
+    }
+
+    /**
+     * Evaluates the SHADOW rules for a payment that a blocking rule rejected
+     */
+    public void shadowRejected(FraudContext context) {
+        submit(() -> shadow(context, true));
+    }
+
+    private void submit(Runnable task) {
+        try {
+            scoringExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    private void score(String transactionId, FraudContext context) {
+        boolean flagged = false;
+        try {
+            List<FraudRuleEngine.RuleMatch> matches = fraudRuleEngine.evaluateAll(context, FraudRuleDefinition.Mode.ASYNC);
+            if (!matches.isEmpty()) {
+                enforce(transactionId, context, matches);
+                flagged = true;
+            }
+        } catch (Exception e) {
+            log.error("Async fraud scoring of transaction {} failed", transactionId, e);
+        }
+        shadow(context, flagged);
+    }
+
+    private void enforce(String transactionId, FraudContext context, List<FraudRuleEngine.RuleMatch> matches) {
+        String reason = matches.stream()
+                .map(match -> match.rule() + ": " + match.reason())
+                .collect(Collectors.joining("; "));
+
+        transactionTemplate.executeWithoutResult(status -> transactionRepository.findByTransactionIdNearCreation(transactionId)
+                .ifPresent(transaction -> {
+                    transaction.markFlagged(reason);
+                    transactionRepository.save(transaction);
+                }));
+        log.warn("{} {} from wallet {} flagged after commit: {}", context.type(), transactionId,
+                context.sourceWalletAddress(), reason);
+
+        boolean freeze = matches.stream().anyMatch(match -> match.action() == FraudRuleDefinition.Action.FREEZE);
+        if (freeze) {
+            walletService.freezeWallet(context.sourceWalletId(), reason);
+        }
+        meterRegistry.counter("wallet.fraud.async.actions",
+                "action", freeze ? FraudRuleDefinition.Action.FREEZE.name() : FraudRuleDefinition.Action.FLAG.name())
+                .increment();
+    }
+
+    private void shadow(FraudContext context, boolean enforced) {
+        List<FraudRuleEngine.RuleMatch> matches;
+        try {
+            matches = fraudRuleEngine.evaluateAll(context, FraudRuleDefinition.Mode.SHADOW);
+        } catch (Exception e) {
+            log.error("Shadow fraud scoring of {} from wallet {} failed", context.type(),
+                    context.sourceWalletAddress(), e);
+            return;
+        }
+        for (String rule : fraudRuleEngine.shadowRuleNames(context.type())) {
+            boolean wouldFlag = matches.stream().anyMatch(match -> match.rule().equals(rule));
+            meterRegistry.counter("wallet.fraud.shadow.evaluations", "rule", rule).increment();
+            if (wouldFlag != enforced) {
+                meterRegistry.counter("wallet.fraud.shadow.divergence",
+                        "rule", rule, "direction", wouldFlag ? "would_flag" : "would_clear").increment();
+            }
+        }
+    }
+}
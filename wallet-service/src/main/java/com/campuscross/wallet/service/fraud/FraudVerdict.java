@@ -0,0 +1,13 @@
+package com.campuscross.wallet.service.fraud;
+
+/**
+ * Outcome of evaluating a rule set: the first rule that matched, if any.
+ */
+public record FraudVerdict(boolean flagged, String rule, String reason) {
+
+    public static final FraudVerdict CLEAR = new FraudVerdict(false, null, null);
+
+    public static FraudVerdict flagged(String rule, String reason) {
+        return new FraudVerdict(true, rule, reason);
+    }
+}
@@ -0,0 +1,271 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.entity.BlockedMerchant;
+import com.campuscross.wallet.repository.BlockedMerchantRepository;
+import com.campuscross.wallet.util.BloomFilter;
+import com.campuscross.wallet.util.FingerprintSet;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Blocked merchant ids, from the {@code blocked_merchants} table and optionally a local file
+ * ({@code wallet.merchant-blocklist.file}, one id per line, {@code #} starts a comment).
+ *
+ * The ids are held as 64-bit fingerprints in an immutable {@link FingerprintSet} fronted by a
+ * {@link BloomFilter}; most payments go to merchants that are not blocked and are answered by
+ * the filter alone. A million entries take about 12 MB. Both structures are rebuilt on every
+ * change and published together through a volatile reference, so {@link #isBlocked} is
+ * lock-free, allocation-free and never sees a half-applied reload.
+ *
+ * A full reload reads every active id; the scheduled refresh only reads the rows updated since
+ * the previous one and rebuilds when something changed. Unblocking a merchant in the table
+ * also removes it when it is listed in the file, until the next full reload.
+ */
+@Component
+@Slf4j
+public class MerchantBlocklist {
+
+    /**
+     * Rows are timestamped before their transaction commits, so each delta re-reads a short
+     * stretch before the previous watermark; applying a row twice is harmless.
+     */
+    private static final long DELTA_OVERLAP_SECONDS = 60;
+
+    private static final List<String> DEFAULT_BLOCKED = List.of("MERCHANT001", "MERCHANT002", "MERCHANT003");
+
+    private final BlockedMerchantRepository blockedMerchantRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final String file;
+    private final double falsePositiveProbability;
+
+    private volatile Snapshot snapshot = Snapshot.of(FingerprintSet.EMPTY_SET, 0.01, null);
+
+    public MerchantBlocklist(BlockedMerchantRepository blockedMerchantRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${wallet.merchant-blocklist.file:}") String file,
+                             @Value("${wallet.merchant-blocklist.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.blockedMerchantRepository = blockedMerchantRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.file = file;
+        this.falsePositiveProbability = falsePositiveProbability;
+
+        Gauge.builder("wallet.merchant.blocklist.size", this, blocklist -> blocklist.snapshot.merchants().size())
+                .description("Blocked merchant ids currently loaded")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            if (blockedMerchantRepository.count() == 0) {
+                blockedMerchantRepository.saveAll(DEFAULT_BLOCKED.stream()
+                        .map(id -> BlockedMerchant.builder().merchantId(id).reason("Default blocklist").build())
+                        .toList());
+                log.info("Seeded {} blocked merchants", DEFAULT_BLOCKED.size());
+            }
+            reload();
+        } catch (Exception e) {
+            log.error("Failed to load merchant blocklist, falling back to the defaults", e);
+            long[] fingerprints = DEFAULT_BLOCKED.stream().mapToLong(FingerprintSet::fingerprint).toArray();
+            snapshot = Snapshot.of(FingerprintSet.of(fingerprints, fingerprints.length), falsePositiveProbability, null);
+        }
+    }
+
+    public boolean isBlocked(String merchantId) {
+        if (merchantId == null) {
+            return false;
+        }
+        Snapshot current = snapshot;
+        long fingerprint = FingerprintSet.fingerprint(merchantId);
+        return current.bloom().mightContain(fingerprint) && current.merchants().contains(fingerprint);
+    }
+
+    /**
+     * Rebuilds the blocklist from the table and the file
+     *
+     * @return the number of blocked merchants
+     */
+    public synchronized int reload() {
+        LocalDateTime watermark = blockedMerchantRepository.findLatestUpdate().orElse(null);
+        LongBuffer fingerprints = new LongBuffer();
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> ids = blockedMerchantRepository.streamActiveMerchantIds()) {
+                ids.forEach(id -> fingerprints.add(FingerprintSet.fingerprint(id)));
+            }
+        });
+        int fromTable = fingerprints.size();
+        if (!file.isBlank()) {
+            readFile(Path.of(file), fingerprints);
+        }
+
+        Snapshot loaded = Snapshot.of(FingerprintSet.of(fingerprints.values(), fingerprints.size()),
+                falsePositiveProbability, watermark);
+        snapshot = loaded;
+        log.info("Merchant blocklist loaded: {} merchants ({} from the table), {} KB",
+                loaded.merchants().size(), fromTable, loaded.sizeInBytes() / 1024);
+        return loaded.merchants().size();
+    }
+
+    /**
+     * Applies the rows changed since the last load or refresh
+     */
+    @Scheduled(fixedDelayString = "${wallet.merchant-blocklist.refresh-interval-ms:60000}",
+            initialDelayString = "${wallet.merchant-blocklist.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        Snapshot current = snapshot;
+        if (current.watermark() == null) {
+            if (blockedMerchantRepository.findLatestUpdate().isPresent()) {
+                reload();
+            }
+            return;
+        }
+        try {
+            List<BlockedMerchant> changed = blockedMerchantRepository.findByUpdatedAtGreaterThanEqual(
+                    current.watermark().minusSeconds(DELTA_OVERLAP_SECONDS));
+
+            LocalDateTime watermark = current.watermark();
+            Set<Long> added = new HashSet<>();
+            Set<Long> removed = new HashSet<>();
+            for (BlockedMerchant merchant : changed) {
+                long fingerprint = FingerprintSet.fingerprint(merchant.getMerchantId());
+                boolean present = current.merchants().contains(fingerprint);
+                if (merchant.isActive() && !present) {
+                    added.add(fingerprint);
+                } else if (!merchant.isActive() && present) {
+                    removed.add(fingerprint);
+                }
+                if (merchant.getUpdatedAt() != null && merchant.getUpdatedAt().isAfter(watermark)) {
+                    watermark = merchant.getUpdatedAt();
+                }
+            }
+
+            if (added.isEmpty() && removed.isEmpty()) {
+                snapshot = new Snapshot(current.bloom(), current.merchants(), watermark);
+                return;
+            }
+            long[] fingerprints = Arrays.copyOf(current.merchants().toArray(), current.merchants().size() + added.size());
+            int count = 0;
+            for (int i = 0; i < current.merchants().size(); i++) {
+                if (!removed.contains(fingerprints[i])) {
+                    fingerprints[count++] = fingerprints[i];
+                }
+            }
+            for (long fingerprint : added) {
+                fingerprints[count++] = fingerprint;
+            }
+            snapshot = Snapshot.of(FingerprintSet.of(fingerprints, count), falsePositiveProbability, watermark);
+            log.info("Merchant blocklist refreshed: {} added, {} removed, {} merchants",
+                    added.size(), removed.size(), count);
+        } catch (Exception e) {
+            log.error("Failed to refresh merchant blocklist", e);
+        }
+    }
+
+    /**
+     * Blocks a merchant, or updates the reason of a blocked one, and applies it locally
+     */
+    public BlockedMerchant block(String merchantId, String reason) {
+        BlockedMerchant merchant = blockedMerchantRepository.findByMerchantId(merchantId)
+                .orElseGet(() -> BlockedMerchant.builder().merchantId(merchantId).build());
+        merchant.setReason(reason);
+        merchant.setActive(true);
+        merchant = blockedMerchantRepository.save(merchant);
+        refresh();
+        return merchant;
+    }
+
+    public void unblock(String merchantId) {
+        BlockedMerchant merchant = blockedMerchantRepository.findByMerchantId(merchantId)
+                .orElseThrow(() -> new RuntimeException("Merchant " + merchantId + " is not blocked"));
+        merchant.setActive(false);
+        blockedMerchantRepository.save(merchant);
+        refresh();
+    }
+
+    public Stats stats() {
+        Snapshot current = snapshot;
+        return new Stats(current.merchants().size(), current.bloom().hashCount(),
+                current.bloom().sizeInBytes(), current.merchants().sizeInBytes(), current.watermark());
+    }
+
+    private void readFile(Path path, LongBuffer fingerprints) {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String id = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!id.isEmpty()) {
+                    fingerprints.add(FingerprintSet.fingerprint(id));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read merchant blocklist file " + path, e);
+        }
+    }
+
+    private record Snapshot(BloomFilter bloom, FingerprintSet merchants, LocalDateTime watermark) {
+
+        static Snapshot of(FingerprintSet merchants, double falsePositiveProbability, LocalDateTime watermark) {
+            BloomFilter bloom = BloomFilter.create(merchants.size(), falsePositiveProbability);
+            merchants.forEach(bloom::put);
+            return new Snapshot(bloom, merchants, watermark);
+        }
+
+        long sizeInBytes() {
+            return bloom.sizeInBytes() + merchants.sizeInBytes();
+        }
+    }
+
+    /**
+     * Growable primitive buffer, so a full reload does not box millions of fingerprints
+     */
+    private static final class LongBuffer {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] values() {
+            return values;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    public record Stats(
+            int merchants,
+            int bloomHashes,
+            long bloomBytes,
+            long setBytes,
+            LocalDateTime watermark) {
+    }
+}
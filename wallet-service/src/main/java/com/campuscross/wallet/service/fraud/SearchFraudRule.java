@@ -0,0 +1,32 @@
+package com.campuscross.wallet.service.fraud;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A rule whose search produces its reason, such as the cycle a transfer closes, so the match
+ * and its explanation come from a single evaluation.
+ *
+ * @param search the reason when the rule matches, null otherwise
+ */
+public record SearchFraudRule(
+        String name,
+        Set<FraudInput> inputs,
+        int estimatedCost,
+        Function<FraudContext, String> search) implements FraudRule {
+
+    @Override
+    public boolean matches(FraudContext context) {
+        return search.apply(context) != null;
+    }
+
+    @Override
+    public String reason(FraudContext context) {
+        return search.apply(context);
+    }
+
+    @Override
+    public String check(FraudContext context) {
+        return search.apply(context);
+    }
+}
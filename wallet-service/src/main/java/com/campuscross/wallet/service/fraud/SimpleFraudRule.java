@@ -0,0 +1,40 @@
+package com.campuscross.wallet.service.fraud;
+
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A rule made of a predicate and a reason template; enough for all built-in rule types.
+ *
+ * @param database whether the predicate would query the database if evaluated now
+ */
+public record SimpleFraudRule(
+        String name,
+        Set<FraudInput> inputs,
+        int estimatedCost,
+        BooleanSupplier database,
+        Predicate<FraudContext> predicate,
+        Function<FraudContext, String> reasonFunction) implements FraudRule {
+
+    public SimpleFraudRule(String name, Set<FraudInput> inputs, int estimatedCost,
+                           Predicate<FraudContext> predicate, Function<FraudContext, String> reasonFunction) {
+        this(name, inputs, estimatedCost, () -> false, predicate, reasonFunction);
+    }
+
+    @Override
+    public boolean queriesDatabase() {
+        return database.getAsBoolean();
+    }
+
+    @Override
+    public boolean matches(FraudContext context) {
+        return predicate.test(context);
+    }
+
+    @Override
+    public String reason(FraudContext context) {
+        return reasonFunction.apply(context);
+    }
+}
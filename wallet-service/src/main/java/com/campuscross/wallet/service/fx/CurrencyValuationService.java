@@ -0,0 +1,140 @@
+package com.campuscross.wallet.service.fx;
+
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.service.WalletPortfolioCache.Portfolio;
+import com.campuscross.wallet.service.WalletPortfolioCache.WalletSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Values balances held in several currencies in a single one.
+ *
+ * Rates live in memory as one {@link RateMatrix}, published through a volatile reference.
+ * It is fetched in bulk from the {@link ExchangeRateSource} at startup and every
+ * {@code wallet.fx.refresh-interval-ms}, and each refresh swaps in a complete new matrix,
+ * so a valuation never mixes rates from two fetches and never waits on a remote call.
+ * A failed refresh keeps the current rates; their age is exported as
+ * {@code wallet.fx.rates.age}.
+ */
+@Service
+@Slf4j
+public class CurrencyValuationService {
+
+    private final ExchangeRateSource source;
+    private final String baseCurrency;
+    private final List<String> currencies;
+    private final Counter refreshFailures;
+
+    private volatile RateMatrix rates;
+
+    public CurrencyValuationService(ExchangeRateSource source,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${wallet.fx.base-currency:USD}") String baseCurrency,
+                                    @Value("${wallet.fx.currencies:USD,EUR,GBP,INR}") List<String> currencies) {
+        this.source = source;
+        this.baseCurrency = baseCurrency;
+        this.currencies = List.copyOf(currencies);
+        this.rates = new RateMatrix(baseCurrency, Map.of(baseCurrency, BigDecimal.ONE), Instant.EPOCH);
+        this.refreshFailures = Counter.builder("wallet.fx.rates.refresh.failures")
+                .description("Exchange rate refreshes that failed and kept the previous rates")
+                .register(meterRegistry);
+        Gauge.builder("wallet.fx.rates.age", this, service -> service.rates.asOf().equals(Instant.EPOCH)
+                        ? Double.NaN
+                        : (System.currentTimeMillis() - service.rates.asOf().toEpochMilli()) / 1000.0)
+                .description("Seconds since the exchange rates in use were fetched")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.fx.refresh-interval-ms:300000}",
+            initialDelayString = "${wallet.fx.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            Map<String, BigDecimal> fetched = source.fetchRates(baseCurrency, currencies);
+            BigDecimal baseRate = fetched.get(baseCurrency);
+            if (baseRate != null && baseRate.compareTo(BigDecimal.ONE) != 0) {
+                throw new IllegalStateException("Rate of the base currency is not 1");
+            }
+            if (fetched.values().stream().anyMatch(rate -> rate.signum() <= 0)) {
+                throw new IllegalStateException("Non-positive rate in " + fetched);
+            }
+            Map<String, BigDecimal> complete = new HashMap<>(fetched);
+            complete.put(baseCurrency, BigDecimal.ONE);
+            rates = new RateMatrix(baseCurrency, complete, Instant.now());
+            log.debug("Exchange rates refreshed: {}", complete);
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            log.warn("Exchange rate refresh failed, keeping rates as of {}: {}", rates.asOf(), e.getMessage());
+        }
+    }
+
+    public RateMatrix rates() {
+        return rates;
+    }
+
+    public String baseCurrency() {
+        return baseCurrency;
+    }
+
+    /**
+     * Units of {@code to} per unit of {@code from}
+     */
+    public BigDecimal exchangeRate(String from, String to) {
+        return rates.rate(from, to)
+                .orElseThrow(() -> new RuntimeException("No exchange rate from " + from + " to " + to));
+    }
+
+    /**
+     * The sum of the portfolio's active wallets, converted to the given currency. Wallets in
+     * a currency without a rate are left out and reported as unvalued.
+     */
+    public Valuation value(Portfolio portfolio, String currency) {
+        RateMatrix matrix = rates;
+        if (!matrix.supports(currency)) {
+            throw new RuntimeException("Unsupported currency: " + currency);
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        TreeSet<String> unvalued = new TreeSet<>();
+        for (WalletSnapshot wallet : portfolio.wallets()) {
+            if (wallet.status() != Wallet.WalletStatus.ACTIVE) {
+                continue;
+            }
+            BigDecimal converted = matrix.convert(wallet.balance(), wallet.currencyCode(), currency).orElse(null);
+            if (converted == null) {
+                unvalued.add(wallet.currencyCode() == null ? "UNKNOWN" : wallet.currencyCode());
+            } else {
+                total = total.add(converted);
+            }
+        }
+        return new Valuation(total.setScale(2, RoundingMode.HALF_UP), currency, matrix.asOf(),
+                new ArrayList<>(unvalued));
+    }
+
+    /**
+     * @param ratesAsOf when the rates used were fetched
+     * @param unvaluedCurrencies currencies held without a rate, not included in the total
+     */
+    public record Valuation(BigDecimal total, String currencyCode, Instant ratesAsOf,
+                            List<String> unvaluedCurrencies) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.campuscross.wallet.service.fx;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where {@link CurrencyValuationService} gets its rates from, in one call per refresh
+ */
+public interface ExchangeRateSource {
+
+    /**
+     * Units of each currency per unit of the base currency. Currencies without a rate may be
+     * left out.
+     */
+    Map<String, BigDecimal> fetchRates(String base, List<String> currencies);
+}
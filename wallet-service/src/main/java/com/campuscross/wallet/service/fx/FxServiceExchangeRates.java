@@ -0,0 +1,48 @@
+package com.campuscross.wallet.service.fx;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Market rates from fx-service's bulk endpoint, selected by {@code wallet.fx.source=fx-service}
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.fx.source", havingValue = "fx-service")
+public class FxServiceExchangeRates implements ExchangeRateSource {
+
+    private final RestClient restClient;
+
+    public FxServiceExchangeRates(@Value("${wallet.fx.service-url:http://localhost:8080}") String serviceUrl,
+                                  @Value("${wallet.fx.timeout-ms:5000}") int timeoutMs) {
+        // Refreshes run on the shared scheduler thread, so never wait indefinitely
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        this.restClient = RestClient.builder()
+                .baseUrl(serviceUrl)
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    @Override
+    public Map<String, BigDecimal> fetchRates(String base, List<String> currencies) {
+        RatesResponse response = restClient.get()
+                .uri("/api/v1/fx/rates/{base}?symbols={symbols}", base, String.join(",", currencies))
+                .retrieve()
+                .body(RatesResponse.class);
+        if (response == null || response.rates() == null) {
+            throw new IllegalStateException("fx-service returned no rates");
+        }
+        return response.rates();
+    }
+
+    record RatesResponse(String base, Map<String, BigDecimal> rates) {
+    }
+}
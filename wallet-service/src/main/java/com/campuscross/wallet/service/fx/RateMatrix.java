@@ -0,0 +1,49 @@
+package com.campuscross.wallet.service.fx;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Exchange rates between every pair of known currencies, derived from one rate per currency
+ * against the base. Immutable, so it can be replaced as a whole.
+ *
+ * @param rates units of each currency per unit of the base currency
+ * @param asOf when the rates were fetched
+ */
+public record RateMatrix(String base, Map<String, BigDecimal> rates, Instant asOf) {
+
+    public RateMatrix {
+        rates = Map.copyOf(rates);
+    }
+
+    public boolean supports(String currency) {
+        return currency != null && rates.containsKey(currency);
+    }
+
+    /**
+     * Units of {@code to} per unit of {@code from}
+     */
+    public Optional<BigDecimal> rate(String from, String to) {
+        if (!supports(from) || !supports(to)) {
+            return Optional.empty();
+        }
+        return Optional.of(rates.get(to).divide(rates.get(from), 6, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * The amount in {@code to}, unrounded; callers round the final sum
+     */
+    public Optional<BigDecimal> convert(BigDecimal amount, String from, String to) {
+        if (!supports(from) || !supports(to)) {
+            return Optional.empty();
+        }
+        if (from.equals(to)) {
+            return Optional.of(amount);
+        }
+        return Optional.of(amount.multiply(rates.get(to)).divide(rates.get(from), MathContext.DECIMAL64));
+    }
+}
@@ -0,0 +1,42 @@
+package com.campuscross.wallet.service.fx;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed rates for running without fx-service, selected by {@code wallet.fx.source=simulated}
+ * (the default)
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.fx.source", havingValue = "simulated", matchIfMissing = true)
+public class SimulatedExchangeRates implements ExchangeRateSource {
+
+    // Units per USD
+    private static final Map<String, BigDecimal> USD_RATES = Map.of(
+            "USD", new BigDecimal("1.00"),
+            "EUR", new BigDecimal("0.92"),
+            "GBP", new BigDecimal("0.79"),
+            "INR", new BigDecimal("83.12"));
+
+    @Override
+    public Map<String, BigDecimal> fetchRates(String base, List<String> currencies) {
+        BigDecimal baseRate = USD_RATES.get(base);
+        if (baseRate == null) {
+            throw new IllegalArgumentException("No simulated rate for " + base);
+        }
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (String currency : currencies) {
+            BigDecimal rate = USD_RATES.get(currency);
+            if (rate != null) {
+                rates.put(currency, rate.divide(baseRate, 10, RoundingMode.HALF_UP));
+            }
+        }
+        return rates;
+    }
+}
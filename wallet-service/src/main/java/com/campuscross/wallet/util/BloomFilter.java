@@ -0,0 +1,67 @@
+package com.campuscross.wallet.util;
+
+/**
+ * Bloom filter over 64-bit fingerprints (see {@link FingerprintSet#fingerprint(CharSequence)}).
+ *
+ * Bit positions are derived from the fingerprint by double hashing, so adding and querying
+ * do not allocate. Sized for an expected number of entries and false positive probability;
+ * at 1% that is about 9.6 bits per entry. Not thread-safe while being filled; safe to share
+ * once published.
+ */
+public final class BloomFilter {
+
+    private static final int MAX_HASHES = 16;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashes;
+
+    private BloomFilter(long bitCount, int hashes) {
+        this.bits = new long[(int) ((bitCount + 63) >>> 6)];
+        this.bitCount = (long) bits.length << 6;
+        this.hashes = hashes;
+    }
+
+    public static BloomFilter create(long expectedEntries, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be in (0, 1)");
+        }
+        long n = Math.max(1, expectedEntries);
+        long m = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2))));
+        int k = (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) m / n * Math.log(2))));
+        return new BloomFilter(m, k);
+    }
+
+    public void put(long fingerprint) {
+        long h1 = fingerprint;
+        long h2 = secondHash(fingerprint);
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(long fingerprint) {
+        long h1 = fingerprint;
+        long h2 = secondHash(fingerprint);
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long sizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    private static long secondHash(long fingerprint) {
+        return (Long.rotateLeft(fingerprint, 32) * 0x9E3779B97F4A7C15L) | 1L;
+    }
+}
@@ -0,0 +1,109 @@
+package com.campuscross.wallet.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable set of 64-bit string fingerprints in a single open-addressing {@code long[]}.
+ *
+ * Stores about 10.7 bytes per entry at its 0.75 load factor instead of a {@code String} and a
+ * map node per entry, and lookups hash the characters in place, so {@link #contains} does not
+ * allocate. Two distinct strings collide with probability about 2^-64 per pair, which makes
+ * the set exact for practical purposes.
+ */
+public final class FingerprintSet {
+
+    private static final long EMPTY = 0L;
+    private static final double LOAD_FACTOR = 0.75;
+
+    public static final FingerprintSet EMPTY_SET = of(new long[0], 0);
+
+    private final long[] table;
+    private final int size;
+
+    private FingerprintSet(long[] table, int size) {
+        this.table = table;
+        this.size = size;
+    }
+
+    /**
+     * Builds a set from the first {@code count} fingerprints of the array; duplicates are ignored.
+     */
+    public static FingerprintSet of(long[] fingerprints, int count) {
+        long[] table = new long[Math.max(8, (int) Math.ceil(count / LOAD_FACTOR) + 1)];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (insert(table, fingerprints[i])) {
+                size++;
+            }
+        }
+        return new FingerprintSet(table, size);
+    }
+
+    /**
+     * FNV-1a over the characters followed by a 64-bit finalizer; never returns 0.
+     */
+    public static long fingerprint(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    public boolean contains(long fingerprint) {
+        int slot = slot(fingerprint, table.length);
+        while (true) {
+            long entry = table[slot];
+            if (entry == fingerprint) {
+                return true;
+            }
+            if (entry == EMPTY) {
+                return false;
+            }
+            slot = slot + 1 == table.length ? 0 : slot + 1;
+        }
+    }
+
+    public void forEach(LongConsumer action) {
+        for (long entry : table) {
+            if (entry != EMPTY) {
+                action.accept(entry);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        return Arrays.stream(table).filter(entry -> entry != EMPTY).toArray();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long sizeInBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private static boolean insert(long[] table, long fingerprint) {
+        int slot = slot(fingerprint, table.length);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+            slot = slot + 1 == table.length ? 0 : slot + 1;
+        }
+        table[slot] = fingerprint;
+        return true;
+    }
+
+    private static int slot(long fingerprint, int length) {
+        return (int) (((fingerprint >>> 32) * length) >>> 32);
+    }
+}
@@ -0,0 +1,178 @@
+package com.campuscross.wallet.util;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style generator for transaction ids and wallet addresses.
+ *
+ * Each id is a 64-bit value made of a 41-bit millisecond timestamp (since 2024-01-01 UTC),
+ * a 10-bit node id and a 12-bit per-millisecond sequence, rendered as 16 upper-case hex
+ * digits behind the usual prefix, e.g. {@code TXN-0B1F4C2A8D400001}. Ids from one node are
+ * strictly increasing, and because the timestamp leads, ids from all nodes sort roughly by
+ * creation time, so inserts land at the right edge of the unique indexes instead of at
+ * random pages.
+ *
+ * The timestamp and sequence share a single {@link AtomicLong}. When more than 4096 ids are
+ * requested within a millisecond, or the clock steps backwards, the generator simply runs
+ * ahead of the wall clock instead of blocking, which keeps ids unique and monotonic.
+ *
+ * In the service the node id is leased from the database ({@link IdNodeLease}), never derived
+ * from the host. The generator also reserves timestamps there ahead of use, {@link
+ * #RESERVATION_MILLIS} at a time, and a new holder of the node id starts after the last
+ * reservation, so a restart cannot repeat ids a previous process issued ahead of the clock.
+ */
+@Component
+public class IdGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * How far ahead of the clock timestamps are reserved, and how often the reservation is
+     * extended while idle
+     */
+    static final long RESERVATION_MILLIS = 15_000;
+    static final long RENEW_INTERVAL_MILLIS = 5_000;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    private final IdNodeLease lease;
+
+    /**
+     * Last issued (timestamp << SEQUENCE_BITS | sequence)
+     */
+    private final AtomicLong lastState;
+
+    /**
+     * Timestamp up to which ids may be issued without reserving more
+     */
+    private volatile long reservedUntil;
+
+    /**
+     * A generator whose ids are not reserved anywhere, for tools and benchmarks. Two of these
+     * with the same node id, or one restarted after running ahead of the clock, can repeat ids.
+     */
+    public IdGenerator(long nodeId) {
+        this(nodeId, System::currentTimeMillis, null, -1);
+    }
+
+    @Autowired
+    public IdGenerator(IdNodeLease lease) {
+        this(lease, lease.claim(), System::currentTimeMillis);
+    }
+
+    IdGenerator(IdNodeLease lease, IdNodeLease.Claim claim, LongSupplier clock) {
+        this(claim.nodeId(), clock, lease, claim.issuedUntil());
+    }
+
+    private IdGenerator(long nodeId, LongSupplier clock, IdNodeLease lease, long issuedUntil) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("wallet.id.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.lease = lease;
+        // As if the last id of the issuedUntil millisecond had been issued here
+        this.lastState = new AtomicLong(issuedUntil < 0 ? 0 : (issuedUntil << SEQUENCE_BITS) | SEQUENCE_MASK);
+        this.reservedUntil = lease == null ? Long.MAX_VALUE : issuedUntil;
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = lastState.get();
+            long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            long next = Math.max(now, previous + 1);
+            long timestamp = next >>> SEQUENCE_BITS;
+            if (timestamp > reservedUntil) {
+                reserve(timestamp + RESERVATION_MILLIS);
+                continue;
+            }
+            if (lastState.compareAndSet(previous, next)) {
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Keeps the reservation ahead of the clock, so nextId only waits for the database when it
+     * runs ahead faster than this extends, and keeps the lease from expiring while idle
+     */
+    @Scheduled(fixedDelay = RENEW_INTERVAL_MILLIS, initialDelay = RENEW_INTERVAL_MILLIS)
+    public void renewReservation() {
+        if (lease != null) {
+            reserve(Math.max(clock.getAsLong() - EPOCH_MILLIS, lastState.get() >>> SEQUENCE_BITS) + RESERVATION_MILLIS);
+        }
+    }
+
+    @PreDestroy
+    public void releaseNodeId() {
+        if (lease != null) {
+            lease.release((int) nodeId, lastState.get() >>> SEQUENCE_BITS);
+        }
+    }
+
+    private synchronized void reserve(long until) {
+        if (until > reservedUntil) {
+            lease.extend((int) nodeId, until);
+            reservedUntil = until;
+        }
+    }
+
+    public String nextTransactionId() {
+        return format("TXN-", nextId());
+    }
+
+    public String nextWalletAddress() {
+        return format("WLT-", nextId());
+    }
+
+    public String nextAdjustmentId() {
+        return format("ADJ-", nextId());
+    }
+
+    /**
+     * When an id from this generator was issued, read back from its timestamp bits
+     *
+     * @return empty for ids in any other format. Ids issued before this generator look the
+     *         same and decode to a meaningless time, so treat the result as a hint only.
+     */
+    public static Optional<Instant> timestampOf(String id) {
+        if (id == null || id.length() != 20 || id.charAt(3) != '-') {
+            return Optional.empty();
+        }
+        try {
+            long value = Long.parseUnsignedLong(id.substring(4), 16);
+            return Optional.of(Instant.ofEpochMilli((value >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The prefix and 16 upper-case hex digits, written directly: String.format costs several
+     * times as much as generating the id
+     */
+    private static String format(String prefix, long id) {
+        char[] chars = new char[prefix.length() + 16];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = chars.length - 1; i >= prefix.length(); i--) {
+            chars[i] = HEX_DIGITS[(int) (id & 0xF)];
+            id >>>= 4;
+        }
+        return new String(chars);
+    }
+}
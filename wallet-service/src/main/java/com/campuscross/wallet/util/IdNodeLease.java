@@ -0,0 +1,79 @@
+package com.campuscross.wallet.util;
+
+import com.campuscross.wallet.repository.IdGeneratorNodeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Leases {@link IdGenerator}'s node id from the id_generator_nodes table, so two running
+ * instances never share one, and keeps the node's issued_until high-water mark there.
+ *
+ * With wallet.id.node-id set, that node id is leased and startup fails while another instance
+ * holds it; otherwise the lowest free one is taken. A lease lasts {@link #LEASE_SECONDS} and is
+ * extended every time the generator reserves more ids, which it does well within that.
+ */
+@Component
+@Slf4j
+public class IdNodeLease {
+
+    static final long LEASE_SECONDS = 60;
+
+    private final IdGeneratorNodeRepository repository;
+    private final int requestedNodeId;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    public IdNodeLease(IdGeneratorNodeRepository repository,
+                       @Value("${wallet.id.node-id:-1}") int requestedNodeId) {
+        if (requestedNodeId > IdGenerator.MAX_NODE_ID) {
+            throw new IllegalArgumentException("wallet.id.node-id must be between 0 and " + IdGenerator.MAX_NODE_ID);
+        }
+        this.repository = repository;
+        this.requestedNodeId = requestedNodeId;
+    }
+
+    /**
+     * @return the leased node id and the generator timestamp its previous holders may have
+     *         issued ids up to
+     */
+    public Claim claim() {
+        repository.createNodes((int) IdGenerator.MAX_NODE_ID);
+        List<Object[]> leased = repository.lease(requestedNodeId < 0 ? -1 : requestedNodeId, owner, LEASE_SECONDS);
+        if (leased.isEmpty()) {
+            throw new IllegalStateException(requestedNodeId < 0
+                    ? "All " + (IdGenerator.MAX_NODE_ID + 1) + " id generator node ids are leased"
+                    : "Id generator node id " + requestedNodeId + " is leased by another running instance");
+        }
+        Object[] row = leased.get(0);
+        Claim claim = new Claim(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        log.info("Leased id generator node id {} as {}", claim.nodeId(), owner);
+        return claim;
+    }
+
+    /**
+     * Records that ids up to issuedUntil may be issued, and extends the lease
+     *
+     * @throws IllegalStateException when the lease has expired and another instance took the
+     *                               node id; ids must not be issued past what was recorded before
+     */
+    public void extend(int nodeId, long issuedUntil) {
+        if (repository.renew(nodeId, owner, issuedUntil, LEASE_SECONDS) == 0) {
+            throw new IllegalStateException("Lost the lease on id generator node id " + nodeId);
+        }
+    }
+
+    /**
+     * Gives the node id back. issuedUntil is the last timestamp actually issued, so the next
+     * holder does not have to start after a reservation that was never used.
+     */
+    public void release(int nodeId, long issuedUntil) {
+        repository.release(nodeId, owner, issuedUntil);
+    }
+
+    public record Claim(int nodeId, long issuedUntil) {
+    }
+}
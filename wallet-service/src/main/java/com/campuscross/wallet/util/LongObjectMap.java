@@ -0,0 +1,175 @@
+package com.campuscross.wallet.util;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to non-null values, with linear
+ * probing and backward-shift deletion. Avoids the boxed key and node of a {@code HashMap}
+ * entry, so a lookup does not allocate. Not thread-safe.
+ */
+public final class LongObjectMap<V> {
+
+    private static final double LOAD_FACTOR = 0.6;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = slot(key, keys.length);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = next(slot, keys.length);
+        }
+        return null;
+    }
+
+    /**
+     * @return the previous value, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int slot = slot(key, keys.length);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = next(slot, keys.length);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            resize();
+        }
+        return null;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the removed value, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = slot(key, keys.length);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V removed = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return removed;
+            }
+            slot = next(slot, keys.length);
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Snapshot of the keys, for iterating while removing
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                result[i++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Closes the gap left at {@code slot} by moving later entries of the same probe run back.
+     */
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int current = next(slot, keys.length);
+        while (values[current] != null) {
+            int home = slot(keys[current], keys.length);
+            // Move the entry if its home slot is not cyclically within (gap, current]
+            boolean movable = gap <= current ? (home <= gap || home > current) : (home <= gap && home > current);
+            if (movable) {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                gap = current;
+            }
+            current = next(current, keys.length);
+        }
+        keys[gap] = 0L;
+        values[gap] = null;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i], keys.length);
+                while (values[slot] != null) {
+                    slot = next(slot, keys.length);
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int slot(long key, int length) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (length - 1);
+    }
+
+    private static int next(int slot, int length) {
+        return (slot + 1) & (length - 1);
+    }
+}
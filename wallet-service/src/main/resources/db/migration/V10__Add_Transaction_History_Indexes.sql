@@ -0,0 +1,10 @@
+-- V10__Add_Transaction_History_Indexes.sql
+
+-- Keyset pagination of transaction history: incoming transactions of a wallet, newest first.
+-- Outgoing transactions use idx_transactions_source_created (V7).
+CREATE INDEX IF NOT EXISTS idx_transactions_target_created ON transactions(target_wallet_id, created_at);
+
+-- Covered by the leading column of idx_transactions_target_created
+DROP INDEX IF EXISTS idx_transactions_target_wallet_id;
+
+ANALYZE transactions;
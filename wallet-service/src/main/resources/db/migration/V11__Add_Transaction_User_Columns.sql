@@ -0,0 +1,19 @@
+-- V11__Add_Transaction_User_Columns.sql
+
+-- Owner of each side of a transaction, copied from the wallet when the row is written, so
+-- user-scoped history reads one index range per side instead of joining through wallets.
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS source_user_id VARCHAR(50);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS target_user_id VARCHAR(50);
+
+UPDATE transactions t SET source_user_id = w.user_id
+FROM wallets w
+WHERE w.id = t.source_wallet_id AND t.source_user_id IS NULL;
+
+UPDATE transactions t SET target_user_id = w.user_id
+FROM wallets w
+WHERE w.id = t.target_wallet_id AND t.target_user_id IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_transactions_source_user_created ON transactions(source_user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_transactions_target_user_created ON transactions(target_user_id, created_at);
+
+ANALYZE transactions;
@@ -0,0 +1,37 @@
+-- V12__Create_Daily_Rollup_Tables.sql
+
+-- Per user, day and currency totals of completed transactions, maintained on every completion
+CREATE TABLE IF NOT EXISTS daily_user_totals (
+    user_id VARCHAR(255) NOT NULL,
+    day DATE NOT NULL,
+    currency_code VARCHAR(255) NOT NULL,
+    spent NUMERIC(19, 8) NOT NULL,
+    received NUMERIC(19, 8) NOT NULL,
+    fees NUMERIC(19, 8) NOT NULL,
+    PRIMARY KEY (user_id, day, currency_code)
+);
+
+-- Backfill replaces whole days
+CREATE INDEX IF NOT EXISTS idx_daily_user_totals_day ON daily_user_totals(day);
+
+-- Fees collected per day and currency, split over a few shards to spread row-lock contention
+CREATE TABLE IF NOT EXISTS daily_fee_totals (
+    day DATE NOT NULL,
+    currency_code VARCHAR(255) NOT NULL,
+    shard INTEGER NOT NULL,
+    fees NUMERIC(19, 8) NOT NULL,
+    PRIMARY KEY (day, currency_code, shard)
+);
+
+-- Finished backfills. The INITIAL row marks the first-start backfill as done; the rollup
+-- tables cannot, as live payments write to them before it runs
+CREATE TABLE IF NOT EXISTS rollup_backfills (
+    id BIGSERIAL PRIMARY KEY,
+    kind VARCHAR(255) NOT NULL,
+    from_day DATE NOT NULL,
+    to_day DATE NOT NULL,
+    completed_at TIMESTAMP
+);
+
+-- The service backfills both tables from the transaction history on its first start
+-- (wallet.rollups.backfill-on-startup), or on demand with POST /api/rollups/backfill
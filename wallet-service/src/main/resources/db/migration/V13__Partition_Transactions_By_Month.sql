@@ -0,0 +1,100 @@
+-- V13__Partition_Transactions_By_Month.sql
+
+-- Rebuilds transactions as a table range-partitioned by month on created_at. Runs with the
+-- service stopped: every row is copied once. Afterwards TransactionPartitionManager creates
+-- the partitions of coming months and archives expired ones.
+--
+-- Flyway is disabled and Hibernate runs with ddl-auto=update, so this script is not applied
+-- on startup. Run it by hand (psql -v ON_ERROR_STOP=1 --single-transaction -f ...) against
+-- the database while every wallet-service instance is stopped.
+--
+-- A DEFAULT partition catches rows whose month has no partition yet (clock skew, a backdated
+-- created_at, or the maintenance job not having run), so such an insert is not rejected.
+--
+-- A partitioned table can only enforce uniqueness on keys that include created_at, so the
+-- primary key becomes (id, created_at), and the uniqueness of id and transaction_id moves to
+-- transaction_ids: one row per transaction, kept by a trigger. Ids from two generators may
+-- collide, so the database still has to refuse a duplicate. disbursement_items references
+-- transactions by id and now points at transaction_ids instead.
+
+LOCK TABLE transactions IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+
+CREATE TABLE transactions (LIKE transactions_unpartitioned INCLUDING DEFAULTS)
+    PARTITION BY RANGE (created_at);
+
+-- Rows must have a created_at to be routed to a partition
+UPDATE transactions_unpartitioned SET created_at = COALESCE(updated_at, completed_at, CURRENT_TIMESTAMP)
+WHERE created_at IS NULL;
+ALTER TABLE transactions ALTER COLUMN created_at SET NOT NULL;
+
+-- Identity columns are not supported on partitioned tables before PostgreSQL 17, so ids
+-- come from a plain sequence that continues where the old table stopped
+CREATE SEQUENCE IF NOT EXISTS transactions_partitioned_id_seq;
+SELECT setval('transactions_partitioned_id_seq', COALESCE((SELECT MAX(id) FROM transactions_unpartitioned), 0) + 1, false);
+ALTER TABLE transactions ALTER COLUMN id SET DEFAULT nextval('transactions_partitioned_id_seq');
+ALTER SEQUENCE transactions_partitioned_id_seq OWNED BY transactions.id;
+
+-- One partition per month from the oldest transaction to three months ahead
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM transactions_unpartitioned), CURRENT_DATE));
+    last_month DATE := date_trunc('month', CURRENT_DATE) + INTERVAL '3 months';
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_p' || to_char(month_start, 'YYYY_MM'), month_start,
+                       (month_start + INTERVAL '1 month')::date);
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+CREATE TABLE IF NOT EXISTS transactions_default PARTITION OF transactions DEFAULT;
+
+INSERT INTO transactions SELECT * FROM transactions_unpartitioned;
+
+CREATE TABLE transaction_ids (
+    id BIGINT PRIMARY KEY,
+    transaction_id VARCHAR(255) NOT NULL UNIQUE,
+    created_at TIMESTAMP NOT NULL
+);
+INSERT INTO transaction_ids (id, transaction_id, created_at)
+SELECT id, transaction_id, created_at FROM transactions;
+
+-- id and transaction_id are never updated. Rows stay when a transaction row goes (partitions
+-- are archived by detaching, and the partition manager moves rows between partitions with
+-- DELETE ... RETURNING), so a retired id stays taken.
+CREATE OR REPLACE FUNCTION transactions_track_id() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO transaction_ids (id, transaction_id, created_at)
+    VALUES (NEW.id, NEW.transaction_id, NEW.created_at);
+    RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+CREATE TRIGGER transactions_track_id AFTER INSERT ON transactions
+    FOR EACH ROW EXECUTE FUNCTION transactions_track_id();
+
+-- The old table goes; what referenced it by id references transaction_ids
+ALTER TABLE IF EXISTS disbursement_items DROP CONSTRAINT IF EXISTS disbursement_items_transaction_id_fkey;
+ALTER TABLE IF EXISTS disbursement_items ADD CONSTRAINT disbursement_items_transaction_id_fkey
+    FOREIGN KEY (transaction_id) REFERENCES transaction_ids(id);
+DROP TABLE transactions_unpartitioned;
+
+ALTER TABLE transactions ADD PRIMARY KEY (id, created_at);
+ALTER TABLE transactions ADD FOREIGN KEY (source_wallet_id) REFERENCES wallets(id) ON DELETE SET NULL;
+ALTER TABLE transactions ADD FOREIGN KEY (target_wallet_id) REFERENCES wallets(id) ON DELETE SET NULL;
+
+-- Indexes on the parent are created on every partition, present and future
+CREATE INDEX IF NOT EXISTS idx_transactions_transaction_id ON transactions(transaction_id);
+CREATE INDEX IF NOT EXISTS idx_transactions_created_at ON transactions(created_at);
+CREATE INDEX IF NOT EXISTS idx_transactions_status ON transactions(status);
+CREATE INDEX IF NOT EXISTS idx_transactions_flagged ON transactions(is_flagged) WHERE is_flagged;
+CREATE INDEX IF NOT EXISTS idx_transactions_merchant_id ON transactions(merchant_id);
+CREATE INDEX IF NOT EXISTS idx_transactions_source_created ON transactions(source_wallet_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_transactions_source_target_created ON transactions(source_wallet_id, target_wallet_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_transactions_target_created ON transactions(target_wallet_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_transactions_source_user_created ON transactions(source_user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_transactions_target_user_created ON transactions(target_user_id, created_at);
+
+ANALYZE transactions;
@@ -0,0 +1,12 @@
+-- V15__Create_Id_Generator_Nodes_Table.sql
+
+-- Node ids of the TXN-/WLT-/ADJ- id generator, leased by running instances so no two share
+-- one. issued_until is the generator timestamp (ms since 2024-01-01 UTC) up to which the
+-- holder may have issued ids; the next holder starts after it. The service adds the rows
+-- 0-1023 on startup.
+CREATE TABLE IF NOT EXISTS id_generator_nodes (
+    node_id INTEGER PRIMARY KEY,
+    owner VARCHAR(255),
+    lease_expires_at TIMESTAMP,
+    issued_until BIGINT NOT NULL DEFAULT 0
+);
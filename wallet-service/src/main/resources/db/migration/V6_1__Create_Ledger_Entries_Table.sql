@@ -0,0 +1,23 @@
+-- V6_1__Create_Ledger_Entries_Table.sql
+
+-- Double-entry journal: one DEBIT and one CREDIT row per money movement, insert-only.
+-- wallet_id is set for WALLET postings only; the other accounts are system-wide.
+-- The service allocates ids 50 at a time, so the sequence steps by 50.
+CREATE SEQUENCE IF NOT EXISTS ledger_entries_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    id BIGINT PRIMARY KEY,
+    transaction_id VARCHAR(255) NOT NULL,
+    account VARCHAR(32) NOT NULL,
+    wallet_id BIGINT,
+    direction VARCHAR(16) NOT NULL,
+    amount DECIMAL(19,8) NOT NULL,
+    currency_code VARCHAR(3) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Wallet journal in posting order, for balances, reconciliation and history
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_wallet ON ledger_entries(wallet_id, id);
+
+-- Both postings of a transaction
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_transaction ON ledger_entries(transaction_id);
@@ -0,0 +1,18 @@
+-- V6_2__Create_Idempotency_Keys_Table.sql
+
+-- Stored responses of money-moving requests sent with an Idempotency-Key header. A request
+-- inserts its row IN_PROGRESS before it executes, so the primary key claims the key across
+-- instances, and completes it with the response; status_code is 0 until then.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(512) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    state VARCHAR(16) NOT NULL DEFAULT 'COMPLETED',
+    status_code INTEGER NOT NULL,
+    content_type VARCHAR(255),
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+-- Purge of expired keys
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
@@ -0,0 +1,17 @@
+-- V7_1__Create_Fraud_Rules_Table.sql
+
+-- Configured fraud rules, reloaded by the running service. applies_to is a comma-separated
+-- list of transaction types, params a JSON object. The service seeds its default rules into
+-- an empty table on startup, so this migration adds none.
+CREATE TABLE IF NOT EXISTS fraud_rules (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE,
+    rule_type VARCHAR(255) NOT NULL,
+    applies_to VARCHAR(255) NOT NULL,
+    params TEXT,
+    enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    mode VARCHAR(16) NOT NULL DEFAULT 'BLOCKING',
+    action VARCHAR(16) NOT NULL DEFAULT 'FLAG',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,12 @@
+-- V7__Add_Fraud_Velocity_Indexes.sql
+
+-- Range scans for fraud velocity and limit checks: outgoing transactions of a wallet since a point in time
+CREATE INDEX IF NOT EXISTS idx_transactions_source_created ON transactions(source_wallet_id, created_at);
+
+-- Same, restricted to one recipient (rapid repeat transfers)
+CREATE INDEX IF NOT EXISTS idx_transactions_source_target_created ON transactions(source_wallet_id, target_wallet_id, created_at);
+
+-- Covered by the leading column of idx_transactions_source_created
+DROP INDEX IF EXISTS idx_transactions_source_wallet_id;
+
+ANALYZE transactions;
@@ -0,0 +1,30 @@
+-- V8__Create_Blocked_Merchants_Table.sql
+
+CREATE TABLE IF NOT EXISTS blocked_merchants (
+    id BIGSERIAL PRIMARY KEY,
+    merchant_id VARCHAR(255) NOT NULL UNIQUE,
+    reason VARCHAR(255),
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Delta refresh of the in-memory blocklist
+CREATE INDEX IF NOT EXISTS idx_blocked_merchants_updated_at ON blocked_merchants(updated_at);
+
+-- The merchants that used to be hard-coded in the fraud checks
+INSERT INTO blocked_merchants (merchant_id, reason, active, created_at, updated_at)
+VALUES ('MERCHANT001', 'Default blocklist', TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+       ('MERCHANT002', 'Default blocklist', TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+       ('MERCHANT003', 'Default blocklist', TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+ON CONFLICT (merchant_id) DO NOTHING;
+
+-- Point the seeded campus rule at the blocklist instead of its inline id list
+DO $$
+BEGIN
+    IF to_regclass('fraud_rules') IS NOT NULL THEN
+        UPDATE fraud_rules
+        SET rule_type = 'MERCHANT_BLOCKLIST', params = '{}', updated_at = CURRENT_TIMESTAMP
+        WHERE name = 'campus-blocked-merchant' AND rule_type = 'MERCHANT_IN_LIST';
+    END IF;
+END $$;
@@ -0,0 +1,14 @@
+-- V9__Add_Transfer_Ring_Rule.sql
+
+-- Seed the transfer ring rule into rule sets created before it existed; scored after commit
+DO $$
+BEGIN
+    -- An empty table is left to the service, which seeds its full default rule set into it
+    IF to_regclass('fraud_rules') IS NOT NULL AND EXISTS (SELECT 1 FROM fraud_rules) THEN
+        INSERT INTO fraud_rules (name, rule_type, applies_to, params, enabled, mode, action, created_at, updated_at)
+        VALUES ('p2p-transfer-ring', 'TRANSFER_RING', 'P2P_TRANSFER', '{"minLength":3,"maxLength":5}', TRUE,
+                'ASYNC', 'FLAG', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        ON CONFLICT (name) DO NOTHING;
+    END IF;
+END $$;
+
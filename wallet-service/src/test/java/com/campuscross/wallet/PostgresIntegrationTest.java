@@ -0,0 +1,71 @@
+package com.campuscross.wallet;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base for tests that need the real database: the service runs against an embedded
+ * PostgreSQL, started once per JVM, with the schema created by Hibernate as in production.
+ */
+@SpringBootTest
+public abstract class PostgresIntegrationTest {
+
+    protected static final EmbeddedPostgres POSTGRES = start();
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        registry.add("spring.flyway.enabled", () -> "false");
+        registry.add("wallet.rollups.backfill-on-startup", () -> "false");
+    }
+
+    /**
+     * Creates an empty database on the embedded server, for tests that build their schema
+     * from the migration scripts instead of Hibernate.
+     */
+    protected static JdbcTemplate createDatabase(String name) {
+        new JdbcTemplate(POSTGRES.getPostgresDatabase()).execute("CREATE DATABASE " + name);
+        return new JdbcTemplate(POSTGRES.getDatabase("postgres", name));
+    }
+
+    /**
+     * Runs one script of db/migration, e.g. {@code "V13"}, in a single transaction as under
+     * {@code psql --single-transaction}. The driver keeps dollar-quoted blocks intact when it
+     * splits the script into statements.
+     */
+    protected static void runMigration(JdbcTemplate jdbc, String version) throws IOException {
+        Resource[] scripts = new PathMatchingResourcePatternResolver()
+                .getResources("classpath:db/migration/" + version + "__*.sql");
+        if (scripts.length != 1) {
+            throw new IllegalArgumentException("Expected one migration " + version + ", found " + scripts.length);
+        }
+        String script = StreamUtils.copyToString(scripts[0].getInputStream(), StandardCharsets.UTF_8);
+        new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()))
+                .executeWithoutResult(status -> jdbc.execute(script));
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.builder()
+                    .setServerConfig("max_connections", "100")
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start embedded PostgreSQL", e);
+        }
+    }
+}
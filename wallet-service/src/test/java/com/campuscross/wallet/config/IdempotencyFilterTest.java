@@ -0,0 +1,219 @@
+package com.campuscross.wallet.config;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.repository.IdempotencyKeyRepository;
+import com.campuscross.wallet.service.IdempotencyService;
+import com.campuscross.wallet.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Keyed requests through the filter, in front of a chain that counts its executions and
+ * answers with a new body each time, so a replay is told apart from a second execution.
+ */
+class IdempotencyFilterTest extends PostgresIntegrationTest {
+
+    private static final String PATH = "/api/transactions/p2p-transfer";
+
+    @Autowired
+    private IdempotencyFilter filter;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void firstRequestClaimsTheKeyAndRetriesReplayItsResponse() throws Exception {
+        String token = token();
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse first = send(filter, token, key, "{\"amount\":10}");
+        MockHttpServletResponse retry = send(filter, token, key, "{\"amount\":10}");
+
+        assertEquals(1, executions.get());
+        assertEquals(201, first.getStatus());
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(201, retry.getStatus());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+    }
+
+    @Test
+    void keyReusedWithAnotherBodyIsRejected() throws Exception {
+        String token = token();
+        String key = UUID.randomUUID().toString();
+
+        send(filter, token, key, "{\"amount\":10}");
+        MockHttpServletResponse reused = send(filter, token, key, "{\"amount\":99}");
+
+        assertEquals(1, executions.get());
+        assertEquals(422, reused.getStatus());
+    }
+
+    @Test
+    void sameKeyOfAnotherUserExecutesAgain() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        send(filter, token(), key, "{\"amount\":10}");
+        MockHttpServletResponse other = send(filter, token(), key, "{\"amount\":10}");
+
+        assertEquals(2, executions.get());
+        assertNull(other.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void failedRequestReleasesTheKey() throws Exception {
+        String token = token();
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse failed = send(filter, token, key, "{\"amount\":10}", 400);
+        MockHttpServletResponse retry = send(filter, token, key, "{\"amount\":10}");
+
+        assertEquals(2, executions.get());
+        assertEquals(400, failed.getStatus());
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void expiredKeyExecutesAgain() throws Exception {
+        // A TTL of zero hours: every stored response has expired by the next request
+        IdempotencyFilter expiring = new IdempotencyFilter(new IdempotencyService(idempotencyKeyRepository, 100, 0),
+                jwtUtil, objectMapper, Set.of(PATH), 1000);
+        String token = token();
+        String key = UUID.randomUUID().toString();
+
+        send(expiring, token, key, "{\"amount\":10}");
+        Thread.sleep(10);
+        MockHttpServletResponse again = send(expiring, token, key, "{\"amount\":10}");
+
+        assertEquals(2, executions.get());
+        assertEquals(201, again.getStatus());
+        assertNull(again.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void keyedRequestWithoutAValidTokenIsRefused() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse missing = send(filter, null, key, "{\"amount\":10}");
+        MockHttpServletResponse invalid = send(filter, "not-a-token", key, "{\"amount\":10}");
+
+        assertEquals(401, missing.getStatus());
+        assertEquals(401, invalid.getStatus());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void bufferedBodyCanBeReadThroughAReadListener() throws Exception {
+        MockHttpServletRequest request = request(token(), UUID.randomUUID().toString(), "{\"amount\":10}");
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicInteger allDataRead = new AtomicInteger();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (in.isReady() && !in.isFinished()) {
+                        read.write(in.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+            res.getOutputStream().write(new byte[0]);
+        });
+
+        assertEquals("{\"amount\":10}", read.toString(StandardCharsets.UTF_8));
+        assertEquals(1, allDataRead.get());
+    }
+
+    @Test
+    void unkeyedRequestsAreNotFiltered() throws Exception {
+        MockHttpServletRequest request = request(null, null, "{\"amount\":10}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain(201));
+        filter.doFilter(request(null, null, "{\"amount\":10}"), new MockHttpServletResponse(), chain(201));
+
+        assertEquals(2, executions.get());
+        assertFalse(response.containsHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    private MockHttpServletResponse send(IdempotencyFilter filter, String token, String key, String body)
+            throws Exception {
+        return send(filter, token, key, body, 201);
+    }
+
+    private MockHttpServletResponse send(IdempotencyFilter filter, String token, String key, String body,
+                                         int status) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(token, key, body), response, chain(status));
+        return response;
+    }
+
+    /**
+     * Echoes the body it read, numbered by execution
+     */
+    private FilterChain chain(int status) {
+        return (req, res) -> {
+            String body = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            res.setContentType("application/json");
+            ((HttpServletResponse) res).setStatus(status);
+            res.getOutputStream().write(("{\"execution\":" + executions.incrementAndGet() + ",\"request\":" + body + "}")
+                    .getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private static MockHttpServletRequest request(String token, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        }
+        return request;
+    }
+
+    private String token() {
+        String userId = "IDEM" + UUID.randomUUID().toString().substring(0, 8);
+        return jwtUtil.generateToken(userId.toLowerCase() + "@campuscross.test", userId, "STUDENT");
+    }
+}
@@ -0,0 +1,110 @@
+package com.campuscross.wallet.config;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.controller.UserController;
+import com.campuscross.wallet.controller.WalletController;
+import com.campuscross.wallet.service.ReadYourWrites;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Which pool a transaction runs on. The "replica" is the same embedded database reached
+ * through the replica pool; each pool sets its own application_name, which the session
+ * reports back.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.data-source-properties.ApplicationName=wallet-primary",
+        "wallet.datasource.replica.hikari.data-source-properties.ApplicationName=wallet-replica",
+        "wallet.datasource.read-your-writes-ms=60000"
+})
+class ReadReplicaRoutingTest extends PostgresIntegrationTest {
+
+    private static final String PRIMARY = "wallet-primary";
+    private static final String REPLICA = "wallet-replica";
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("wallet.datasource.replica.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private ReadYourWritesInterceptor interceptor;
+
+    @Autowired
+    private WalletController walletController;
+
+    @Autowired
+    private UserController userController;
+
+    @AfterEach
+    void unbind() {
+        readYourWrites.unbind();
+    }
+
+    @Test
+    void readOnlyTransactionsRunOnTheReplica() {
+        assertEquals(REPLICA, pool(true));
+    }
+
+    @Test
+    void readWriteTransactionsRunOnThePrimary() {
+        assertEquals(PRIMARY, pool(false));
+    }
+
+    @Test
+    void readsWithinTheReadYourWritesWindowRunOnThePrimary() {
+        readYourWrites.recordOnCommit("ROUTING-WRITER");
+
+        assertEquals(PRIMARY, readYourWrites.forUser("ROUTING-WRITER", () -> pool(true)));
+        assertEquals(REPLICA, readYourWrites.forUser("ROUTING-READER", () -> pool(true)));
+    }
+
+    @Test
+    void batchLookupsAreReadsButOtherPostsArePinned() throws Exception {
+        assertFalse(pinnedBy(new HandlerMethod(walletController, WalletController.class.getMethod(
+                "getWalletsByAddress", WalletController.BatchWalletRequest.class)), "/api/wallets/batch"));
+        assertFalse(pinnedBy(new HandlerMethod(userController, UserController.class.getMethod(
+                "batchLookupUsers", UserController.BatchLookupRequest.class)), "/api/users/batch-lookup"));
+        assertTrue(pinnedBy(new HandlerMethod(walletController, WalletController.class.getMethod(
+                "addFunds", Long.class, WalletController.AddFundsRequest.class)), "/api/wallets/1/add-funds"));
+    }
+
+    private boolean pinnedBy(HandlerMethod handler, String uri) {
+        interceptor.preHandle(new MockHttpServletRequest("POST", uri), new MockHttpServletResponse(), handler);
+        try {
+            return readYourWrites.requiresPrimary();
+        } finally {
+            readYourWrites.unbind();
+        }
+    }
+
+    private String pool(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                jdbcTemplate.queryForObject("SELECT current_setting('application_name')", String.class));
+    }
+}
@@ -0,0 +1,130 @@
+package com.campuscross.wallet.controller;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.service.WalletService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The batch wallet and user lookups against the single-item endpoints they replace: the
+ * same responses, the same matching order, and the keys that did not resolve.
+ */
+class BatchLookupTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private WalletController walletController;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void walletBatchMatchesTheSingleLookupAndReportsUnknownAddresses() {
+        Wallet first = newWallet(newUser(null));
+        Wallet second = newWallet(newUser(null));
+        walletService.addFunds(second.getId(), new BigDecimal("12.50"));
+        String unknown = "NOWALLET-" + UUID.randomUUID();
+
+        WalletController.BatchWalletResponse response = body(walletController.getWalletsByAddress(
+                new WalletController.BatchWalletRequest(Arrays.asList(second.getWalletAddress(), unknown,
+                        first.getWalletAddress(), null, second.getWalletAddress()))));
+
+        // In request order, once each, without the null
+        assertEquals(List.of(second.getWalletAddress(), first.getWalletAddress()),
+                List.copyOf(response.wallets().keySet()));
+        assertEquals(List.of(unknown), response.notFound());
+        for (Wallet wallet : List.of(first, second)) {
+            assertEquals(walletController.getWalletByAddress(wallet.getWalletAddress()).getBody(),
+                    response.wallets().get(wallet.getWalletAddress()));
+        }
+        assertEquals(0, new BigDecimal("12.50").compareTo(
+                response.wallets().get(second.getWalletAddress()).balance()));
+    }
+
+    @Test
+    void userBatchMatchesStudentIdThenPhoneThenEmail() {
+        User byStudentId = newUser(null);
+        // Phone number equal to the other user's student ID: the student ID wins, as in /lookup
+        User byPhone = newUser(byStudentId.getStudentId());
+        String phoneOnly = String.format("+1%010d", ThreadLocalRandom.current().nextLong(10_000_000_000L));
+        User withPhone = newUser(phoneOnly);
+        String unknown = "nobody-" + UUID.randomUUID() + "@campuscross.test";
+        List<String> identifiers = List.of(byStudentId.getStudentId(), phoneOnly, byPhone.getEmail(), unknown);
+
+        UserController.BatchLookupResponse response = body(userController.batchLookupUsers(
+                new UserController.BatchLookupRequest(identifiers)));
+
+        assertEquals(List.of(byStudentId.getStudentId(), phoneOnly, byPhone.getEmail()),
+                List.copyOf(response.users().keySet()));
+        assertEquals(List.of(unknown), response.notFound());
+        assertEquals(byStudentId.getStudentId(), response.users().get(byStudentId.getStudentId()).studentId());
+        assertEquals(withPhone.getStudentId(), response.users().get(phoneOnly).studentId());
+        assertEquals(byPhone.getStudentId(), response.users().get(byPhone.getEmail()).studentId());
+        for (String identifier : identifiers.subList(0, 3)) {
+            assertEquals(userController.lookupUser(identifier).getBody(), response.users().get(identifier));
+        }
+    }
+
+    @Test
+    void batchesMustBeNonEmptyAndAtMostOneHundredKeys() {
+        List<String> tooMany = new ArrayList<>(IntStream.range(0, 101).mapToObj(i -> "KEY" + i).toList());
+
+        assertEquals(400, walletController.getWalletsByAddress(
+                new WalletController.BatchWalletRequest(List.of())).getStatusCode().value());
+        assertEquals(400, walletController.getWalletsByAddress(
+                new WalletController.BatchWalletRequest(tooMany)).getStatusCode().value());
+        assertEquals(400, userController.batchLookupUsers(
+                new UserController.BatchLookupRequest(null)).getStatusCode().value());
+        assertEquals(400, userController.batchLookupUsers(
+                new UserController.BatchLookupRequest(tooMany)).getStatusCode().value());
+
+        // Duplicates count once towards the limit
+        tooMany.set(100, "KEY0");
+        UserController.BatchLookupResponse response = body(userController.batchLookupUsers(
+                new UserController.BatchLookupRequest(tooMany)));
+        assertEquals(100, response.notFound().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T body(ResponseEntity<?> response) {
+        assertEquals(200, response.getStatusCode().value(), String.valueOf(response.getBody()));
+        return (T) response.getBody();
+    }
+
+    private User newUser(String phoneNumber) {
+        String studentId = "BTCH" + UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Batch")
+                .lastName("Test")
+                .phoneNumber(phoneNumber)
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+    }
+
+    private Wallet newWallet(User user) {
+        return walletService.createWallet(user, "Batch", Wallet.WalletType.SAVINGS, "USD", true);
+    }
+}
@@ -0,0 +1,222 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.FraudRuleDefinitionRepository;
+import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.repository.WalletRepository;
+import com.campuscross.wallet.service.fraud.FraudRuleEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Transfers through the group-commit pipeline, whose batches apply their debits and credits
+ * as JDBC batches. A long linger collects concurrent submissions into the same batch.
+ */
+@TestPropertySource(properties = {
+        "wallet.transfer.group-commit.enabled=true",
+        "wallet.transfer.group-commit.linger-ms=200"
+})
+class GroupCommitTransferPipelineTest extends PostgresIntegrationTest {
+
+    private static final String REFUSED = "Insufficient balance or limit exceeded";
+
+    @Autowired
+    private GroupCommitTransferPipeline pipeline;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletPortfolioCache walletPortfolioCache;
+
+    @Autowired
+    private FraudRuleDefinitionRepository fraudRuleDefinitionRepository;
+
+    @Autowired
+    private FraudRuleEngine fraudRuleEngine;
+
+    private final List<FraudRuleDefinition> disabledRules = new ArrayList<>();
+
+    @BeforeEach
+    void disableTransferFraudRules() {
+        // The frequency rules would refuse a few wallets paying each other hundreds of times
+        for (FraudRuleDefinition definition : fraudRuleDefinitionRepository.findAll()) {
+            if (definition.isEnabled() && "P2P_TRANSFER".equals(definition.getAppliesTo())) {
+                definition.setEnabled(false);
+                disabledRules.add(fraudRuleDefinitionRepository.save(definition));
+            }
+        }
+        fraudRuleEngine.reload();
+    }
+
+    @AfterEach
+    void restoreTransferFraudRules() {
+        for (FraudRuleDefinition definition : disabledRules) {
+            definition.setEnabled(true);
+            fraudRuleDefinitionRepository.save(definition);
+        }
+        disabledRules.clear();
+        fraudRuleEngine.reload();
+    }
+
+    @Test
+    void transferCoveredByAnEarlierCreditOfTheBatchCompletes() throws Exception {
+        Wallet a = newWallet(new BigDecimal("50.00"));
+        Wallet b = newWallet(BigDecimal.ZERO);
+        Wallet c = newWallet(BigDecimal.ZERO);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> pipeline.transfer(a.getId(), b.getWalletAddress(),
+                    new BigDecimal("30.00"), "first", "127.0.0.1"));
+            Thread.sleep(20);
+            // B has nothing until the first transfer's credit, which the batch applies after
+            // all debits; the second transfer is retried once that credit has landed
+            Future<?> second = executor.submit(() -> pipeline.transfer(b.getId(), c.getWalletAddress(),
+                    new BigDecimal("20.00"), "second", "127.0.0.1"));
+            first.get(30, TimeUnit.SECONDS);
+            second.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertBalance(a, "20.00");
+        assertBalance(b, "10.00");
+        assertBalance(c, "20.00");
+        for (Wallet wallet : List.of(a, b, c)) {
+            assertEquals(0, ledgerService.reconcile(wallet.getId()).difference().signum());
+        }
+    }
+
+    @Test
+    void concurrentBatchesConserveTheTotalAndNeverOverdraw() throws Exception {
+        int walletCount = 10;
+        int transfers = 600;
+        BigDecimal opening = new BigDecimal("40.00");
+        List<Wallet> wallets = new ArrayList<>(walletCount);
+        for (int i = 0; i < walletCount; i++) {
+            wallets.add(newWallet(opening));
+        }
+
+        Random random = new Random(7);
+        int[][] planned = new int[transfers][];
+        BigDecimal[] amounts = new BigDecimal[transfers];
+        for (int i = 0; i < transfers; i++) {
+            int source = random.nextInt(walletCount);
+            planned[i] = new int[] {source, (source + 1 + random.nextInt(walletCount - 1)) % walletCount};
+            amounts[i] = BigDecimal.valueOf(100 + random.nextInt(1901), 2);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<Boolean>> futures = new ArrayList<>(transfers);
+        try {
+            for (int i = 0; i < transfers; i++) {
+                Wallet source = wallets.get(planned[i][0]);
+                Wallet target = wallets.get(planned[i][1]);
+                BigDecimal amount = amounts[i];
+                futures.add(executor.submit(() -> {
+                    try {
+                        pipeline.transfer(source.getId(), target.getWalletAddress(), amount, "batch", "127.0.0.1");
+                        return true;
+                    } catch (RuntimeException e) {
+                        if (REFUSED.equals(e.getMessage())) {
+                            return false;
+                        }
+                        throw e;
+                    }
+                }));
+            }
+
+            BigDecimal[] expected = new BigDecimal[walletCount];
+            Arrays.fill(expected, opening);
+            int accepted = 0;
+            for (int i = 0; i < transfers; i++) {
+                if (futures.get(i).get(60, TimeUnit.SECONDS)) {
+                    expected[planned[i][0]] = expected[planned[i][0]].subtract(amounts[i]);
+                    expected[planned[i][1]] = expected[planned[i][1]].add(amounts[i]);
+                    accepted++;
+                }
+            }
+            assertTrue(accepted > transfers / 2, "only " + accepted + " transfers completed");
+
+            BigDecimal total = BigDecimal.ZERO;
+            for (int i = 0; i < walletCount; i++) {
+                BigDecimal balance = walletRepository.findById(wallets.get(i).getId()).orElseThrow().getBalance();
+                assertTrue(balance.signum() >= 0, "wallet went negative: " + balance);
+                assertEquals(0, expected[i].compareTo(balance), "expected " + expected[i] + " but was " + balance);
+                assertEquals(0, ledgerService.reconcile(wallets.get(i).getId()).difference().signum());
+                total = total.add(balance);
+            }
+            assertEquals(0, opening.multiply(BigDecimal.valueOf(walletCount)).compareTo(total));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void batchedTransferEvictsBothCachedPortfolios() {
+        Wallet a = newWallet(new BigDecimal("50.00"));
+        Wallet b = newWallet(BigDecimal.ZERO);
+        walletPortfolioCache.get(a.getUser().getStudentId());
+        walletPortfolioCache.get(b.getUser().getStudentId());
+
+        pipeline.transfer(a.getId(), b.getWalletAddress(), new BigDecimal("15.00"), "cached", "127.0.0.1");
+
+        assertEquals(0, new BigDecimal("35.00").compareTo(
+                walletPortfolioCache.get(a.getUser().getStudentId()).totalBalance()));
+        assertEquals(0, new BigDecimal("15.00").compareTo(
+                walletPortfolioCache.get(b.getUser().getStudentId()).totalBalance()));
+    }
+
+    private Wallet newWallet(BigDecimal balance) {
+        String studentId = "GRPC" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Group")
+                .lastName("Commit")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        Wallet wallet = walletService.createWallet(user, "Group commit", Wallet.WalletType.SAVINGS, "USD", true);
+        if (balance.signum() > 0) {
+            walletService.addFunds(wallet.getId(), balance);
+        }
+        return wallet;
+    }
+
+    private void assertBalance(Wallet wallet, String expected) {
+        BigDecimal balance = walletRepository.findById(wallet.getId()).orElseThrow().getBalance();
+        assertEquals(0, new BigDecimal(expected).compareTo(balance), "expected " + expected + " but was " + balance);
+    }
+}
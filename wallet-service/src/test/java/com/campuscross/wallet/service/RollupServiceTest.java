@@ -0,0 +1,243 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The rollups against the same totals computed straight from the transactions table, after
+ * a backfill and while payments complete during one.
+ */
+class RollupServiceTest extends PostgresIntegrationTest {
+
+    /**
+     * Days no other test writes to
+     */
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 3, 1);
+    private static final LocalDate LAST_DAY = FIRST_DAY.plusDays(2);
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void backfillMatchesTheTransactionsTable() {
+        Wallet alice = newWallet("USD");
+        Wallet bob = newWallet("USD");
+        Wallet carol = newWallet("EUR");
+        for (int day = 0; day < 3; day++) {
+            LocalDateTime at = FIRST_DAY.plusDays(day).atTime(9, 30);
+            save(payment(alice, bob, "12.50", "0.25", Transaction.TransactionStatus.COMPLETED), at);
+            save(payment(bob, alice, "3.10", "0", Transaction.TransactionStatus.COMPLETED), at.plusHours(2));
+            Transaction remittance = payment(alice, carol, "40.00", "1.20", Transaction.TransactionStatus.COMPLETED);
+            remittance.setCurrencyCode("EUR");
+            save(remittance, at.plusHours(3));
+            // Neither counts: failed, and flagged before it completed
+            save(payment(alice, bob, "99.00", "1.00", Transaction.TransactionStatus.FAILED), at.plusHours(4));
+            save(payment(alice, bob, "77.00", "1.00", Transaction.TransactionStatus.FLAGGED), at.plusHours(5));
+            // Flagged after completing counts
+            Transaction flaggedLate = payment(bob, alice, "5.00", "0.05", Transaction.TransactionStatus.FLAGGED);
+            flaggedLate.setCompletedAt(at);
+            save(flaggedLate, at.plusHours(6));
+            // A deposit has no sender
+            save(payment(null, carol, "250.00", "0", Transaction.TransactionStatus.COMPLETED), at.plusHours(7));
+        }
+
+        RollupService.BackfillResult result = rollupService.backfill(FIRST_DAY, LAST_DAY);
+
+        assertEquals(3, result.days());
+        for (Wallet wallet : List.of(alice, bob, carol)) {
+            String userId = wallet.getUser().getStudentId();
+            assertEquals(totalsFromTransactions(userId, FIRST_DAY, LAST_DAY), rollups(userId, FIRST_DAY, LAST_DAY));
+        }
+        assertEquals(amounts("120", "0", "3.6"), rollups(alice.getUser().getStudentId(), FIRST_DAY, LAST_DAY).get("EUR"));
+        assertEquals(feesFromTransactions(FIRST_DAY, LAST_DAY), feeRollups(FIRST_DAY, LAST_DAY));
+
+        // Rebuilding a day again replaces it instead of adding to it
+        rollupService.backfill(FIRST_DAY, FIRST_DAY);
+        String userId = alice.getUser().getStudentId();
+        assertEquals(totalsFromTransactions(userId, FIRST_DAY, LAST_DAY), rollups(userId, FIRST_DAY, LAST_DAY));
+    }
+
+    @Test
+    void paymentsCompletingDuringABackfillAreCountedOnce() throws Exception {
+        Wallet alice = newWallet("USD");
+        Wallet bob = newWallet("USD");
+        LocalDate today = LocalDate.now();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < 2; writer++) {
+                boolean aliceSends = writer == 0;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        complete(aliceSends
+                                ? payment(alice, bob, "1.00", "0.01", Transaction.TransactionStatus.COMPLETED)
+                                : payment(bob, alice, "2.00", "0.02", Transaction.TransactionStatus.COMPLETED));
+                    }
+                }));
+            }
+            Future<?> backfills = executor.submit(() -> {
+                while (!writers.stream().allMatch(Future::isDone)) {
+                    rollupService.backfill(today, today);
+                }
+            });
+            for (Future<?> writer : writers) {
+                writer.get(120, TimeUnit.SECONDS);
+            }
+            backfills.get(120, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Wallet wallet : List.of(alice, bob)) {
+            String userId = wallet.getUser().getStudentId();
+            Map<String, List<BigDecimal>> rollups = rollups(userId, today, today);
+            assertFalse(rollups.isEmpty());
+            assertEquals(totalsFromTransactions(userId, today, today), rollups);
+        }
+        assertEquals(amounts("100", "200", "1"), rollups(alice.getUser().getStudentId(), today, today).get("USD"));
+    }
+
+    /**
+     * Saves and rolls up a payment in one transaction, like the payment paths do
+     */
+    private void complete(Transaction transaction) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                rollupService.recordCompleted(transactionRepository.save(transaction)));
+    }
+
+    private void save(Transaction transaction, LocalDateTime createdAt) {
+        Transaction saved = transactionRepository.save(transaction);
+        jdbcTemplate.update("UPDATE transactions SET created_at = ? WHERE id = ?",
+                Timestamp.valueOf(createdAt), saved.getId());
+    }
+
+    /**
+     * Currency code to (spent, received, fees)
+     */
+    private Map<String, List<BigDecimal>> rollups(String userId, LocalDate from, LocalDate to) {
+        Map<String, List<BigDecimal>> totals = new TreeMap<>();
+        for (RollupService.UserTotals row : rollupService.getUserTotals(userId, from, to)) {
+            totals.put(row.currencyCode(), List.of(normalize(row.spent()), normalize(row.received()),
+                    normalize(row.fees())));
+        }
+        return totals;
+    }
+
+    private Map<String, List<BigDecimal>> totalsFromTransactions(String userId, LocalDate from, LocalDate to) {
+        String completed = Transaction.COUNTS_AS_COMPLETED_SQL;
+        Map<String, List<BigDecimal>> totals = new TreeMap<>();
+        jdbcTemplate.query("SELECT currency_code, " +
+                        "COALESCE(SUM(amount) FILTER (WHERE source_user_id = ?), 0), " +
+                        "COALESCE(SUM(amount) FILTER (WHERE target_user_id = ?), 0), " +
+                        "COALESCE(SUM(fee_amount) FILTER (WHERE source_user_id = ?), 0) " +
+                        "FROM transactions WHERE " + completed + " AND (source_user_id = ? OR target_user_id = ?) " +
+                        "AND created_at >= ? AND created_at < ? GROUP BY currency_code",
+                rs -> {
+                    totals.put(rs.getString(1), List.of(normalize(rs.getBigDecimal(2)),
+                            normalize(rs.getBigDecimal(3)), normalize(rs.getBigDecimal(4))));
+                },
+                userId, userId, userId, userId, userId,
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        return totals;
+    }
+
+    private Map<String, BigDecimal> feeRollups(LocalDate from, LocalDate to) {
+        Map<String, BigDecimal> fees = new TreeMap<>();
+        rollupService.getFeeTotals(from, to).forEach(row -> fees.put(row.currencyCode(), normalize(row.fees())));
+        return fees;
+    }
+
+    private Map<String, BigDecimal> feesFromTransactions(LocalDate from, LocalDate to) {
+        Map<String, BigDecimal> fees = new TreeMap<>();
+        jdbcTemplate.query("SELECT currency_code, SUM(fee_amount) FROM transactions WHERE "
+                        + Transaction.COUNTS_AS_COMPLETED_SQL + " AND fee_amount <> 0 "
+                        + "AND created_at >= ? AND created_at < ? GROUP BY currency_code",
+                rs -> {
+                    fees.put(rs.getString(1), normalize(rs.getBigDecimal(2)));
+                },
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        return fees;
+    }
+
+    private static List<BigDecimal> amounts(String spent, String received, String fees) {
+        return List.of(normalize(new BigDecimal(spent)), normalize(new BigDecimal(received)),
+                normalize(new BigDecimal(fees)));
+    }
+
+    private static BigDecimal normalize(BigDecimal value) {
+        return value.stripTrailingZeros();
+    }
+
+    private static Transaction payment(Wallet source, Wallet target, String amount, String fee,
+                                       Transaction.TransactionStatus status) {
+        return Transaction.builder()
+                .transactionId("RLUP-" + UUID.randomUUID())
+                .sourceWallet(source)
+                .targetWallet(target)
+                .amount(new BigDecimal(amount))
+                .feeAmount(new BigDecimal(fee))
+                .currencyCode("USD")
+                .type(source == null ? Transaction.TransactionType.DEPOSIT : Transaction.TransactionType.P2P_TRANSFER)
+                .status(status)
+                .description("rollup test")
+                .sourceUserId(source == null ? null : source.getUser().getStudentId())
+                .targetUserId(target.getUser().getStudentId())
+                .build();
+    }
+
+    private Wallet newWallet(String currencyCode) {
+        String studentId = "RLUP" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Rollup")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        return walletService.createWallet(user, "Rollups", Wallet.WalletType.SAVINGS, currencyCode, true);
+    }
+}
@@ -0,0 +1,197 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exports of a user's history: the CSV quoting, NDJSON and gzip output, and a client that
+ * disconnects halfway through a long export.
+ */
+class TransactionExportServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final LocalDateTime from = LocalDateTime.now().minusDays(1);
+    private final LocalDateTime to = LocalDateTime.now().plusDays(1);
+
+    @Test
+    void csvQuotesSeparatorsAndDefusesFormulas() {
+        Wallet wallet = newWallet();
+        Wallet other = newWallet();
+        save(List.of(
+                payment(wallet, other, "plain"),
+                payment(wallet, other, "rent, March"),
+                payment(wallet, other, "the \"good\" coffee"),
+                payment(wallet, other, "line one\nline two"),
+                payment(wallet, other, "=HYPERLINK(\"http://example.test\")"),
+                payment(wallet, other, "-5 refund")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = transactionExportService.export(userId(wallet), from, to,
+                TransactionExportService.Format.CSV, false, out);
+        String csv = out.toString(StandardCharsets.UTF_8);
+
+        assertEquals(6, written);
+        assertTrue(csv.startsWith("transactionId,type,status,amount,feeAmount,currencyCode,description,"
+                + "createdAt,completedAt,senderStudentId,recipientStudentId\n"));
+        assertTrue(csv.contains(",plain,"));
+        assertTrue(csv.contains(",\"rent, March\","));
+        assertTrue(csv.contains(",\"the \"\"good\"\" coffee\","));
+        assertTrue(csv.contains(",\"line one\nline two\","));
+        assertTrue(csv.contains(",\"'=HYPERLINK(\"\"http://example.test\"\")\","));
+        assertTrue(csv.contains(",'-5 refund,"));
+        // Numbers are written as they are, only text is checked for formulas
+        assertTrue(csv.contains(",P2P_TRANSFER,COMPLETED,1.00000000,"));
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerRowOldestFirst() throws Exception {
+        Wallet wallet = newWallet();
+        Wallet other = newWallet();
+        List<Transaction> saved = save(List.of(payment(wallet, other, "first"), payment(other, wallet, "second")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transactionExportService.export(userId(wallet), from, to, TransactionExportService.Format.NDJSON, true, out);
+        String ndjson;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ndjson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        String[] lines = ndjson.split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(saved.get(0).getTransactionId(), first.get("transactionId").asText());
+        assertEquals("first", first.get("description").asText());
+        assertEquals(saved.get(1).getTransactionId(), objectMapper.readTree(lines[1]).get("transactionId").asText());
+    }
+
+    @Test
+    void clientDisconnectEndsTheExportEarly() {
+        Wallet wallet = newWallet();
+        Wallet other = newWallet();
+        save(IntStream.range(0, 3000).mapToObj(i -> payment(wallet, other, "row " + i)).toList());
+        Timer cancelled = meterRegistry.timer("wallet.transactions.export.duration", "format", "csv",
+                "outcome", "cancelled");
+        long cancelledBefore = cancelled.count();
+        double rowsBefore = meterRegistry.counter("wallet.transactions.export.rows", "format", "csv").count();
+
+        DisconnectingStream out = new DisconnectingStream(16 * 1024);
+        long written = transactionExportService.export(userId(wallet), from, to,
+                TransactionExportService.Format.CSV, false, out);
+
+        assertEquals(-1, written);
+        assertEquals(cancelledBefore + 1, cancelled.count());
+        double rows = meterRegistry.counter("wallet.transactions.export.rows", "format", "csv").count() - rowsBefore;
+        assertTrue(rows < 3000, "read all " + rows + " rows after the client went away");
+        assertEquals(0.0, meterRegistry.get("wallet.transactions.export.active").gauge().value());
+    }
+
+    private List<Transaction> save(List<Transaction> transactions) {
+        List<Transaction> saved = new ArrayList<>();
+        transactions.forEach(transaction -> saved.add(transactionRepository.save(transaction)));
+        return saved;
+    }
+
+    private static Transaction payment(Wallet source, Wallet target, String description) {
+        return Transaction.builder()
+                .transactionId("EXPT-" + UUID.randomUUID())
+                .sourceWallet(source)
+                .targetWallet(target)
+                .amount(new BigDecimal("1.00"))
+                .currencyCode("USD")
+                .type(Transaction.TransactionType.P2P_TRANSFER)
+                .status(Transaction.TransactionStatus.COMPLETED)
+                .description(description)
+                .senderStudentId(userId(source))
+                .recipientStudentId(userId(target))
+                .sourceUserId(userId(source))
+                .targetUserId(userId(target))
+                .build();
+    }
+
+    private static String userId(Wallet wallet) {
+        return wallet.getUser().getStudentId();
+    }
+
+    private Wallet newWallet() {
+        String studentId = "EXPT" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Export")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        return walletService.createWallet(user, "Exports", Wallet.WalletType.SAVINGS, "USD", true);
+    }
+
+    /**
+     * Accepts a number of bytes, then fails every write like a closed connection
+     */
+    private static class DisconnectingStream extends OutputStream {
+
+        private final int capacity;
+        private int written;
+
+        DisconnectingStream(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (written + len > capacity) {
+                throw new IOException("Broken pipe");
+            }
+            written += len;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Partition maintenance on a database converted by V13. Each test gets its own database,
+ * built from the V1-V4 and V11 scripts with fourteen months of history, then partitioned.
+ */
+class TransactionPartitionManagerTest extends PostgresIntegrationTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final int HISTORY_DAYS = 420;
+
+    @Test
+    void migrationKeepsEveryRowAndAddsADefaultPartition() throws Exception {
+        JdbcTemplate jdbc = partitionedDatabase();
+
+        assertEquals(HISTORY_DAYS, count(jdbc, "SELECT COUNT(*) FROM transactions"));
+        assertEquals(0, count(jdbc, "SELECT COUNT(*) FROM transactions_default"));
+        assertTrue(partitions(jdbc).contains(TransactionPartitionManager.partitionName(YearMonth.now().plusMonths(3))));
+        assertTrue(partitions(jdbc).contains("transactions_default"));
+    }
+
+    @Test
+    void transactionIdsStayUniqueAcrossPartitions() throws Exception {
+        JdbcTemplate jdbc = partitionedDatabase();
+        insert(jdbc, "TXN-ONCE", LocalDateTime.now());
+
+        // A different month is a different partition, which the partitioned index cannot see
+        assertThrows(DuplicateKeyException.class, () -> insert(jdbc, "TXN-ONCE", LocalDateTime.now().minusMonths(2)));
+        assertThrows(DuplicateKeyException.class, () -> insert(jdbc, "TXN-HISTORY-1", LocalDateTime.now()));
+        assertEquals(HISTORY_DAYS + 1, count(jdbc, "SELECT COUNT(*) FROM transaction_ids"));
+    }
+
+    @Test
+    void disbursementItemsStillReferenceExistingTransactions() throws Exception {
+        JdbcTemplate jdbc = partitionedDatabase();
+        jdbc.update("INSERT INTO disbursement_batches (batch_id, created_by, total_count, total_amount, currency) " +
+                "SELECT 'BATCH-1', id, 1, 10.00, 'USD' FROM users");
+        String item = "INSERT INTO disbursement_items (batch_id, student_id, amount, currency, transaction_id) " +
+                "SELECT id, 'S1', 10.00, 'USD', ? FROM disbursement_batches";
+
+        jdbc.update(item, jdbc.queryForObject("SELECT MIN(id) FROM transactions", Long.class));
+        assertThrows(DataIntegrityViolationException.class, () -> jdbc.update(item, Long.MAX_VALUE));
+    }
+
+    @Test
+    void rowsInTheDefaultPartitionMoveToTheirMonthWithoutLossUnderConcurrentInserts() throws Exception {
+        JdbcTemplate jdbc = partitionedDatabase();
+        YearMonth month = YearMonth.now().plusMonths(5);
+        LocalDateTime inMonth = month.atDay(10).atStartOfDay();
+        for (int i = 0; i < 100; i++) {
+            insert(jdbc, inMonth.plusMinutes(i));
+        }
+        assertEquals(100, count(jdbc, "SELECT COUNT(*) FROM transactions_default"));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> inserted = executor.submit(() -> {
+                int rows = 0;
+                while (running.get()) {
+                    insert(jdbc, inMonth.plusSeconds(rows));
+                    rows++;
+                }
+                return rows;
+            });
+            while (count(jdbc, "SELECT COUNT(*) FROM transactions_default") < 200) {
+                Thread.sleep(5);
+            }
+
+            manager(jdbc, 6, 0).maintain();
+
+            Thread.sleep(50);
+            running.set(false);
+            int concurrent = inserted.get(30, TimeUnit.SECONDS);
+
+            String partition = TransactionPartitionManager.partitionName(month);
+            assertTrue(partitions(jdbc).contains(partition));
+            assertEquals(0, count(jdbc, "SELECT COUNT(*) FROM transactions_default"));
+            assertEquals(100 + concurrent, count(jdbc, "SELECT COUNT(*) FROM " + partition));
+            assertEquals(HISTORY_DAYS + 100 + concurrent, count(jdbc, "SELECT COUNT(*) FROM transactions"));
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredMonthsAreArchivedAndDetachedNextToTheDefaultPartition() throws Exception {
+        JdbcTemplate jdbc = partitionedDatabase();
+        YearMonth oldestKept = YearMonth.now().minusMonths(6);
+        long kept = count(jdbc, "SELECT COUNT(*) FROM transactions WHERE created_at >= '" + oldestKept.atDay(1) + "'");
+
+        manager(jdbc, 3, 6).maintain();
+
+        List<String> attached = partitions(jdbc);
+        assertFalse(attached.contains(TransactionPartitionManager.partitionName(oldestKept.minusMonths(1))));
+        assertTrue(attached.contains(TransactionPartitionManager.partitionName(oldestKept)));
+        assertTrue(attached.contains("transactions_default"));
+        assertEquals(kept, count(jdbc, "SELECT COUNT(*) FROM transactions"));
+        long archived = 0;
+        for (String table : jdbc.queryForList("SELECT tablename FROM pg_tables WHERE schemaname = 'archive'", String.class)) {
+            archived += count(jdbc, "SELECT COUNT(*) FROM archive." + table);
+        }
+        assertEquals(HISTORY_DAYS - kept, archived);
+    }
+
+    private JdbcTemplate partitionedDatabase() throws IOException {
+        JdbcTemplate jdbc = createDatabase("partitions_" + DATABASES.incrementAndGet());
+        for (String version : List.of("V1", "V2", "V3", "V4", "V11")) {
+            runMigration(jdbc, version);
+        }
+        jdbc.update("INSERT INTO users (email, password_hash, first_name, last_name) VALUES ('p@campuscross.test', 'x', 'P', 'T')");
+        jdbc.update("INSERT INTO wallets (user_id, wallet_address, wallet_name) SELECT id, 'WLT-PARTITION', 'Partition' FROM users");
+        jdbc.update("INSERT INTO transactions (transaction_id, source_wallet_id, amount, currency_code, type, status, description, created_at) " +
+                "SELECT 'TXN-HISTORY-' || g, (SELECT id FROM wallets), 10.00, 'USD', 'P2P_TRANSFER', 'COMPLETED', 'history', " +
+                "CURRENT_TIMESTAMP - g * INTERVAL '1 day' FROM generate_series(1, " + HISTORY_DAYS + ") g");
+        runMigration(jdbc, "V13");
+        return jdbc;
+    }
+
+    private static TransactionPartitionManager manager(JdbcTemplate jdbc, int monthsAhead, int retentionMonths) {
+        return new TransactionPartitionManager(jdbc, new DataSourceTransactionManager(jdbc.getDataSource()),
+                new SimpleMeterRegistry(), true, monthsAhead, retentionMonths, "archive");
+    }
+
+    private static void insert(JdbcTemplate jdbc, LocalDateTime createdAt) {
+        insert(jdbc, "TXN-" + UUID.randomUUID(), createdAt);
+    }
+
+    private static void insert(JdbcTemplate jdbc, String transactionId, LocalDateTime createdAt) {
+        jdbc.update("INSERT INTO transactions (transaction_id, source_wallet_id, amount, currency_code, type, status, description, created_at) " +
+                        "SELECT ?, id, 10.00, 'USD', 'P2P_TRANSFER', 'COMPLETED', 'partition test', ? FROM wallets",
+                transactionId, Timestamp.valueOf(createdAt));
+    }
+
+    private static List<String> partitions(JdbcTemplate jdbc) {
+        return jdbc.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'transactions'::regclass", String.class);
+    }
+
+    private static long count(JdbcTemplate jdbc, String sql) {
+        return jdbc.queryForObject(sql, Long.class);
+    }
+}
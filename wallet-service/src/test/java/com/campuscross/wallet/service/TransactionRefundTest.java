@@ -0,0 +1,129 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.LedgerEntry;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.repository.WalletRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Refunds give each wallet back its own leg of the payment, in its own currency.
+ */
+class TransactionRefundTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void remittanceRefundReturnsEachLegInItsWalletsCurrency() {
+        Wallet sender = newWallet("USD", new BigDecimal("500.00"));
+        Wallet recipient = newWallet("EUR", new BigDecimal("10.00"));
+
+        Transaction remittance = transactionService.createRemittance(sender.getId(), recipient.getWalletAddress(),
+                new BigDecimal("100.00"), "EUR", new BigDecimal("0.9"), "tuition share", "127.0.0.1");
+        assertBalance(sender, "400.00");
+        assertBalance(recipient, "100.00");
+
+        transactionService.refundTransaction(remittance.getTransactionId(), "returned");
+
+        assertBalance(sender, "500.00");
+        assertBalance(recipient, "10.00");
+        assertReconciled(sender);
+        assertReconciled(recipient);
+
+        Transaction refund = refundOf(remittance);
+        assertEquals(0, new BigDecimal("100.00").compareTo(refund.getAmount()));
+        assertEquals("USD", refund.getCurrencyCode());
+        assertEquals(0, new BigDecimal("90.00").compareTo(refund.getOriginalAmount()));
+        assertEquals("EUR", refund.getOriginalCurrency());
+
+        List<LedgerEntry> recipientEntries = ledgerService.getWalletEntries(recipient.getId(), 1);
+        assertEquals(LedgerEntry.Direction.DEBIT, recipientEntries.get(0).getDirection());
+        assertEquals("EUR", recipientEntries.get(0).getCurrencyCode());
+        List<LedgerEntry> senderEntries = ledgerService.getWalletEntries(sender.getId(), 1);
+        assertEquals(LedgerEntry.Direction.CREDIT, senderEntries.get(0).getDirection());
+        assertEquals("USD", senderEntries.get(0).getCurrencyCode());
+    }
+
+    @Test
+    void transferRefundReturnsTheAmount() {
+        Wallet sender = newWallet("USD", new BigDecimal("50.00"));
+        Wallet recipient = newWallet("USD", BigDecimal.ZERO);
+
+        Transaction transfer = transactionService.createP2PTransfer(sender.getId(), recipient.getWalletAddress(),
+                new BigDecimal("20.00"), "lunch", "127.0.0.1");
+        transactionService.refundTransaction(transfer.getTransactionId(), "returned");
+
+        assertBalance(sender, "50.00");
+        assertBalance(recipient, "0.00");
+        assertReconciled(sender);
+        assertReconciled(recipient);
+        Transaction refund = refundOf(transfer);
+        assertEquals(0, new BigDecimal("20.00").compareTo(refund.getAmount()));
+        assertNull(refund.getOriginalAmount());
+    }
+
+    private Transaction refundOf(Transaction original) {
+        return transactionRepository.findBySourceWalletId(original.getTargetWallet().getId()).stream()
+                .filter(t -> original.getTransactionId().equals(t.getReferenceId()))
+                .filter(t -> t.getType() == Transaction.TransactionType.REFUND)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private Wallet newWallet(String currencyCode, BigDecimal balance) {
+        String studentId = "RFND" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Refund")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        Wallet wallet = walletService.createWallet(user, "Refunds", Wallet.WalletType.SAVINGS, currencyCode, true);
+        if (balance.signum() > 0) {
+            walletService.addFunds(wallet.getId(), balance);
+        }
+        return wallet;
+    }
+
+    private void assertBalance(Wallet wallet, String expected) {
+        BigDecimal balance = walletRepository.findById(wallet.getId()).orElseThrow().getBalance();
+        assertEquals(0, new BigDecimal(expected).compareTo(balance), "expected " + expected + " but was " + balance);
+    }
+
+    private void assertReconciled(Wallet wallet) {
+        assertTrue(ledgerService.reconcile(wallet.getId()).difference().signum() == 0,
+                "ledger of wallet " + wallet.getId() + " disagrees with its balance");
+    }
+}
@@ -0,0 +1,200 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.FraudRuleDefinitionRepository;
+import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.repository.WalletRepository;
+import com.campuscross.wallet.service.fraud.FraudRuleEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Thousands of P2P transfers between a small set of wallets at once, through the same retry
+ * wrapper the controller uses. Money may only move between the wallets: the total must be
+ * conserved, no wallet may go negative, and every wallet must end with exactly the balance its
+ * completed transfers add up to, matching its ledger journal.
+ */
+class TransferConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 24;
+    private static final int WALLETS = 20;
+    private static final int TRANSFERS = 3000;
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("50.00");
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferRetryExecutor transferRetryExecutor;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FraudRuleDefinitionRepository fraudRuleDefinitionRepository;
+
+    @Autowired
+    private FraudRuleEngine fraudRuleEngine;
+
+    private final List<FraudRuleDefinition> disabledRules = new ArrayList<>();
+
+    @BeforeEach
+    void disableTransferFraudRules() {
+        // The frequency and ring rules would refuse most of a few wallets paying each other
+        // thousands of times; this test is about the balances
+        for (FraudRuleDefinition definition : fraudRuleDefinitionRepository.findAll()) {
+            if (definition.isEnabled() && "P2P_TRANSFER".equals(definition.getAppliesTo())) {
+                definition.setEnabled(false);
+                disabledRules.add(fraudRuleDefinitionRepository.save(definition));
+            }
+        }
+        fraudRuleEngine.reload();
+    }
+
+    @AfterEach
+    void restoreTransferFraudRules() {
+        for (FraudRuleDefinition definition : disabledRules) {
+            definition.setEnabled(true);
+            fraudRuleDefinitionRepository.save(definition);
+        }
+        disabledRules.clear();
+        fraudRuleEngine.reload();
+    }
+
+    @Test
+    void concurrentTransfersConserveTheTotalAndNeverOverdraw() throws Exception {
+        List<Wallet> wallets = new ArrayList<>(WALLETS);
+        for (int i = 0; i < WALLETS; i++) {
+            wallets.add(newWallet());
+        }
+
+        // Amounts up to 20.00 against 50.00 balances, so a fair share of the transfers is refused
+        Random random = new Random(42);
+        List<Transfer> planned = new ArrayList<>(TRANSFERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            int source = random.nextInt(WALLETS);
+            int target = (source + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+            planned.add(new Transfer(wallets.get(source), wallets.get(target),
+                    BigDecimal.valueOf(100 + random.nextInt(1901), 2)));
+        }
+
+        List<Boolean> completed = runConcurrently(planned);
+
+        BigDecimal[] expected = new BigDecimal[WALLETS];
+        Arrays.fill(expected, OPENING_BALANCE);
+        int accepted = 0;
+        for (int i = 0; i < TRANSFERS; i++) {
+            if (completed.get(i)) {
+                Transfer transfer = planned.get(i);
+                int source = wallets.indexOf(transfer.source());
+                int target = wallets.indexOf(transfer.target());
+                expected[source] = expected[source].subtract(transfer.amount());
+                expected[target] = expected[target].add(transfer.amount());
+                accepted++;
+            }
+        }
+        assertTrue(accepted > TRANSFERS / 2, "only " + accepted + " transfers completed");
+        assertTrue(accepted < TRANSFERS, "no transfer was refused, the balances were never contended");
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < WALLETS; i++) {
+            Long walletId = wallets.get(i).getId();
+            BigDecimal balance = walletRepository.findById(walletId).orElseThrow().getBalance();
+            assertTrue(balance.signum() >= 0, "wallet " + walletId + " went negative: " + balance);
+            assertEquals(0, expected[i].compareTo(balance),
+                    "wallet " + walletId + ": expected " + expected[i] + " but was " + balance);
+            assertEquals(0, ledgerService.reconcile(walletId).difference().signum(),
+                    "ledger of wallet " + walletId + " disagrees with its balance");
+            total = total.add(balance);
+        }
+        assertEquals(0, OPENING_BALANCE.multiply(BigDecimal.valueOf(WALLETS)).compareTo(total),
+                "total balance changed: " + total);
+    }
+
+    private List<Boolean> runConcurrently(List<Transfer> transfers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(transfers.size());
+            for (Transfer transfer : transfers) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return transfer(transfer);
+                }));
+            }
+            start.countDown();
+            List<Boolean> results = new ArrayList<>(transfers.size());
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(120, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean transfer(Transfer transfer) {
+        try {
+            transferRetryExecutor.execute("p2p-transfer", () -> transactionService.createP2PTransfer(
+                    transfer.source().getId(), transfer.target().getWalletAddress(), transfer.amount(),
+                    "concurrency test", "127.0.0.1"));
+            return true;
+        } catch (RuntimeException e) {
+            // Only a refused debit is an expected outcome; deadlocks, exhausted retries or
+            // anything else fail the test
+            if ("Insufficient balance or limit exceeded".equals(e.getMessage())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private Wallet newWallet() {
+        String studentId = "XFER" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Transfer")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        // Savings wallets have no spending limits, so only the balance can refuse a transfer
+        Wallet wallet = walletService.createWallet(user, "Transfers", Wallet.WalletType.SAVINGS, "USD", true);
+        walletService.addFunds(wallet.getId(), OPENING_BALANCE);
+        return wallet;
+    }
+
+    private record Transfer(Wallet source, Wallet target, BigDecimal amount) {
+    }
+}
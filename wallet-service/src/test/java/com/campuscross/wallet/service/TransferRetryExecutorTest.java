@@ -0,0 +1,143 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A wallet entity saved after a transfer changed its row loses the version check, and the
+ * retry re-runs the operation on fresh state instead of overwriting the balance.
+ */
+class TransferRetryExecutorTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransferRetryExecutor transferRetryExecutor;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void staleWalletWriteIsRetriedWithoutLosingTheTransfer() {
+        Long walletId = newWallet(new BigDecimal("100.00"));
+        AtomicInteger attempts = new AtomicInteger();
+
+        transferRetryExecutor.execute("retry-test-conflict", () -> renameAfter(walletId, "Renamed", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                debitInAnotherTransaction(walletId, new BigDecimal("30.00"));
+            }
+        }));
+
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, counter("wallet.transfer.retries", "retry-test-conflict"));
+        assertEquals(0.0, counter("wallet.transfer.retry.exhausted", "retry-test-conflict"));
+        Wallet wallet = walletRepository.findById(walletId).orElseThrow();
+        assertEquals("Renamed", wallet.getWalletName());
+        assertEquals(0, new BigDecimal("70.00").compareTo(wallet.getBalance()));
+    }
+
+    @Test
+    void conflictOnEveryAttemptExhaustsTheRetries() {
+        Long walletId = newWallet(new BigDecimal("100.00"));
+        AtomicInteger attempts = new AtomicInteger();
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> transferRetryExecutor.execute("retry-test-exhausted", () -> renameAfter(walletId, "Never", () -> {
+                    attempts.incrementAndGet();
+                    debitInAnotherTransaction(walletId, new BigDecimal("1.00"));
+                })));
+
+        // wallet.transfer.retry.max-attempts defaults to 4
+        assertEquals("Wallet is busy due to concurrent updates, please retry", e.getMessage());
+        assertEquals(4, attempts.get());
+        assertEquals(3.0, counter("wallet.transfer.retries", "retry-test-exhausted"));
+        assertEquals(1.0, counter("wallet.transfer.retry.exhausted", "retry-test-exhausted"));
+        Wallet wallet = walletRepository.findById(walletId).orElseThrow();
+        assertEquals(0, new BigDecimal("96.00").compareTo(wallet.getBalance()));
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () -> transferRetryExecutor.execute("retry-test-failure", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("invalid");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, counter("wallet.transfer.retries", "retry-test-failure"));
+    }
+
+    /**
+     * Loads the wallet, runs {@code meanwhile}, then saves the loaded entity with a new name
+     */
+    private Wallet renameAfter(Long walletId, String name, Runnable meanwhile) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Wallet wallet = walletRepository.findById(walletId).orElseThrow();
+            meanwhile.run();
+            wallet.setWalletName(name);
+            return walletRepository.saveAndFlush(wallet);
+        });
+    }
+
+    private void debitInAnotherTransaction(Long walletId, BigDecimal amount) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime dayStart = now.toLocalDate().atStartOfDay();
+            assertEquals(1, walletRepository.debitIfAllowed(walletId, amount, now, dayStart,
+                    dayStart.withDayOfMonth(1)));
+        });
+    }
+
+    private double counter(String name, String operation) {
+        Counter counter = meterRegistry.find(name).tag("operation", operation).counter();
+        return counter == null ? 0.0 : counter.count();
+    }
+
+    private Long newWallet(BigDecimal balance) {
+        String studentId = "RTRY" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Retry")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        Wallet wallet = walletService.createWallet(user, "Retry", Wallet.WalletType.SAVINGS, "USD", true);
+        walletService.addFunds(wallet.getId(), balance);
+        return wallet.getId();
+    }
+}
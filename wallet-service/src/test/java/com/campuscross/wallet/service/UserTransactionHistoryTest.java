@@ -0,0 +1,214 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.dto.TransactionCursor;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.TransactionRepository;
+import com.campuscross.wallet.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A user's history as read through the denormalized user columns, over rows written straight
+ * to the table so their timestamps and owners can be chosen.
+ */
+class UserTransactionHistoryTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void cursorPagesContinueAcrossEqualTimestamps() {
+        Wallet wallet = newWallet(newUser());
+        Wallet other = newWallet(newUser());
+        LocalDateTime tie = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            // Sent and received rows interleave; five of them share one timestamp
+            Transaction row = i % 2 == 0 ? transfer(wallet, other) : transfer(other, wallet);
+            ids.add(at(row, i < 5 ? tie : tie.minusMinutes(i)).getId());
+        }
+
+        List<Transaction> paged = new ArrayList<>();
+        TransactionCursor cursor = TransactionCursor.START;
+        int pages = 0;
+        while (cursor != null) {
+            TransactionService.TransactionSlice slice = transactionService.getUserTransactionsAfter(
+                    wallet.getUser().getStudentId(), TransactionCursor.decode(cursor.encode()), 2);
+            assertTrue(slice.transactions().size() <= 2);
+            paged.addAll(slice.transactions());
+            cursor = slice.next();
+            pages++;
+        }
+
+        assertEquals(4, pages);
+        List<Long> expected = transactionRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(Transaction::getCreatedAt).thenComparing(Transaction::getId).reversed())
+                .map(Transaction::getId)
+                .toList();
+        assertEquals(expected, paged.stream().map(Transaction::getId).toList());
+    }
+
+    @Test
+    void fullLastPageHasNoNextCursor() {
+        Wallet wallet = newWallet(newUser());
+        Wallet other = newWallet(newUser());
+        transfer(wallet, other);
+        transfer(other, wallet);
+
+        TransactionService.TransactionSlice slice = transactionService.getUserTransactionsAfter(
+                wallet.getUser().getStudentId(), TransactionCursor.START, 2);
+
+        assertEquals(2, slice.transactions().size());
+        assertNull(slice.next());
+    }
+
+    @Test
+    void pageAfterACursorStartsBelowItsRowWithTheSameTimestamp() {
+        Wallet wallet = newWallet(newUser());
+        Wallet other = newWallet(newUser());
+        LocalDateTime tie = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        Transaction first = at(transfer(wallet, other), tie);
+        Transaction second = at(transfer(other, wallet), tie);
+        // Same timestamp, higher id: sorts before the cursor row, so not on the next page
+        at(transfer(wallet, other), tie);
+
+        List<Transaction> rows = transactionRepository.findByUserIdBefore(wallet.getUser().getStudentId(),
+                tie, second.getId(), 10);
+
+        assertEquals(List.of(first.getId()), rows.stream().map(Transaction::getId).toList());
+    }
+
+    @Test
+    void everyUserQueryReturnsEachTransactionOnce() {
+        User user = newUser();
+        Wallet checking = newWallet(user);
+        Wallet savings = newWallet(user);
+        Wallet other = newWallet(newUser());
+        List<Long> ids = List.of(
+                // Between the user's own wallets: matches both sides of the UNION ALL
+                transfer(checking, savings).getId(),
+                transfer(checking, other).getId(),
+                transfer(other, savings).getId(),
+                // No source owner: NULL <> userId would drop it, IS DISTINCT FROM keeps it
+                transfer(null, checking).getId());
+        transfer(other, newWallet(newUser()));
+        String userId = user.getStudentId();
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        LocalDateTime to = LocalDateTime.now().plusDays(1);
+
+        assertEquals(Set.copyOf(ids), idsOf(transactionRepository.findByUserId(userId)));
+        assertEquals(4, transactionRepository.findByUserId(userId).size());
+        assertEquals(4, transactionRepository.countByUserId(userId));
+        Page<Transaction> page = transactionRepository.findByUserIdOrderByCreatedAtDesc(userId, PageRequest.of(0, 10));
+        assertEquals(4, page.getTotalElements());
+        assertEquals(Set.copyOf(ids), idsOf(page.getContent()));
+        assertEquals(4, transactionRepository.findByUserIdAndDateRange(userId, from, to).size());
+        List<Transaction> streamed = new TransactionTemplate(transactionManager).execute(status -> {
+            try (Stream<Transaction> rows = transactionRepository.streamByUserIdAndDateRange(userId, from, to)) {
+                return rows.toList();
+            }
+        });
+        assertEquals(4, streamed.size());
+        assertEquals(Set.copyOf(ids), idsOf(streamed));
+        List<Transaction> paged = transactionService.getUserTransactionsAfter(userId, TransactionCursor.START, 10)
+                .transactions();
+        assertEquals(4, paged.size());
+        assertEquals(Set.copyOf(ids), idsOf(paged));
+    }
+
+    @Test
+    void paymentWithoutATargetCountsOnlyForItsSender() {
+        User user = newUser();
+        Long withdrawal = transfer(newWallet(user), null).getId();
+
+        assertEquals(List.of(withdrawal), transactionRepository.findByUserId(user.getStudentId()).stream()
+                .map(Transaction::getId)
+                .toList());
+        assertEquals(1, transactionRepository.countByUserId(user.getStudentId()));
+    }
+
+    private static Set<Long> idsOf(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).collect(Collectors.toSet());
+    }
+
+    private Transaction transfer(Wallet source, Wallet target) {
+        return transactionRepository.save(Transaction.builder()
+                .transactionId("HIST-" + UUID.randomUUID())
+                .sourceWallet(source)
+                .targetWallet(target)
+                .amount(new BigDecimal("1.00"))
+                .currencyCode("USD")
+                .type(Transaction.TransactionType.P2P_TRANSFER)
+                .status(Transaction.TransactionStatus.COMPLETED)
+                .description("history test")
+                .sourceUserId(source == null ? null : source.getUser().getStudentId())
+                .targetUserId(target == null ? null : target.getUser().getStudentId())
+                .build());
+    }
+
+    /**
+     * Moves the row to the given time; created_at is not updatable through the entity
+     */
+    private Transaction at(Transaction transaction, LocalDateTime createdAt) {
+        jdbcTemplate.update("UPDATE transactions SET created_at = ? WHERE id = ?",
+                Timestamp.valueOf(createdAt), transaction.getId());
+        transaction.setCreatedAt(createdAt);
+        return transaction;
+    }
+
+    private User newUser() {
+        String studentId = "HIST" + UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("History")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+    }
+
+    private Wallet newWallet(User user) {
+        return walletService.createWallet(user, "History", Wallet.WalletType.SAVINGS, "USD", true);
+    }
+}
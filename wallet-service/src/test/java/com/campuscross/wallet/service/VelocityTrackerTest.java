@@ -0,0 +1,125 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The counters against a repository fake that answers the warm-up query from a list of rows,
+ * honouring its bounds.
+ */
+class VelocityTrackerTest {
+
+    private static final long WALLET = 1L;
+    private static final long TARGET = 2L;
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @Test
+    void transactionRecordedLiveIsNotLoadedAgainByTheWarmUp() throws Exception {
+        rows.add(row(new BigDecimal("5.00"), "USD", LocalDateTime.now().minusMinutes(2)));
+        VelocityTracker tracker = tracker();
+
+        // Committed after the tracker started, before the warm-up query ran
+        tracker.recordOnCommit(transfer(new BigDecimal("7.00"), "USD"));
+        rows.add(row(new BigDecimal("7.00"), "USD", LocalDateTime.now()));
+        warmUp(tracker);
+
+        VelocityTracker.WindowStats hour = tracker.lastHour(WALLET);
+        assertEquals(2, hour.count());
+        assertEquals(0, new BigDecimal("12.00").compareTo(hour.amount("USD")));
+        assertEquals(2, tracker.lastDay(WALLET).count());
+        assertEquals(2, tracker.recentPairCount(WALLET, TARGET));
+    }
+
+    @Test
+    void amountsAreKeptPerCurrency() throws Exception {
+        rows.add(row(new BigDecimal("100.00"), "USD", LocalDateTime.now().minusHours(3)));
+        VelocityTracker tracker = tracker();
+        warmUp(tracker);
+
+        tracker.recordOnCommit(transfer(new BigDecimal("20.00"), "USD"));
+        // A remittance is recorded in its target currency
+        tracker.recordOnCommit(transfer(new BigDecimal("90.00"), "EUR"));
+
+        VelocityTracker.WindowStats hour = tracker.lastHour(WALLET);
+        assertEquals(2, hour.count());
+        assertEquals(0, new BigDecimal("20.00").compareTo(hour.amount("USD")));
+        assertEquals(0, new BigDecimal("90.00").compareTo(hour.amount("EUR")));
+        assertEquals(0, BigDecimal.ZERO.compareTo(hour.amount("GBP")));
+
+        VelocityTracker.WindowStats day = tracker.lastDay(WALLET);
+        assertEquals(3, day.count());
+        assertEquals(0, new BigDecimal("120.00").compareTo(day.amount("USD")));
+        assertEquals(0, new BigDecimal("90.00").compareTo(day.amount("EUR")));
+    }
+
+    @Test
+    void bucketReusedForALaterPeriodForgetsEveryCurrency() {
+        VelocityTracker.Ring ring = new VelocityTracker.Ring(5);
+        ring.add(10, "USD", 500);
+        ring.add(10, "EUR", 300);
+        ring.add(15, "USD", 200);
+
+        VelocityTracker.WindowStats stats = ring.sum(15);
+        assertEquals(1, stats.count());
+        assertEquals(0, new BigDecimal("2.00").compareTo(stats.amount("USD")));
+        assertEquals(0, BigDecimal.ZERO.compareTo(stats.amount("EUR")));
+    }
+
+    private VelocityTracker tracker() {
+        TransactionRepository repository = (TransactionRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {TransactionRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findOutgoingBetween")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    LocalDateTime since = (LocalDateTime) args[0];
+                    LocalDateTime until = (LocalDateTime) args[1];
+                    return rows.stream()
+                            .filter(row -> !((LocalDateTime) row[4]).isBefore(since)
+                                    && ((LocalDateTime) row[4]).isBefore(until))
+                            .sorted(Comparator.comparing((Object[] row) -> (LocalDateTime) row[4]).reversed())
+                            .toList();
+                });
+        return new VelocityTracker(repository, new SimpleMeterRegistry(), true, 1000, 1000, 1000);
+    }
+
+    private static void warmUp(VelocityTracker tracker) throws InterruptedException {
+        tracker.warmUp();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!tracker.isAuthoritative()) {
+            assertTrue(System.currentTimeMillis() < deadline, "the warm-up did not finish");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Object[] row(BigDecimal amount, String currency, LocalDateTime createdAt) {
+        return new Object[] {WALLET, TARGET, amount, currency, createdAt};
+    }
+
+    private static Transaction transfer(BigDecimal amount, String currency) {
+        Wallet source = new Wallet();
+        source.setId(WALLET);
+        Wallet target = new Wallet();
+        target.setId(TARGET);
+        Transaction transaction = new Transaction();
+        transaction.setType(Transaction.TransactionType.P2P_TRANSFER);
+        transaction.setSourceWallet(source);
+        transaction.setTargetWallet(target);
+        transaction.setAmount(amount);
+        transaction.setCurrencyCode(currency);
+        return transaction;
+    }
+}
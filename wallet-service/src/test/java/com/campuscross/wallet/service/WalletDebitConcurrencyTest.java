@@ -0,0 +1,127 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.repository.WalletRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads debiting one wallet at once: the conditional UPDATEs must never let the
+ * balance go negative, and every accepted debit must be reflected exactly once.
+ */
+class WalletDebitConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void concurrentDebitsNeverOverdrawTheWallet() throws Exception {
+        Long walletId = newWallet(new BigDecimal("1000.00"));
+        BigDecimal amount = new BigDecimal("7.00");
+
+        List<Boolean> results = runConcurrently(200, i -> () -> walletService.tryDebit(walletId, amount));
+
+        long accepted = results.stream().filter(Boolean::booleanValue).count();
+        // 142 * 7 = 994: exactly as many debits as the balance covers, and no more
+        assertEquals(142, accepted);
+        assertBalance(walletId, new BigDecimal("6.00"));
+    }
+
+    @Test
+    void concurrentDebitsAndCreditsLeaveTheExactBalance() throws Exception {
+        Long walletId = newWallet(new BigDecimal("100.00"));
+        BigDecimal debit = new BigDecimal("3.00");
+        BigDecimal credit = new BigDecimal("2.00");
+
+        List<Boolean> results = runConcurrently(400, i -> i % 2 == 0
+                ? () -> walletService.tryDebit(walletId, debit)
+                : () -> walletService.tryCredit(walletId, credit));
+
+        long debits = 0;
+        for (int i = 0; i < results.size(); i += 2) {
+            if (results.get(i)) {
+                debits++;
+            }
+        }
+        for (int i = 1; i < results.size(); i += 2) {
+            assertTrue(results.get(i), "credits to an active wallet always apply");
+        }
+        BigDecimal expected = new BigDecimal("100.00")
+                .add(credit.multiply(BigDecimal.valueOf(200)))
+                .subtract(debit.multiply(BigDecimal.valueOf(debits)));
+        assertTrue(expected.signum() >= 0);
+        assertBalance(walletId, expected);
+    }
+
+    private List<Boolean> runConcurrently(int operations, IntFunction<Callable<Boolean>> operation)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(operations);
+            for (int i = 0; i < operations; i++) {
+                Callable<Boolean> call = operation.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            List<Boolean> results = new ArrayList<>(operations);
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Long newWallet(BigDecimal balance) {
+        String studentId = "CONC" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Concurrency")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        // Savings wallets have no spending limits, so only the balance can refuse a debit
+        Wallet wallet = walletService.createWallet(user, "Concurrency", Wallet.WalletType.SAVINGS, "USD", true);
+        walletService.credit(wallet.getId(), balance);
+        return wallet.getId();
+    }
+
+    private void assertBalance(Long walletId, BigDecimal expected) {
+        BigDecimal balance = walletRepository.findById(walletId).orElseThrow().getBalance();
+        assertEquals(0, expected.compareTo(balance), "expected " + expected + " but was " + balance);
+    }
+}
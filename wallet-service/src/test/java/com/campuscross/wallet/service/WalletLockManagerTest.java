@@ -0,0 +1,191 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stripe ordering, the wait metric, and transfers that read their wallets only once they hold
+ * the locks.
+ */
+class WalletLockManagerTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private WalletLockManager walletLockManager;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void walletsLockedInOppositeOrdersNeverDeadlock() throws Exception {
+        Wallet a = newWallet(Wallet.WalletType.SAVINGS);
+        Wallet b = newWallet(Wallet.WalletType.SAVINGS);
+        while (walletLockManager.stripeFor(b.getId()) == walletLockManager.stripeFor(a.getId())) {
+            b = newWallet(Wallet.WalletType.SAVINGS);
+        }
+        Long first = a.getId();
+        Long second = b.getId();
+
+        // A stripe taken out of order would deadlock the two threads until the lock timeout
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> lockRepeatedly(first, second)));
+            futures.add(executor.submit(() -> lockRepeatedly(second, first)));
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitingForAHeldStripeIsRecorded() throws Exception {
+        Long walletId = newWallet(Wallet.WalletType.SAVINGS).getId();
+        Timer timer = meterRegistry.find("wallet.lock.wait")
+                .tag("stripe", String.valueOf(walletLockManager.stripeFor(walletId)))
+                .timer();
+        long countBefore = timer.count();
+        double waitedBefore = timer.totalTime(TimeUnit.MILLISECONDS);
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> holder = executor.submit(() -> inTransaction(() -> {
+                walletLockManager.lockWallets(walletId);
+                held.countDown();
+                await(release);
+            }));
+            assertTrue(held.await(10, TimeUnit.SECONDS));
+            Future<?> waiter = executor.submit(() -> inTransaction(() -> walletLockManager.lockWallets(walletId)));
+            Thread.sleep(300);
+            assertFalse(waiter.isDone(), "the stripe was not held");
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            waiter.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(countBefore + 2, timer.count());
+        double waited = timer.totalTime(TimeUnit.MILLISECONDS) - waitedBefore;
+        assertTrue(waited >= 250, "recorded only " + waited + " ms of waiting");
+    }
+
+    @Test
+    void transferToAHotWalletReadsItUnderTheLock() throws Exception {
+        Wallet source = newWallet(Wallet.WalletType.SAVINGS);
+        walletService.addFunds(source.getId(), new BigDecimal("50.00"));
+        Wallet merchant = newWallet(Wallet.WalletType.MERCHANT);
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Renames the merchant wallet while holding its lock
+            Future<?> holder = executor.submit(() -> inTransaction(() -> {
+                Wallet locked = walletLockManager.lockWallets(merchant.getId()).get(0);
+                held.countDown();
+                await(release);
+                locked.setWalletName("Renamed under lock");
+            }));
+            assertTrue(held.await(10, TimeUnit.SECONDS));
+            Future<Transaction> transfer = executor.submit(() -> transactionService.createP2PTransfer(
+                    source.getId(), merchant.getWalletAddress(), new BigDecimal("10.00"), "lock test", "127.0.0.1"));
+            Thread.sleep(300);
+            assertFalse(transfer.isDone(), "the transfer did not wait for the merchant wallet's lock");
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+
+            // Loaded before the lock, the wallet would still carry its old name
+            assertEquals("Renamed under lock", transfer.get(10, TimeUnit.SECONDS).getTargetWallet().getWalletName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void uncontendedWalletsAreNotLocked() {
+        Long a = newWallet(Wallet.WalletType.SAVINGS).getId();
+        Long b = newWallet(Wallet.WalletType.PERSONAL).getId();
+        Long merchant = newWallet(Wallet.WalletType.MERCHANT).getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertFalse(walletLockManager.lockIfContended(a, b));
+            assertTrue(walletLockManager.lockIfContended(a, merchant));
+        });
+    }
+
+    private void lockRepeatedly(Long first, Long second) {
+        for (int i = 0; i < 200; i++) {
+            inTransaction(() -> {
+                List<Wallet> locked = walletLockManager.lockWallets(first, second);
+                assertEquals(List.of(Math.min(first, second), Math.max(first, second)),
+                        locked.stream().map(Wallet::getId).toList());
+            });
+        }
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Wallet newWallet(Wallet.WalletType type) {
+        String studentId = "LOCK" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Lock")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        return walletService.createWallet(user, "Locks", type, "USD", true);
+    }
+}
@@ -0,0 +1,242 @@
+package com.campuscross.wallet.service;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every path that writes a wallet drops its owner's cached portfolio once it commits, and the
+ * next read sees the write. Each case first caches the portfolio and checks it is served from
+ * the cache, so a miss afterwards can only come from the eviction.
+ */
+class WalletPortfolioCacheTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private WalletPortfolioCache walletPortfolioCache;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BankingService bankingService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void walletChangesEvictTheOwner() {
+        User user = newUser();
+        Wallet wallet = walletService.createWallet(user, "Main", Wallet.WalletType.PERSONAL, "USD", true);
+        String userId = user.getStudentId();
+
+        Wallet[] second = new Wallet[1];
+        assertEvictedBy(userId, () -> second[0] = walletService.createWallet(user, "Second",
+                Wallet.WalletType.SAVINGS, "EUR", false));
+        assertEquals(2, walletPortfolioCache.get(userId).wallets().size());
+
+        assertEvictedBy(userId, () -> walletService.addFunds(wallet.getId(), new BigDecimal("30.00")));
+        assertBalance(userId, wallet, "30.00");
+        assertEvictedBy(userId, () -> walletService.deductFunds(wallet.getId(), new BigDecimal("5.00")));
+        assertBalance(userId, wallet, "25.00");
+
+        assertEvictedBy(userId, () -> walletService.freezeWallet(wallet.getId(), "test"));
+        assertEquals(Wallet.WalletStatus.FROZEN, snapshot(userId, wallet).status());
+        assertEvictedBy(userId, () -> walletService.unfreezeWallet(wallet.getId()));
+        assertEquals(Wallet.WalletStatus.ACTIVE, snapshot(userId, wallet).status());
+
+        assertEvictedBy(userId, () -> walletService.setDailyLimit(wallet.getId(), new BigDecimal("123")));
+        assertEquals(0, new BigDecimal("123").compareTo(snapshot(userId, wallet).dailyLimit()));
+        assertEvictedBy(userId, () -> walletService.setMonthlyLimit(wallet.getId(), new BigDecimal("456")));
+        assertEquals(0, new BigDecimal("456").compareTo(snapshot(userId, wallet).monthlyLimit()));
+
+        assertEvictedBy(userId, () -> walletService.closeWallet(second[0].getId()));
+        assertEquals(Wallet.WalletStatus.CLOSED, snapshot(userId, second[0]).status());
+        assertEvictedBy(userId, () -> walletService.deleteWallet(second[0].getId()));
+        assertEquals(1, walletPortfolioCache.get(userId).wallets().size());
+    }
+
+    @Test
+    void paymentsEvictEveryParty() {
+        Wallet sender = newWallet("USD", "100.00");
+        Wallet recipient = newWallet("USD", "0");
+        Wallet abroad = newWallet("EUR", "0");
+
+        Transaction[] transfer = new Transaction[1];
+        assertEvictedBy(() -> transfer[0] = transactionService.createP2PTransfer(sender.getId(),
+                recipient.getWalletAddress(), new BigDecimal("10.00"), "lunch", "127.0.0.1"), sender, recipient);
+        assertBalance(userId(sender), sender, "90.00");
+        assertBalance(userId(recipient), recipient, "10.00");
+
+        assertEvictedBy(() -> transactionService.createCampusPayment(sender.getId(), new BigDecimal("5.00"),
+                "CAFETERIA-" + UUID.randomUUID(), "North", "coffee", "127.0.0.1"), sender);
+        assertBalance(userId(sender), sender, "85.00");
+
+        assertEvictedBy(() -> transactionService.createRemittance(sender.getId(), abroad.getWalletAddress(),
+                new BigDecimal("20.00"), "EUR", new BigDecimal("0.9"), "rent", "127.0.0.1"), sender, abroad);
+        assertBalance(userId(sender), sender, "65.00");
+        assertBalance(userId(abroad), abroad, "18.00");
+
+        assertEvictedBy(() -> transactionService.refundTransaction(transfer[0].getTransactionId(), "returned"),
+                sender, recipient);
+        assertBalance(userId(sender), sender, "75.00");
+        assertBalance(userId(recipient), recipient, "0.00");
+    }
+
+    @Test
+    void bankTransfersEvictTheUser() {
+        Wallet wallet = newWallet("USD", "0");
+        String userId = userId(wallet);
+
+        assertEvictedBy(userId, () -> bankingService.depositFromBank(userId, new BigDecimal("40.00"), "USD"));
+        assertBalance(userId, wallet, "40.00");
+        assertEvictedBy(userId, () -> bankingService.withdrawToBank(userId, new BigDecimal("15.00"), "USD",
+                "123456789", "Campus Bank"));
+        assertBalance(userId, wallet, "25.00");
+    }
+
+    @Test
+    void balanceRebuiltFromTheLedgerEvictsTheOwner() {
+        Wallet wallet = newWallet("USD", "20.00");
+        String userId = userId(wallet);
+        // A balance written behind the service's back, which the rebuild repairs
+        jdbcTemplate.update("UPDATE wallets SET balance = 999 WHERE id = ?", wallet.getId());
+
+        assertEvictedBy(userId, () -> ledgerService.rebuildBalance(wallet.getId()));
+        assertBalance(userId, wallet, "20.00");
+    }
+
+    @Test
+    void portfolioReadInsideAWritingTransactionIsNotCached() {
+        Wallet wallet = newWallet("USD", "10.00");
+        String userId = userId(wallet);
+        walletPortfolioCache.evict(userId);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            walletService.addFunds(wallet.getId(), new BigDecimal("1.00"));
+            walletPortfolioCache.get(userId);
+            status.setRollbackOnly();
+        });
+
+        double misses = misses();
+        assertBalance(userId, wallet, "10.00");
+        assertEquals(misses + 1, misses());
+    }
+
+    @Test
+    void rolledBackWriteKeepsTheEntry() {
+        Wallet wallet = newWallet("USD", "10.00");
+        String userId = userId(wallet);
+        walletPortfolioCache.get(userId);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            walletService.addFunds(wallet.getId(), new BigDecimal("1.00"));
+            status.setRollbackOnly();
+        });
+
+        double hits = hits();
+        assertBalance(userId, wallet, "10.00");
+        assertEquals(hits + 1, hits());
+    }
+
+    private void assertEvictedBy(Runnable write, Wallet... owners) {
+        for (Wallet owner : owners) {
+            cache(userId(owner));
+        }
+        write.run();
+        for (Wallet owner : owners) {
+            assertMiss(userId(owner));
+        }
+    }
+
+    private void assertEvictedBy(String userId, Runnable write) {
+        cache(userId);
+        write.run();
+        assertMiss(userId);
+    }
+
+    private void cache(String userId) {
+        walletPortfolioCache.get(userId);
+        double hits = hits();
+        walletPortfolioCache.get(userId);
+        assertEquals(hits + 1, hits(), "portfolio of " + userId + " was not cached");
+    }
+
+    private void assertMiss(String userId) {
+        double misses = misses();
+        walletPortfolioCache.get(userId);
+        assertEquals(misses + 1, misses(), "portfolio of " + userId + " was still cached after the write");
+    }
+
+    private void assertBalance(String userId, Wallet wallet, String expected) {
+        BigDecimal balance = snapshot(userId, wallet).balance();
+        assertEquals(0, new BigDecimal(expected).compareTo(balance), "expected " + expected + " but was " + balance);
+    }
+
+    private WalletPortfolioCache.WalletSnapshot snapshot(String userId, Wallet wallet) {
+        return walletPortfolioCache.get(userId).wallets().stream()
+                .filter(snapshot -> snapshot.id().equals(wallet.getId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private double hits() {
+        return meterRegistry.get("wallet.portfolio.cache").tag("result", "hit").counter().count();
+    }
+
+    private double misses() {
+        return meterRegistry.get("wallet.portfolio.cache").tag("result", "miss").counter().count();
+    }
+
+    private static String userId(Wallet wallet) {
+        return wallet.getUser().getStudentId();
+    }
+
+    private Wallet newWallet(String currencyCode, String balance) {
+        Wallet wallet = walletService.createWallet(newUser(), "Portfolio", Wallet.WalletType.SAVINGS, currencyCode, true);
+        if (new BigDecimal(balance).signum() > 0) {
+            walletService.addFunds(wallet.getId(), new BigDecimal(balance));
+        }
+        return wallet;
+    }
+
+    private User newUser() {
+        String studentId = "PORT" + UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Portfolio")
+                .lastName("Test")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+    }
+}
@@ -0,0 +1,376 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.repository.FraudRuleDefinitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The engine over a repository fake holding definitions in a list, and a factory whose rules
+ * take their cost and behaviour from the definition's params and log every evaluation.
+ */
+class FraudRuleEngineTest {
+
+    private static final long BUDGET_MS = 100;
+    private static final int PARALLEL_COST = 1000;
+
+    private final List<FraudRuleDefinition> definitions = new ArrayList<>();
+    private final AtomicInteger saveAllCalls = new AtomicInteger();
+    private final AtomicBoolean repositoryDown = new AtomicBoolean();
+    private final List<String> evaluated = new CopyOnWriteArrayList<>();
+    private final Map<String, String> evaluatedOn = new ConcurrentHashMap<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void inlineRulesRunCheapestFirstAndStopAtTheFirstMatch() {
+        definitions.add(rule("c-expensive", 300, "match"));
+        definitions.add(rule("a-cheap", 10, "pass"));
+        definitions.add(rule("b-middle", 200, "match"));
+        definitions.add(rule("d-tied", 10, "pass"));
+        FraudRuleEngine engine = engine(true);
+        engine.reload();
+
+        FraudVerdict verdict = engine.evaluate(context());
+
+        assertTrue(verdict.flagged());
+        assertEquals("b-middle", verdict.rule());
+        // Equal costs are ordered by name; nothing after the first match runs
+        assertEquals(List.of("a-cheap", "d-tied", "b-middle"), evaluated);
+    }
+
+    @Test
+    void noMatchingRuleIsClear() {
+        definitions.add(rule("cheap", 10, "pass"));
+        definitions.add(rule("parallel", PARALLEL_COST, "pass"));
+        FraudRuleEngine engine = engine(true);
+        engine.reload();
+
+        assertFalse(engine.evaluate(context()).flagged());
+        assertEquals(Set.of("cheap", "parallel"), Set.copyOf(evaluated));
+    }
+
+    @Test
+    void parallelRuleMatchWithinTheBudgetFlags() {
+        definitions.add(rule("slow-pass", PARALLEL_COST, "pass", "sleepMs", "20"));
+        definitions.add(rule("slow-match", PARALLEL_COST, "match", "sleepMs", "10"));
+        FraudRuleEngine engine = engine(true);
+        engine.reload();
+
+        FraudVerdict verdict = engine.evaluate(context());
+
+        assertTrue(verdict.flagged());
+        assertEquals("slow-match", verdict.rule());
+        assertEquals(0.0, budgetExceeded());
+    }
+
+    @Test
+    void parallelRulesOverTheBudgetFailOpen() {
+        definitions.add(rule("too-slow", PARALLEL_COST, "match", "sleepMs", String.valueOf(BUDGET_MS * 5)));
+        FraudRuleEngine engine = engine(true);
+        engine.reload();
+
+        long start = System.nanoTime();
+        FraudVerdict verdict = engine.evaluate(context());
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertFalse(verdict.flagged());
+        assertTrue(tookMs < BUDGET_MS * 4, "waited " + tookMs + " ms for a " + BUDGET_MS + " ms budget");
+        assertEquals(1.0, budgetExceeded());
+    }
+
+    @Test
+    void parallelRulesOverTheBudgetFailClosedWhenConfigured() {
+        definitions.add(rule("too-slow", PARALLEL_COST, "pass", "sleepMs", String.valueOf(BUDGET_MS * 5)));
+        FraudRuleEngine engine = engine(false);
+        engine.reload();
+
+        FraudVerdict verdict = engine.evaluate(context());
+
+        assertTrue(verdict.flagged());
+        assertEquals("budget", verdict.rule());
+        assertEquals(1.0, budgetExceeded());
+    }
+
+    @Test
+    void failingRuleCountsAsNoMatch() {
+        definitions.add(rule("broken", 10, "throw"));
+        definitions.add(rule("broken-parallel", PARALLEL_COST, "throw"));
+        FraudRuleEngine engine = engine(true);
+        engine.reload();
+
+        assertFalse(engine.evaluate(context()).flagged());
+        assertEquals(1.0, meterRegistry.get("wallet.fraud.rule.errors").tag("rule", "broken").counter().count());
+        assertEquals(1.0, meterRegistry.get("wallet.fraud.rule.errors").tag("rule", "broken-parallel")
+                .counter().count());
+    }
+
+    @Test
+    void parallelRuleThatQueriesTheDatabaseRunsOnTheCaller() {
+        definitions.add(rule("database", PARALLEL_COST, "pass", "database", "true"));
+        definitions.add(rule("in-memory", PARALLEL_COST, "pass"));
+        FraudRuleEngine engine = engine(true);
+        engine.reload();
+
+        engine.evaluate(context());
+
+        assertEquals(Thread.currentThread().getName(), evaluatedOn.get("database"));
+        assertNotEquals(Thread.currentThread().getName(), evaluatedOn.get("in-memory"));
+    }
+
+    @Test
+    void reloadPicksUpChangedAndDisabledDefinitions() {
+        definitions.add(rule("first", 10, "match"));
+        FraudRuleEngine engine = engine(true);
+        assertEquals(1, engine.reload());
+        assertEquals("first", engine.evaluate(context()).rule());
+
+        definitions.get(0).setEnabled(false);
+        definitions.add(rule("second", 20, "match"));
+        // Not seen until the next reload
+        assertEquals("first", engine.evaluate(context()).rule());
+
+        assertEquals(1, engine.reload());
+        assertEquals("second", engine.evaluate(context()).rule());
+    }
+
+    @Test
+    void reloadSkipsDefinitionsThatCannotBeBuilt() {
+        definitions.add(rule("known", 10, "pass"));
+        definitions.add(FraudRuleDefinition.builder()
+                .name("unknown")
+                .ruleType("NO_SUCH_TYPE")
+                .appliesTo("P2P_TRANSFER")
+                .params(Map.of())
+                .build());
+        FraudRuleEngine engine = engine(true);
+
+        assertEquals(1, engine.reload());
+    }
+
+    @Test
+    void failedRefreshKeepsTheCurrentRules() {
+        definitions.add(rule("kept", 10, "match"));
+        FraudRuleEngine engine = engine(true);
+        engine.reload();
+
+        repositoryDown.set(true);
+        engine.refresh();
+
+        assertEquals("kept", engine.evaluate(context()).rule());
+    }
+
+    @Test
+    void initSeedsTheDefaultsIntoAnEmptyTable() {
+        FraudRuleEngine engine = engine(true);
+
+        engine.init();
+
+        assertEquals(1, saveAllCalls.get());
+        assertEquals(defaultNames(), definitions.stream().map(FraudRuleDefinition::getName).collect(Collectors.toSet()));
+        assertEquals(defaultNames(), describedNames(engine));
+    }
+
+    @Test
+    void initDoesNotSeedOverExistingDefinitions() {
+        definitions.add(rule("operator-rule", 10, "pass"));
+        FraudRuleEngine engine = engine(true);
+
+        engine.init();
+
+        assertEquals(0, saveAllCalls.get());
+        assertEquals(Set.of("operator-rule"), describedNames(engine));
+    }
+
+    @Test
+    void initFallsBackToTheDefaultsWhenTheTableCannotBeRead() {
+        repositoryDown.set(true);
+        FraudRuleEngine engine = engine(true);
+
+        engine.init();
+
+        assertEquals(defaultNames(), describedNames(engine));
+    }
+
+    private FraudRuleEngine engine(boolean failOpen) {
+        List<FraudRuleFactory> factories = new ArrayList<>();
+        factories.add(new TestRuleFactory());
+        // The built-in types compile to rules that never match, so seeding can be observed
+        BuiltInFraudRules.defaultDefinitions(false).stream()
+                .map(FraudRuleDefinition::getRuleType)
+                .distinct()
+                .forEach(type -> factories.add(new TestRuleFactory(type)));
+        return new FraudRuleEngine(repository(), factories, executor, meterRegistry, BUDGET_MS, PARALLEL_COST,
+                failOpen, false);
+    }
+
+    private FraudRuleDefinitionRepository repository() {
+        return (FraudRuleDefinitionRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {FraudRuleDefinitionRepository.class}, (proxy, method, args) -> {
+                    if (repositoryDown.get()) {
+                        throw new IllegalStateException("database unavailable");
+                    }
+                    switch (method.getName()) {
+                        case "count":
+                            return (long) definitions.size();
+                        case "saveAll":
+                            saveAllCalls.incrementAndGet();
+                            ((Collection<?>) args[0]).forEach(d -> definitions.add((FraudRuleDefinition) d));
+                            return List.copyOf((Collection<?>) args[0]);
+                        case "findByEnabledTrueOrderByName":
+                            return definitions.stream()
+                                    .filter(FraudRuleDefinition::isEnabled)
+                                    .sorted(Comparator.comparing(FraudRuleDefinition::getName))
+                                    .toList();
+                        case "findByName":
+                            return definitions.stream().filter(d -> d.getName().equals(args[0])).findFirst();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private double budgetExceeded() {
+        return meterRegistry.get("wallet.fraud.budget.exceeded").counter().count();
+    }
+
+    private static Set<String> defaultNames() {
+        return BuiltInFraudRules.defaultDefinitions(false).stream()
+                .map(FraudRuleDefinition::getName)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<String> describedNames(FraudRuleEngine engine) {
+        return engine.describe().stream().map(FraudRuleEngine.RuleSummary::name).collect(Collectors.toSet());
+    }
+
+    /**
+     * A BLOCKING P2P definition of the test type; {@code behaviour} is match, pass or throw
+     */
+    private static FraudRuleDefinition rule(String name, int cost, String behaviour, String... extraParams) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("cost", String.valueOf(cost));
+        params.put("behaviour", behaviour);
+        for (int i = 0; i < extraParams.length; i += 2) {
+            params.put(extraParams[i], extraParams[i + 1]);
+        }
+        return FraudRuleDefinition.builder()
+                .name(name)
+                .ruleType(TestRuleFactory.TYPE)
+                .appliesTo("P2P_TRANSFER")
+                .params(params)
+                .build();
+    }
+
+    private static FraudContext context() {
+        return new FraudContext(Transaction.TransactionType.P2P_TRANSFER, 1L, "WALLET-1", "S1", "North", "USD",
+                2L, "S2", "North", "USD", new BigDecimal("10.00"), null, "127.0.0.1",
+                FraudContext.Unrecorded.NONE);
+    }
+
+    private class TestRuleFactory implements FraudRuleFactory {
+
+        static final String TYPE = "TEST";
+
+        private final String type;
+
+        TestRuleFactory() {
+            this(TYPE);
+        }
+
+        TestRuleFactory(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public String type() {
+            return type;
+        }
+
+        @Override
+        public FraudRule create(FraudRuleDefinition definition) {
+            String behaviour = Optional.ofNullable(definition.getParams())
+                    .map(params -> (String) params.get("behaviour"))
+                    .orElse("pass");
+            int cost = definition.intParam("cost", 10);
+            int sleepMs = definition.intParam("sleepMs", 0);
+            boolean database = Boolean.parseBoolean(String.valueOf(
+                    definition.getParams() == null ? null : definition.getParams().get("database")));
+            String name = definition.getName();
+            return new FraudRule() {
+                @Override
+                public String name() {
+                    return name;
+                }
+
+                @Override
+                public Set<FraudInput> inputs() {
+                    return Set.of(FraudInput.AMOUNT);
+                }
+
+                @Override
+                public int estimatedCost() {
+                    return cost;
+                }
+
+                @Override
+                public boolean queriesDatabase() {
+                    return database;
+                }
+
+                @Override
+                public boolean matches(FraudContext context) {
+                    evaluated.add(name);
+                    evaluatedOn.put(name, Thread.currentThread().getName());
+                    if (sleepMs > 0) {
+                        try {
+                            Thread.sleep(sleepMs);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                    }
+                    if (behaviour.equals("throw")) {
+                        throw new IllegalStateException("rule failed");
+                    }
+                    return behaviour.equals("match");
+                }
+
+                @Override
+                public String reason(FraudContext context) {
+                    return name + " matched";
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.entity.User;
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.repository.UserRepository;
+import com.campuscross.wallet.service.WalletService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The database fallback of the velocity rules, with the in-memory counters disabled so every
+ * check goes to the database: one statement per check, and index range scans whose cost
+ * does not grow with the transactions table, checked on a million rows.
+ */
+@SpringBootTest(properties = {
+        "wallet.velocity.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FraudVelocityQueryTest extends PostgresIntegrationTest {
+
+    private static final int WALLETS = 100;
+    private static final int ROWS = 1_000_000;
+    private static final int HISTORY_MINUTES = 365 * 24 * 60;
+
+    @Autowired
+    private List<FraudRuleFactory> factories;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Wallet> wallets = new ArrayList<>();
+
+    @BeforeAll
+    void seedTransactions() {
+        for (int i = 0; i < WALLETS; i++) {
+            wallets.add(newWallet());
+        }
+        String walletIds = wallets.stream().map(w -> w.getId().toString()).collect(Collectors.joining(","));
+        // A year of history spread evenly over the wallets, about 27 rows per wallet and day,
+        // each wallet paying all the others in turn
+        jdbcTemplate.update("INSERT INTO transactions (transaction_id, source_wallet_id, target_wallet_id, amount, " +
+                "currency_code, type, status, description, is_flagged, fee_amount, created_at) " +
+                "SELECT 'VELOCITY-' || g, (ARRAY[" + walletIds + "])[1 + g % " + WALLETS + "], " +
+                "(ARRAY[" + walletIds + "])[1 + (g + 1 + g / " + WALLETS + " % " + (WALLETS - 1) + ") % " + WALLETS + "], 10.00, 'USD', 'P2P_TRANSFER', " +
+                "'COMPLETED', 'velocity test', FALSE, 0, " +
+                "CURRENT_TIMESTAMP - (g % " + HISTORY_MINUTES + ") * INTERVAL '1 minute' " +
+                "FROM generate_series(1, " + ROWS + ") g");
+        jdbcTemplate.execute("ANALYZE transactions");
+    }
+
+    @Test
+    void eachVelocityCheckIssuesOneStatement() {
+        FraudContext context = context(wallets.get(0), wallets.get(1));
+        for (String type : List.of("HIGH_FREQUENCY", "RAPID_REPEAT")) {
+            FraudRule rule = rule(type);
+            assertTrue(rule.queriesDatabase(), type + " reads the database while the counters are off");
+
+            Statistics statistics = statistics();
+            statistics.clear();
+            rule.matches(context);
+            assertEquals(1, statistics.getPrepareStatementCount(), type + " statements per check");
+        }
+    }
+
+    @Test
+    void velocityQueriesRangeScanTheirIndexOnAMillionRows() {
+        Long walletId = wallets.get(0).getId();
+        Long targetId = wallets.get(1).getId();
+
+        String windows = plan("SELECT COUNT(*), SUM(amount) FROM transactions " +
+                "WHERE source_wallet_id = " + walletId + " AND created_at >= CURRENT_TIMESTAMP - INTERVAL '1 day'");
+        assertTrue(windows.contains("idx_transactions_source_created"), windows);
+        assertFalse(windows.contains("Seq Scan"), windows);
+
+        // Over five minutes any index ending in created_at finds the few rows, and the planner
+        // may take the target one; over a month only the pair index stays narrow
+        String recentPair = plan(pairCount(walletId, targetId, "5 minutes"));
+        assertTrue(recentPair.contains("created_at >="), recentPair);
+        assertFalse(recentPair.contains("Seq Scan"), recentPair);
+
+        String pair = plan(pairCount(walletId, targetId, "30 days"));
+        assertTrue(pair.contains("idx_transactions_source_target_created"), pair);
+        assertFalse(pair.contains("Seq Scan"), pair);
+    }
+
+    @Test
+    void velocityCheckLatencyDoesNotDependOnHistory() {
+        FraudRule rule = rule("HIGH_FREQUENCY");
+        // Ten thousand rows of history against none: only the day's rows are read either way
+        long loaded = medianNanos(rule, context(wallets.get(0), wallets.get(1)));
+        long empty = medianNanos(rule, context(newWallet(), wallets.get(1)));
+
+        assertTrue(loaded < empty * 5 + 5_000_000,
+                "median check with history " + loaded / 1000 + " us, without " + empty / 1000 + " us");
+    }
+
+    private long medianNanos(FraudRule rule, FraudContext context) {
+        for (int i = 0; i < 20; i++) {
+            rule.matches(context);
+        }
+        long[] samples = new long[101];
+        for (int i = 0; i < samples.length; i++) {
+            long started = System.nanoTime();
+            rule.matches(context);
+            samples[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private static String pairCount(Long walletId, Long targetId, String window) {
+        return "SELECT COUNT(*) FROM transactions WHERE source_wallet_id = " + walletId +
+                " AND target_wallet_id = " + targetId + " AND created_at >= CURRENT_TIMESTAMP - INTERVAL '" + window + "'";
+    }
+
+    private String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+    private FraudRule rule(String type) {
+        FraudRuleDefinition definition = FraudRuleDefinition.builder()
+                .name("test-" + type.toLowerCase())
+                .ruleType(type)
+                .appliesTo("P2P_TRANSFER")
+                .params(Map.of())
+                .enabled(true)
+                .mode(FraudRuleDefinition.Mode.BLOCKING)
+                .action(FraudRuleDefinition.Action.FLAG)
+                .build();
+        return factories.stream()
+                .filter(factory -> factory.type().equals(type))
+                .findFirst()
+                .orElseThrow()
+                .create(definition);
+    }
+
+    private FraudContext context(Wallet source, Wallet target) {
+        return FraudContext.of(Transaction.TransactionType.P2P_TRANSFER, source, target,
+                new BigDecimal("10.00"), null, "10.0.0.1");
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Wallet newWallet() {
+        String studentId = "VEL" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .studentId(studentId)
+                .email(studentId.toLowerCase() + "@campuscross.test")
+                .passwordHash("not-a-real-hash")
+                .firstName("Velocity")
+                .lastName("Test")
+                .campusName("North")
+                .role(User.UserRole.STUDENT)
+                .status(User.UserStatus.ACTIVE)
+                .build());
+        return walletService.createWallet(user, "Velocity", Wallet.WalletType.SAVINGS, "USD", true);
+    }
+}
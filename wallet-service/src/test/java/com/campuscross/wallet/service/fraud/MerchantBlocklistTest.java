@@ -0,0 +1,123 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.repository.BlockedMerchantRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lookups, local changes, changes made by another instance through the table, and the file
+ * source. A second blocklist over the same table stands in for another node.
+ */
+class MerchantBlocklistTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MerchantBlocklist merchantBlocklist;
+
+    @Autowired
+    private BlockedMerchantRepository blockedMerchantRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void defaultsAreSeededAndOthersAreNotBlocked() {
+        assertTrue(merchantBlocklist.isBlocked("MERCHANT001"));
+        assertFalse(merchantBlocklist.isBlocked(merchantId()));
+        assertFalse(merchantBlocklist.isBlocked(null));
+    }
+
+    @Test
+    void blockAndUnblockApplyImmediately() {
+        String merchantId = merchantId();
+
+        merchantBlocklist.block(merchantId, "chargebacks");
+        assertTrue(merchantBlocklist.isBlocked(merchantId));
+        assertEquals("chargebacks", blockedMerchantRepository.findByMerchantId(merchantId).orElseThrow().getReason());
+
+        merchantBlocklist.unblock(merchantId);
+        assertFalse(merchantBlocklist.isBlocked(merchantId));
+        assertFalse(blockedMerchantRepository.findByMerchantId(merchantId).orElseThrow().isActive());
+    }
+
+    @Test
+    void unblockingAnUnknownMerchantFails() {
+        assertThrows(RuntimeException.class, () -> merchantBlocklist.unblock(merchantId()));
+    }
+
+    @Test
+    void changesOfAnotherInstanceArriveWithTheNextRefresh() {
+        MerchantBlocklist otherNode = blocklist("");
+        otherNode.reload();
+        String merchantId = merchantId();
+
+        otherNode.block(merchantId, "blocked elsewhere");
+        assertFalse(merchantBlocklist.isBlocked(merchantId));
+        merchantBlocklist.refresh();
+        assertTrue(merchantBlocklist.isBlocked(merchantId));
+
+        otherNode.unblock(merchantId);
+        merchantBlocklist.refresh();
+        assertFalse(merchantBlocklist.isBlocked(merchantId));
+    }
+
+    @Test
+    void reloadAddsTheFileToTheTable() throws Exception {
+        String listed = merchantId();
+        String commentedOut = merchantId();
+        Path file = tempDir.resolve("blocklist.txt");
+        Files.write(file, List.of("# exported from the card network", "  " + listed + "  # fraud ring", "",
+                "#" + commentedOut));
+        MerchantBlocklist withFile = blocklist(file.toString());
+
+        int merchants = withFile.reload();
+
+        assertTrue(withFile.isBlocked(listed));
+        assertFalse(withFile.isBlocked(commentedOut));
+        assertTrue(withFile.isBlocked("MERCHANT001"));
+        assertEquals(merchants, withFile.stats().merchants());
+    }
+
+    @Test
+    void bloomFilterFalsePositivesAreResolvedExactly() throws Exception {
+        List<String> listed = IntStream.range(0, 5000).mapToObj(i -> merchantId()).toList();
+        Path file = tempDir.resolve("large.txt");
+        Files.write(file, listed);
+        MerchantBlocklist large = blocklist(file.toString());
+
+        large.reload();
+
+        listed.forEach(id -> assertTrue(large.isBlocked(id), id));
+        // The filter lets about 1% of these through; the fingerprint set must reject them all
+        long falsePositives = IntStream.range(0, 5000)
+                .filter(i -> large.isBlocked(merchantId()))
+                .count();
+        assertEquals(0, falsePositives);
+    }
+
+    private MerchantBlocklist blocklist(String file) {
+        return new MerchantBlocklist(blockedMerchantRepository, transactionManager, new SimpleMeterRegistry(),
+                file, 0.01);
+    }
+
+    private static String merchantId() {
+        return "MBLK" + UUID.randomUUID().toString().substring(0, 12);
+    }
+}
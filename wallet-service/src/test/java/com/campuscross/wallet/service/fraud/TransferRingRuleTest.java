@@ -0,0 +1,73 @@
+package com.campuscross.wallet.service.fraud;
+
+import com.campuscross.wallet.entity.FraudRuleDefinition;
+import com.campuscross.wallet.entity.Transaction;
+import com.campuscross.wallet.service.TransferGraph;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The ring rule against a graph that reports a fixed cycle and counts its searches
+ */
+class TransferRingRuleTest {
+
+    private final CountingGraph graph = new CountingGraph();
+    private final FraudRule rule = new BuiltInFraudRules().transferRingRuleFactory(graph).create(
+            FraudRuleDefinition.builder()
+                    .name("p2p-transfer-ring")
+                    .ruleType("TRANSFER_RING")
+                    .appliesTo("P2P_TRANSFER")
+                    .params(Map.of())
+                    .build());
+
+    @Test
+    void matchAndReasonComeFromOneSearch() {
+        graph.cycle = new long[] {1, 2, 3, 1};
+
+        assertEquals("Transfer ring through wallets 1 -> 2 -> 3 -> 1", rule.check(context(2L)));
+        assertEquals(1, graph.searches.get());
+    }
+
+    @Test
+    void noCycleIsNoMatch() {
+        assertNull(rule.check(context(2L)));
+        assertEquals(1, graph.searches.get());
+    }
+
+    @Test
+    void paymentWithoutATargetIsNotSearched() {
+        graph.cycle = new long[] {1, 2, 3, 1};
+
+        assertNull(rule.check(context(null)));
+        assertEquals(0, graph.searches.get());
+    }
+
+    private static FraudContext context(Long targetWalletId) {
+        return new FraudContext(Transaction.TransactionType.P2P_TRANSFER, 1L, "WALLET-1", "S1", "North", "USD",
+                targetWalletId, "S2", "North", "USD", new BigDecimal("10.00"), null, "127.0.0.1",
+                FraudContext.Unrecorded.NONE);
+    }
+
+    private static class CountingGraph extends TransferGraph {
+
+        private final AtomicInteger searches = new AtomicInteger();
+        private long[] cycle;
+
+        CountingGraph() {
+            super(null, new SimpleMeterRegistry(), true, 72, 1000, 1000, 0);
+        }
+
+        @Override
+        public long[] findCycle(long sourceWalletId, long targetWalletId, int minLength, int maxLength) {
+            searches.incrementAndGet();
+            return cycle;
+        }
+    }
+}
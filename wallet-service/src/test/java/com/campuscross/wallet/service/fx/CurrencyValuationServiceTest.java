@@ -0,0 +1,167 @@
+package com.campuscross.wallet.service.fx;
+
+import com.campuscross.wallet.entity.Wallet;
+import com.campuscross.wallet.service.WalletPortfolioCache.Portfolio;
+import com.campuscross.wallet.service.WalletPortfolioCache.WalletSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Cross rates and conversions of the matrix, and valuations and refreshes of the service
+ * against a rate source that answers whatever the test last gave it.
+ */
+class CurrencyValuationServiceTest {
+
+    private static final Map<String, BigDecimal> RATES = Map.of(
+            "USD", BigDecimal.ONE,
+            "EUR", new BigDecimal("0.92"),
+            "GBP", new BigDecimal("0.79"),
+            "INR", new BigDecimal("83.12"));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Map<String, BigDecimal> sourceRates = RATES;
+    private RuntimeException sourceFailure;
+
+    @Test
+    void crossRatesAreRoundedToSixPlaces() {
+        RateMatrix matrix = new RateMatrix("USD", RATES, Instant.now());
+
+        assertEquals(new BigDecimal("0.858696"), matrix.rate("EUR", "GBP").orElseThrow());
+        assertEquals(new BigDecimal("1.164557"), matrix.rate("GBP", "EUR").orElseThrow());
+        assertEquals(new BigDecimal("83.120000"), matrix.rate("USD", "INR").orElseThrow());
+        assertEquals(new BigDecimal("1.000000"), matrix.rate("EUR", "EUR").orElseThrow());
+        assertEquals(Optional.empty(), matrix.rate("USD", "JPY"));
+        assertEquals(Optional.empty(), matrix.rate(null, "USD"));
+    }
+
+    @Test
+    void conversionsKeepFullPrecision() {
+        RateMatrix matrix = new RateMatrix("USD", RATES, Instant.now());
+
+        // 100 * 0.79 / 0.92, to 16 significant digits rather than through the rounded cross rate
+        assertEquals(0, new BigDecimal("85.86956521739130")
+                .compareTo(matrix.convert(new BigDecimal("100"), "EUR", "GBP").orElseThrow()));
+        assertEquals(new BigDecimal("12.345"), matrix.convert(new BigDecimal("12.345"), "GBP", "GBP").orElseThrow());
+        assertEquals(Optional.empty(), matrix.convert(BigDecimal.ONE, "JPY", "USD"));
+    }
+
+    @Test
+    void matrixDoesNotShareTheCallersMap() {
+        Map<String, BigDecimal> rates = new HashMap<>(RATES);
+        RateMatrix matrix = new RateMatrix("USD", rates, Instant.now());
+
+        rates.put("JPY", new BigDecimal("150"));
+
+        assertFalse(matrix.supports("JPY"));
+        assertThrows(UnsupportedOperationException.class, () -> matrix.rates().put("JPY", BigDecimal.TEN));
+    }
+
+    @Test
+    void valuationConvertsActiveWalletsAndReportsTheUnvalued() {
+        CurrencyValuationService service = service();
+        Portfolio portfolio = portfolio(
+                wallet("10.00", "USD", Wallet.WalletStatus.ACTIVE),
+                wallet("9.20", "EUR", Wallet.WalletStatus.ACTIVE),
+                wallet("831.20", "INR", Wallet.WalletStatus.ACTIVE),
+                wallet("500.00", "GBP", Wallet.WalletStatus.FROZEN),
+                wallet("1000", "JPY", Wallet.WalletStatus.ACTIVE),
+                wallet("5", null, Wallet.WalletStatus.ACTIVE));
+
+        CurrencyValuationService.Valuation usd = service.value(portfolio, "USD");
+        assertEquals(new BigDecimal("30.00"), usd.total());
+        assertEquals("USD", usd.currencyCode());
+        assertEquals(List.of("JPY", "UNKNOWN"), usd.unvaluedCurrencies());
+
+        // 10 * 0.92 + 9.20 + 831.20 * 0.92 / 83.12
+        assertEquals(new BigDecimal("27.60"), service.value(portfolio, "EUR").total());
+    }
+
+    @Test
+    void onlyTheTotalIsRoundedHalfUp() {
+        CurrencyValuationService service = service();
+
+        // Each wallet is worth 0.0046 EUR and would round to nothing on its own
+        Portfolio small = portfolio(
+                wallet("0.005", "USD", Wallet.WalletStatus.ACTIVE),
+                wallet("0.005", "USD", Wallet.WalletStatus.ACTIVE),
+                wallet("0.005", "USD", Wallet.WalletStatus.ACTIVE));
+        assertEquals(new BigDecimal("0.01"), service.value(small, "EUR").total());
+
+        assertEquals(new BigDecimal("0.13"),
+                service.value(portfolio(wallet("0.125", "USD", Wallet.WalletStatus.ACTIVE)), "USD").total());
+        assertEquals(new BigDecimal("0.00"), service.value(portfolio(), "GBP").total());
+    }
+
+    @Test
+    void unsupportedTargetCurrencyIsRefused() {
+        CurrencyValuationService service = service();
+
+        assertThrows(RuntimeException.class, () -> service.value(portfolio(), "JPY"));
+        assertThrows(RuntimeException.class, () -> service.exchangeRate("USD", "JPY"));
+        assertEquals(new BigDecimal("0.920000"), service.exchangeRate("USD", "EUR"));
+    }
+
+    @Test
+    void failedOrInvalidRefreshesKeepTheCurrentRates() {
+        CurrencyValuationService service = service();
+        RateMatrix loaded = service.rates();
+
+        sourceFailure = new IllegalStateException("rate service down");
+        service.refresh();
+        sourceFailure = null;
+        sourceRates = Map.of("USD", new BigDecimal("1.01"), "EUR", new BigDecimal("0.90"));
+        service.refresh();
+        sourceRates = Map.of("USD", BigDecimal.ONE, "EUR", BigDecimal.ZERO);
+        service.refresh();
+
+        assertSame(loaded, service.rates());
+        assertEquals(3.0, meterRegistry.get("wallet.fx.rates.refresh.failures").counter().count());
+    }
+
+    @Test
+    void refreshSwapsInTheNewRatesAndAddsTheBase() {
+        CurrencyValuationService service = service();
+
+        sourceRates = Map.of("EUR", new BigDecimal("0.50"));
+        service.refresh();
+
+        assertEquals(new BigDecimal("2.000000"), service.exchangeRate("EUR", "USD"));
+        assertFalse(service.rates().supports("GBP"));
+        assertEquals(new BigDecimal("20.00"),
+                service.value(portfolio(wallet("10.00", "EUR", Wallet.WalletStatus.ACTIVE)), "USD").total());
+    }
+
+    private CurrencyValuationService service() {
+        ExchangeRateSource source = (base, currencies) -> {
+            if (sourceFailure != null) {
+                throw sourceFailure;
+            }
+            return sourceRates;
+        };
+        CurrencyValuationService service = new CurrencyValuationService(source, meterRegistry, "USD",
+                List.of("USD", "EUR", "GBP", "INR"));
+        service.init();
+        return service;
+    }
+
+    private static Portfolio portfolio(WalletSnapshot... wallets) {
+        return new Portfolio("VALU0001", List.of(wallets), Map.of(), BigDecimal.ZERO);
+    }
+
+    private static WalletSnapshot wallet(String balance, String currencyCode, Wallet.WalletStatus status) {
+        return new WalletSnapshot(1L, "WALLET-1", "Valuation", Wallet.WalletType.SAVINGS, status,
+                new BigDecimal(balance), currencyCode, false, null, null);
+    }
+}
@@ -0,0 +1,125 @@
+package com.campuscross.wallet.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The generator against a fake lease and a clock the test controls
+ */
+class IdGeneratorTest {
+
+    private static final long NODE_ID = 7;
+
+    private final AtomicLong clock = new AtomicLong(Instant.parse("2026-10-16T12:00:00Z").toEpochMilli());
+    private final FakeLease lease = new FakeLease();
+
+    @Test
+    void idsCarryTheNodeIdAndIncreaseStrictly() {
+        IdGenerator generator = generator(0);
+        long previous = -1;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(NODE_ID, (id >>> IdGenerator.SEQUENCE_BITS) & IdGenerator.MAX_NODE_ID);
+            previous = id;
+        }
+    }
+
+    @Test
+    void formattedIdsDecodeToTheirTimestamp() {
+        String id = generator(0).nextTransactionId();
+
+        assertTrue(id.matches("TXN-[0-9A-F]{16}"), id);
+        assertEquals(Instant.ofEpochMilli(clock.get()), IdGenerator.timestampOf(id).orElseThrow());
+    }
+
+    @Test
+    void startsAfterWhatThePreviousHolderReserved() {
+        // The previous process ran ten seconds ahead of the clock before it stopped
+        long issuedUntil = timestampNow() + 10_000;
+        IdGenerator generator = generator(issuedUntil);
+
+        long id = generator.nextId();
+
+        assertEquals(issuedUntil + 1, id >>> (IdGenerator.NODE_BITS + IdGenerator.SEQUENCE_BITS));
+    }
+
+    @Test
+    void reservesBeforeIssuingPastTheReservation() {
+        IdGenerator generator = generator(0);
+        for (int i = 0; i < 20; i++) {
+            clock.addAndGet(IdGenerator.RESERVATION_MILLIS / 3);
+            // A frozen clock makes the generator run ahead, 4096 ids per millisecond
+            for (int j = 0; j < 3 * 4096; j++) {
+                long timestamp = generator.nextId() >>> (IdGenerator.NODE_BITS + IdGenerator.SEQUENCE_BITS);
+                assertTrue(timestamp <= lease.lastExtension(), "issued " + timestamp + " past " + lease.lastExtension());
+            }
+        }
+        assertTrue(lease.extensions.size() >= 6, "extended " + lease.extensions);
+    }
+
+    @Test
+    void stopsIssuingOnceTheLeaseIsLost() {
+        IdGenerator generator = generator(0);
+        generator.nextId();
+        lease.lost = true;
+
+        clock.addAndGet(IdGenerator.RESERVATION_MILLIS + 1);
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void releasesWithTheLastIssuedTimestamp() {
+        IdGenerator generator = generator(0);
+        long id = generator.nextId();
+        generator.renewReservation();
+
+        generator.releaseNodeId();
+
+        assertEquals(id >>> (IdGenerator.NODE_BITS + IdGenerator.SEQUENCE_BITS), lease.released);
+    }
+
+    private IdGenerator generator(long issuedUntil) {
+        return new IdGenerator(lease, new IdNodeLease.Claim((int) NODE_ID, issuedUntil), clock::get);
+    }
+
+    private long timestampNow() {
+        return clock.get() - IdGenerator.EPOCH_MILLIS;
+    }
+
+    private static final class FakeLease extends IdNodeLease {
+
+        private final List<Long> extensions = new ArrayList<>();
+        private boolean lost;
+        private long released = -1;
+
+        FakeLease() {
+            super(null, -1);
+        }
+
+        @Override
+        public void extend(int nodeId, long issuedUntil) {
+            if (lost) {
+                throw new IllegalStateException("lost");
+            }
+            extensions.add(issuedUntil);
+        }
+
+        @Override
+        public void release(int nodeId, long issuedUntil) {
+            released = issuedUntil;
+        }
+
+        long lastExtension() {
+            return extensions.isEmpty() ? -1 : extensions.get(extensions.size() - 1);
+        }
+    }
+}
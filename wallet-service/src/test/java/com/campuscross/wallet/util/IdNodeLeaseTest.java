@@ -0,0 +1,69 @@
+package com.campuscross.wallet.util;
+
+import com.campuscross.wallet.PostgresIntegrationTest;
+import com.campuscross.wallet.repository.IdGeneratorNodeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Node id leases against the real table, next to the lease the service's own generator holds
+ */
+class IdNodeLeaseTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private IdGeneratorNodeRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void instancesLeaseDistinctNodeIds() {
+        IdNodeLease.Claim first = new IdNodeLease(repository, -1).claim();
+        IdNodeLease.Claim second = new IdNodeLease(repository, -1).claim();
+
+        assertNotEquals(first.nodeId(), second.nodeId());
+    }
+
+    @Test
+    void aConfiguredNodeIdHeldByAnotherInstanceFailsStartup() {
+        int nodeId = new IdNodeLease(repository, -1).claim().nodeId();
+
+        assertThrows(IllegalStateException.class, () -> new IdNodeLease(repository, nodeId).claim());
+    }
+
+    @Test
+    void theNextHolderStartsAfterTheReservationOfTheLast() {
+        IdNodeLease holder = new IdNodeLease(repository, 900);
+        IdGenerator generator = new IdGenerator(holder);
+        generator.nextId();
+        long reserved = issuedUntil(900);
+
+        // Crashed without releasing; once the lease expires the node id is free again
+        jdbcTemplate.update("UPDATE id_generator_nodes SET lease_expires_at = CURRENT_TIMESTAMP - INTERVAL '1 second' " +
+                "WHERE node_id = 900");
+        IdNodeLease next = new IdNodeLease(repository, 900);
+        assertEquals(reserved, next.claim().issuedUntil());
+        assertThrows(IllegalStateException.class, () -> holder.extend(900, reserved + 1));
+    }
+
+    @Test
+    void releaseFreesTheNodeIdAndKeepsWhatWasIssued() {
+        IdGenerator generator = new IdGenerator(new IdNodeLease(repository, 901));
+        long id = generator.nextId();
+
+        generator.releaseNodeId();
+
+        IdNodeLease.Claim claim = new IdNodeLease(repository, 901).claim();
+        assertEquals(id >>> (IdGenerator.NODE_BITS + IdGenerator.SEQUENCE_BITS), claim.issuedUntil());
+    }
+
+    private long issuedUntil(int nodeId) {
+        return jdbcTemplate.queryForObject("SELECT issued_until FROM id_generator_nodes WHERE node_id = ?",
+                Long.class, nodeId);
+    }
+}